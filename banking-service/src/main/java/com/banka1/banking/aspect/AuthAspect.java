@@ -28,8 +28,11 @@ import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
 import java.lang.reflect.Method;
+import java.util.List;
 import java.util.Objects;
 import java.util.OptionalInt;
+import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 @Aspect
@@ -116,6 +119,9 @@ public class AuthAspect {
                     if(!Objects.equals(accountService.findById(((ExchangeMoneyTransferDTO) values[i]).getAccountFrom()).getOwnerID(), userId))
                         return false;
                     encounteredDto = true;
+                } else if(types[i] == ExchangePreviewDTO.class) {
+                    // Ponuda kursa se ne vezuje za racun, vec za korisnika iz tokena
+                    encounteredDto = true;
                 } else if(types[i] == OtpTokenDTO.class) {
                     if(!Objects.equals(transferService.findById(((OtpTokenDTO) values[i]).getTransferId()).getFromAccountId().getOwnerID(), userId))
                         return false;
@@ -134,6 +140,19 @@ public class AuthAspect {
                     if(!Objects.equals(accountService.findByAccountNumber(((MoneyTransferDTO) values[i]).getFromAccountNumber()).getOwnerID(), userId))
                         return false;
                     encounteredDto = true;
+                } else if(types[i] == StandingOrderDTO.class) {
+                    if(!Objects.equals(accountService.findByAccountNumber(((StandingOrderDTO) values[i]).getFromAccountNumber()).getOwnerID(), userId))
+                        return false;
+                    encounteredDto = true;
+                } else if(types[i] == BatchMoneyTransferDTO.class) {
+                    List<MoneyTransferDTO> transfers = ((BatchMoneyTransferDTO) values[i]).getTransfers();
+                    if(transfers == null || transfers.isEmpty())
+                        return false;
+                    Set<String> fromAccountNumbers = transfers.stream().map(MoneyTransferDTO::getFromAccountNumber).collect(Collectors.toSet());
+                    List<Account> fromAccounts = accountService.findByAccountNumbers(fromAccountNumbers);
+                    if(fromAccounts.size() != fromAccountNumbers.size() || fromAccounts.stream().anyMatch(account -> !Objects.equals(account.getOwnerID(), userId)))
+                        return false;
+                    encounteredDto = true;
                 } else if(types[i] == CreateCardDTO.class) {
                     if(!Objects.equals(accountService.findById(((CreateCardDTO) values[i]).getAccountID()).getOwnerID(), userId))
                         return false;
@@ -9,30 +9,40 @@ import com.banka1.banking.models.helper.IdempotenceKey;
 import com.banka1.banking.services.CurrencyService;
 import com.banka1.banking.services.EventExecutorService;
 import com.banka1.banking.services.EventService;
+import com.banka1.banking.services.ExchangeRateService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
 @Component
+@Slf4j
 public class BootstrapExchangeRateLoader implements CommandLineRunner {
 
     private final CurrencyService currencyService;
     private final EventService eventService;
     private final EventExecutorService eventExecutorService;
+    private final ExchangeRateService exchangeRateService;
 
     public BootstrapExchangeRateLoader(CurrencyService currencyService,
                                        EventService eventService,
-                                       EventExecutorService eventExecutorService) {
+                                       EventExecutorService eventExecutorService,
+                                       ExchangeRateService exchangeRateService) {
         this.currencyService = currencyService;
         this.eventService = eventService;
         this.eventExecutorService = eventExecutorService;
+        this.exchangeRateService = exchangeRateService;
     }
 
     @Override
     public void run(String... args) throws Exception {
-        System.out.println("=== Fetching exchange rates on startup ===");
-        currencyService.fetchExchangeRates();
-        System.out.println("=== Exchange rates fetched successfully ===");
+        // Menjacnica radi odmah sa poslednjom sacuvanom listom, nova se preuzima u pozadini
+        if (exchangeRateService.loadSnapshot()) {
+            log.info("Exchange rates loaded from snapshot");
+        }
+        exchangeRateService.reload();
+        log.info("Fetching exchange rates in the background");
+        currencyService.fetchExchangeRatesAsync();
 
 
 //         test events
@@ -0,0 +1,20 @@
+package com.banka1.banking.config;
+
+import jakarta.jms.ConnectionFactory;
+import org.springframework.boot.autoconfigure.jms.DefaultJmsListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
+
+// Listener-i na topic-e: svaka instanca dobija svaku poruku, za razliku od redova gde je dobija samo jedna
+@Configuration
+public class JmsTopicConfig {
+    @Bean
+    public DefaultJmsListenerContainerFactory topicListenerFactory(ConnectionFactory connectionFactory,
+                                                                   DefaultJmsListenerContainerFactoryConfigurer configurer) {
+        DefaultJmsListenerContainerFactory factory = new DefaultJmsListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setPubSubDomain(true);
+        return factory;
+    }
+}
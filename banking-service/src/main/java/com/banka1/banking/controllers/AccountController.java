@@ -1,12 +1,19 @@
 package com.banka1.banking.controllers;
 
 import com.banka1.banking.aspect.AccountAuthorization;
+import com.banka1.banking.dto.TransactionHistoryFilterDTO;
+import com.banka1.banking.dto.TransactionHistoryPageDTO;
 import com.banka1.banking.dto.TransactionResponseDTO;
 import com.banka1.banking.dto.request.CreateAccountDTO;
 import com.banka1.banking.dto.request.UpdateAccountDTO;
 import com.banka1.banking.dto.request.UserUpdateAccountDTO;
 import com.banka1.banking.models.Account;
+import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.models.helper.StatementFormat;
+import com.banka1.banking.models.helper.TransactionDirection;
 import com.banka1.banking.services.AccountService;
+import com.banka1.banking.services.StatementService;
+import com.banka1.banking.services.TransactionService;
 import com.banka1.banking.services.implementation.AuthService;
 import com.banka1.banking.utils.ResponseTemplate;
 import com.banka1.banking.utils.ResponseMessage;
@@ -18,9 +25,13 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,6 +42,8 @@ import java.util.Map;
 @Tag(name = "Account API", description = "API za upravljanje racunima")
 public class AccountController {
     private final AccountService accountService;
+    private final TransactionService transactionService;
+    private final StatementService statementService;
     private final AuthService authService;
 
     /// pristup imaju samo zaposleni
@@ -404,4 +417,130 @@ public class AccountController {
         return ResponseTemplate.create(ResponseEntity.status(HttpStatus.OK), true, response, null);
     }
 
+    @GetMapping("/{accountId}/transactions/history")
+    @Operation(
+            summary = "Istorija transakcija računa po stranama",
+            description = "Vraća jednu stranu transakcija računa, od najnovije ka starijoj, sa opcionim filterima po periodu, iznosu, valuti i smeru. " +
+                    "Za sledeću stranu se prosleđuje nextCursor iz prethodnog odgovora; null znači da je to poslednja strana."
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Strana istorije transakcija", content = @Content(mediaType = "application/json",
+            examples = @ExampleObject(value = """
+                {
+                   "success": true,
+                   "data": {
+                     "transactions": [
+                       {
+                         "id": 101,
+                         "fromAccountId": 1,
+                         "fromAccountNumber": "111000100000000110",
+                         "fromOwnerId": 1,
+                         "toAccountId": 2,
+                         "toAccountNumber": "111000100011000110",
+                         "toOwnerId": 2,
+                         "amount": 1000.0,
+                         "finalAmount": 1000.0,
+                         "fee": 0.0,
+                         "currency": "RSD",
+                         "timestamp": 1712345600000,
+                         "description": "Uplata za račun",
+                         "transferId": 55,
+                         "senderName": "Marko Markovic",
+                         "receiverName": "Jovan Jovanovic"
+                       }
+                     ],
+                     "nextCursor": "MTcxMjM0NTYwMDAwMDoxMDE"
+                   }
+                }
+            """))
+        ),
+        @ApiResponse(responseCode = "400", description = "Nevalidan cursor ili filter", content = @Content(mediaType = "application/json",
+            examples = @ExampleObject(value = """
+                {
+                   "success": false,
+                   "error": "Nevalidan cursor"
+                }
+            """))
+        ),
+        @ApiResponse(responseCode = "404", description = "Račun nije pronađen", content = @Content(mediaType = "application/json",
+            examples = @ExampleObject(value = """
+                {
+                   "success": false,
+                   "error": "Račun sa ID-jem 1 nije pronađen."
+                }
+            """))
+        )
+    })
+    @AccountAuthorization
+    public ResponseEntity<?> getTransactionHistoryForAccount(@PathVariable Long accountId,
+                                                             @RequestParam(required = false) Long timestampFrom,
+                                                             @RequestParam(required = false) Long timestampTo,
+                                                             @RequestParam(required = false) Double minAmount,
+                                                             @RequestParam(required = false) Double maxAmount,
+                                                             @RequestParam(required = false) CurrencyType currency,
+                                                             @RequestParam(required = false) TransactionDirection direction,
+                                                             @RequestParam(required = false) String cursor,
+                                                             @RequestParam(required = false) Integer limit) {
+        Account account;
+        try {
+            account = accountService.findById(accountId);
+        } catch (RuntimeException e) {
+            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.NOT_FOUND), false, null, "Račun sa ID-jem " + accountId + " nije pronađen.");
+        }
+
+        try {
+            TransactionHistoryPageDTO page = transactionService.getAccountTransactionHistory(account,
+                    new TransactionHistoryFilterDTO(timestampFrom, timestampTo, minAmount, maxAmount, currency, direction), cursor, limit);
+            Map<String, Object> data = new HashMap<>();
+            data.put("transactions", page.getTransactions());
+            data.put("nextCursor", page.getNextCursor());
+            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.OK), true, data, null);
+        } catch (Exception e) {
+            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.BAD_REQUEST), false, null, e.getMessage());
+        }
+    }
+
+    @GetMapping("/{accountId}/statement")
+    @Operation(
+            summary = "Izvod računa",
+            description = "Preuzimanje izvoda svih transakcija računa u periodu, od najstarije ka najnovijoj, kao CSV ili PDF fajl. " +
+                    "Fajl se šalje dok se transakcije čitaju, pa veličina izvoda nije ograničena."
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Izvod računa", content = {
+            @Content(mediaType = "text/csv", examples = @ExampleObject(value = """
+                id,timestamp,direction,counterpartAccountNumber,counterpartName,amount,fee,finalAmount,currency,description
+                101,2025-03-05T10:15:30+01:00,OUTGOING,111000100011000110,Jovan Jovanovic,1000.00,0.00,1000.00,RSD,Uplata za račun
+            """)),
+            @Content(mediaType = "application/pdf")
+        }),
+        @ApiResponse(responseCode = "404", description = "Račun nije pronađen", content = @Content(mediaType = "application/json",
+            examples = @ExampleObject(value = """
+                {
+                   "success": false,
+                   "error": "Račun sa ID-jem 1 nije pronađen."
+                }
+            """))
+        )
+    })
+    @AccountAuthorization
+    public ResponseEntity<?> exportStatement(@PathVariable Long accountId,
+                                             @RequestParam(defaultValue = "CSV") StatementFormat format,
+                                             @RequestParam(required = false) Long timestampFrom,
+                                             @RequestParam(required = false) Long timestampTo) {
+        Account account;
+        try {
+            account = accountService.findById(accountId);
+        } catch (RuntimeException e) {
+            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.NOT_FOUND), false, null, "Račun sa ID-jem " + accountId + " nije pronađen.");
+        }
+
+        StreamingResponseBody body = out -> statementService.writeStatement(account, format, timestampFrom, timestampTo, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("izvod-" + account.getAccountNumber() + "." + format.getExtension())
+                        .build().toString())
+                .body(body);
+    }
 }
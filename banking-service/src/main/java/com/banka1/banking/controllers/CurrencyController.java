@@ -1,7 +1,9 @@
 package com.banka1.banking.controllers;
 
 import com.banka1.banking.dto.ExchangePairDTO;
+import com.banka1.banking.dto.ExchangeRateCandleDTO;
 import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.models.helper.RateHistoryInterval;
 import com.banka1.banking.services.CurrencyService;
 import com.banka1.banking.utils.ResponseTemplate;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -142,4 +144,70 @@ public class CurrencyController {
         }
         return ResponseTemplate.create(ResponseEntity.status(HttpStatus.OK), true, Map.of("rates", rates), null);
     }
+
+    @GetMapping("/exchange-rates/{base}/{target}/history")
+    @Operation(summary = "Istorija kursa valutnog para",
+            description = "Vraća kurs para u periodu [from, to) sažet po intervalu (HOUR, DAY, WEEK, MONTH): prvi, najveći, najmanji i poslednji kurs intervala. " +
+                    "from i to su u milisekundama; podrazumevano je poslednjih godinu dana po danima.")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Kurs po intervalima, od najstarijeg ka najnovijem", content = @Content(mediaType = "application/json",
+            examples = @ExampleObject(value = """
+                {
+                  "data": {
+                    "baseCurrency": "EUR",
+                    "targetCurrency": "RSD",
+                    "interval": "WEEK",
+                    "candles": [
+                      {
+                        "intervalStart": 1759701600000,
+                        "open": 117.12,
+                        "high": 117.25,
+                        "low": 117.05,
+                        "close": 117.2,
+                        "samples": 7
+                      }
+                    ]
+                  },
+                  "success": true
+                }
+            """))
+        ),
+        @ApiResponse(responseCode = "400", description = "Nevalidan period ili valutni par", content = @Content(mediaType = "application/json",
+            examples = @ExampleObject(value = """
+                {
+                  "success": false,
+                  "error": "Početak perioda mora biti pre kraja"
+                }
+            """))
+        ),
+        @ApiResponse(responseCode = "404", description = "Nema istorije kursa za traženi par", content = @Content(mediaType = "application/json",
+            examples = @ExampleObject(value = """
+                {
+                  "success": false,
+                  "error": "Ne postoji istorija kursa za par EUR/RSD u traženom periodu"
+                }
+            """))
+        )
+    })
+    public ResponseEntity<?> getExchangeRateHistory(@PathVariable CurrencyType base,
+                                                    @PathVariable CurrencyType target,
+                                                    @RequestParam(required = false) Long from,
+                                                    @RequestParam(required = false) Long to,
+                                                    @RequestParam(required = false) RateHistoryInterval interval) {
+        List<ExchangeRateCandleDTO> candles;
+        try {
+            candles = currencyService.getExchangeRateHistory(base, target, from, to, interval);
+        } catch (IllegalArgumentException e) {
+            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.BAD_REQUEST), false, null, e.getMessage());
+        }
+        if (candles.isEmpty()) {
+            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.NOT_FOUND), false, null,
+                    "Ne postoji istorija kursa za par " + base + "/" + target + " u traženom periodu");
+        }
+        return ResponseTemplate.create(ResponseEntity.status(HttpStatus.OK), true, Map.of(
+                "baseCurrency", base,
+                "targetCurrency", target,
+                "interval", interval != null ? interval : RateHistoryInterval.DAY,
+                "candles", candles), null);
+    }
 }
@@ -4,6 +4,8 @@ import com.banka1.banking.aspect.AccountAuthorization;
 import com.banka1.banking.dto.ExchangeMoneyTransferDTO;
 import com.banka1.banking.dto.ExchangePreviewDTO;
 import com.banka1.banking.services.ExchangeService;
+import com.banka1.banking.services.IdempotencyService;
+import com.banka1.banking.services.implementation.AuthService;
 import com.banka1.banking.utils.ResponseTemplate;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -17,9 +19,11 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -29,6 +33,8 @@ import java.util.Map;
 public class ExchangeController {
 
     private final ExchangeService exchangeService;
+    private final IdempotencyService idempotencyService;
+    private final AuthService authService;
 
     @Operation(summary = "Transfer sa konverzijom", description = "Izvršava transfer novca između različitih valuta za isti račun korisnika.")
     @ApiResponses(value = {
@@ -55,31 +61,37 @@ public class ExchangeController {
     @PostMapping
     @AccountAuthorization(customerOnlyOperation = true)
     public ResponseEntity<?> exchangeMoneyTransfer(
+            @RequestHeader(value = "Authorization") String authorization,
             @RequestBody @io.swagger.v3.oas.annotations.parameters.RequestBody(
                     description = "Podaci za transfer sa konverzijom",
                     required = true,
                     content = @Content(schema = @Schema(implementation = ExchangeMoneyTransferDTO.class),
-                            examples = @ExampleObject(value = "{ \"fromAccountId\": 1, \"toAccountId\": 2, \"amount\": 500.0, \"fromCurrency\": \"EUR\", \"toCurrency\": \"USD\" }"))
-            ) ExchangeMoneyTransferDTO exchangeMoneyTransferDTO) {
+                            examples = @ExampleObject(value = "{ \"fromAccountId\": 1, \"toAccountId\": 2, \"amount\": 500.0, \"fromCurrency\": \"EUR\", \"toCurrency\": \"USD\", \"quoteId\": \"3f2b8c1e-5d4a-4e2b-9a61-0c7d2e8f1a34\" }"))
+            ) ExchangeMoneyTransferDTO exchangeMoneyTransferDTO,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
 
         // PROVERITI DA LI SE VALUTE SALJU U DTO
-        try {
-            if(!exchangeService.validateExchangeTransfer(exchangeMoneyTransferDTO)){
-                return ResponseTemplate.create(ResponseEntity.status(HttpStatus.BAD_REQUEST),
-                        false,null,"Nevalidni podaci ili nedovoljno sredstava.");
-            }
+        Long userId = authService.parseToken(authService.getToken(authorization)).get("id", Long.class);
+        return idempotencyService.execute(idempotencyKey, userId, "/exchange-transfer", exchangeMoneyTransferDTO, () -> {
+            try {
+                if(!exchangeService.validateExchangeTransfer(exchangeMoneyTransferDTO)){
+                    return ResponseTemplate.create(ResponseEntity.status(HttpStatus.BAD_REQUEST),
+                            false,null,"Nevalidni podaci ili nedovoljno sredstava.");
+                }
 
-            Long transferId = exchangeService.createExchangeTransfer(exchangeMoneyTransferDTO);
+                Long transferId = exchangeService.createExchangeTransfer(exchangeMoneyTransferDTO);
 
-            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.OK),true, Map.of("message","Interni prenos sa konverzijom uspesno izvršen.","transferId",transferId),null);
+                return ResponseTemplate.create(ResponseEntity.status(HttpStatus.OK),true, Map.of("message","Interni prenos sa konverzijom uspesno izvršen.","transferId",transferId),null);
 
-        } catch (Exception e) {
-            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.BAD_REQUEST), false, null, e.getMessage());
-        }
+            } catch (Exception e) {
+                return ResponseTemplate.create(ResponseEntity.status(HttpStatus.BAD_REQUEST), false, null, e.getMessage());
+            }
+        });
 
     }
 
-    @Operation(summary = "Pregled kursa pre razmene", description = "Vraća kurs, iznos nakon konverzije, proviziju i krajnji iznos pre nego što korisnik potvrdi transfer.")
+    @Operation(summary = "Pregled kursa pre razmene", description = "Vraća kurs, iznos nakon konverzije, proviziju i krajnji iznos pre nego što korisnik potvrdi transfer. " +
+            "Vraćeni quoteId se šalje uz transfer kako bi se transfer izvršio po prikazanom kursu dok ponuda ne istekne (expiresAt).")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Uspešno izračunata konverzija", content = @Content(mediaType = "application/json",
             examples = @ExampleObject(value = """
@@ -87,7 +99,9 @@ public class ExchangeController {
                     "exchangeRate": 117.5,
                     "convertedAmount": 8.51,
                     "fee": 0.25,
-                    "finalAmount": 8.26
+                    "finalAmount": 8.26,
+                    "quoteId": "3f2b8c1e-5d4a-4e2b-9a61-0c7d2e8f1a34",
+                    "expiresAt": 1718000060000
                 }
             """))
         ),
@@ -98,13 +112,17 @@ public class ExchangeController {
                 }
             """))
         ),
+        @ApiResponse(responseCode = "401", description = "Korisnik nije prijavljen ili token nije validan"),
+        @ApiResponse(responseCode = "403", description = "Pregled kursa je dostupan samo klijentima"),
         @ApiResponse(responseCode = "200", description = "Uspešno izračunata konverzija strane valute", content = @Content(mediaType = "application/json",
                 examples = @ExampleObject(value = """
             {
                 "firstExchangeRate": 117.5,
                 "secondExchangeRate": 105.2,
                 "totalFee": 5.0,
-                "finalAmount": 95.0
+                "finalAmount": 95.0,
+                "quoteId": "3f2b8c1e-5d4a-4e2b-9a61-0c7d2e8f1a34",
+                "expiresAt": 1718000060000
             }
         """))
         ),
@@ -117,9 +135,14 @@ public class ExchangeController {
         )
     })
     @PostMapping("/preview")
-    public ResponseEntity<?> previewExchange(@RequestBody ExchangePreviewDTO exchangePreviewDTO) {
+    @AccountAuthorization(customerOnlyOperation = true)
+    public ResponseEntity<?> previewExchange(@RequestHeader(value = "Authorization") String authorization,
+                                             @RequestBody ExchangePreviewDTO exchangePreviewDTO) {
+        // Ponuda vazi samo za korisnika kome je prikazana
+        Long userId = authService.parseToken(authService.getToken(authorization)).get("id", Long.class);
         try {
-            Map<String, Object> previewData = exchangeService.calculatePreviewExchangeAutomatic(
+            Map<String, Object> previewData = exchangeService.quoteExchange(
+                    userId,
                     exchangePreviewDTO.getFromCurrency(),
                     exchangePreviewDTO.getToCurrency(),
                     exchangePreviewDTO.getAmount()
@@ -131,6 +154,52 @@ public class ExchangeController {
         }
     }
 
+    @Operation(summary = "Pregled kursa za više konverzija odjednom", description = "Vraća pregled za svaku konverziju iz liste, redom, izračunat po istoj kursnoj listi (npr. za osvežavanje kursne table jednim zahtevom). " +
+            "Konverzija koja ne može da se izračuna dobija polje error, ostale se vraćaju normalno. Kurs se ne zaključava; za transfer po prikazanom kursu koristi se /preview. " +
+            "Najviše " + ExchangeService.MAX_BULK_PREVIEW_ITEMS + " konverzija po zahtevu.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Pregled za svaku konverziju", content = @Content(mediaType = "application/json",
+            examples = @ExampleObject(value = """
+                {
+                    "quotes": [
+                        {
+                            "fromCurrency": "EUR",
+                            "toCurrency": "RSD",
+                            "amount": 100.0,
+                            "exchangeRate": 117.19,
+                            "convertedAmount": 11719.0,
+                            "fee": 117.19,
+                            "provision": 117.19,
+                            "finalAmount": 11601.81
+                        },
+                        {
+                            "fromCurrency": "EUR",
+                            "toCurrency": "XYZ",
+                            "amount": 100.0,
+                            "error": "Nepoznata valuta: XYZ"
+                        }
+                    ]
+                }
+            """))
+        ),
+        @ApiResponse(responseCode = "400", description = "Prazna ili prevelika lista konverzija", content = @Content(mediaType = "application/json",
+            examples = @ExampleObject(value = """
+                {
+                    "error": "Najviše 500 konverzija po zahtevu."
+                }
+            """))
+        )
+    })
+    @PostMapping("/preview/bulk")
+    public ResponseEntity<?> previewExchanges(@RequestBody List<ExchangePreviewDTO> exchangePreviewDTOs) {
+        try {
+            return ResponseEntity.ok(Map.of("quotes", exchangeService.calculatePreviewExchanges(exchangePreviewDTOs)));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
 //    @Operation(summary = "Pregled kursa za stranu valutu pre razmene", description = "Vraća kurs za obe strane valute, ukupnu proviziju i konačan iznos nakon oduzimanja provizije.")
 //    @ApiResponses(value = {
 //        @ApiResponse(responseCode = "200", description = "Uspešno izračunata konverzija strane valute", content = @Content(mediaType = "application/json",
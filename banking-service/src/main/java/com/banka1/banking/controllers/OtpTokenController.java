@@ -6,7 +6,7 @@ import com.banka1.banking.models.Transfer;
 import com.banka1.banking.models.helper.TransferStatus;
 import com.banka1.banking.repository.TransferRepository;
 import com.banka1.banking.services.OtpTokenService;
-import com.banka1.banking.services.TransferService;
+import com.banka1.banking.services.TransferDispatchService;
 import com.banka1.banking.utils.ResponseTemplate;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -21,6 +21,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -33,21 +34,25 @@ public class OtpTokenController {
 
     private final OtpTokenService otpTokenService;
     private final TransferRepository transferRepository;
-    private final TransferService transferService;
+    private final TransferDispatchService transferDispatchService;
 
     @Operation(
             summary = "Verifikacija OTP koda",
             description = "Proverava da li je uneti OTP kod validan i još uvek važeći."
     )
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "OTP validan, transakcija izvršena.",
+            @ApiResponse(responseCode = "202", description = "OTP validan, transakcija prosleđena na izvršenje.",
                     content = @Content(mediaType = "application/json",
-                            examples = @ExampleObject(value = "{ \"success\": true, \"data\": { \"message\": \"OTP validan, transakcija izvršena.\" } }"))
+                            examples = @ExampleObject(value = "{ \"success\": true, \"data\": { \"message\": \"OTP validan, transakcija prosleđena na izvršenje.\", \"transferId\": 101, \"status\": \"QUEUED\", \"statusUrl\": \"/transfers/101/status\" } }"))
             ),
             @ApiResponse(responseCode = "401", description = "Nevalidan OTP kod ili je već iskorišćen.",
                     content = @Content(mediaType = "application/json",
                             examples = @ExampleObject(value = "{ \"success\": false, \"error\": \"Nevalidan OTP kod ili je već iskorišćen.\" }"))
             ),
+            @ApiResponse(responseCode = "409", description = "Transfer je već prosleđen na izvršenje.",
+                    content = @Content(mediaType = "application/json",
+                            examples = @ExampleObject(value = "{ \"success\": false, \"error\": \"Transfer je već prosleđen na izvršenje.\" }"))
+            ),
             @ApiResponse(responseCode = "408", description = "OTP kod je istekao.",
                     content = @Content(mediaType = "application/json",
                             examples = @ExampleObject(value = "{ \"success\": false, \"error\": \"OTP kod je istekao.\" }"))
@@ -87,27 +92,49 @@ public class OtpTokenController {
                     return ResponseTemplate.create(ResponseEntity.status(HttpStatus.BAD_REQUEST),
                             false,null,"Transfer je otkazan.");
                 }
+                if(transfer.getStatus() != TransferStatus.PENDING){
+                    return ResponseTemplate.create(ResponseEntity.status(HttpStatus.CONFLICT),
+                            false,null,"Transfer je već prosleđen na izvršenje.");
+                }
                 otpTokenService.markOtpAsUsed(transferId, otpCode);
 
-
                 try {
-                    transferService.processTransfer(transferId);
+                    if (transfer.getBatchId() != null) {
+                        List<Long> queued = transferDispatchService.dispatchBatch(transfer.getBatchId());
+                        return ResponseTemplate.create(ResponseEntity.status(HttpStatus.ACCEPTED), true, Map.of(
+                                "message", "OTP validan, paket transfera prosleđen na izvršenje.",
+                                "transferIds", queued,
+                                "statusUrls", queued.stream().map(OtpTokenController::statusUrl).toList()), null);
+                    }
+
+                    if (!transferDispatchService.dispatch(transfer)) {
+                        return ResponseTemplate.create(ResponseEntity.status(HttpStatus.CONFLICT),
+                                false, null, "Transfer je već prosleđen na izvršenje.");
+                    }
                 } catch (Exception e){
-                    System.out.println(e);
+                    log.error("Transfer {} nije prosleđen na izvršenje", transferId, e);
                     return ResponseTemplate.create(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR),
                             false, null, "Transakcija nije uspela: " + e.getMessage());
                 }
 
-
+                return ResponseTemplate.create(ResponseEntity.status(HttpStatus.ACCEPTED), true, Map.of(
+                        "message", "OTP validan, transakcija prosleđena na izvršenje.",
+                        "transferId", transferId,
+                        "status", TransferStatus.QUEUED,
+                        "statusUrl", statusUrl(transferId)), null);
             }
 
 
-            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.OK),
-                    true, Map.of("message", "OTP validan, transakcija izvršena."), null);
+            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.NOT_FOUND),
+                    false, null, "Transfer nije pronađen.");
 
         } catch (Exception e) {
             return ResponseTemplate.create(ResponseEntity.status(HttpStatus.BAD_REQUEST), false, null, e.getMessage());
         }
     }
+
+    private static String statusUrl(Long transferId) {
+        return "/transfers/" + transferId + "/status";
+    }
 }
 
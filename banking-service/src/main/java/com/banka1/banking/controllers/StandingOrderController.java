@@ -0,0 +1,167 @@
+package com.banka1.banking.controllers;
+
+import com.banka1.banking.aspect.AccountAuthorization;
+import com.banka1.banking.aspect.Authorization;
+import com.banka1.banking.dto.StandingOrderDTO;
+import com.banka1.banking.services.StandingOrderService;
+import com.banka1.banking.services.implementation.AuthService;
+import com.banka1.banking.utils.ResponseTemplate;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/standing-orders")
+@RequiredArgsConstructor
+@Tag(name = "Trajni nalozi", description = "Rute za kreiranje, pregled i otkazivanje trajnih naloga")
+public class StandingOrderController {
+
+    private final StandingOrderService standingOrderService;
+    private final AuthService authService;
+
+    @Operation(
+            summary = "Kreiranje trajnog naloga",
+            description = "Kreira trajni nalog koji se izvršava po cron rasporedu (Spring format sa sekundama) do datuma završetka. " +
+                    "Prenosi trajnog naloga se izvršavaju bez OTP verifikacije."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Trajni nalog uspešno kreiran", content = @Content(mediaType = "application/json",
+                    examples = @ExampleObject(value = """
+                            {
+                                "success": true,
+                                "data": {
+                                    "message": "Trajni nalog uspešno kreiran.",
+                                    "standingOrderId": 15
+                                }
+                            }
+                            """))
+            ),
+            @ApiResponse(responseCode = "400", description = "Nevalidni podaci", content = @Content(mediaType = "application/json",
+                    examples = @ExampleObject(value = """
+                            {
+                                "success": false,
+                                "error": "Nevalidan cron izraz."
+                            }
+                            """))
+            )
+    })
+    @PostMapping
+    @AccountAuthorization(customerOnlyOperation = true)
+    public ResponseEntity<?> createStandingOrder(
+            @RequestBody @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Podaci trajnog naloga",
+                    required = true,
+                    content = @Content(schema = @Schema(implementation = StandingOrderDTO.class),
+                            examples = @ExampleObject(value = "{"
+                                    + "  \"fromAccountNumber\": \"111000100000000110\","
+                                    + "  \"recipientAccount\": \"111000100011000110\","
+                                    + "  \"amount\": 15000.0,"
+                                    + "  \"receiver\": \"Marko Marković\","
+                                    + "  \"payementCode\": \"289\","
+                                    + "  \"payementDescription\": \"Kirija\","
+                                    + "  \"cron\": \"0 0 9 1 * *\","
+                                    + "  \"endDate\": 1767225599000"
+                                    + "}"))
+            ) StandingOrderDTO standingOrderDTO) {
+        try {
+            Long standingOrderId = standingOrderService.createStandingOrder(standingOrderDTO);
+            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.OK), true,
+                    Map.of("message", "Trajni nalog uspešno kreiran.", "standingOrderId", standingOrderId), null);
+        } catch (Exception e) {
+            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.BAD_REQUEST), false, null, e.getMessage());
+        }
+    }
+
+    @GetMapping
+    @Authorization
+    @Operation(
+            summary = "Aktivni trajni nalozi",
+            description = "Vraća aktivne trajne naloge korisnika sa terminom sledećeg izvršenja."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Lista trajnih naloga", content = @Content(mediaType = "application/json",
+                    examples = @ExampleObject(value = """
+                            {
+                                "success": true,
+                                "data": {
+                                    "standingOrders": [
+                                        {
+                                            "id": 15,
+                                            "fromAccountNumber": "111000100000000110",
+                                            "toAccountNumber": "111000100011000110",
+                                            "amount": 15000.0,
+                                            "receiver": "Marko Marković",
+                                            "paymentDescription": "Kirija",
+                                            "cron": "0 0 9 1 * *",
+                                            "endDate": 1767225599000,
+                                            "nextScheduledAt": 1714546800000,
+                                            "lastRunAt": null,
+                                            "lastTransferId": null,
+                                            "status": "ACTIVE"
+                                        }
+                                    ]
+                                }
+                            }
+                            """))
+            )
+    })
+    public ResponseEntity<?> getStandingOrders(@RequestHeader(value = "Authorization") String authorization) {
+        try {
+            Long userId = authService.parseToken(authService.getToken(authorization)).get("id", Long.class);
+            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.OK), true,
+                    Map.of("standingOrders", standingOrderService.getActiveStandingOrders(userId)), null);
+        } catch (Exception e) {
+            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.BAD_REQUEST), false, null, e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{standingOrderId}")
+    @Authorization
+    @Operation(
+            summary = "Otkazivanje trajnog naloga",
+            description = "Otkazuje aktivni trajni nalog korisnika. Već kreirani prenosi se ne poništavaju."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Trajni nalog otkazan", content = @Content(mediaType = "application/json",
+                    examples = @ExampleObject(value = """
+                            {
+                                "success": true,
+                                "data": {
+                                    "message": "Trajni nalog uspešno otkazan."
+                                }
+                            }
+                            """))
+            ),
+            @ApiResponse(responseCode = "403", description = "Trajni nalog ne pripada korisniku", content = @Content(mediaType = "application/json",
+                    examples = @ExampleObject(value = """
+                            {
+                                "success": false,
+                                "error": "Trajni nalog ne pripada korisniku."
+                            }
+                            """))
+            )
+    })
+    public ResponseEntity<?> cancelStandingOrder(@RequestHeader(value = "Authorization") String authorization,
+                                                 @PathVariable("standingOrderId") Long standingOrderId) {
+        try {
+            Long userId = authService.parseToken(authService.getToken(authorization)).get("id", Long.class);
+            standingOrderService.cancelStandingOrder(standingOrderId, userId);
+            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.OK), true,
+                    Map.of("message", "Trajni nalog uspešno otkazan."), null);
+        } catch (SecurityException e) {
+            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.FORBIDDEN), false, null, e.getMessage());
+        } catch (Exception e) {
+            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.BAD_REQUEST), false, null, e.getMessage());
+        }
+    }
+}
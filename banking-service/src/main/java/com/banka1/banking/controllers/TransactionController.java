@@ -1,7 +1,11 @@
 package com.banka1.banking.controllers;
 
 import com.banka1.banking.aspect.AccountAuthorization;
+import com.banka1.banking.dto.TransactionHistoryFilterDTO;
+import com.banka1.banking.dto.TransactionHistoryPageDTO;
 import com.banka1.banking.models.Transaction;
+import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.models.helper.TransactionDirection;
 import com.banka1.banking.services.TransactionService;
 import com.banka1.banking.utils.ResponseTemplate;
 import io.swagger.v3.oas.annotations.Operation;
@@ -157,4 +161,73 @@ public class TransactionController {
             return ResponseTemplate.create(ResponseEntity.status(HttpStatus.BAD_REQUEST), false, null, e.getMessage());
         }
     }
+
+    @GetMapping("/{userId}/history")
+    @Operation(
+            summary = "Istorija transakcija korisnika po stranama",
+            description = "Vraća jednu stranu transakcija sa svih računa korisnika, od najnovije ka starijoj, sa opcionim filterima po periodu, iznosu, valuti i smeru. " +
+                    "Za sledeću stranu se prosleđuje nextCursor iz prethodnog odgovora; null znači da je to poslednja strana."
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Strana istorije transakcija", content = @Content(mediaType = "application/json",
+            examples = @ExampleObject(value = """
+                {
+                  "success": true,
+                  "data": {
+                    "transactions": [
+                      {
+                        "id": 101,
+                        "fromAccountId": 1,
+                        "fromAccountNumber": "111000100000000110",
+                        "fromOwnerId": 1,
+                        "toAccountId": 2,
+                        "toAccountNumber": "111000100011000110",
+                        "toOwnerId": 2,
+                        "amount": 1000.0,
+                        "finalAmount": 1000.0,
+                        "fee": 0.0,
+                        "currency": "RSD",
+                        "timestamp": 1712345600000,
+                        "description": "Uplata za račun",
+                        "transferId": 55,
+                        "senderName": "Marko Markovic",
+                        "receiverName": "Jovan Jovanovic"
+                      }
+                    ],
+                    "nextCursor": "MTcxMjM0NTYwMDAwMDoxMDE"
+                  }
+                }
+            """))
+        ),
+        @ApiResponse(responseCode = "400", description = "Nevalidan cursor ili filter", content = @Content(mediaType = "application/json",
+            examples = @ExampleObject(value = """
+                {
+                  "success": false,
+                  "error": "Nevalidan cursor"
+                }
+            """))
+        )
+    })
+    @AccountAuthorization
+    public ResponseEntity<?> getTransactionHistory(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                                   @PathVariable Long userId,
+                                                   @RequestParam(required = false) Long timestampFrom,
+                                                   @RequestParam(required = false) Long timestampTo,
+                                                   @RequestParam(required = false) Double minAmount,
+                                                   @RequestParam(required = false) Double maxAmount,
+                                                   @RequestParam(required = false) CurrencyType currency,
+                                                   @RequestParam(required = false) TransactionDirection direction,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(required = false) Integer limit) {
+        try {
+            TransactionHistoryPageDTO page = transactionService.getUserTransactionHistory(userId,
+                    new TransactionHistoryFilterDTO(timestampFrom, timestampTo, minAmount, maxAmount, currency, direction), cursor, limit);
+            Map<String, Object> data = new HashMap<>();
+            data.put("transactions", page.getTransactions());
+            data.put("nextCursor", page.getNextCursor());
+            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.OK), true, data, null);
+        } catch (Exception e) {
+            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.BAD_REQUEST), false, null, e.getMessage());
+        }
+    }
 }
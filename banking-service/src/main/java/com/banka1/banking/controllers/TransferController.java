@@ -3,9 +3,16 @@ package com.banka1.banking.controllers;
 import com.banka1.banking.aspect.AccountAuthorization;
 import com.banka1.banking.aspect.Authorization;
 import com.banka1.banking.models.Transfer;
+import com.banka1.banking.models.helper.TransferStatus;
+import com.banka1.banking.models.helper.TransferType;
+import com.banka1.banking.services.IdempotencyService;
 import com.banka1.banking.services.TransferService;
+import com.banka1.banking.services.TransferStatusStreamService;
+import com.banka1.banking.dto.BatchMoneyTransferDTO;
+import com.banka1.banking.dto.BatchMoneyTransferResultDTO;
 import com.banka1.banking.dto.InternalTransferDTO;
 import com.banka1.banking.dto.MoneyTransferDTO;
+import com.banka1.banking.dto.TransferHistoryPageDTO;
 import com.banka1.banking.services.implementation.AuthService;
 import com.banka1.banking.utils.ResponseTemplate;
 import io.swagger.v3.oas.annotations.Operation;
@@ -17,11 +24,15 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 @RestController
 @RequestMapping
@@ -31,6 +42,8 @@ public class TransferController {
 
     private final TransferService transferService;
     private final AuthService authService;
+    private final IdempotencyService idempotencyService;
+    private final TransferStatusStreamService transferStatusStreamService;
 
     @Operation(
             summary = "Interni prenos",
@@ -60,29 +73,34 @@ public class TransferController {
     @PostMapping("/internal-transfer")
     @AccountAuthorization(customerOnlyOperation = true)
     public ResponseEntity<?> internalTransfer(
+            @RequestHeader(value = "Authorization") String authorization,
             @RequestBody @io.swagger.v3.oas.annotations.parameters.RequestBody(
                     description = "Podaci za interni transfer",
                     required = true,
                     content = @Content(schema = @Schema(implementation = InternalTransferDTO.class),
                             examples = @ExampleObject(value = "{ \"fromAccountId\": 1, \"toAccountId\": 2, \"amount\": 500.0 }"))
-            ) InternalTransferDTO transferDTO) {
+            ) InternalTransferDTO transferDTO,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
 
-        try {
+        Long userId = authService.parseToken(authService.getToken(authorization)).get("id", Long.class);
+        return idempotencyService.execute(idempotencyKey, userId, "/internal-transfer", transferDTO, () -> {
+            try {
 
-            if (!transferService.validateInternalTransfer(transferDTO)){
-                return ResponseTemplate.create(ResponseEntity.status(HttpStatus.BAD_REQUEST),
-                        false, null, "Nevalidni podaci ili nedovoljno sredstava.");
-            }
+                if (!transferService.validateInternalTransfer(transferDTO)){
+                    return ResponseTemplate.create(ResponseEntity.status(HttpStatus.BAD_REQUEST),
+                            false, null, "Nevalidni podaci ili nedovoljno sredstava.");
+                }
 
-            Long transferId = transferService.createInternalTransfer(transferDTO);
+                Long transferId = transferService.createInternalTransfer(transferDTO);
 
-            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.OK),true, Map.of("message","Interni prenos uspešno kreiran.","transferId",transferId),null);
+                return ResponseTemplate.create(ResponseEntity.status(HttpStatus.OK),true, Map.of("message","Interni prenos uspešno kreiran.","transferId",transferId),null);
 
 
-        } catch (Exception e) {
-            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.BAD_REQUEST), false, null, e.getMessage());
+            } catch (Exception e) {
+                return ResponseTemplate.create(ResponseEntity.status(HttpStatus.BAD_REQUEST), false, null, e.getMessage());
 
-        }
+            }
+        });
 
     }
 
@@ -114,6 +132,7 @@ public class TransferController {
     @PostMapping("/money-transfer")
     @AccountAuthorization(customerOnlyOperation = true)
     public ResponseEntity<?> moneyTransfer(
+            @RequestHeader(value = "Authorization") String authorization,
             @RequestBody @io.swagger.v3.oas.annotations.parameters.RequestBody(
                     description = "Podaci za prenos novca",
                     required = true,
@@ -128,22 +147,139 @@ public class TransferController {
                                     + "  \"payementReference\": \"2024-0001\","
                                     + "  \"payementDescription\": \"Uplata za račun\""
                                     + "}"))
-            ) MoneyTransferDTO transferDTO) {
+            ) MoneyTransferDTO transferDTO,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
 
-        try {
+        Long userId = authService.parseToken(authService.getToken(authorization)).get("id", Long.class);
+        return idempotencyService.execute(idempotencyKey, userId, "/money-transfer", transferDTO, () -> {
+            try {
+
+                if (!transferService.validateMoneyTransfer(transferDTO)){
+                    return ResponseTemplate.create(ResponseEntity.status(HttpStatus.BAD_REQUEST),
+                            false, null, "Nevalidni podaci ili nedovoljno sredstava.");
+                }
+
+                Long transferId = transferService.createMoneyTransfer(transferDTO);
+
+                return ResponseTemplate.create(ResponseEntity.status(HttpStatus.OK),true, Map.of("message","Transfer novca uspešno kreiran.","transferId",transferId),null);
+
+            } catch (Exception e) {
+                return ResponseTemplate.create(ResponseEntity.status(HttpStatus.BAD_REQUEST), false, null, e.getMessage());
 
-            if (!transferService.validateMoneyTransfer(transferDTO)){
-                return ResponseTemplate.create(ResponseEntity.status(HttpStatus.BAD_REQUEST),
-                        false, null, "Nevalidni podaci ili nedovoljno sredstava.");
             }
+        });
+    }
 
-            Long transferId = transferService.createMoneyTransfer(transferDTO);
+    @Operation(
+            summary = "Paketni prenos novca",
+            description = "Kreira više prenosa novca odjednom. Svi prenosi se validiraju u jednom prolazu, " +
+                    "za ceo paket se šalje jedan OTP kod (vezan za prvi transfer), a rezultat se vraća za svaku stavku."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Paket prenosa uspešno kreiran", content = @Content(mediaType = "application/json",
+            examples = @ExampleObject(value = """
+                {
+                    "success": true,
+                    "data": {
+                        "message": "Paket transfera uspešno kreiran.",
+                        "batchId": "3f1c2d9e-7a41-4b8e-9a53-1d2f0c6b7e10",
+                        "transferId": 101,
+                        "results": [
+                            { "index": 0, "transferId": 101, "success": true, "error": null },
+                            { "index": 1, "transferId": null, "success": false, "error": "Račun nije pronađen." }
+                        ]
+                    }
+                }
+                """))
+            ),
+        @ApiResponse(responseCode = "400", description = "Nijedna stavka paketa nije validna", content = @Content(mediaType = "application/json",
+            examples = @ExampleObject(value = """
+                {
+                    "success": false,
+                    "error": "Nijedan transfer iz paketa nije validan."
+                }
+            """))
+        )
+    })
+    @PostMapping("/money-transfer/batch")
+    @AccountAuthorization(customerOnlyOperation = true)
+    public ResponseEntity<?> moneyTransferBatch(
+            @RequestHeader(value = "Authorization") String authorization,
+            @RequestBody @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Lista prenosa novca",
+                    required = true,
+                    content = @Content(schema = @Schema(implementation = BatchMoneyTransferDTO.class))
+            ) BatchMoneyTransferDTO batchDTO,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
 
-            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.OK),true, Map.of("message","Transfer novca uspešno kreiran.","transferId",transferId),null);
+        Long userId = authService.parseToken(authService.getToken(authorization)).get("id", Long.class);
+        return idempotencyService.execute(idempotencyKey, userId, "/money-transfer/batch", batchDTO, () -> {
+            try {
+                BatchMoneyTransferResultDTO result = transferService.createMoneyTransferBatch(batchDTO);
 
-        } catch (Exception e) {
-            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.BAD_REQUEST), false, null, e.getMessage());
+                if (result.getBatchId() == null) {
+                    return ResponseTemplate.create(ResponseEntity.status(HttpStatus.BAD_REQUEST),
+                            false, Map.of("results", result.getResults()), "Nijedan transfer iz paketa nije validan.");
+                }
+
+                return ResponseTemplate.create(ResponseEntity.status(HttpStatus.OK), true, Map.of(
+                        "message", "Paket transfera uspešno kreiran.",
+                        "batchId", result.getBatchId(),
+                        "transferId", result.getTransferId(),
+                        "results", result.getResults()), null);
+
+            } catch (Exception e) {
+                return ResponseTemplate.create(ResponseEntity.status(HttpStatus.BAD_REQUEST), false, null, e.getMessage());
+            }
+        });
+    }
+
+    @GetMapping("/transfers/{transferId}/status")
+    @Authorization
+    @Operation(
+            summary = "Status transfera",
+            description = "Vraća trenutni status transfera. Koristi se za praćenje transfera koji je nakon OTP verifikacije prosleđen na izvršenje."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Status transfera", content = @Content(mediaType = "application/json",
+                    examples = @ExampleObject(value = """
+                            {
+                                "success": true,
+                                "data": {
+                                    "transferId": 101,
+                                    "status": "COMPLETED",
+                                    "completedAt": 1712345678901,
+                                    "note": null
+                                }
+                            }
+                            """))
+            ),
+            @ApiResponse(responseCode = "403", description = "Transfer ne pripada korisniku", content = @Content(mediaType = "application/json",
+                    examples = @ExampleObject(value = """
+                            {
+                                "success": false,
+                                "error": "Transfer ne pripada korisniku."
+                            }
+                            """))
+            )
+    })
+    public ResponseEntity<?> getTransferStatus(@RequestHeader(value = "Authorization") String authorization,
+                                               @PathVariable("transferId") Long transferId) {
+        try {
+            Long userId = authService.parseToken(authService.getToken(authorization)).get("id", Long.class);
+            Transfer transfer = transferService.findById(transferId);
+            if (!Objects.equals(transfer.getFromAccountId().getOwnerID(), userId)) {
+                return ResponseTemplate.create(ResponseEntity.status(HttpStatus.FORBIDDEN), false, null, "Transfer ne pripada korisniku.");
+            }
 
+            Map<String, Object> data = new HashMap<>();
+            data.put("transferId", transfer.getId());
+            data.put("status", transfer.getStatus());
+            data.put("completedAt", transfer.getCompletedAt());
+            data.put("note", transfer.getNote());
+            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.OK), true, data, null);
+        } catch (Exception e) {
+            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.NOT_FOUND), false, null, e.getMessage());
         }
     }
 
@@ -196,4 +332,89 @@ public class TransferController {
         }
     }
 
+    @GetMapping("/mobile-transfers/history")
+    @Authorization
+    @Operation(
+            summary = "Istorija transfera po stranama",
+            description = "Vraća jednu stranu transfera korisnika, od najnovijeg ka starijem, sa opcionim filterima po statusu, tipu i periodu kreiranja. " +
+                    "Za sledeću stranu se prosleđuje nextCursor iz prethodnog odgovora; null znači da je to poslednja strana."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Strana istorije transfera", content = @Content(mediaType = "application/json",
+                    examples = @ExampleObject(value = """
+                            {
+                                "success": true,
+                                "data": {
+                                    "transfers": [
+                                        {
+                                            "id": 102,
+                                            "fromAccountNumber": "111000100000000110",
+                                            "toAccountNumber": "111000100011000110",
+                                            "amount": 500.0,
+                                            "fromCurrency": "RSD",
+                                            "toCurrency": "RSD",
+                                            "receiver": "Marko Marković",
+                                            "paymentDescription": "Uplata za račun",
+                                            "type": "EXTERNAL",
+                                            "status": "COMPLETED",
+                                            "createdAt": 1712345600000,
+                                            "completedAt": 1712345678901
+                                        }
+                                    ],
+                                    "nextCursor": "MTcxMjM0NTYwMDAwMDoxMDI"
+                                }
+                            }
+                            """))
+            ),
+            @ApiResponse(responseCode = "400", description = "Nevalidan cursor ili filter", content = @Content(mediaType = "application/json",
+                    examples = @ExampleObject(value = """
+                            {
+                                "success": false,
+                                "error": "Nevalidan cursor"
+                            }
+                            """))
+            )
+    })
+    public ResponseEntity<?> getTransferHistory(@RequestHeader(value = "Authorization") String authorization,
+                                                @RequestParam(required = false) TransferStatus status,
+                                                @RequestParam(required = false) TransferType type,
+                                                @RequestParam(required = false) Long createdFrom,
+                                                @RequestParam(required = false) Long createdTo,
+                                                @RequestParam(required = false) String cursor,
+                                                @RequestParam(required = false) Integer limit) {
+        try {
+            Long userId = authService.parseToken(authService.getToken(authorization)).get("id", Long.class);
+            TransferHistoryPageDTO page = transferService.getTransferHistory(userId, status, type, createdFrom, createdTo, cursor, limit);
+            Map<String, Object> data = new HashMap<>();
+            data.put("transfers", page.getTransfers());
+            data.put("nextCursor", page.getNextCursor());
+            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.OK), true, data, null);
+        } catch (Exception e) {
+            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.BAD_REQUEST), false, null, e.getMessage());
+        }
+    }
+
+    @GetMapping(value = "/mobile-transfers/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Authorization
+    @Operation(
+            summary = "Tok promena statusa transfera",
+            description = "Server-sent events tok koji šalje promene statusa transfera korisnika (QUEUED, COMPLETED, FAILED, CANCELLED). " +
+                    "Posle prekida klijent se ponovo povezuje sa Last-Event-ID zaglavljem i dobija propuštene promene. " +
+                    "Ako one više nisu dostupne, stiže događaj \"reset\" i klijent jednom ponovo učitava /mobile-transfers."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Otvoren tok događaja", content = @Content(mediaType = "text/event-stream",
+                    examples = @ExampleObject(value = """
+                            id:1712345600000-42
+                            event:transfer-status
+                            data:{"transferId":101,"status":"COMPLETED","note":null,"changedAt":1712345678901}
+                            """))
+            )
+    })
+    public SseEmitter streamTransferStatuses(@RequestHeader(value = "Authorization") String authorization,
+                                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        Long userId = authService.parseToken(authService.getToken(authorization)).get("id", Long.class);
+        return transferStatusStreamService.subscribe(userId, lastEventId);
+    }
+
 }
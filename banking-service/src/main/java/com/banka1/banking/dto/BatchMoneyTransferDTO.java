@@ -0,0 +1,13 @@
+package com.banka1.banking.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchMoneyTransferDTO {
+
+    private List<MoneyTransferDTO> transfers;
+}
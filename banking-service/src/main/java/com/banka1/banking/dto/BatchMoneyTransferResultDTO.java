@@ -0,0 +1,15 @@
+package com.banka1.banking.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchMoneyTransferResultDTO {
+
+    private String batchId;
+    private Long transferId; // prvi transfer u paketu, njegov OTP verifikuje ceo paket
+    private List<BatchTransferItemResultDTO> results;
+}
@@ -0,0 +1,22 @@
+package com.banka1.banking.dto;
+
+import lombok.*;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchTransferItemResultDTO {
+
+    private Integer index; // pozicija stavke u zahtevu
+    private Long transferId;
+    private Boolean success;
+    private String error;
+
+    public static BatchTransferItemResultDTO ok(int index, Long transferId) {
+        return new BatchTransferItemResultDTO(index, transferId, true, null);
+    }
+
+    public static BatchTransferItemResultDTO failed(int index, String error) {
+        return new BatchTransferItemResultDTO(index, null, false, error);
+    }
+}
@@ -12,5 +12,6 @@ public class ExchangeMoneyTransferDTO {
     private Long accountFrom;
     private Long accountTo;
     private Double amount;
+    private String quoteId; // id ponude iz /exchange-transfer/preview, opciono
 
 }
@@ -0,0 +1,25 @@
+package com.banka1.banking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Kurs sažet na jedan interval: prvi, najveći, najmanji i poslednji zabeleženi kurs.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExchangeRateCandleDTO {
+    private Long intervalStart; // Početak intervala u milisekundama
+    private Double open;
+    private Double high;
+    private Double low;
+    private Double close;
+    private Long samples; // Broj kursnih lista u intervalu
+
+    // Isti kurs posmatran iz suprotnog smera: 1/x, pa najveći i najmanji menjaju mesta
+    public ExchangeRateCandleDTO inverse() {
+        return new ExchangeRateCandleDTO(intervalStart, 1 / open, 1 / low, 1 / high, 1 / close, samples);
+    }
+}
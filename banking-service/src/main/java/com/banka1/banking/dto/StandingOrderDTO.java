@@ -0,0 +1,23 @@
+package com.banka1.banking.dto;
+
+import lombok.*;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StandingOrderDTO {
+
+    private String fromAccountNumber;
+    private String recipientAccount;
+    private Double amount;
+    private String receiver;
+    private String adress;
+    private String payementCode;
+    private String payementReference;
+    private String payementDescription;
+
+    // Spring cron izraz sa sekundama, npr. "0 0 9 1 * *" za svakog prvog u mesecu u 9h
+    private String cron;
+    // Poslednji trenutak u kom nalog sme da se izvrši (epoch ms), null znači bez kraja
+    private Long endDate;
+}
@@ -0,0 +1,20 @@
+package com.banka1.banking.dto;
+
+import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.models.helper.TransactionDirection;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Svi filteri su opcioni; null znači da se po tom polju ne filtrira
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionHistoryFilterDTO {
+    private Long timestampFrom;
+    private Long timestampTo;
+    private Double minAmount;
+    private Double maxAmount;
+    private CurrencyType currency;
+    private TransactionDirection direction;
+}
@@ -0,0 +1,18 @@
+package com.banka1.banking.dto;
+
+import com.banka1.banking.repository.projection.TransactionHistoryView;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionHistoryItemDTO {
+    @JsonUnwrapped
+    private TransactionHistoryView transaction;
+
+    private String senderName; //osoba koja salje pare
+    private String receiverName; //osoba koja ce dobiti pare
+}
@@ -0,0 +1,16 @@
+package com.banka1.banking.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionHistoryPageDTO {
+
+    private List<TransactionHistoryItemDTO> transactions;
+
+    // Prosleđuje se kao cursor za sledeću stranu; null ako je ovo poslednja strana
+    private String nextCursor;
+}
@@ -0,0 +1,12 @@
+package com.banka1.banking.dto;
+
+import lombok.*;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransferExecutionDTO {
+
+    private Long transferId;
+    private Long fromAccountId;
+}
@@ -0,0 +1,17 @@
+package com.banka1.banking.dto;
+
+import com.banka1.banking.repository.projection.TransferHistoryView;
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransferHistoryPageDTO {
+
+    private List<TransferHistoryView> transfers;
+
+    // Prosleđuje se kao cursor za sledeću stranu; null ako je ovo poslednja strana
+    private String nextCursor;
+}
@@ -0,0 +1,23 @@
+package com.banka1.banking.dto;
+
+import com.banka1.banking.models.helper.TransferStatus;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.*;
+
+/**
+ * Promena statusa transfera koja se šalje vlasniku izvornog računa preko SSE toka.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransferStatusEventDTO {
+
+    private Long transferId;
+
+    @JsonIgnore
+    private Long ownerId;
+
+    private TransferStatus status;
+    private String note;
+    private Long changedAt;
+}
@@ -0,0 +1,28 @@
+package com.banka1.banking.listener;
+
+import com.banka1.banking.services.CustomerCache;
+import com.banka1.common.listener.MessageHelper;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jms.annotation.JmsListener;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CustomerChangeListener {
+    private final CustomerCache customerCache;
+    private final MessageHelper messageHelper;
+
+    // user-service javlja id klijenta posle svake izmene ili brisanja
+    @JmsListener(destination = "${destination.customer.changed}", containerFactory = "topicListenerFactory")
+    public void onCustomerChanged(Message message) throws JMSException {
+        Long customerId = messageHelper.getMessage(message, Long.class);
+        if (customerId != null) {
+            customerCache.evict(customerId);
+            log.debug("Customer {} evicted from the near-cache", customerId);
+        }
+    }
+}
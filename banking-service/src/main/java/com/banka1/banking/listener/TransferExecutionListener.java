@@ -0,0 +1,32 @@
+package com.banka1.banking.listener;
+
+import com.banka1.banking.dto.TransferExecutionDTO;
+import com.banka1.banking.services.TransferExecutionService;
+import com.banka1.banking.services.TransferService;
+import com.banka1.common.listener.MessageHelper;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jms.annotation.JmsListener;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TransferExecutionListener {
+    private final TransferExecutionService transferExecutionService;
+    private final TransferService transferService;
+    private final MessageHelper messageHelper;
+
+    @JmsListener(destination = "${destination.transfer.execute}", concurrency = "${transfer.execution.concurrency:4-16}")
+    public void onTransferMessage(Message message) throws JMSException {
+        TransferExecutionDTO dto = messageHelper.getMessage(message, TransferExecutionDTO.class);
+        try {
+            transferExecutionService.execute(dto.getTransferId());
+        } catch (Exception e) {
+            log.error("TransferExecutionListener - transfer {} failed: {}", dto.getTransferId(), e.getMessage());
+            transferService.markTransferFailed(dto.getTransferId(), e.getMessage());
+        }
+    }
+}
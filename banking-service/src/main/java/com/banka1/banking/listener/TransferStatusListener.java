@@ -0,0 +1,26 @@
+package com.banka1.banking.listener;
+
+import com.banka1.banking.dto.TransferStatusEventDTO;
+import com.banka1.banking.services.TransferStatusPublisher;
+import com.banka1.banking.services.TransferStatusStreamService;
+import com.banka1.common.listener.MessageHelper;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jms.annotation.JmsListener;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class TransferStatusListener {
+    private final TransferStatusStreamService transferStatusStreamService;
+    private final MessageHelper messageHelper;
+
+    // Promene statusa sa svih instanci, za SSE tokove otvorene na ovoj instanci
+    @JmsListener(destination = "${destination.transfer.status}", containerFactory = "topicListenerFactory")
+    public void onTransferStatus(Message message) throws JMSException {
+        TransferStatusEventDTO event = messageHelper.getMessage(message, TransferStatusEventDTO.class);
+        event.setOwnerId(message.getLongProperty(TransferStatusPublisher.OWNER_PROPERTY));
+        transferStatusStreamService.onStatusChange(event);
+    }
+}
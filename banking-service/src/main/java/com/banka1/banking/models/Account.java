@@ -52,10 +52,11 @@ public class Account {
     @Column(nullable = false)
     private Double monthlyLimit;
 
-    @Column(nullable = false)
+    // Menja ih samo SpendingLimitService kroz bulk UPDATE, čuvanje entiteta ih ne prepisuje
+    @Column(nullable = false, updatable = false)
     private Double dailySpent;
 
-    @Column(nullable = false)
+    @Column(nullable = false, updatable = false)
     private Double monthlySpent;
 
     @Column(nullable = false)
@@ -0,0 +1,38 @@
+package com.banka1.banking.models;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Stanje jednog podračuna (shard-a) računa do granice {@code txWatermark}: obuhvata sva knjiženja transakcija baze sa id-em manjim od granice.
+ * Sve te transakcije su bile završene kada je snapshot napravljen, pa nijedno knjiženje ispod granice ne može da
+ * se pojavi naknadno. {@code asOf} je samo vreme kada je snapshot napravljen.
+ * <p>
+ * Snapshot se uvek pravi za sve podračune računa sa istom granicom, pa je stanje računa zbir stanja podračuna
+ * sa najvećom granicom.
+ */
+@Entity
+@Getter
+@Setter
+public class BalanceSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long accountId;
+
+    @Column(nullable = false)
+    private Integer shard = 0;
+
+    @Column(nullable = false)
+    private Double balance;
+
+    @Column(nullable = false)
+    private Long txWatermark;
+
+    @Column(nullable = false)
+    private Long asOf;
+}
@@ -12,7 +12,8 @@ import java.time.LocalDate;
 public class ExchangePair {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "exchange_pair_seq")
+    @SequenceGenerator(name = "exchange_pair_seq", sequenceName = "exchange_pair_id_seq", allocationSize = 50)
     private Long id;
 
     @JoinColumn(nullable = false)
@@ -28,4 +29,8 @@ public class ExchangePair {
 
     @Column(nullable = false)
     private LocalDate date;
+
+    // Generacija kursne liste kojoj par pripada, vidi ExchangeRateGeneration
+    @Column(nullable = false)
+    private Long generation;
 }
@@ -0,0 +1,49 @@
+package com.banka1.banking.models;
+
+import com.banka1.banking.models.helper.CurrencyType;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Ponuda kursa prikazana korisniku u pregledu menjačnice. Transfer kreiran sa ovom ponudom se izvršava sa
+ * zaključanim iznosima; ponuda važi do {@code expiresAt}, samo za korisnika kome je izdata i samo za jedan transfer.
+ */
+@Entity
+@Getter
+@Setter
+public class ExchangeQuote {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false, length = 3)
+    @Enumerated(EnumType.STRING)
+    private CurrencyType fromCurrency;
+
+    @Column(nullable = false, length = 3)
+    @Enumerated(EnumType.STRING)
+    private CurrencyType toCurrency;
+
+    @Column(nullable = false)
+    private Double amount;
+
+    // Iznos koji se uplaćuje na ciljni račun
+    @Column(nullable = false)
+    private Double finalAmount;
+
+    // Provizija u ciljnoj valuti
+    @Column(nullable = false)
+    private Double fee;
+
+    // Prihod banke u RSD
+    @Column(nullable = false)
+    private Double provision;
+
+    @Column(nullable = false)
+    private Long expiresAt;
+}
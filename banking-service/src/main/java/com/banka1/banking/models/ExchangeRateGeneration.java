@@ -0,0 +1,26 @@
+package com.banka1.banking.models;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Jedna preuzeta kursna lista. Parovi nove liste se upisuju pod novom generacijom dok je stara i dalje aktivna,
+ * pa kursevi nikada ne nestaju tokom osvežavanja.
+ */
+@Entity
+@Getter
+@Setter
+public class ExchangeRateGeneration {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long createdAt;
+
+    // Tacno jedna generacija je aktivna; menja se jednim UPDATE-om
+    @Column(nullable = false)
+    private boolean active;
+}
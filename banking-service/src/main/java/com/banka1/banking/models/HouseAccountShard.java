@@ -0,0 +1,37 @@
+package com.banka1.banking.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+/**
+ * Podračun (shard) računa banke. Red ne čuva stanje, stanje podračuna se računa iz dnevnika; red postoji da bi se
+ * zaključao pre nego što se sa podračuna skine novac, umesto da se zaključa ceo račun banke.
+ */
+@Entity
+@Getter
+@Setter
+@IdClass(HouseAccountShard.Key.class)
+public class HouseAccountShard {
+
+    @Id
+    private Long accountId;
+
+    @Id
+    private Integer shard;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private Long accountId;
+        private Integer shard;
+    }
+}
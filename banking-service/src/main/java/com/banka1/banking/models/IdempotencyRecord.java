@@ -0,0 +1,43 @@
+package com.banka1.banking.models;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Zapamćen odgovor na zahtev poslat sa {@code Idempotency-Key} zaglavljem.
+ * Dok se zahtev obrađuje, {@code statusCode} i {@code responseBody} su {@code null}.
+ */
+@Entity
+@Getter
+@Setter
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_idempotency_record_user_key_endpoint", columnNames = {"user_id", "idempotency_key", "endpoint"}))
+public class IdempotencyRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Korisnik kome ključ pripada; isti ključ dva korisnika su dva različita zapisa
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private String idempotencyKey;
+
+    @Column(nullable = false)
+    private String endpoint;
+
+    // SHA-256 tela zahteva, da se isti ključ ne bi iskoristio za drugačiji zahtev
+    @Column(nullable = false, length = 64)
+    private String requestHash;
+
+    @Column()
+    private Integer statusCode;
+
+    @Column(columnDefinition = "text")
+    private String responseBody;
+
+    @Column(nullable = false)
+    private Long createdAt;
+}
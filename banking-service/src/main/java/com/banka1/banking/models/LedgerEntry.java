@@ -0,0 +1,49 @@
+package com.banka1.banking.models;
+
+import com.banka1.banking.models.helper.CurrencyType;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Jedno knjiženje u dnevniku (ledger-u). Zapisi se samo dodaju, nikad se ne menjaju.
+ * Pozitivan iznos je uplata na račun (credit), negativan je isplata sa računa (debit).
+ */
+@Entity
+@Getter
+@Setter
+public class LedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ledger_entry_seq")
+    @SequenceGenerator(name = "ledger_entry_seq", sequenceName = "ledger_entry_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long accountId;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private CurrencyType currencyType;
+
+    @Column(nullable = false)
+    private Double amount;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "transfer_id")
+    private Transfer transfer;
+
+    @Column()
+    private String description;
+
+    @Column(nullable = false)
+    private Long createdAt;
+
+    // Podračun računa banke na koji je knjiženje palo, računi klijenata imaju samo podračun 0
+    @Column(nullable = false)
+    private Integer shard = 0;
+
+    // Id transakcije baze koja je upisala knjiženje, popunjava ga baza (pg_current_xact_id)
+    @Column(insertable = false, updatable = false)
+    private Long txId;
+}
@@ -0,0 +1,78 @@
+package com.banka1.banking.models;
+
+import com.banka1.banking.models.helper.StandingOrderStatus;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Trajni nalog: isti prenos novca koji se izvršava po cron rasporedu do datuma završetka.
+ * <p>
+ * {@code nextScheduledAt} je sledeći termin iz cron izraza, a {@code nextRunAt} je taj termin pomeren za
+ * fiksni pomak unutar prozora {@code standing-order.spread-window-ms}, da se nalozi sa istim terminom
+ * (npr. svakog prvog u mesecu u ponoć) ne izvršavaju svi u istoj sekundi.
+ */
+@Entity
+@Getter
+@Setter
+public class StandingOrder {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long ownerId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "from_account_id", nullable = false)
+    private Account fromAccount;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "to_account_id", nullable = false)
+    private Account toAccount;
+
+    @Column(nullable = false)
+    private Double amount;
+
+    @Column()
+    private String receiver;
+
+    @Column()
+    private String adress;
+
+    @Column()
+    private String paymentCode; // sifra placanja
+
+    @Column()
+    private String paymentReference; // poziv na broj
+
+    @Column()
+    private String paymentDescription; // svrha placanja
+
+    // Spring cron izraz sa sekundama, npr. "0 0 9 1 * *"
+    @Column(nullable = false)
+    private String cron;
+
+    @Column()
+    private Long endDate;
+
+    @Column(nullable = false)
+    private Long nextScheduledAt;
+
+    @Column(nullable = false)
+    private Long nextRunAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private StandingOrderStatus status;
+
+    @Column()
+    private Long lastRunAt;
+
+    @Column()
+    private Long lastTransferId;
+
+    @Column(nullable = false)
+    private Long createdAt;
+}
@@ -9,7 +9,8 @@ import lombok.Setter;
 @Setter
 public class Transaction {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_seq")
+    @SequenceGenerator(name = "transaction_seq", sequenceName = "transaction_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -42,7 +43,8 @@ public class Transaction {
     @Column()
     private String description;
 
+    // Prazno za knjizenja koja ne poticu od transfera (mesecno odrzavanje racuna, kamata)
     @ManyToOne
-    @JoinColumn(name = "transfer_id", nullable = false)
+    @JoinColumn(name = "transfer_id")
     private Transfer transfer;
 }
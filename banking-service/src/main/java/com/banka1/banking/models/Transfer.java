@@ -13,7 +13,8 @@ public class Transfer {
 
     @Getter
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transfer_seq")
+    @SequenceGenerator(name = "transfer_seq", sequenceName = "transfer_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -67,9 +68,44 @@ public class Transfer {
     @Column()
     private Long completedAt;
 
+    // Kada je transfer poslat na izvrsenje (ili poslednji put ponovo poslat)
+    @Column()
+    private Long queuedAt;
+
     @Column()
     private String note;
 
     @Column(nullable = true)
     private Long savedReceiverId;
+
+    @Column()
+    private String batchId; // zajednicki identifikator transfera kreiranih kroz paketni nalog
+
+    // Trajni nalog iz kog je transfer kreiran; takvi transferi se ne verifikuju OTP-om pa ni ne isticu
+    @Column()
+    private Long standingOrderId;
+
+    // Vlasnik izvornog racuna, kopiran zbog istorije transfera bez spajanja sa account tabelom
+    @Column()
+    private Long fromOwnerId;
+
+    // Zakljucana ponuda kursa iz menjacnice; ako postoji, izvrsenje koristi ove iznose umesto ponovnog racunanja
+    @Column(length = 36)
+    private String quoteId;
+
+    @Column()
+    private Double quotedFinalAmount;
+
+    @Column()
+    private Double quotedFee;
+
+    @Column()
+    private Double quotedProvision; // provizija banke u RSD
+
+    @PrePersist
+    void fillFromOwnerId() {
+        if (fromOwnerId == null && fromAccountId != null) {
+            fromOwnerId = fromAccountId.getOwnerID();
+        }
+    }
 }
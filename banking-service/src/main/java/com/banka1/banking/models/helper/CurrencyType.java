@@ -1,12 +1,22 @@
 package com.banka1.banking.models.helper;
 
+import lombok.Getter;
+
+@Getter
 public enum CurrencyType {
-    RSD,
-    EUR,
-    USD,
-    CHF,
-    GBP,
-    JPY,
-    CAD,
-    AUD
+    RSD(2),
+    EUR(2),
+    USD(2),
+    CHF(2),
+    GBP(2),
+    JPY(0),
+    CAD(2),
+    AUD(2);
+
+    // Broj decimala najmanje jedinice valute (para, cent...)
+    private final int fractionDigits;
+
+    CurrencyType(int fractionDigits) {
+        this.fractionDigits = fractionDigits;
+    }
 }
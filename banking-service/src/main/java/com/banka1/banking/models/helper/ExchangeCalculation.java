@@ -0,0 +1,45 @@
+package com.banka1.banking.models.helper;
+
+import java.util.Map;
+
+/**
+ * Rezultat obračuna menjačnice za jedan iznos.
+ * <p>
+ * Za konverziju između RSD i druge valute {@code secondExchangeRate} je {@code NaN}, a {@code exchangeRate} je kurs
+ * prikazan klijentu. Za konverziju strane u stranu valutu (preko RSD) {@code exchangeRate} je kurs prve, a
+ * {@code secondExchangeRate} prikazani kurs druge konverzije; {@code fee} je tada zbir obe provizije.
+ *
+ * @param convertedAmount iznos u ciljnoj valuti pre provizije
+ * @param provision       provizija banke; za konverzije sa RSD je izražena u RSD
+ */
+public record ExchangeCalculation(CurrencyType fromCurrency, CurrencyType toCurrency, double amount,
+                                  double exchangeRate, double secondExchangeRate, double convertedAmount,
+                                  double fee, double provision, double finalAmount) {
+
+    public boolean isViaRsd() {
+        return !Double.isNaN(secondExchangeRate);
+    }
+
+    /**
+     * Isti oblik koji su vraćale ranije metode pregleda kursa, za JSON odgovore i postojeće pozivaoce.
+     */
+    public Map<String, Object> toMap() {
+        if (isViaRsd()) {
+            return Map.of(
+                    "firstExchangeRate", exchangeRate,
+                    "secondExchangeRate", secondExchangeRate,
+                    "totalFee", fee,
+                    "provision", provision,
+                    "fee", fee,
+                    "finalAmount", finalAmount
+            );
+        }
+        return Map.of(
+                "exchangeRate", exchangeRate,
+                "convertedAmount", convertedAmount,
+                "fee", fee,
+                "provision", provision,
+                "finalAmount", finalAmount
+        );
+    }
+}
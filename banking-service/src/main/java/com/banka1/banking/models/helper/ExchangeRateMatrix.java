@@ -0,0 +1,102 @@
+package com.banka1.banking.models.helper;
+
+import com.banka1.banking.models.ExchangePair;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Nepromenljiva tabela kurseva, indeksirana sa {@link CurrencyType#ordinal()}: {@code rate(base, target)} je broj
+ * jedinica ciljne valute za jednu jedinicu bazne.
+ * <p>
+ * Pri pravljenju se popunjava redom: kurs iz para, pa obrnuti par ({@code 1 / rate}), pa unakrsni kurs preko RSD.
+ * Tako čitanje uvek daje isti kurs kao ranije pretrage po {@code exchange_pair} tabeli, bez upita i alokacija.
+ * Kurs koji ne postoji je {@code NaN}.
+ */
+public final class ExchangeRateMatrix {
+
+    private static final int SIZE = CurrencyType.values().length;
+
+    public static final ExchangeRateMatrix EMPTY = new Builder().build();
+
+    private final double[][] rates;
+    private final int pairCount;
+
+    private ExchangeRateMatrix(double[][] rates, int pairCount) {
+        this.rates = rates;
+        this.pairCount = pairCount;
+    }
+
+    public static ExchangeRateMatrix of(List<ExchangePair> pairs) {
+        Builder builder = new Builder();
+        for (ExchangePair pair : pairs) {
+            builder.rate(pair.getBaseCurrency().getCode(), pair.getTargetCurrency().getCode(), pair.getExchangeRate());
+        }
+        return builder.build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public double rate(CurrencyType base, CurrencyType target) {
+        return rates[base.ordinal()][target.ordinal()];
+    }
+
+    public boolean hasRate(CurrencyType base, CurrencyType target) {
+        return !Double.isNaN(rate(base, target));
+    }
+
+    /**
+     * Broj kurseva učitanih iz parova, bez izvedenih.
+     */
+    public int getPairCount() {
+        return pairCount;
+    }
+
+    public static final class Builder {
+
+        private final double[][] rates = new double[SIZE][SIZE];
+        private int pairCount;
+
+        private Builder() {
+            for (double[] row : rates) {
+                Arrays.fill(row, Double.NaN);
+            }
+        }
+
+        public Builder rate(CurrencyType base, CurrencyType target, double rate) {
+            if (Double.isNaN(rates[base.ordinal()][target.ordinal()])) {
+                pairCount++;
+            }
+            rates[base.ordinal()][target.ordinal()] = rate;
+            return this;
+        }
+
+        public ExchangeRateMatrix build() {
+            double[][] result = new double[SIZE][];
+            for (int i = 0; i < SIZE; i++) {
+                result[i] = rates[i].clone();
+            }
+
+            for (int i = 0; i < SIZE; i++) {
+                for (int j = 0; j < SIZE; j++) {
+                    if (i != j && Double.isNaN(result[i][j]) && !Double.isNaN(rates[j][i])) {
+                        result[i][j] = 1 / rates[j][i];
+                    }
+                }
+            }
+
+            int rsd = CurrencyType.RSD.ordinal();
+            for (int i = 0; i < SIZE; i++) {
+                for (int j = 0; j < SIZE; j++) {
+                    if (i != j && i != rsd && j != rsd && Double.isNaN(result[i][j])) {
+                        // NaN se prenosi ako neki od kurseva prema RSD ne postoji
+                        result[i][j] = result[i][rsd] * result[rsd][j];
+                    }
+                }
+            }
+            return new ExchangeRateMatrix(result, pairCount);
+        }
+    }
+}
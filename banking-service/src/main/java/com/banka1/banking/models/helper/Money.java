@@ -0,0 +1,185 @@
+package com.banka1.banking.models.helper;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Objects;
+
+/**
+ * Novčani iznos zapisan kao ceo broj najmanjih jedinica valute (pare, centi...).
+ * <p>
+ * Sabiranje i oduzimanje su tačni, a množenje (kurs, provizija, broj rata) se zaokružuje na najmanju jedinicu
+ * po bankarskom pravilu (HALF_EVEN), pa se greške zaokruživanja ne gomilaju kao kod {@code Double} računa.
+ * Vrednost je nepromenljiva; operacije nad {@code long}-om ne alociraju ništa osim samog rezultata.
+ * <p>
+ * U JSON-u se zapisuje kao {@code {"amount": 12.34, "currency": "RSD"}}.
+ */
+public final class Money implements Comparable<Money> {
+
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1_000L, 10_000L};
+
+    private final long minorUnits;
+    private final CurrencyType currency;
+
+    private Money(long minorUnits, CurrencyType currency) {
+        this.minorUnits = minorUnits;
+        this.currency = Objects.requireNonNull(currency, "currency");
+    }
+
+    public static Money ofMinor(long minorUnits, CurrencyType currency) {
+        return new Money(minorUnits, currency);
+    }
+
+    /**
+     * Pretvara decimalni iznos u najmanje jedinice, zaokruženo na broj decimala valute.
+     */
+    public static Money of(double amount, CurrencyType currency) {
+        return new Money(toMinor(amount, currency), currency);
+    }
+
+    @JsonCreator
+    public static Money of(@JsonProperty("amount") BigDecimal amount, @JsonProperty("currency") CurrencyType currency) {
+        return new Money(amount.setScale(currency.getFractionDigits(), RoundingMode.HALF_EVEN).unscaledValue().longValueExact(), currency);
+    }
+
+    public static Money zero(CurrencyType currency) {
+        return new Money(0L, currency);
+    }
+
+    /**
+     * Decimalni iznos u najmanjim jedinicama. {@link BigDecimal#valueOf(double)} uzima najkraći zapis broja,
+     * pa se npr. 2.675 zaokružuje na 2.68, a ne na 2.67 kao kod {@code Math.round(2.675 * 100)}.
+     * <p>
+     * Iznos koji već ima najviše onoliko decimala koliko valuta dozvoljava (stanja računa, iznosi transfera) je
+     * posle množenja na milioniti deo od celog broja, pa se zaokružuje bez {@code BigDecimal}-a i bez alokacije.
+     */
+    public static long toMinor(double amount, CurrencyType currency) {
+        double scaled = amount * scale(currency);
+        if (Math.abs(scaled) < 0x1p52) {
+            double rounded = Math.rint(scaled);
+            if (Math.abs(scaled - rounded) < 1e-6) {
+                return (long) rounded;
+            }
+        }
+        return BigDecimal.valueOf(amount)
+                .setScale(currency.getFractionDigits(), RoundingMode.HALF_EVEN)
+                .unscaledValue()
+                .longValueExact();
+    }
+
+    public static double toMajor(long minorUnits, CurrencyType currency) {
+        return (double) minorUnits / scale(currency);
+    }
+
+    /**
+     * Zbir dva decimalna iznosa, zaokružen na najmanju jedinicu valute, bez pravljenja {@code Money} objekata.
+     */
+    public static double add(double amount, double delta, CurrencyType currency) {
+        return toMajor(Math.addExact(toMinor(amount, currency), toMinor(delta, currency)), currency);
+    }
+
+    private static long scale(CurrencyType currency) {
+        return POWERS_OF_TEN[currency.getFractionDigits()];
+    }
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money negate() {
+        return new Money(Math.negateExact(minorUnits), currency);
+    }
+
+    public Money times(long factor) {
+        return new Money(Math.multiplyExact(minorUnits, factor), currency);
+    }
+
+    /**
+     * Množi iznos faktorom (npr. stopom provizije) i zaokružuje na najmanju jedinicu.
+     */
+    public Money times(double factor) {
+        return new Money(roundToLong(minorUnits * factor), currency);
+    }
+
+    /**
+     * Konvertuje iznos u drugu valutu po kursu {@code 1 currency = rate target}.
+     */
+    public Money convert(double rate, CurrencyType target) {
+        double targetMinor = minorUnits * rate * scale(target) / scale(currency);
+        return new Money(roundToLong(targetMinor), target);
+    }
+
+    private static long roundToLong(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= 0x1p63) {
+            throw new ArithmeticException("Iznos je van opsega: " + value);
+        }
+        // Math.rint zaokružuje na paran broj kada je vrednost tačno na pola
+        return (long) Math.rint(value);
+    }
+
+    @JsonIgnore
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+
+    public boolean isLessThan(Money other) {
+        return compareTo(other) < 0;
+    }
+
+    @JsonIgnore
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    @JsonProperty("currency")
+    public CurrencyType getCurrency() {
+        return currency;
+    }
+
+    @JsonProperty("amount")
+    public BigDecimal getAmount() {
+        return BigDecimal.valueOf(minorUnits, currency.getFractionDigits());
+    }
+
+    public double toDouble() {
+        return toMajor(minorUnits, currency);
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (currency != other.currency) {
+            throw new IllegalArgumentException("Valute se ne poklapaju: " + currency + " i " + other.currency);
+        }
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        requireSameCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Money money)) return false;
+        return minorUnits == money.minorUnits && currency == money.currency;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits) * 31 + currency.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return getAmount().toPlainString() + " " + currency;
+    }
+}
@@ -0,0 +1,15 @@
+package com.banka1.banking.models.helper;
+
+/**
+ * Interval na koji se sažima istorija kursa; naziv u malim slovima je jedinica za {@code date_trunc}.
+ */
+public enum RateHistoryInterval {
+    HOUR,
+    DAY,
+    WEEK,
+    MONTH;
+
+    public String truncUnit() {
+        return name().toLowerCase();
+    }
+}
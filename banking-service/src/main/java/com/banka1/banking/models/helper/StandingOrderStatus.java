@@ -0,0 +1,7 @@
+package com.banka1.banking.models.helper;
+
+public enum StandingOrderStatus {
+    ACTIVE,
+    CANCELLED, // otkazao korisnik
+    FINISHED // prošao datum završetka
+}
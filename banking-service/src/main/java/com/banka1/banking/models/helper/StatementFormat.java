@@ -0,0 +1,17 @@
+package com.banka1.banking.models.helper;
+
+import lombok.Getter;
+
+@Getter
+public enum StatementFormat {
+    CSV("text/csv", "csv"),
+    PDF("application/pdf", "pdf");
+
+    private final String contentType;
+    private final String extension;
+
+    StatementFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+}
@@ -0,0 +1,6 @@
+package com.banka1.banking.models.helper;
+
+public enum TransactionDirection {
+    INCOMING,
+    OUTGOING
+}
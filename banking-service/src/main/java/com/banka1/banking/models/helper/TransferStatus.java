@@ -2,6 +2,7 @@ package com.banka1.banking.models.helper;
 
 public enum TransferStatus {
     PENDING,
+    QUEUED, // OTP verifikovan, transfer čeka izvršenje u redu
     COMPLETED,
     CANCELLED,
     FAILED
@@ -2,10 +2,17 @@ package com.banka1.banking.repository;
 import com.banka1.banking.models.Account;
 import com.banka1.banking.models.helper.AccountType;
 import com.banka1.banking.models.helper.CurrencyType;
+import jakarta.persistence.LockModeType;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
 
@@ -19,6 +26,37 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
 
     Optional<Account> findByTypeAndCurrencyType(AccountType accountType,CurrencyType currencyType);
     Optional<Account> findByAccountNumber(String accountNumber);
+    List<Account> findByAccountNumberIn(Collection<String> accountNumbers);
     Account findByOwnerIDAndCurrencyType(Long ownerId, CurrencyType currencyType);
     List<Account> findByCompanyId(Long companyId);
+    List<Account> findByType(AccountType type);
+
+    /**
+     * Zaključava (SELECT ... FOR UPDATE) zadate račune. Redovi se zaključavaju redom po ID-u,
+     * tako da dve transakcije koje dele račune ne mogu da uđu u deadlock.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from Account a where a.id in :ids order by a.id")
+    List<Account> lockAllByIdInOrder(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("update Account a set a.balance = :balance where a.id = :id")
+    int updateBalance(@Param("id") Long id, @Param("balance") Double balance);
+
+    // Potrošnja se dodaje na vrednost u bazi, pa se upisi sa više instanci ne gaze
+    @Transactional
+    @Modifying
+    @Query("update Account a set a.dailySpent = a.dailySpent + :amount, a.monthlySpent = a.monthlySpent + :amount where a.id = :id")
+    int addSpent(@Param("id") Long id, @Param("amount") Double amount);
+
+    // Dira samo račune koji su nešto potrošili
+    @Transactional
+    @Modifying
+    @Query("update Account a set a.dailySpent = 0 where a.dailySpent <> 0")
+    int resetDailySpent();
+
+    @Transactional
+    @Modifying
+    @Query("update Account a set a.dailySpent = 0, a.monthlySpent = 0 where a.dailySpent <> 0 or a.monthlySpent <> 0")
+    int resetDailyAndMonthlySpent();
 }
@@ -0,0 +1,27 @@
+package com.banka1.banking.repository;
+
+import com.banka1.banking.models.BalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, Long> {
+
+    Optional<BalanceSnapshot> findFirstByAccountIdOrderByTxWatermarkDesc(Long accountId);
+
+    Optional<BalanceSnapshot> findFirstByAccountIdAndShardOrderByTxWatermarkDesc(Long accountId, Integer shard);
+
+    // Snapshot-i svih podračuna računa napravljeni sa istom granicom
+    List<BalanceSnapshot> findByAccountIdAndTxWatermark(Long accountId, Long txWatermark);
+
+    /**
+     * Najstarija transakcija baze koja je još u toku. Sve transakcije sa manjim id-em su završene, pa je to granica
+     * do koje su knjiženja konačna, bez obzira na to kada su upisana.
+     */
+    @Query(value = "select cast(cast(pg_snapshot_xmin(pg_current_snapshot()) as text) as bigint)", nativeQuery = true)
+    Long findTxWatermark();
+}
@@ -3,14 +3,31 @@ package com.banka1.banking.repository;
 import com.banka1.banking.models.ExchangePair;
 import com.banka1.banking.models.helper.CurrencyType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDate;
 import java.util.List;
-import java.util.Optional;
 
 @Repository
 public interface ExchangePairRepository extends JpaRepository<ExchangePair, Long> {
-    List<ExchangePair> findByBaseCurrencyCode(CurrencyType baseCurrency);
-    Optional<ExchangePair> findByBaseCurrencyCodeAndTargetCurrencyCode(CurrencyType baseCurrency, CurrencyType targetCurrency);
+
+    // Parovi aktivne generacije kursne liste, sa valutama u istom upitu
+    @Query("select p from ExchangePair p join fetch p.baseCurrency join fetch p.targetCurrency " +
+            "where p.generation = (select g.id from ExchangeRateGeneration g where g.active = true)")
+    List<ExchangePair> findActive();
+
+    @Query("select p from ExchangePair p join fetch p.baseCurrency join fetch p.targetCurrency " +
+            "where p.baseCurrency.code = :baseCurrency " +
+            "and p.generation = (select g.id from ExchangeRateGeneration g where g.active = true)")
+    List<ExchangePair> findActiveByBaseCurrencyCode(@Param("baseCurrency") CurrencyType baseCurrency);
+
+    // Brise parove generacija starijih od aktivne
+    @Transactional
+    @Modifying
+    @Query(value = "delete from exchange_pair " +
+            "where generation < (select g.id from exchange_rate_generation g where g.active)", nativeQuery = true)
+    int deleteInactiveGenerations();
 }
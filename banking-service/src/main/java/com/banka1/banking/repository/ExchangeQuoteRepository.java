@@ -0,0 +1,31 @@
+package com.banka1.banking.repository;
+
+import com.banka1.banking.models.ExchangeQuote;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface ExchangeQuoteRepository extends JpaRepository<ExchangeQuote, String> {
+
+    Optional<ExchangeQuote> findByIdAndUserId(String id, Long userId);
+
+    /**
+     * Briše ponudu pri korišćenju. Kad dva transfera, i na različitim instancama, koriste istu ponudu,
+     * samo jedan dobija 1.
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from ExchangeQuote q where q.id = :id")
+    int deleteQuote(@Param("id") String id);
+
+    @Transactional
+    @Modifying
+    @Query("delete from ExchangeQuote q where q.expiresAt < :now")
+    int deleteExpired(@Param("now") Long now);
+}
@@ -0,0 +1,26 @@
+package com.banka1.banking.repository;
+
+import com.banka1.banking.models.ExchangeRateGeneration;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface ExchangeRateGenerationRepository extends JpaRepository<ExchangeRateGeneration, Long> {
+
+    // Aktivira generaciju i gasi sve ostale u jednoj naredbi; starija generacija ne moze da pregazi noviju
+    @Transactional
+    @Modifying
+    @Query(value = "update exchange_rate_generation set active = (id = :id) " +
+            "where :id >= coalesce((select max(g.id) from exchange_rate_generation g where g.active), 0)", nativeQuery = true)
+    int activate(@Param("id") Long id);
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from exchange_rate_generation " +
+            "where id < (select g.id from exchange_rate_generation g where g.active)", nativeQuery = true)
+    int deleteInactive();
+}
@@ -0,0 +1,103 @@
+package com.banka1.banking.repository;
+
+import com.banka1.banking.dto.ExchangeRateCandleDTO;
+import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.models.helper.RateHistoryInterval;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Istorija kurseva u tabeli {@code exchange_rate_history}, particionisanoj po mesecima.
+ * <p>
+ * Tabela nema entitet: jedan red je par valuta, trenutak kursne liste i kurs, a upisuje se jednim
+ * {@code INSERT ... SELECT} iz parova nove generacije. Particija za mesec se pravi pri prvom upisu u taj mesec;
+ * upit za period čita samo particije meseci koje period pokriva, preko primarnog ključa (par, trenutak).
+ */
+@Repository
+@Slf4j
+public class ExchangeRateHistoryRepository {
+
+    private static final String INSERT_GENERATION =
+            "insert into exchange_rate_history (base_currency, target_currency, recorded_at, exchange_rate) " +
+            "select b.code, t.code, ?, p.exchange_rate from exchange_pair p " +
+            "join currency b on b.id = p.base_currency_id " +
+            "join currency t on t.id = p.target_currency_id " +
+            "where p.generation = ? " +
+            "on conflict do nothing";
+
+    // Prvi i poslednji kurs intervala se uzimaju iz niza sortiranog po vremenu
+    private static final String SELECT_CANDLES =
+            "select (extract(epoch from date_trunc(?, to_timestamp(recorded_at / 1000.0), ?)) * 1000)::bigint as interval_start, " +
+            "(array_agg(exchange_rate order by recorded_at))[1] as open, " +
+            "max(exchange_rate) as high, " +
+            "min(exchange_rate) as low, " +
+            "(array_agg(exchange_rate order by recorded_at desc))[1] as close, " +
+            "count(*) as samples " +
+            "from exchange_rate_history " +
+            "where base_currency = ? and target_currency = ? and recorded_at >= ? and recorded_at < ? " +
+            "group by interval_start order by interval_start";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ZoneId zone;
+    // Meseci za koje je particija već napravljena u ovoj instanci
+    private final Set<YearMonth> partitions = ConcurrentHashMap.newKeySet();
+
+    public ExchangeRateHistoryRepository(JdbcTemplate jdbcTemplate,
+                                         @Value("${exchange-rate-history.zone:Europe/Belgrade}") String zone) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.zone = ZoneId.of(zone);
+    }
+
+    /**
+     * Kopira sve parove generacije kursne liste u istoriju pod trenutkom {@code recordedAt}.
+     *
+     * @return broj upisanih kurseva
+     */
+    public int recordGeneration(Long generation, long recordedAt) {
+        ensurePartition(YearMonth.from(Instant.ofEpochMilli(recordedAt).atZone(zone)));
+        return jdbcTemplate.update(INSERT_GENERATION, recordedAt, generation);
+    }
+
+    /**
+     * Kursevi para u periodu {@code [from, to)}, sažeti po intervalu, od najstarijeg ka najnovijem.
+     */
+    public List<ExchangeRateCandleDTO> findCandles(CurrencyType base, CurrencyType target, long from, long to,
+                                                  RateHistoryInterval interval) {
+        return jdbcTemplate.query(SELECT_CANDLES,
+                (rs, rowNum) -> new ExchangeRateCandleDTO(
+                        rs.getLong("interval_start"),
+                        rs.getDouble("open"),
+                        rs.getDouble("high"),
+                        rs.getDouble("low"),
+                        rs.getDouble("close"),
+                        rs.getLong("samples")),
+                interval.truncUnit(), zone.getId(), base.name(), target.name(), from, to);
+    }
+
+    void ensurePartition(YearMonth month) {
+        if (partitions.contains(month)) {
+            return;
+        }
+        long start = month.atDay(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        long end = month.plusMonths(1).atDay(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        String name = String.format("exchange_rate_history_%d_%02d", month.getYear(), month.getMonthValue());
+        try {
+            jdbcTemplate.execute("create table if not exists " + name + " partition of exchange_rate_history " +
+                    "for values from (" + start + ") to (" + end + ")");
+            partitions.add(month);
+        } catch (DataAccessException e) {
+            // Redovi meseca onda završavaju u podrazumevanoj particiji; upis kursne liste se ne prekida
+            log.error("Failed to create exchange rate history partition {}: {}", name, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.banka1.banking.repository;
+
+import com.banka1.banking.models.HouseAccountShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface HouseAccountShardRepository extends JpaRepository<HouseAccountShard, HouseAccountShard.Key> {
+
+    boolean existsByAccountIdAndShard(Long accountId, Integer shard);
+
+    /**
+     * Dodaje podračune 0..shards-1 računa koji još ne postoje.
+     */
+    @Modifying
+    @Query(value = "insert into house_account_shard (account_id, shard) " +
+            "select :accountId, s from generate_series(0, :shards - 1) s on conflict do nothing", nativeQuery = true)
+    int createShards(@Param("accountId") Long accountId, @Param("shards") int shards);
+
+    /**
+     * Zaključava podračun ako ga niko drugi ne drži (FOR UPDATE SKIP LOCKED). Vraća praznu listu ako je podračun
+     * zauzet, pa transakcija nikad ne čeka na podračun dok već drži neki drugi i ne može da uđe u deadlock.
+     */
+    @Query(value = "select shard from house_account_shard where account_id = :accountId and shard = :shard " +
+            "for update skip locked", nativeQuery = true)
+    List<Integer> tryLockShard(@Param("accountId") Long accountId, @Param("shard") int shard);
+
+    /**
+     * Zaključava sve slobodne podračune računa, redom po broju podračuna, i vraća njihove brojeve.
+     */
+    @Query(value = "select shard from house_account_shard where account_id = :accountId order by shard " +
+            "for update skip locked", nativeQuery = true)
+    List<Integer> tryLockFreeShards(@Param("accountId") Long accountId);
+}
@@ -0,0 +1,20 @@
+package com.banka1.banking.repository;
+
+import com.banka1.banking.models.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    Optional<IdempotencyRecord> findByUserIdAndIdempotencyKeyAndEndpoint(Long userId, String idempotencyKey, String endpoint);
+
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.createdAt < :createdAt")
+    int deleteByCreatedAtBefore(@Param("createdAt") Long createdAt);
+}
@@ -0,0 +1,51 @@
+package com.banka1.banking.repository;
+
+import com.banka1.banking.models.LedgerEntry;
+import com.banka1.banking.repository.projection.ShardAmountView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+
+    /**
+     * Zbir knjiženja na računu koja su upisale transakcije baze sa id-em u intervalu [fromTx, toTx).
+     */
+    @Query("select coalesce(sum(e.amount), 0.0) from LedgerEntry e " +
+            "where e.accountId = :accountId and e.txId >= :fromTx and e.txId < :toTx")
+    Double sumForAccountBetweenTx(@Param("accountId") Long accountId, @Param("fromTx") Long fromTx, @Param("toTx") Long toTx);
+
+    /**
+     * Zbir knjiženja na jednom podračunu računa koja su upisale transakcije baze sa id-em u intervalu [fromTx, toTx).
+     */
+    @Query("select coalesce(sum(e.amount), 0.0) from LedgerEntry e " +
+            "where e.accountId = :accountId and e.shard = :shard and e.txId >= :fromTx and e.txId < :toTx")
+    Double sumForShardBetweenTx(@Param("accountId") Long accountId, @Param("shard") Integer shard,
+                                @Param("fromTx") Long fromTx, @Param("toTx") Long toTx);
+
+    /**
+     * Zbirovi knjiženja na računu u intervalu [fromTx, toTx), po podračunima.
+     */
+    @Query("select e.shard as shard, sum(e.amount) as amount from LedgerEntry e " +
+            "where e.accountId = :accountId and e.txId >= :fromTx and e.txId < :toTx group by e.shard")
+    List<ShardAmountView> sumByShardBetweenTx(@Param("accountId") Long accountId, @Param("fromTx") Long fromTx, @Param("toTx") Long toTx);
+
+    /**
+     * Stanje računa pre prvog knjiženja: stanje reda umanjeno za sva knjiženja, jednim upitom da bi oba dela
+     * videla iste potvrđene transakcije.
+     */
+    @Query("select a.balance - coalesce((select sum(e.amount) from LedgerEntry e where e.accountId = a.id), 0.0) " +
+            "from Account a where a.id = :accountId")
+    Double findBalanceBeforeEntries(@Param("accountId") Long accountId);
+
+    /**
+     * Računi koji imaju knjiženja iznad granice svog poslednjeg snapshot-a, a ispod granice {@code txWatermark}.
+     */
+    @Query("select distinct e.accountId from LedgerEntry e where e.txId < :txWatermark and e.txId >= " +
+            "coalesce((select max(s.txWatermark) from BalanceSnapshot s where s.accountId = e.accountId), 0L)")
+    List<Long> findAccountIdsWithEntriesSinceLastSnapshot(@Param("txWatermark") Long txWatermark);
+}
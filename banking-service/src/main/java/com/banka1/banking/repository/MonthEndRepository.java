@@ -0,0 +1,157 @@
+package com.banka1.banking.repository;
+
+import com.banka1.banking.models.helper.AccountSubtype;
+import com.banka1.banking.models.helper.CurrencyType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+/**
+ * Mesečni obračun održavanja računa i kamate na štednju, preko JDBC-a.
+ * <p>
+ * Obračun meseca ima red u {@code month_end_run} sa veličinom dela i najvećim id-em računa u trenutku početka, pa su
+ * granice delova iste i posle restarta. Deo računa {@code [chunk_start, chunk_start + chunk_size)} se preuzima
+ * upisom reda u {@code month_end_checkpoint} u istoj transakciji u kojoj se knjiži: ako transakcija padne, nema ni
+ * reda pa se deo obrađuje ponovo, a ako je red već tu, deo je obradila druga nit ili instanca.
+ */
+@Repository
+public class MonthEndRepository {
+
+    public record Run(String period, int chunkSize, long maxAccountId, Long finishedAt) {
+    }
+
+    public record AccountRow(long id, CurrencyType currencyType, AccountSubtype subtype, double balance,
+                             double reservedBalance, double monthlyMaintenanceFee) {
+    }
+
+    /**
+     * Jedno knjiženje između klijentskog računa i računa banke. {@code customerAmount} je promena stanja
+     * klijentskog računa (negativna za naknadu, pozitivna za kamatu).
+     */
+    public record Posting(long fromAccountId, long toAccountId, long customerAccountId, long currencyId,
+                          CurrencyType currencyType, double amount, double customerAmount, String description) {
+    }
+
+    private static final String SELECT_RUN =
+            "select period, chunk_size, max_account_id, finished_at from month_end_run where period = ?";
+
+    // Zaključavanje redom po id-u, istim redosledom kao transferi, pa nema uzajamnog blokiranja
+    private static final String LOCK_ACCOUNTS =
+            "select id, currency_type, subtype, balance, reserved_balance, monthly_maintenance_fee from account " +
+            "where id >= ? and id < ? and type in ('CURRENT', 'FOREIGN_CURRENCY') and status = 'ACTIVE' " +
+            "order by id for update";
+
+    private static final String INSERT_TRANSACTION =
+            "insert into transaction (amount, final_amount, fee, bank_only, currency_id, from_account_id, to_account_id, " +
+            "timestamp, description, transfer_id) values (?, ?, 0, false, ?, ?, ?, ?, ?, null)";
+
+    private static final String INSERT_LEDGER_ENTRY =
+            "insert into ledger_entry (account_id, currency_type, amount, transfer_id, description, created_at) " +
+            "values (?, ?, ?, null, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public MonthEndRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public long findMaxAccountId() {
+        Long max = jdbcTemplate.queryForObject("select max(id) from account", Long.class);
+        return max == null ? 0L : max;
+    }
+
+    /**
+     * Započinje obračun meseca ako još nije započet; postojeći obračun zadržava svoje granice delova.
+     */
+    public void createRun(String period, int chunkSize, long maxAccountId, long startedAt) {
+        jdbcTemplate.update("insert into month_end_run (period, chunk_size, max_account_id, started_at) " +
+                "values (?, ?, ?, ?) on conflict do nothing", period, chunkSize, maxAccountId, startedAt);
+    }
+
+    public Optional<Run> findRun(String period) {
+        return jdbcTemplate.query(SELECT_RUN, (rs, rowNum) -> new Run(
+                rs.getString("period"),
+                rs.getInt("chunk_size"),
+                rs.getLong("max_account_id"),
+                rs.getObject("finished_at", Long.class)), period).stream().findFirst();
+    }
+
+    public List<String> findUnfinishedPeriods() {
+        return jdbcTemplate.queryForList("select period from month_end_run where finished_at is null order by period", String.class);
+    }
+
+    public void finishRun(String period, long finishedAt) {
+        jdbcTemplate.update("update month_end_run set finished_at = ? where period = ?", finishedAt, period);
+    }
+
+    public Set<Long> findCompletedChunks(String period) {
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "select chunk_start from month_end_checkpoint where period = ?", Long.class, period));
+    }
+
+    /**
+     * Preuzima deo za trenutnu transakciju. Ako isti deo istovremeno preuzima druga transakcija, ova čeka njen kraj.
+     *
+     * @return {@code false} ako je deo već obrađen
+     */
+    public boolean claimChunk(String period, long chunkStart, long processedAt) {
+        return jdbcTemplate.update("insert into month_end_checkpoint (period, chunk_start, processed_at) " +
+                "values (?, ?, ?) on conflict do nothing", period, chunkStart, processedAt) == 1;
+    }
+
+    public void completeChunk(String period, long chunkStart, int postings) {
+        jdbcTemplate.update("update month_end_checkpoint set postings = ? where period = ? and chunk_start = ?",
+                postings, period, chunkStart);
+    }
+
+    public List<AccountRow> lockAccounts(long fromId, long toId) {
+        return jdbcTemplate.query(LOCK_ACCOUNTS, (rs, rowNum) -> new AccountRow(
+                rs.getLong("id"),
+                CurrencyType.valueOf(rs.getString("currency_type")),
+                AccountSubtype.valueOf(rs.getString("subtype")),
+                rs.getDouble("balance"),
+                rs.getDouble("reserved_balance"),
+                rs.getDouble("monthly_maintenance_fee")), fromId, toId);
+    }
+
+    /**
+     * Upisuje transakciju i stavku dnevnika klijentskog računa za svako knjiženje, batch upisima.
+     */
+    public void insertPostings(List<Posting> postings, long timestamp) {
+        if (postings.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_TRANSACTION, postings, postings.size(), (ps, posting) -> {
+            ps.setDouble(1, posting.amount());
+            ps.setDouble(2, posting.amount());
+            ps.setLong(3, posting.currencyId());
+            ps.setLong(4, posting.fromAccountId());
+            ps.setLong(5, posting.toAccountId());
+            ps.setLong(6, timestamp);
+            ps.setString(7, posting.description());
+        });
+        jdbcTemplate.batchUpdate(INSERT_LEDGER_ENTRY, postings, postings.size(), (ps, posting) -> {
+            ps.setLong(1, posting.customerAccountId());
+            ps.setString(2, posting.currencyType().name());
+            ps.setDouble(3, posting.customerAmount());
+            ps.setString(4, posting.description());
+            ps.setLong(5, timestamp);
+        });
+    }
+
+    /**
+     * Menja stanja računa za date iznose, jednim batch UPDATE-om redom po id-u.
+     */
+    public void updateBalances(SortedMap<Long, Double> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, Double>> entries = new ArrayList<>(changes.entrySet());
+        jdbcTemplate.batchUpdate("update account set balance = balance + ? where id = ?", entries, entries.size(),
+                (ps, change) -> {
+                    ps.setDouble(1, change.getValue());
+                    ps.setLong(2, change.getKey());
+                });
+    }
+}
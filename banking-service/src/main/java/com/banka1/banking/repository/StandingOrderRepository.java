@@ -0,0 +1,33 @@
+package com.banka1.banking.repository;
+
+import com.banka1.banking.models.StandingOrder;
+import com.banka1.banking.models.helper.StandingOrderStatus;
+import com.banka1.banking.repository.projection.StandingOrderView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StandingOrderRepository extends JpaRepository<StandingOrder, Long> {
+
+    // Zaključava dospele naloge; redove koje je već uzela druga instanca preskače umesto da čeka na njih.
+    // Koristi parcijalni indeks idx_standing_order_due, pa ne čita naloge koji nisu dospeli.
+    @Query(value = "select id from standing_order where status = 'ACTIVE' and next_run_at <= :now " +
+            "order by next_run_at limit :limit for update skip locked", nativeQuery = true)
+    List<Long> claimDueIds(@Param("now") long now, @Param("limit") int limit);
+
+    @Query("select o from StandingOrder o join fetch o.fromAccount join fetch o.toAccount where o.id in :ids")
+    List<StandingOrder> findWithAccountsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select o.id as id, fa.accountNumber as fromAccountNumber, ta.accountNumber as toAccountNumber, " +
+            "o.amount as amount, o.receiver as receiver, o.paymentDescription as paymentDescription, o.cron as cron, " +
+            "o.endDate as endDate, o.nextScheduledAt as nextScheduledAt, o.lastRunAt as lastRunAt, " +
+            "o.lastTransferId as lastTransferId, o.status as status " +
+            "from StandingOrder o join o.fromAccount fa join o.toAccount ta " +
+            "where o.ownerId = :ownerId and o.status = :status order by o.id")
+    List<StandingOrderView> findViewsByOwnerIdAndStatus(@Param("ownerId") Long ownerId, @Param("status") StandingOrderStatus status);
+}
@@ -2,11 +2,21 @@ package com.banka1.banking.repository;
 
 import com.banka1.banking.models.Account;
 import com.banka1.banking.models.Transaction;
+import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.repository.projection.TransactionHistoryView;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
@@ -14,4 +24,65 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     List<Transaction> findByToAccountId(Account toAccountId);
     Optional<Transaction> findByTransferId(Long transferId);
     List<Transaction> findByFromAccountIdInOrToAccountIdIn(List<Account> fromAccounts, List<Account> toAccounts);
+
+    // Broj redova koje JDBC drajver dohvata odjednom pri citanju izvoda
+    int STATEMENT_FETCH_SIZE = 500;
+
+    String HISTORY_SELECT = "select t.id as id, fa.id as fromAccountId, fa.accountNumber as fromAccountNumber, " +
+            "fa.ownerID as fromOwnerId, ta.id as toAccountId, ta.accountNumber as toAccountNumber, " +
+            "ta.ownerID as toOwnerId, t.amount as amount, t.finalAmount as finalAmount, t.fee as fee, " +
+            "c.code as currency, t.timestamp as timestamp, t.description as description, t.transfer.id as transferId " +
+            "from Transaction t join t.fromAccountId fa join t.toAccountId ta join t.currency c ";
+
+    String HISTORY_FILTER = "and (:includeBankOnly = true or t.bankOnly = false) " +
+            "and t.timestamp >= :timestampFrom and t.timestamp < :timestampTo " +
+            "and t.amount >= :minAmount and t.amount <= :maxAmount and c.code in :currencies " +
+            "and (t.timestamp, t.id) < (:beforeTimestamp, :beforeId) " +
+            "order by t.timestamp desc, t.id desc";
+
+    /**
+     * Strana odlaznih transakcija računa, od najnovijih ka starijima, iza para ({@code beforeTimestamp},
+     * {@code beforeId}) poslednje stavke prethodne strane. Ide po indeksu {@code idx_transaction_from_account_history}.
+     */
+    @Query(HISTORY_SELECT + "where t.fromAccountId.id in :accountIds " + HISTORY_FILTER)
+    List<TransactionHistoryView> findOutgoingHistoryPage(@Param("accountIds") Collection<Long> accountIds,
+                                                         @Param("includeBankOnly") boolean includeBankOnly,
+                                                         @Param("timestampFrom") Long timestampFrom,
+                                                         @Param("timestampTo") Long timestampTo,
+                                                         @Param("minAmount") Double minAmount,
+                                                         @Param("maxAmount") Double maxAmount,
+                                                         @Param("currencies") Collection<CurrencyType> currencies,
+                                                         @Param("beforeTimestamp") Long beforeTimestamp,
+                                                         @Param("beforeId") Long beforeId,
+                                                         Limit limit);
+
+    /**
+     * Isto kao {@link #findOutgoingHistoryPage}, za dolazne transakcije, po indeksu
+     * {@code idx_transaction_to_account_history}.
+     */
+    @Query(HISTORY_SELECT + "where t.toAccountId.id in :accountIds " + HISTORY_FILTER)
+    List<TransactionHistoryView> findIncomingHistoryPage(@Param("accountIds") Collection<Long> accountIds,
+                                                         @Param("includeBankOnly") boolean includeBankOnly,
+                                                         @Param("timestampFrom") Long timestampFrom,
+                                                         @Param("timestampTo") Long timestampTo,
+                                                         @Param("minAmount") Double minAmount,
+                                                         @Param("maxAmount") Double maxAmount,
+                                                         @Param("currencies") Collection<CurrencyType> currencies,
+                                                         @Param("beforeTimestamp") Long beforeTimestamp,
+                                                         @Param("beforeId") Long beforeId,
+                                                         Limit limit);
+
+    /**
+     * Sve transakcije računa u periodu {@code [timestampFrom, timestampTo)}, od najstarije ka najnovijoj, za izvod.
+     * Redovi se čitaju kursorom po {@value #STATEMENT_FETCH_SIZE}, pa se tok mora čitati u transakciji i zatvoriti.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + STATEMENT_FETCH_SIZE))
+    @Query(HISTORY_SELECT + "where (t.fromAccountId.id = :accountId or t.toAccountId.id = :accountId) " +
+            "and (:includeBankOnly = true or t.bankOnly = false) " +
+            "and t.timestamp >= :timestampFrom and t.timestamp < :timestampTo " +
+            "order by t.timestamp, t.id")
+    Stream<TransactionHistoryView> streamStatement(@Param("accountId") Long accountId,
+                                                   @Param("includeBankOnly") boolean includeBankOnly,
+                                                   @Param("timestampFrom") Long timestampFrom,
+                                                   @Param("timestampTo") Long timestampTo);
 }
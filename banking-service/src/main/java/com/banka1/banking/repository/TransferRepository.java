@@ -2,17 +2,97 @@ package com.banka1.banking.repository;
 
 import com.banka1.banking.models.Transfer;
 import com.banka1.banking.models.helper.TransferStatus;
+import com.banka1.banking.models.helper.TransferType;
+import com.banka1.banking.repository.projection.PendingTransferView;
+import com.banka1.banking.repository.projection.TransferAccountsView;
+import com.banka1.banking.repository.projection.TransferHistoryView;
+import com.banka1.banking.repository.projection.TransferOwnerView;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface TransferRepository extends JpaRepository<Transfer, Long> {
 
-    List<Transfer> findAllByStatusAndCreatedAtBefore(TransferStatus status,Long createdAt);
-
     List<Transfer> findAllByFromAccountId_OwnerID(Long ownerId);
 
+    /**
+     * Strana istorije transfera korisnika, od najnovijih ka starijima. Strana počinje iza para
+     * ({@code beforeCreatedAt}, {@code beforeId}) poslednje stavke prethodne strane, pa je upit isti za svaku stranu
+     * i ide po indeksu {@code idx_transfer_owner_history}.
+     */
+    @Query("select t.id as id, fa.accountNumber as fromAccountNumber, ta.accountNumber as toAccountNumber, " +
+            "t.amount as amount, fc.code as fromCurrency, tc.code as toCurrency, t.receiver as receiver, " +
+            "t.paymentDescription as paymentDescription, t.type as type, t.status as status, " +
+            "t.createdAt as createdAt, t.completedAt as completedAt " +
+            "from Transfer t join t.fromAccountId fa join t.toAccountId ta join t.fromCurrency fc join t.toCurrency tc " +
+            "where t.fromOwnerId = :ownerId and t.status in :statuses and t.type in :types " +
+            "and t.createdAt >= :createdFrom and t.createdAt < :createdTo " +
+            "and (t.createdAt, t.id) < (:beforeCreatedAt, :beforeId) " +
+            "order by t.createdAt desc, t.id desc")
+    List<TransferHistoryView> findHistoryPage(@Param("ownerId") Long ownerId,
+                                              @Param("statuses") Collection<TransferStatus> statuses,
+                                              @Param("types") Collection<TransferType> types,
+                                              @Param("createdFrom") Long createdFrom,
+                                              @Param("createdTo") Long createdTo,
+                                              @Param("beforeCreatedAt") Long beforeCreatedAt,
+                                              @Param("beforeId") Long beforeId,
+                                              Limit limit);
+
+    @Query("select t.fromAccountId.id as fromAccountId, t.toAccountId.id as toAccountId, " +
+            "t.fromAccountId.type as fromAccountType, t.toAccountId.type as toAccountType " +
+            "from Transfer t where t.id = :id")
+    Optional<TransferAccountsView> findAccountsViewById(@Param("id") Long id);
+
+    @Query("select t.id from Transfer t where t.batchId = :batchId and t.status = :status order by t.id")
+    List<Long> findIdsByBatchIdAndStatus(@Param("batchId") String batchId, @Param("status") TransferStatus status);
+
+    // Samo transferi koji cekaju OTP; transferi trajnih naloga se ne verifikuju i ne isticu
+    @Query("select t.id as id, t.createdAt as createdAt from Transfer t where t.status = :status and t.standingOrderId is null")
+    List<PendingTransferView> findOtpPendingViewsByStatus(@Param("status") TransferStatus status);
+
+    @Modifying
+    @Query("update Transfer t set t.status = :newStatus where t.id in :ids and t.status = :status")
+    int updateStatusByIdInAndStatus(@Param("ids") Collection<Long> ids, @Param("status") TransferStatus status, @Param("newStatus") TransferStatus newStatus);
+
+    // Menja status samo ako je transfer još u očekivanom statusu, pa od dva istovremena poziva prolazi samo jedan
+    @Transactional
+    @Modifying
+    @Query("update Transfer t set t.status = :newStatus where t.id = :id and t.status = :status")
+    int updateStatusByIdAndStatus(@Param("id") Long id, @Param("status") TransferStatus status, @Param("newStatus") TransferStatus newStatus);
+
+    // Kao updateStatusByIdAndStatus, uz vreme kada je transfer poslat na izvršenje
+    @Transactional
+    @Modifying
+    @Query("update Transfer t set t.status = :newStatus, t.queuedAt = :queuedAt where t.id = :id and t.status = :status")
+    int updateStatusAndQueuedAtByIdAndStatus(@Param("id") Long id, @Param("status") TransferStatus status,
+                                             @Param("newStatus") TransferStatus newStatus, @Param("queuedAt") Long queuedAt);
+
+    @Query("select t.id from Transfer t where t.status = :status and t.queuedAt < :queuedAt")
+    List<Long> findIdsByStatusAndQueuedAtBefore(@Param("status") TransferStatus status, @Param("queuedAt") Long queuedAt);
+
+    // Pomera vreme slanja samo ako je transfer i dalje u redu od pre queuedBefore, pa ga ponovo šalje samo jedna instanca
+    @Transactional
+    @Modifying
+    @Query("update Transfer t set t.queuedAt = :queuedAt where t.id = :id and t.status = :status and t.queuedAt < :queuedBefore")
+    int updateQueuedAtByIdAndStatusAndQueuedAtBefore(@Param("id") Long id, @Param("status") TransferStatus status,
+                                                     @Param("queuedBefore") Long queuedBefore, @Param("queuedAt") Long queuedAt);
+
+    @Query("select t.id from Transfer t where t.status = :status and t.standingOrderId is null and t.createdAt < :createdAt")
+    List<Long> findOtpIdsByStatusAndCreatedAtBefore(@Param("status") TransferStatus status, @Param("createdAt") Long createdAt);
+
+    @Query("select t from Transfer t join fetch t.fromAccountId where t.status = :status and t.standingOrderId is not null and t.createdAt < :createdAt")
+    List<Transfer> findStandingOrderTransfersByStatusAndCreatedAtBefore(@Param("status") TransferStatus status, @Param("createdAt") Long createdAt);
+
+    @Query("select t.id as id, t.fromAccountId.ownerID as ownerId from Transfer t where t.id in :ids and t.status = :status")
+    List<TransferOwnerView> findOwnerViewsByIdInAndStatus(@Param("ids") Collection<Long> ids, @Param("status") TransferStatus status);
 
 }
@@ -0,0 +1,9 @@
+package com.banka1.banking.repository.projection;
+
+/**
+ * Id i vreme kreiranja transfera koji čeka verifikaciju.
+ */
+public interface PendingTransferView {
+    Long getId();
+    Long getCreatedAt();
+}
@@ -0,0 +1,9 @@
+package com.banka1.banking.repository.projection;
+
+/**
+ * Zbir knjiženja jednog podračuna.
+ */
+public interface ShardAmountView {
+    Integer getShard();
+    Double getAmount();
+}
@@ -0,0 +1,21 @@
+package com.banka1.banking.repository.projection;
+
+import com.banka1.banking.models.helper.StandingOrderStatus;
+
+/**
+ * Trajni nalog kako ga vidi klijent, sa brojevima računa umesto entiteta.
+ */
+public interface StandingOrderView {
+    Long getId();
+    String getFromAccountNumber();
+    String getToAccountNumber();
+    Double getAmount();
+    String getReceiver();
+    String getPaymentDescription();
+    String getCron();
+    Long getEndDate();
+    Long getNextScheduledAt();
+    Long getLastRunAt();
+    Long getLastTransferId();
+    StandingOrderStatus getStatus();
+}
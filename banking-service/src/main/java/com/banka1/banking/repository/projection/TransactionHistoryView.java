@@ -0,0 +1,23 @@
+package com.banka1.banking.repository.projection;
+
+import com.banka1.banking.models.helper.CurrencyType;
+
+/**
+ * Stavka istorije transakcija: brojevi i vlasnici računa umesto celih entiteta računa, transfera i valute.
+ */
+public interface TransactionHistoryView {
+    Long getId();
+    Long getFromAccountId();
+    String getFromAccountNumber();
+    Long getFromOwnerId();
+    Long getToAccountId();
+    String getToAccountNumber();
+    Long getToOwnerId();
+    Double getAmount();
+    Double getFinalAmount();
+    Double getFee();
+    CurrencyType getCurrency();
+    Long getTimestamp();
+    String getDescription();
+    Long getTransferId();
+}
@@ -0,0 +1,14 @@
+package com.banka1.banking.repository.projection;
+
+import com.banka1.banking.models.helper.AccountType;
+
+/**
+ * Skalarni pogled na račune jednog transfera. Ne učitava entitete računa,
+ * pa se može koristiti pre nego što se računi zaključaju.
+ */
+public interface TransferAccountsView {
+    Long getFromAccountId();
+    Long getToAccountId();
+    AccountType getFromAccountType();
+    AccountType getToAccountType();
+}
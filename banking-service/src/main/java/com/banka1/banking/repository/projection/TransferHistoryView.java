@@ -0,0 +1,23 @@
+package com.banka1.banking.repository.projection;
+
+import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.models.helper.TransferStatus;
+import com.banka1.banking.models.helper.TransferType;
+
+/**
+ * Stavka istorije transfera: samo kolone koje prikazuje klijent, bez entiteta računa, firme i valute.
+ */
+public interface TransferHistoryView {
+    Long getId();
+    String getFromAccountNumber();
+    String getToAccountNumber();
+    Double getAmount();
+    CurrencyType getFromCurrency();
+    CurrencyType getToCurrency();
+    String getReceiver();
+    String getPaymentDescription();
+    TransferType getType();
+    TransferStatus getStatus();
+    Long getCreatedAt();
+    Long getCompletedAt();
+}
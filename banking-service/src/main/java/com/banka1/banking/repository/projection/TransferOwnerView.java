@@ -0,0 +1,9 @@
+package com.banka1.banking.repository.projection;
+
+/**
+ * Id transfera i id vlasnika izvornog računa.
+ */
+public interface TransferOwnerView {
+    Long getId();
+    Long getOwnerId();
+}
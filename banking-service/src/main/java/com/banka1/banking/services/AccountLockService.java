@@ -0,0 +1,69 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.models.Account;
+import com.banka1.banking.models.helper.AccountType;
+import com.banka1.banking.repository.AccountRepository;
+import com.banka1.banking.repository.TransferRepository;
+import com.banka1.banking.repository.projection.TransferAccountsView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Acquires row locks on the accounts a transfer touches, always in ascending id order.
+ * Because all writers take locks in the same order, two transfers sharing accounts wait on
+ * each other instead of deadlocking, which lets transfers run at READ COMMITTED.
+ */
+@Service
+@RequiredArgsConstructor
+public class AccountLockService {
+
+    private final AccountRepository accountRepository;
+    private final TransferRepository transferRepository;
+
+    /**
+     * Locks the given accounts in canonical (ascending id) order and returns them as managed entities.
+     * Must run inside the caller's transaction, the locks are held until it commits or rolls back.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Account> lockAccounts(Collection<Long> accountIds) {
+        SortedSet<Long> ordered = new TreeSet<>();
+        accountIds.stream().filter(Objects::nonNull).forEach(ordered::add);
+
+        if (ordered.isEmpty()) {
+            return List.of();
+        }
+        return accountRepository.lockAllByIdInOrder(ordered);
+    }
+
+    /**
+     * Locks the source and destination accounts of a transfer. House accounts are never locked here: their
+     * balance is kept in the ledger (see {@link LedgerService}), credits to them are plain ledger inserts, and a
+     * debit locks only the shard it takes the money from ({@link LedgerService#debit}).
+     * <p>
+     * This must be called before the transfer entity is loaded: the lock query is what brings the
+     * account rows into the persistence context, so they are read after the lock is granted.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Account> lockTransferAccounts(Long transferId) {
+        TransferAccountsView view = transferRepository.findAccountsViewById(transferId)
+                .orElseThrow(() -> new RuntimeException("Transfer not found"));
+
+        SortedSet<Long> accountIds = new TreeSet<>();
+        if (view.getFromAccountType() != AccountType.BANK) {
+            accountIds.add(view.getFromAccountId());
+        }
+        if (view.getToAccountType() != AccountType.BANK) {
+            accountIds.add(view.getToAccountId());
+        }
+
+        return lockAccounts(accountIds);
+    }
+}
@@ -161,6 +161,10 @@ public class AccountService {
                 .orElseThrow(() -> new RuntimeException("Račun sa brojem " + accountNumber + " nije pronađen"));
     }
 
+    public List<Account> findByAccountNumbers(Collection<String> accountNumbers) {
+        return accountRepository.findByAccountNumberIn(accountNumbers);
+    }
+
     public Account updateAccount(Long accountId, UpdateAccountDTO updateAccountDTO) {
         Account account = accountRepository.findById(accountId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Korisnik nije pronađen"));
@@ -203,12 +207,20 @@ public class AccountService {
         if(!Objects.equals(bankAccountUtils.getBankAccountForCurrency(CurrencyType.RSD).getOwnerID(), account.getOwnerID()))
             allTransactions.removeIf(Transaction::getBankOnly);
 
+        // Svi vlasnici racuna iz istorije se dohvataju jednom porukom ka user-service
+        Set<Long> ownerIds = new HashSet<>();
+        for (Transaction transaction : allTransactions) {
+            ownerIds.add(transaction.getFromAccountId().getOwnerID());
+            ownerIds.add(transaction.getToAccountId().getOwnerID());
+        }
+        Map<Long, CustomerDTO> customers = ownerIds.isEmpty() ? Map.of() : userServiceCustomer.getCustomersByIds(ownerIds);
+
         List<TransactionResponseDTO> responseDTOs = new ArrayList<>();
         for (Transaction transaction : allTransactions) {
             TransactionResponseDTO dto = modelMapper.map(transaction, TransactionResponseDTO.class);
 
-            CustomerDTO sender = userServiceCustomer.getCustomerById(dto.getFromAccountId().getOwnerID());
-            CustomerDTO reciever = userServiceCustomer.getCustomerById(dto.getToAccountId().getOwnerID());
+            CustomerDTO sender = customer(customers, dto.getFromAccountId().getOwnerID());
+            CustomerDTO reciever = customer(customers, dto.getToAccountId().getOwnerID());
 
             dto.setSenderName(sender.getFirstName() + " " + sender.getLastName());
             dto.setReceiverName(reciever.getFirstName() + " " + reciever.getLastName());
@@ -219,6 +231,14 @@ public class AccountService {
         return responseDTOs;
     }
 
+    private static CustomerDTO customer(Map<Long, CustomerDTO> customers, Long ownerId) {
+        CustomerDTO customer = customers.get(ownerId);
+        if (customer == null) {
+            throw new IllegalArgumentException("Korisnik nije pronađen ili API nije vratio očekivani format.");
+        }
+        return customer;
+    }
+
     public static String generateAccountNumber(Account account){
         StringBuilder sb = new StringBuilder();
         sb.append("111");
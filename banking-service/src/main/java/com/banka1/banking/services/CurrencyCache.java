@@ -0,0 +1,68 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.models.Currency;
+import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.repository.CurrencyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Currency rows by code, loaded once instead of looked up on every transfer and exchange.
+ * <p>
+ * Currencies are reference data seeded with the schema and never changed at runtime, so the first lookup reads the
+ * whole table with one query and every later one is served from an {@link EnumMap}. The entities are only used as
+ * foreign key targets of transfers and transactions, which Hibernate resolves by id, so sharing them between
+ * sessions is safe. The load is lazy because the startup rate fetch already needs currencies before the
+ * application is ready.
+ */
+@Service
+@Slf4j
+public class CurrencyCache {
+
+    private final CurrencyRepository currencyRepository;
+
+    private volatile Map<CurrencyType, Currency> currencies;
+
+    public CurrencyCache(CurrencyRepository currencyRepository) {
+        this.currencyRepository = currencyRepository;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the currency is not in the database
+     */
+    public Currency get(CurrencyType code) {
+        Currency currency = getAll().get(code);
+        if (currency == null) {
+            throw new IllegalArgumentException("Valuta " + code + " ne postoji");
+        }
+        return currency;
+    }
+
+    public Map<CurrencyType, Currency> getAll() {
+        Map<CurrencyType, Currency> loaded = currencies;
+        if (loaded == null) {
+            loaded = load();
+        }
+        return loaded;
+    }
+
+    private synchronized Map<CurrencyType, Currency> load() {
+        if (currencies == null) {
+            Map<CurrencyType, Currency> loaded = new EnumMap<>(CurrencyType.class);
+            for (Currency currency : currencyRepository.findAll()) {
+                loaded.put(currency.getCode(), currency);
+            }
+            if (loaded.isEmpty()) {
+                // Valute jos nisu upisane; ne pamtimo praznu mapu da bi sledeci poziv pokusao ponovo
+                return Collections.emptyMap();
+            }
+            currencies = Collections.unmodifiableMap(loaded);
+            log.info("Loaded {} currencies into the cache", loaded.size());
+        }
+        return currencies;
+    }
+}
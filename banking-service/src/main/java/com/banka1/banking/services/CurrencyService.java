@@ -1,85 +1,179 @@
 package com.banka1.banking.services;
 
 import com.banka1.banking.dto.ExchangePairDTO;
+import com.banka1.banking.dto.ExchangeRateCandleDTO;
 import com.banka1.banking.models.Currency;
 import com.banka1.banking.models.ExchangePair;
+import com.banka1.banking.models.ExchangeRateGeneration;
 import com.banka1.banking.models.helper.CurrencyType;
-import com.banka1.banking.repository.CurrencyRepository;
+import com.banka1.banking.models.helper.RateHistoryInterval;
 import com.banka1.banking.repository.ExchangePairRepository;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.banka1.banking.repository.ExchangeRateGenerationRepository;
+import com.banka1.banking.repository.ExchangeRateHistoryRepository;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 @Service
+@Slf4j
 public class CurrencyService {
     private final ExchangePairRepository exchangePairRepository;
-    private final RestTemplate restTemplate;
-    private final CurrencyRepository currencyRepository;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final RateProvider rateProvider;
+    private final CurrencyCache currencyCache;
+    private final ExchangeRateService exchangeRateService;
+    private final ExchangeRateGenerationRepository exchangeRateGenerationRepository;
+    private final ExchangeRateHistoryRepository exchangeRateHistoryRepository;
     private static final List<CurrencyType> SUPPORTED_CURRENCIES = Arrays.asList(CurrencyType.values());
-
-    public CurrencyService(ExchangePairRepository exchangePairRepository, RestTemplate restTemplate, CurrencyRepository currencyRepository) {
+    private static final long HISTORY_DEFAULT_RANGE_MS = 365L * 24 * 60 * 60 * 1000;
+    // Po jedna nit za svaku baznu valutu i jedna za osvezavanje u pozadini; daemon niti ne zadrzavaju gasenje aplikacije
+    private final ExecutorService fetchExecutor = Executors.newFixedThreadPool(SUPPORTED_CURRENCIES.size() + 1, runnable -> {
+        Thread thread = new Thread(runnable, "exchange-rate-fetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CurrencyService(ExchangePairRepository exchangePairRepository, RateProvider rateProvider, CurrencyCache currencyCache, ExchangeRateService exchangeRateService, ExchangeRateGenerationRepository exchangeRateGenerationRepository, ExchangeRateHistoryRepository exchangeRateHistoryRepository) {
         this.exchangePairRepository = exchangePairRepository;
-        this.restTemplate = restTemplate;
-        this.currencyRepository = currencyRepository;
+        this.rateProvider = rateProvider;
+        this.currencyCache = currencyCache;
+        this.exchangeRateService = exchangeRateService;
+        this.exchangeRateGenerationRepository = exchangeRateGenerationRepository;
+        this.exchangeRateHistoryRepository = exchangeRateHistoryRepository;
     }
 
+    /**
+     * Downloads a new rate list and makes it active without a moment in which no rates are available.
+     * <p>
+     * All base currencies are fetched in parallel. The pairs are written under a new generation with one batched
+     * insert while the previous generation stays active, and a single UPDATE then switches the active generation.
+     * Base currencies whose download failed keep their rates from the previous generation. Older generations are
+     * deleted in the background once the new one is active; every stored generation is also copied to the rate history.
+     */
     @Scheduled(cron = "0 0 0 * * ?")// Svakog dana u ponoc
     public void fetchExchangeRates() {
-        exchangePairRepository.deleteAll(); // Brisemo stare podatke
+        long started = System.currentTimeMillis();
 
+        Map<CurrencyType, CompletableFuture<Map<CurrencyType, Double>>> requests = new EnumMap<>(CurrencyType.class);
         for (CurrencyType baseCurrencyCode : SUPPORTED_CURRENCIES) {
-            String url = "https://cdn.jsdelivr.net/npm/@fawazahmed0/currency-api@latest/v1/currencies/"
-                    + baseCurrencyCode.name().toLowerCase() + ".json";
+            requests.put(baseCurrencyCode, CompletableFuture.supplyAsync(() -> fetchRates(baseCurrencyCode), fetchExecutor));
+        }
 
-            try {
-                String jsonResponse = restTemplate.getForObject(url, String.class);
-                JsonNode root = objectMapper.readTree(jsonResponse);
-                JsonNode ratesNode = root.get(baseCurrencyCode.name().toLowerCase());
+        Map<CurrencyType, Currency> currencies = currencyCache.getAll();
+        LocalDate today = LocalDate.now();
+        List<ExchangePair> pairs = new ArrayList<>();
+        int fetched = 0;
+
+        for (CurrencyType baseCurrencyCode : SUPPORTED_CURRENCIES) {
+            Map<CurrencyType, Double> rates = requests.get(baseCurrencyCode).join();
+            Currency baseCurrency = currencies.get(baseCurrencyCode);
+            if (rates == null || baseCurrency == null) {
+                // Zadrzavamo kurseve iz prethodne liste umesto da ih izgubimo
+                for (ExchangePair previous : exchangePairRepository.findActiveByBaseCurrencyCode(baseCurrencyCode)) {
+                    pairs.add(newPair(previous.getBaseCurrency(), previous.getTargetCurrency(), previous.getExchangeRate(), previous.getDate()));
+                }
+                continue;
+            }
+            fetched++;
+            for (Map.Entry<CurrencyType, Double> rate : rates.entrySet()) {
+                Currency targetCurrency = currencies.get(rate.getKey());
+                if (targetCurrency != null) {
+                    pairs.add(newPair(baseCurrency, targetCurrency, rate.getValue(), today));
+                }
+            }
+        }
 
-                if (ratesNode != null) {
-                    Currency baseCurrency = currencyRepository.findByCode(baseCurrencyCode)
-                            .orElseThrow(() -> new RuntimeException("Base currency " + baseCurrencyCode + " not found"));
+        if (fetched == 0 || pairs.isEmpty()) {
+            log.warn("No exchange rates fetched, keeping the active rate list");
+            // Aktivna lista iz baze i dalje mora biti ucitana, npr. kad preuzimanje ne uspe pri startu
+            exchangeRateService.reload();
+            return;
+        }
 
-                    for (CurrencyType targetCurrencyCode : SUPPORTED_CURRENCIES) {
-                        if (!baseCurrencyCode.equals(targetCurrencyCode) &&
-                                ratesNode.has(targetCurrencyCode.name().toLowerCase())) {
+        ExchangeRateGeneration generation = new ExchangeRateGeneration();
+        generation.setCreatedAt(System.currentTimeMillis());
+        generation = exchangeRateGenerationRepository.save(generation);
+        for (ExchangePair pair : pairs) {
+            pair.setGeneration(generation.getId());
+        }
+        exchangePairRepository.saveAll(pairs);
+        recordHistory(generation);
 
-                            double rate = ratesNode.get(targetCurrencyCode.name().toLowerCase()).asDouble();
+        if (exchangeRateGenerationRepository.activate(generation.getId()) == 0) {
+            // Neka druga instanca je u medjuvremenu aktivirala noviju listu
+            log.warn("Exchange rate generation {} is older than the active one, not activated", generation.getId());
+        }
 
-                            Currency targetCurrency = currencyRepository.findByCode(targetCurrencyCode)
-                                    .orElseThrow(() -> new RuntimeException("Target currency " + targetCurrencyCode + " not found"));
+        // Nova kursna lista je upisana, menjacnica prelazi na nju odjednom
+        exchangeRateService.reload();
+        fetchExecutor.execute(this::pruneInactiveGenerations);
+        log.info("Exchange rate generation {} with {} pairs stored in {} ms", generation.getId(), pairs.size(),
+                System.currentTimeMillis() - started);
+    }
 
-                            ExchangePair pair = new ExchangePair();
-                            pair.setBaseCurrency(baseCurrency);
-                            pair.setTargetCurrency(targetCurrency);
-                            pair.setExchangeRate(rate);
-                            pair.setDate(LocalDate.now());
+    /**
+     * Runs {@link #fetchExchangeRates()} off the calling thread, so startup does not wait for the rate provider.
+     */
+    public CompletableFuture<Void> fetchExchangeRatesAsync() {
+        return CompletableFuture.runAsync(this::fetchExchangeRates, fetchExecutor)
+                .exceptionally(e -> {
+                    log.warn("Failed to refresh exchange rates: {}", e.getMessage());
+                    exchangeRateService.reload();
+                    return null;
+                });
+    }
 
-                            exchangePairRepository.save(pair);
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                System.err.println("Failed to fetch rates for base currency: " + baseCurrencyCode + ", " + e.getMessage());
-            }
+    private void recordHistory(ExchangeRateGeneration generation) {
+        try {
+            exchangeRateHistoryRepository.recordGeneration(generation.getId(), generation.getCreatedAt());
+        } catch (Exception e) {
+            // Istorija ne sme da spreci aktiviranje nove kursne liste
+            log.warn("Failed to record exchange rate generation {} in history: {}", generation.getId(), e.getMessage());
+        }
+    }
+
+    private Map<CurrencyType, Double> fetchRates(CurrencyType baseCurrencyCode) {
+        try {
+            return rateProvider.fetchRates(baseCurrencyCode);
+        } catch (Exception e) {
+            log.warn("Failed to fetch rates for base currency {}: {}", baseCurrencyCode, e.getMessage());
+            return null;
+        }
+    }
+
+    private static ExchangePair newPair(Currency baseCurrency, Currency targetCurrency, double rate, LocalDate date) {
+        ExchangePair pair = new ExchangePair();
+        pair.setBaseCurrency(baseCurrency);
+        pair.setTargetCurrency(targetCurrency);
+        pair.setExchangeRate(rate);
+        pair.setDate(date);
+        return pair;
+    }
+
+    void pruneInactiveGenerations() {
+        try {
+            int pairs = exchangePairRepository.deleteInactiveGenerations();
+            exchangeRateGenerationRepository.deleteInactive();
+            log.info("Pruned {} exchange pairs of old rate lists", pairs);
+        } catch (Exception e) {
+            log.warn("Failed to prune old exchange rate generations: {}", e.getMessage());
         }
     }
 
     public List<ExchangePairDTO> getAllExchangeRates() {
-        return exchangePairRepository.findAll().stream()
+        return exchangePairRepository.findActive().stream()
                 .map(this::mapToDTO)
                 .collect(Collectors.toList());
     }
 
     public List<ExchangePairDTO> getExchangeRatesForBaseCurrency(CurrencyType baseCurrency) {
-        List<ExchangePair> pairs = exchangePairRepository.findByBaseCurrencyCode(baseCurrency);
+        List<ExchangePair> pairs = exchangePairRepository.findActiveByBaseCurrencyCode(baseCurrency);
 
         if (pairs.isEmpty()) {
             throw new RuntimeException("Nema dostupnih kurseva za baznu valutu: " + baseCurrency);
@@ -99,10 +193,37 @@ public class CurrencyService {
         );
     }
 
+    /**
+     * Rate history of a currency pair in {@code [from, to)}, downsampled to one OHLC candle per interval.
+     * <p>
+     * Only the direction published by the rate source is stored, so a pair without its own history is answered
+     * from the reverse pair with inverted rates. {@code to} defaults to now and {@code from} to one year before it.
+     */
+    public List<ExchangeRateCandleDTO> getExchangeRateHistory(CurrencyType base, CurrencyType target, Long from, Long to,
+                                                              RateHistoryInterval interval) {
+        if (base == target) {
+            throw new IllegalArgumentException("Bazna i ciljana valuta moraju biti različite");
+        }
+        long end = to != null ? to : System.currentTimeMillis();
+        long start = from != null ? from : end - HISTORY_DEFAULT_RANGE_MS;
+        if (start >= end) {
+            throw new IllegalArgumentException("Početak perioda mora biti pre kraja");
+        }
+        RateHistoryInterval bucket = interval != null ? interval : RateHistoryInterval.DAY;
+
+        List<ExchangeRateCandleDTO> candles = exchangeRateHistoryRepository.findCandles(base, target, start, end, bucket);
+        if (!candles.isEmpty()) {
+            return candles;
+        }
+        return exchangeRateHistoryRepository.findCandles(target, base, start, end, bucket).stream()
+                .map(ExchangeRateCandleDTO::inverse)
+                .collect(Collectors.toList());
+    }
+
     public List<String> getAvailableCurrencies() {
-        return currencyRepository.findAll()
+        return currencyCache.getAll().keySet()
                 .stream()
-                .map(currency -> currency.getCode().name()) // Pretvara CurrencyType.EUR u "EUR"
+                .map(CurrencyType::name) // Pretvara CurrencyType.EUR u "EUR"
                 .collect(Collectors.toList());
     }
 }
@@ -0,0 +1,98 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.dto.CustomerDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Near-cache of customers fetched from user-service, so repeated lookups of the same customer do not each need
+ * a JMS request/reply.
+ * <p>
+ * Entries live for {@code customer-cache.ttl-ms} in a bounded LRU map of {@code customer-cache.size} entries.
+ * user-service publishes the id of every updated or deleted customer on the {@code destination.customer.changed}
+ * topic and each replica evicts it right away; the TTL only bounds staleness when such a message is missed.
+ * A lookup that was in flight while any customer was evicted does not store its answer, because it may predate
+ * the change. Hits and misses are counted in {@value #CACHE_COUNTER}.
+ */
+@Service
+public class CustomerCache {
+
+    public static final String CACHE_COUNTER = "banking.customer.cache";
+
+    private record Entry(CustomerDTO customer, long expiresAt) {
+    }
+
+    private final long ttlMs;
+    private final Map<Long, Entry> customers;
+    // Raste pri svakom izbacivanju; odgovor dobijen posle promene ne sme da vrati stari podatak u kes
+    private final AtomicLong evictions = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+
+    public CustomerCache(@Value("${customer-cache.ttl-ms:300000}") long ttlMs,
+                         @Value("${customer-cache.size:10000}") int size,
+                         MeterRegistry meterRegistry) {
+        this.ttlMs = ttlMs;
+        this.customers = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > size;
+            }
+        });
+        this.hits = Counter.builder(CACHE_COUNTER).tag("result", "hit")
+                .description("Customer lookups served by the near-cache").register(meterRegistry);
+        this.misses = Counter.builder(CACHE_COUNTER).tag("result", "miss")
+                .description("Customer lookups sent to user-service").register(meterRegistry);
+        Gauge.builder(CACHE_COUNTER + ".size", customers, Map::size)
+                .description("Customers in the near-cache").register(meterRegistry);
+    }
+
+    /**
+     * @return the cached customer, or {@code null} on a miss
+     */
+    public CustomerDTO get(Long customerId) {
+        Entry entry = customers.get(customerId);
+        if (entry == null || entry.expiresAt() < System.currentTimeMillis()) {
+            if (entry != null) {
+                customers.remove(customerId, entry);
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.customer();
+    }
+
+    /**
+     * Token to take before asking user-service, and to pass to {@link #put} with the answer.
+     */
+    public long version() {
+        return evictions.get();
+    }
+
+    public void put(CustomerDTO customer, long version) {
+        if (customer == null || customer.getId() == null) {
+            return;
+        }
+        synchronized (customers) {
+            if (evictions.get() == version) {
+                customers.put(customer.getId(), new Entry(customer, System.currentTimeMillis() + ttlMs));
+            }
+        }
+    }
+
+    public void evict(Long customerId) {
+        synchronized (customers) {
+            evictions.incrementAndGet();
+            customers.remove(customerId);
+        }
+    }
+}
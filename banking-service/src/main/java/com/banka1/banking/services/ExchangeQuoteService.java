@@ -0,0 +1,85 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.models.ExchangeQuote;
+import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.repository.ExchangeQuoteRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+
+/**
+ * Holds the exchange quotes shown to customers in the preview, so the transfer created afterwards is executed
+ * at exactly the displayed rate instead of recomputing it from the current exchange pairs.
+ * <p>
+ * Quotes are stored in the {@code exchange_quote} table, so a transfer can use a quote issued by any replica.
+ * A quote is valid for {@code exchange-quote.ttl-ms}, only for the user it was issued to, and for one transfer
+ * only; a quote that expired, was already used or belongs to someone else is rejected and the client has to ask
+ * for a new preview.
+ */
+@Service
+@Slf4j
+public class ExchangeQuoteService {
+
+    private final ExchangeQuoteRepository exchangeQuoteRepository;
+    private final long ttlMs;
+
+    public ExchangeQuoteService(ExchangeQuoteRepository exchangeQuoteRepository,
+                                @Value("${exchange-quote.ttl-ms:60000}") long ttlMs) {
+        this.exchangeQuoteRepository = exchangeQuoteRepository;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Stores a quote with the amounts computed by {@link ExchangeService#quoteExchange}.
+     *
+     * @param finalAmount amount credited to the target account
+     * @param fee         exchange fee in the target currency
+     * @param provision   income of the bank in RSD
+     */
+    public ExchangeQuote issue(Long userId, CurrencyType fromCurrency, CurrencyType toCurrency, double amount,
+                               double finalAmount, double fee, double provision) {
+        ExchangeQuote quote = new ExchangeQuote();
+        quote.setId(UUID.randomUUID().toString());
+        quote.setUserId(userId);
+        quote.setFromCurrency(fromCurrency);
+        quote.setToCurrency(toCurrency);
+        quote.setAmount(amount);
+        quote.setFinalAmount(finalAmount);
+        quote.setFee(fee);
+        quote.setProvision(provision);
+        quote.setExpiresAt(System.currentTimeMillis() + ttlMs);
+        return exchangeQuoteRepository.save(quote);
+    }
+
+    /**
+     * Takes the quote for a transfer of the user. The quote must still be valid and issued to the same user for
+     * the same currencies and amount.
+     *
+     * @throws IllegalArgumentException if the quote cannot be used
+     */
+    public ExchangeQuote consume(String quoteId, Long userId, CurrencyType fromCurrency, CurrencyType toCurrency, double amount) {
+        ExchangeQuote quote = exchangeQuoteRepository.findByIdAndUserId(quoteId, userId).orElse(null);
+        if (quote == null || quote.getExpiresAt() < System.currentTimeMillis()) {
+            throw new IllegalArgumentException("Ponuda kursa je istekla ili ne postoji.");
+        }
+        if (quote.getFromCurrency() != fromCurrency || quote.getToCurrency() != toCurrency || Double.compare(quote.getAmount(), amount) != 0) {
+            throw new IllegalArgumentException("Ponuda kursa ne odgovara transferu.");
+        }
+        // Dva istovremena transfera sa istom ponudom: samo jedan je brise
+        if (exchangeQuoteRepository.deleteQuote(quoteId) == 0) {
+            throw new IllegalArgumentException("Ponuda kursa je istekla ili ne postoji.");
+        }
+        return quote;
+    }
+
+    @Scheduled(fixedDelayString = "${exchange-quote.ttl-ms:60000}")
+    public void evictExpired() {
+        int deleted = exchangeQuoteRepository.deleteExpired(System.currentTimeMillis());
+        if (deleted > 0) {
+            log.debug("Deleted {} expired exchange quotes", deleted);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.models.ExchangePair;
+import com.banka1.banking.models.helper.ExchangeRateMatrix;
+import com.banka1.banking.repository.ExchangePairRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Serves exchange rates from an immutable {@link ExchangeRateMatrix} instead of querying {@code exchange_pair}
+ * for every quote.
+ * <p>
+ * The matrix is rebuilt from the repository once {@link CurrencyService#fetchExchangeRates()} has stored a new
+ * rate list, and swapped in with a single volatile write. Readers take the reference once per calculation, so a
+ * quote never mixes rates of two lists, and they never wait on a reload.
+ * <p>
+ * Every non-empty reload is also written to the {@link ExchangeRateSnapshotStore}. At startup the snapshot is
+ * loaded and the active list is reloaded from the database before the rate provider is asked for a new list, so
+ * exchanges work as soon as the service is up even if the provider cannot be reached.
+ */
+@Service
+@Slf4j
+public class ExchangeRateService {
+
+    private final ExchangePairRepository exchangePairRepository;
+    private final ExchangeRateSnapshotStore snapshotStore;
+
+    private volatile ExchangeRateMatrix matrix = ExchangeRateMatrix.EMPTY;
+
+    public ExchangeRateService(ExchangePairRepository exchangePairRepository, ExchangeRateSnapshotStore snapshotStore) {
+        this.exchangePairRepository = exchangePairRepository;
+        this.snapshotStore = snapshotStore;
+    }
+
+    public ExchangeRateMatrix getMatrix() {
+        return matrix;
+    }
+
+    /**
+     * Rebuilds the matrix from the active rate list in the database. An empty list does not replace rates that are
+     * already loaded, e.g. from the snapshot of a service whose database was just recreated.
+     */
+    public synchronized void reload() {
+        List<ExchangePair> pairs = exchangePairRepository.findActive();
+        if (pairs.isEmpty() && matrix.getPairCount() > 0) {
+            log.warn("No active exchange pairs in the database, keeping the loaded rate matrix");
+            return;
+        }
+        ExchangeRateMatrix reloaded = ExchangeRateMatrix.of(pairs);
+        matrix = reloaded;
+        log.info("Loaded {} exchange pairs into the rate matrix", reloaded.getPairCount());
+        if (!pairs.isEmpty()) {
+            snapshotStore.write(pairs);
+        }
+    }
+
+    /**
+     * Serves the rates of the last snapshot until the first reload.
+     *
+     * @return whether a snapshot was loaded
+     */
+    public synchronized boolean loadSnapshot() {
+        ExchangeRateMatrix snapshot = snapshotStore.read();
+        if (snapshot == null || snapshot.getPairCount() == 0) {
+            return false;
+        }
+        // Lista iz baze je novija od snapshot-a i ima prednost
+        if (matrix.getPairCount() == 0) {
+            matrix = snapshot;
+        }
+        return true;
+    }
+}
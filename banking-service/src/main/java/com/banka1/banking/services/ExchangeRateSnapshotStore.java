@@ -0,0 +1,125 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.models.ExchangePair;
+import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.models.helper.ExchangeRateMatrix;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.List;
+
+/**
+ * Last rate list that was loaded successfully, kept in a small binary file so the service can quote exchanges
+ * right after a restart, before (or without) reaching the rate provider.
+ * <p>
+ * Layout, big-endian: magic {@code "RATE"}, format version (short), time of the list in epoch millis (long),
+ * number of pairs (int), then per pair the ASCII codes of the base and target currency (3 bytes each) and the rate
+ * (double). Only the published pairs are stored; reverse and cross rates are derived again by
+ * {@link ExchangeRateMatrix}. The file is replaced atomically and read through a memory mapping.
+ */
+@Service
+@Slf4j
+public class ExchangeRateSnapshotStore {
+
+    private static final int MAGIC = 0x52415445;
+    private static final short VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 2 + 8 + 4;
+    private static final int PAIR_BYTES = 3 + 3 + 8;
+
+    private final Path path;
+
+    public ExchangeRateSnapshotStore(@Value("${exchange-rate.snapshot-path:data/exchange-rates.snapshot}") String path) {
+        this.path = Paths.get(path);
+    }
+
+    /**
+     * Replaces the snapshot with the given pairs. A failed write is logged and leaves the previous snapshot in place.
+     */
+    public void write(List<ExchangePair> pairs) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + pairs.size() * PAIR_BYTES);
+        buffer.putInt(MAGIC).putShort(VERSION).putLong(System.currentTimeMillis()).putInt(pairs.size());
+        for (ExchangePair pair : pairs) {
+            buffer.put(code(pair.getBaseCurrency().getCode()))
+                    .put(code(pair.getTargetCurrency().getCode()))
+                    .putDouble(pair.getExchangeRate());
+        }
+        buffer.flip();
+
+        try {
+            Path directory = path.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            // Citalac vidi ili stari ili novi fajl, nikad poluupisan
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Exchange rate snapshot {} could not be written: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * @return the rates of the snapshot, or {@code null} if there is no usable snapshot
+     */
+    public ExchangeRateMatrix read() {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+                log.warn("Exchange rate snapshot {} has an unknown format, ignoring it", path);
+                return null;
+            }
+            long createdAt = buffer.getLong();
+            int count = buffer.getInt();
+            if (count < 0 || buffer.remaining() < (long) count * PAIR_BYTES) {
+                log.warn("Exchange rate snapshot {} is truncated, ignoring it", path);
+                return null;
+            }
+
+            ExchangeRateMatrix.Builder builder = ExchangeRateMatrix.builder();
+            byte[] base = new byte[3];
+            byte[] target = new byte[3];
+            for (int i = 0; i < count; i++) {
+                buffer.get(base).get(target);
+                double rate = buffer.getDouble();
+                CurrencyType baseCurrency = currency(base);
+                CurrencyType targetCurrency = currency(target);
+                // Valuta koja u medjuvremenu vise nije podrzana se preskace
+                if (baseCurrency != null && targetCurrency != null) {
+                    builder.rate(baseCurrency, targetCurrency, rate);
+                }
+            }
+            ExchangeRateMatrix matrix = builder.build();
+            log.info("Read {} exchange pairs from snapshot {} taken at {}", matrix.getPairCount(), path, createdAt);
+            return matrix;
+        } catch (IOException e) {
+            log.error("Exchange rate snapshot {} could not be read: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    private static byte[] code(CurrencyType currency) {
+        return currency.name().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static CurrencyType currency(byte[] code) {
+        try {
+            return CurrencyType.valueOf(new String(code, StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -2,17 +2,19 @@ package com.banka1.banking.services;
 
 import com.banka1.banking.dto.CustomerDTO;
 import com.banka1.banking.dto.ExchangeMoneyTransferDTO;
+import com.banka1.banking.dto.ExchangePreviewDTO;
 import com.banka1.banking.dto.NotificationDTO;
 import com.banka1.banking.models.Account;
 import com.banka1.banking.models.Currency;
-import com.banka1.banking.models.ExchangePair;
+import com.banka1.banking.models.ExchangeQuote;
 import com.banka1.banking.models.Transfer;
 import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.models.helper.ExchangeCalculation;
+import com.banka1.banking.models.helper.ExchangeRateMatrix;
+import com.banka1.banking.models.helper.Money;
 import com.banka1.banking.models.helper.TransferStatus;
 import com.banka1.banking.models.helper.TransferType;
 import com.banka1.banking.repository.AccountRepository;
-import com.banka1.banking.repository.CurrencyRepository;
-import com.banka1.banking.repository.ExchangePairRepository;
 import com.banka1.banking.repository.TransferRepository;
 import com.banka1.banking.utils.ExcludeFromGeneratedJacocoReport;
 import com.banka1.common.listener.MessageHelper;
@@ -20,17 +22,27 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jms.core.JmsTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 @Service
 @Slf4j
 public class ExchangeService {
 
+    // Provizija menjačnice, 1% od konvertovanog iznosa
+    private static final double EXCHANGE_FEE_RATE = 0.01;
+
+    public static final int MAX_BULK_PREVIEW_ITEMS = 500;
+
     private final AccountRepository accountRepository;
 
-    private final CurrencyRepository currencyRepository;
+    private final CurrencyCache currencyCache;
 
     private final TransferRepository transferRepository;
 
@@ -44,25 +56,46 @@ public class ExchangeService {
 
     private final OtpTokenService otpTokenService;
 
-    private final ExchangePairRepository exchangePairRepository;
+    private final ExchangeRateService exchangeRateService;
+
+    private final TransferExpiryService transferExpiryService;
+
+    private final TransferMetrics transferMetrics;
 
-    public ExchangeService(AccountRepository accountRepository, CurrencyRepository currencyRepository, TransferRepository transferRepository, JmsTemplate jmsTemplate, MessageHelper messageHelper, @Value("send-email") String destinationEmail, UserServiceCustomer userServiceCustomer, OtpTokenService otpTokenService, ExchangePairRepository exchangePairRepository) {
+    private final ExchangeQuoteService exchangeQuoteService;
+
+    public ExchangeService(AccountRepository accountRepository, CurrencyCache currencyCache, TransferRepository transferRepository, JmsTemplate jmsTemplate, MessageHelper messageHelper, @Value("send-email") String destinationEmail, UserServiceCustomer userServiceCustomer, OtpTokenService otpTokenService, ExchangeRateService exchangeRateService, TransferExpiryService transferExpiryService, TransferMetrics transferMetrics, ExchangeQuoteService exchangeQuoteService) {
         this.accountRepository = accountRepository;
-        this.currencyRepository = currencyRepository;
+        this.currencyCache = currencyCache;
         this.transferRepository = transferRepository;
         this.jmsTemplate = jmsTemplate;
         this.messageHelper = messageHelper;
         this.destinationEmail = destinationEmail;
         this.userServiceCustomer = userServiceCustomer;
         this.otpTokenService = otpTokenService;
-        this.exchangePairRepository = exchangePairRepository;
+        this.exchangeRateService = exchangeRateService;
+        this.transferExpiryService = transferExpiryService;
+        this.transferMetrics = transferMetrics;
+        this.exchangeQuoteService = exchangeQuoteService;
     }
 
     public boolean validateExchangeTransfer(ExchangeMoneyTransferDTO exchangeMoneyTransferDTO){
+        long start = System.nanoTime();
+        String outcome = TransferMetrics.ERROR;
 
         Optional<Account> fromAccountOtp = accountRepository.findById(exchangeMoneyTransferDTO.getAccountFrom());
         Optional<Account> toAccountOtp = accountRepository.findById(exchangeMoneyTransferDTO.getAccountTo());
+        try {
+            boolean valid = isValidExchangeTransfer(exchangeMoneyTransferDTO, fromAccountOtp, toAccountOtp);
+            outcome = valid ? TransferMetrics.SUCCESS : TransferMetrics.REJECTED;
+            return valid;
+        } finally {
+            transferMetrics.record(TransferMetrics.Stage.VALIDATION, TransferType.EXCHANGE,
+                    TransferMetrics.currencyPair(fromAccountOtp.orElse(null), toAccountOtp.orElse(null)), outcome, start);
+        }
+    }
 
+    private boolean isValidExchangeTransfer(ExchangeMoneyTransferDTO exchangeMoneyTransferDTO, Optional<Account> fromAccountOtp, Optional<Account> toAccountOtp) {
         if (fromAccountOtp.isEmpty() || toAccountOtp.isEmpty()){
             return false;
         }
@@ -80,6 +113,12 @@ public class ExchangeService {
         return fromAccount.getOwnerID().equals(toAccount.getOwnerID());
     }
 
+    /**
+     * Creates a pending exchange transfer, consumes its quote, issues the OTP and sends the verification
+     * notifications in one transaction. If the notifications cannot be sent, the transfer is not persisted and the
+     * quote is not consumed, so the request can be retried with the same quote and idempotency key.
+     */
+    @Transactional
     public Long createExchangeTransfer(ExchangeMoneyTransferDTO exchangeMoneyTransferDTO) {
 
         Optional<Account> fromAccountDTO = accountRepository.findById(exchangeMoneyTransferDTO.getAccountFrom());
@@ -89,21 +128,28 @@ public class ExchangeService {
 
             Account fromAccount = fromAccountDTO.get();
             Account toAccount = toAccountDTO.get();
+            String currencyPair = TransferMetrics.currencyPair(fromAccount, toAccount);
 
             // PROVERITI DA LI SE VALUTE SALJU U DTO
-            Currency fromCurrency = currencyRepository.findByCode(fromAccount.getCurrencyType())
-                    .orElseThrow(() -> new IllegalArgumentException("Greska"));
+            Currency fromCurrency = currencyCache.get(fromAccount.getCurrencyType());
 
-            Currency toCurrency = currencyRepository.findByCode(toAccount.getCurrencyType())
-                    .orElseThrow(() -> new IllegalArgumentException("Greska"));
+            Currency toCurrency = currencyCache.get(toAccount.getCurrencyType());
 
             Long customerId = fromAccount.getOwnerID();
-            CustomerDTO customerData = userServiceCustomer.getCustomerById(customerId);
+            CustomerDTO customerData = timed(TransferMetrics.Stage.CUSTOMER_LOOKUP, currencyPair,
+                    () -> userServiceCustomer.getCustomerById(customerId));
 
             if (customerData == null) {
                 throw new IllegalArgumentException("Korisnik nije pronađen");
             }
 
+            // Ponuda se trosi tek kad je zahtev prosao sve provere, da je neuspeli pokusaj ne bi potrosio
+            ExchangeQuote quote = null;
+            if (exchangeMoneyTransferDTO.getQuoteId() != null) {
+                quote = exchangeQuoteService.consume(exchangeMoneyTransferDTO.getQuoteId(), customerId,
+                        fromAccount.getCurrencyType(), toAccount.getCurrencyType(), exchangeMoneyTransferDTO.getAmount());
+            }
+
             String email = customerData.getEmail();
             String firstName = customerData.getFirstName();
             String lastName = customerData.getLastName();
@@ -117,10 +163,17 @@ public class ExchangeService {
             transfer.setFromCurrency(fromCurrency);
             transfer.setToCurrency(toCurrency);
             transfer.setCreatedAt(System.currentTimeMillis());
+            if (quote != null) {
+                transfer.setQuoteId(quote.getId());
+                transfer.setQuotedFinalAmount(quote.getFinalAmount());
+                transfer.setQuotedFee(quote.getFee());
+                transfer.setQuotedProvision(quote.getProvision());
+            }
 
-            transferRepository.saveAndFlush(transfer);
+            timed(TransferMetrics.Stage.PERSISTENCE, currencyPair, () -> transferRepository.saveAndFlush(transfer));
+            transferExpiryService.schedule(transfer);
 
-            String otpCode = otpTokenService.generateOtp(transfer.getId());
+            String otpCode = timed(TransferMetrics.Stage.OTP_GENERATION, currencyPair, () -> otpTokenService.generateOtp(transfer.getId()));
             transfer.setOtp(otpCode);
 
             transferRepository.save(transfer);
@@ -143,8 +196,11 @@ public class ExchangeService {
             Map<String, String> data = Map.of("transferId", transfer.getId().toString(), "otp", otpCode);
             pushNotification.setAdditionalData(data);
 
-            jmsTemplate.convertAndSend(destinationEmail, messageHelper.createTextMessage(emailDto));
-            jmsTemplate.convertAndSend(destinationEmail, messageHelper.createTextMessage(pushNotification));
+            timed(TransferMetrics.Stage.NOTIFICATION, currencyPair, () -> {
+                jmsTemplate.convertAndSend(destinationEmail, messageHelper.createTextMessage(emailDto));
+                jmsTemplate.convertAndSend(destinationEmail, messageHelper.createTextMessage(pushNotification));
+                return null;
+            });
 
             return transfer.getId();
         }
@@ -152,6 +208,18 @@ public class ExchangeService {
         return null;
     }
 
+    private <T> T timed(TransferMetrics.Stage stage, String currencyPair, Supplier<T> action) {
+        long start = System.nanoTime();
+        String outcome = TransferMetrics.ERROR;
+        try {
+            T result = action.get();
+            outcome = TransferMetrics.SUCCESS;
+            return result;
+        } finally {
+            transferMetrics.record(stage, TransferType.EXCHANGE, currencyPair, outcome, start);
+        }
+    }
+
 
     private CurrencyType parseCurrency(String currency) {
         try {
@@ -161,125 +229,166 @@ public class ExchangeService {
         }
     }
 
-    @ExcludeFromGeneratedJacocoReport("Wrapper method")
-    public Map<String, Object> calculatePreviewExchangeAutomatic(String fromCurrency, String toCurrency, Double amount) {
-        if(fromCurrency.equals("RSD") || toCurrency.equals("RSD")){
+    /**
+     * Same preview as {@link #calculatePreviewExchangeAutomatic}, extended with a {@code quoteId} and {@code expiresAt}.
+     * A transfer of {@code userId} created with the quote id is executed with the amounts of this preview.
+     * <p>
+     * Foreign to foreign quotes are computed as the two RSD legs the execution books, so the locked provision
+     * is in RSD like the one computed at execution time.
+     */
+    public Map<String, Object> quoteExchange(Long userId, String fromCurrency, String toCurrency, Double amount) {
+        CurrencyType from = parseCurrency(fromCurrency);
+        CurrencyType to = parseCurrency(toCurrency);
+        ExchangeRateMatrix rates = exchangeRateService.getMatrix();
+
+        ExchangeCalculation calculation;
+        double fee;
+        double provision;
+        if (from == CurrencyType.RSD || to == CurrencyType.RSD) {
+            calculation = calculateRsdExchange(rates, from, to, amount);
+            fee = calculation.fee();
+            provision = calculation.provision();
+        } else {
+            ExchangeCalculation first = calculateRsdExchange(rates, from, CurrencyType.RSD, amount);
+            ExchangeCalculation second = calculateRsdExchange(rates, CurrencyType.RSD, to, first.finalAmount());
+            fee = second.fee();
+            provision = Money.of(first.provision(), CurrencyType.RSD)
+                    .plus(Money.of(second.provision(), CurrencyType.RSD))
+                    .toDouble();
+            double totalFee = first.fee() + second.fee();
+            calculation = new ExchangeCalculation(from, to, amount, first.exchangeRate(), second.exchangeRate(),
+                    second.convertedAmount(), totalFee, totalFee, second.finalAmount());
+        }
+
+        ExchangeQuote quote = exchangeQuoteService.issue(userId, from, to, amount, calculation.finalAmount(), fee, provision);
+        Map<String, Object> preview = new LinkedHashMap<>(calculation.toMap());
+        preview.put("quoteId", quote.getId());
+        preview.put("expiresAt", quote.getExpiresAt());
+        return preview;
+    }
+
+    /**
+     * Computes an exchange from the current rate matrix: directly when one side is RSD, otherwise through RSD
+     * with a fee on both conversions. No database access.
+     */
+    public ExchangeCalculation calculateExchange(CurrencyType fromCurrency, CurrencyType toCurrency, double amount) {
+        return calculateExchange(exchangeRateService.getMatrix(), fromCurrency, toCurrency, amount);
+    }
+
+    private ExchangeCalculation calculateExchange(ExchangeRateMatrix rates, CurrencyType fromCurrency, CurrencyType toCurrency, double amount) {
+        if (fromCurrency == CurrencyType.RSD || toCurrency == CurrencyType.RSD) {
+            return calculateRsdExchange(rates, fromCurrency, toCurrency, amount);
+        }
+        return calculateForeignExchange(rates, fromCurrency, toCurrency, amount);
+    }
+
+    /**
+     * Previews many conversions at once, all against the same rate matrix, so a rates board never shows rates of two
+     * different lists. Each result echoes its request and holds either the preview fields of
+     * {@link ExchangeCalculation#toMap()} or an {@code error}; one bad item does not fail the others. No quotes are
+     * issued, a rate is locked only through {@link #quoteExchange}.
+     */
+    public List<Map<String, Object>> calculatePreviewExchanges(List<ExchangePreviewDTO> items) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("Lista konverzija je prazna.");
+        }
+        if (items.size() > MAX_BULK_PREVIEW_ITEMS) {
+            throw new IllegalArgumentException("Najviše " + MAX_BULK_PREVIEW_ITEMS + " konverzija po zahtevu.");
+        }
 
-            return calculatePreviewExchange(fromCurrency, toCurrency, amount);
+        ExchangeRateMatrix rates = exchangeRateService.getMatrix();
+        List<Map<String, Object>> results = new ArrayList<>(items.size());
+        for (ExchangePreviewDTO item : items) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("fromCurrency", item.getFromCurrency());
+            result.put("toCurrency", item.getToCurrency());
+            result.put("amount", item.getAmount());
+            try {
+                if (item.getFromCurrency() == null || item.getToCurrency() == null || item.getAmount() == null || item.getAmount() <= 0) {
+                    throw new IllegalArgumentException("Nevalidni podaci za konverziju.");
+                }
+                result.putAll(calculateExchange(rates, parseCurrency(item.getFromCurrency()), parseCurrency(item.getToCurrency()), item.getAmount()).toMap());
+            } catch (RuntimeException e) {
+                result.put("error", e.getMessage());
             }
-        else
-            return calculatePreviewExchangeForeign(fromCurrency, toCurrency, amount);
+            results.add(result);
+        }
+        return results;
+    }
+
+    @ExcludeFromGeneratedJacocoReport("Wrapper method")
+    public Map<String, Object> calculatePreviewExchangeAutomatic(String fromCurrency, String toCurrency, Double amount) {
+        return calculateExchange(parseCurrency(fromCurrency), parseCurrency(toCurrency), amount).toMap();
     }
 
     public Map<String, Object> calculatePreviewExchange(String fromCurrency, String toCurrency, Double amount) {
-        boolean isToRSD = toCurrency.equalsIgnoreCase("RSD");
-        boolean isFromRSD = fromCurrency.equalsIgnoreCase("RSD");
+        return calculateRsdExchange(exchangeRateService.getMatrix(), parseCurrency(fromCurrency), parseCurrency(toCurrency), amount).toMap();
+    }
+
+    public Map<String, Object> calculatePreviewExchangeForeign(String fromCurrency, String toCurrency, Double amount) {
+        return calculateForeignExchange(exchangeRateService.getMatrix(), parseCurrency(fromCurrency), parseCurrency(toCurrency), amount).toMap();
+    }
+
+    private ExchangeCalculation calculateRsdExchange(ExchangeRateMatrix rates, CurrencyType source, CurrencyType destination, double amount) {
+        boolean isToRSD = destination == CurrencyType.RSD;
+        boolean isFromRSD = source == CurrencyType.RSD;
 
         if (!isToRSD && !isFromRSD) {
             throw new RuntimeException("Ova funkcija podržava samo konverzije između RSD i druge valute.");
         }
 
-        CurrencyType base = parseCurrency(isToRSD ? fromCurrency : "RSD");
-        CurrencyType target = parseCurrency(isToRSD ? "RSD" : toCurrency);
-
-        Optional<ExchangePair> exchangePairOpt = exchangePairRepository
-                .findByBaseCurrencyCodeAndTargetCurrencyCode(base, target);
-
-        double exchangeRate;
-        if (exchangePairOpt.isPresent()) {
-            exchangeRate = exchangePairOpt.get().getExchangeRate();
-        } else {
-            Optional<ExchangePair> reverseOpt = exchangePairRepository
-                    .findByBaseCurrencyCodeAndTargetCurrencyCode(target, base);
-
-            if (reverseOpt.isEmpty()) {
-                throw new RuntimeException("Kurs nije pronađen za traženu konverziju.");
-            }
-            exchangeRate = 1 / reverseOpt.get().getExchangeRate();
+        // Matrica vec sadrzi obrnuti kurs ako direktan par ne postoji
+        double exchangeRate = rates.rate(source, destination);
+        if (Double.isNaN(exchangeRate)) {
+            throw new RuntimeException("Kurs nije pronađen za traženu konverziju.");
         }
 
-        double convertedAmount = amount * exchangeRate;
-        double fee = (fromCurrency.equalsIgnoreCase("RSD") && toCurrency.equalsIgnoreCase("RSD")) ? 0.0 : convertedAmount * 0.01;
-        double finalAmount = convertedAmount - fee;
+        Money convertedAmount = Money.of(amount, source).convert(exchangeRate, destination);
+        Money fee = (isFromRSD && isToRSD) ? Money.zero(destination) : convertedAmount.times(EXCHANGE_FEE_RATE);
+        Money finalAmount = convertedAmount.minus(fee);
 
         double provision;
-        if (fromCurrency.equalsIgnoreCase("RSD")) {
-            provision = fee * 1 / exchangeRate;
+        if (isFromRSD) {
+            provision = fee.convert(1 / exchangeRate, source).toDouble();
             exchangeRate = 1 / exchangeRate;
         } else {
-            provision = fee;
+            provision = fee.toDouble();
         }
 
-        return Map.of(
-                "exchangeRate", exchangeRate,
-                "convertedAmount", convertedAmount,
-                "fee", fee,
-                "provision", provision,
-                "finalAmount", finalAmount
-        );
+        return new ExchangeCalculation(source, destination, amount, exchangeRate, Double.NaN,
+                convertedAmount.toDouble(), fee.toDouble(), provision, finalAmount.toDouble());
     }
 
-
-    public Map<String, Object> calculatePreviewExchangeForeign(String fromCurrency, String toCurrency, Double amount) {
-        if (fromCurrency.equalsIgnoreCase("RSD") || toCurrency.equalsIgnoreCase("RSD")) {
+    private ExchangeCalculation calculateForeignExchange(ExchangeRateMatrix rates, CurrencyType from, CurrencyType to, double amount) {
+        CurrencyType rsd = CurrencyType.RSD;
+        if (from == rsd || to == rsd) {
             throw new RuntimeException("Ova metoda je samo za konverziju strane valute u stranu valutu.");
         }
-        CurrencyType from = parseCurrency(fromCurrency);
-        CurrencyType to = parseCurrency(toCurrency);
-        CurrencyType rsd = CurrencyType.RSD;
-
-        Optional<ExchangePair> firstExchangeOpt = exchangePairRepository
-                .findByBaseCurrencyCodeAndTargetCurrencyCode(from, rsd);
 
-        double firstExchangeRate;
-        if (firstExchangeOpt.isPresent()) {
-            firstExchangeRate = firstExchangeOpt.get().getExchangeRate();
-        } else {
-            Optional<ExchangePair> reverseFirstOpt = exchangePairRepository
-                    .findByBaseCurrencyCodeAndTargetCurrencyCode(rsd, from);
-
-            if (reverseFirstOpt.isEmpty()) {
-                throw new RuntimeException("Kurs za " + fromCurrency + " prema RSD nije pronađen.");
-            }
-            firstExchangeRate = 1 / reverseFirstOpt.get().getExchangeRate();
+        double firstExchangeRate = rates.rate(from, rsd);
+        if (Double.isNaN(firstExchangeRate)) {
+            throw new RuntimeException("Kurs za " + from + " prema RSD nije pronađen.");
         }
 
-        double amountInRSD = amount * firstExchangeRate;
-        double firstFee = amountInRSD * 0.01;
-        double remainingRSD = amountInRSD - firstFee;
-
-        Optional<ExchangePair> secondExchangeOpt = exchangePairRepository
-                .findByBaseCurrencyCodeAndTargetCurrencyCode(rsd, to);
+        Money amountInRSD = Money.of(amount, from).convert(firstExchangeRate, rsd);
+        Money firstFee = amountInRSD.times(EXCHANGE_FEE_RATE);
+        Money remainingRSD = amountInRSD.minus(firstFee);
 
-        double secondExchangeRate;
-        if (secondExchangeOpt.isPresent()) {
-            secondExchangeRate = secondExchangeOpt.get().getExchangeRate();
-        } else {
-            Optional<ExchangePair> reverseSecondOpt = exchangePairRepository
-                    .findByBaseCurrencyCodeAndTargetCurrencyCode(to, rsd);
-
-            if (reverseSecondOpt.isEmpty()) {
-                throw new RuntimeException("Kurs za RSD prema " + toCurrency + " nije pronađen.");
-            }
-            secondExchangeRate = 1 / reverseSecondOpt.get().getExchangeRate();
+        double secondExchangeRate = rates.rate(rsd, to);
+        if (Double.isNaN(secondExchangeRate)) {
+            throw new RuntimeException("Kurs za RSD prema " + to + " nije pronađen.");
         }
 
-        double amountInTargetCurrency = remainingRSD * secondExchangeRate;
-        double secondFee = amountInTargetCurrency * 0.01;
-        double finalAmount = amountInTargetCurrency - secondFee;
-        double totalFee = firstFee + secondFee;
+        Money amountInTargetCurrency = remainingRSD.convert(secondExchangeRate, to);
+        Money secondFee = amountInTargetCurrency.times(EXCHANGE_FEE_RATE);
+        Money finalAmount = amountInTargetCurrency.minus(secondFee);
+        double totalFee = firstFee.toDouble() + secondFee.toDouble();
 
         // Prikazujemo obrnut kurs za prikaz klijentu
         double displayedSecondExchangeRate = 1 / secondExchangeRate;
 
-        return Map.of(
-                "firstExchangeRate", firstExchangeRate,
-                "secondExchangeRate", displayedSecondExchangeRate,
-                "totalFee", totalFee,
-                "provision", totalFee,
-                "fee", totalFee,
-                "finalAmount", finalAmount
-        );
+        return new ExchangeCalculation(from, to, amount, firstExchangeRate, displayedSecondExchangeRate,
+                amountInTargetCurrency.toDouble(), totalFee, totalFee, finalAmount.toDouble());
     }
 
 }
@@ -0,0 +1,203 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.models.IdempotencyRecord;
+import com.banka1.banking.repository.IdempotencyRecordRepository;
+import com.banka1.banking.utils.ResponseTemplate;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Makes transfer creation endpoints safe to retry with an {@code Idempotency-Key} header.
+ * <p>
+ * Keys are scoped to the authenticated user and the endpoint, so two users who happen to send the same key never
+ * see each other's responses. The first request with a key claims it by inserting an {@link IdempotencyRecord}; the
+ * unique constraint on (user, key, endpoint) decides the winner across replicas. A successful response is stored in that record and in a
+ * bounded in-memory LRU cache, so a retry with the same key and body gets the original response back without
+ * running validation, user lookups or inserts again. Failed responses release the key, because the client is
+ * expected to retry them after fixing the request. That is only safe because every action run here creates its
+ * transfers in a single transaction together with the OTP and the notifications: a failed request has persisted
+ * nothing, so the retry cannot create a second transfer.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final long ttlMs;
+    private final Map<String, StoredResponse> cache;
+
+    private record StoredResponse(String requestHash, int statusCode, Object body, long createdAt) {
+    }
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              ObjectMapper objectMapper,
+                              @Value("${idempotency.cache-size:10000}") int cacheSize,
+                              @Value("${idempotency.ttl-ms:86400000}") long ttlMs) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.ttlMs = ttlMs;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * Runs {@code action} once per user, idempotency key and endpoint. Without a key the action simply runs.
+     *
+     * @param idempotencyKey value of the {@code Idempotency-Key} header, may be {@code null}
+     * @param userId         id of the authenticated user the key belongs to
+     * @param endpoint       endpoint the key is scoped to
+     * @param request        request body; a retry must send the same body as the first request
+     * @param action         handles the request when the key is seen for the first time
+     * @return the fresh or the replayed response
+     */
+    public ResponseEntity<?> execute(String idempotencyKey, Long userId, String endpoint, Object request, Supplier<ResponseEntity<?>> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.BAD_REQUEST), false, null,
+                    "Idempotency-Key ne sme biti duži od " + MAX_KEY_LENGTH + " karaktera.");
+        }
+
+        String cacheKey = userId + " " + endpoint + " " + idempotencyKey;
+        String requestHash = hash(request);
+        long now = System.currentTimeMillis();
+
+        StoredResponse cached = cache.get(cacheKey);
+        if (cached != null && cached.createdAt() >= now - ttlMs) {
+            return replay(cached, requestHash);
+        }
+
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setUserId(userId);
+        record.setIdempotencyKey(idempotencyKey);
+        record.setEndpoint(endpoint);
+        record.setRequestHash(requestHash);
+        record.setCreatedAt(now);
+        if (!claim(record, now)) {
+            Optional<IdempotencyRecord> existing = idempotencyRecordRepository.findByUserIdAndIdempotencyKeyAndEndpoint(userId, idempotencyKey, endpoint);
+            if (existing.isEmpty()) {
+                return ResponseTemplate.create(ResponseEntity.status(HttpStatus.CONFLICT), false, null,
+                        "Zahtev sa ovim Idempotency-Key ključem je upravo završen, pokušajte ponovo.");
+            }
+            IdempotencyRecord stored = existing.get();
+            if (stored.getStatusCode() == null) {
+                return ResponseTemplate.create(ResponseEntity.status(HttpStatus.CONFLICT), false, null,
+                        "Zahtev sa ovim Idempotency-Key ključem je već u obradi.");
+            }
+            StoredResponse response = new StoredResponse(stored.getRequestHash(), stored.getStatusCode(),
+                    readBody(stored.getResponseBody()), stored.getCreatedAt());
+            cache.put(cacheKey, response);
+            return replay(response, requestHash);
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            idempotencyRecordRepository.delete(record);
+            throw e;
+        }
+
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            idempotencyRecordRepository.delete(record);
+            return response;
+        }
+
+        record.setStatusCode(response.getStatusCode().value());
+        record.setResponseBody(writeBody(response.getBody()));
+        idempotencyRecordRepository.save(record);
+        cache.put(cacheKey, new StoredResponse(requestHash, record.getStatusCode(), response.getBody(), now));
+        return response;
+    }
+
+    /**
+     * Deletes records older than {@code idempotency.ttl-ms}; after that a key may be reused.
+     */
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval-ms:3600000}")
+    @Transactional
+    public void deleteExpiredRecords() {
+        int deleted = idempotencyRecordRepository.deleteByCreatedAtBefore(System.currentTimeMillis() - ttlMs);
+        if (deleted > 0) {
+            log.info("Deleted {} expired idempotency records", deleted);
+        }
+    }
+
+    private boolean claim(IdempotencyRecord record, long now) {
+        try {
+            idempotencyRecordRepository.saveAndFlush(record);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // Istekao zapis koji cleanup još nije obrisao ne blokira ključ
+            Optional<IdempotencyRecord> existing = idempotencyRecordRepository
+                    .findByUserIdAndIdempotencyKeyAndEndpoint(record.getUserId(), record.getIdempotencyKey(), record.getEndpoint());
+            if (existing.isPresent() && existing.get().getCreatedAt() < now - ttlMs) {
+                idempotencyRecordRepository.delete(existing.get());
+                return claim(record, now);
+            }
+            return false;
+        }
+    }
+
+    private ResponseEntity<?> replay(StoredResponse response, String requestHash) {
+        if (!response.requestHash().equals(requestHash)) {
+            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY), false, null,
+                    "Idempotency-Key je već iskorišćen za drugačiji zahtev.");
+        }
+        return ResponseEntity.status(response.statusCode())
+                .header(REPLAYED_HEADER, "true")
+                .body(response.body());
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Nije moguće izračunati hash zahteva", e);
+        }
+    }
+
+    private String writeBody(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Nije moguće sačuvati odgovor", e);
+        }
+    }
+
+    private Object readBody(String body) {
+        try {
+            return body == null ? null : objectMapper.readValue(body, Object.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Nije moguće pročitati sačuvani odgovor", e);
+        }
+    }
+}
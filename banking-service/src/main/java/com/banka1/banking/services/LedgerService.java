@@ -0,0 +1,327 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.models.Account;
+import com.banka1.banking.models.BalanceSnapshot;
+import com.banka1.banking.models.LedgerEntry;
+import com.banka1.banking.models.Transfer;
+import com.banka1.banking.models.helper.AccountType;
+import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.models.helper.Money;
+import com.banka1.banking.repository.AccountRepository;
+import com.banka1.banking.repository.BalanceSnapshotRepository;
+import com.banka1.banking.repository.HouseAccountShardRepository;
+import com.banka1.banking.repository.LedgerEntryRepository;
+import com.banka1.banking.repository.projection.ShardAmountView;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Append-only journal of balance postings with periodic per-account snapshots.
+ * <p>
+ * Every balance change is recorded as a {@link LedgerEntry}. The balance of an account is its latest
+ * {@link BalanceSnapshot} plus the sum of the postings above the snapshot's boundary.
+ * <p>
+ * The boundary is a commit-ordered watermark, not a point in time: every posting carries the id of the database
+ * transaction that wrote it, and a snapshot covers the postings of transactions older than the oldest transaction
+ * still running when it was taken. All of those have finished, so a posting that commits late can never fall
+ * behind a snapshot, however long its transaction ran.
+ * <p>
+ * The bank's house accounts ({@link AccountType#BANK}) are only ever written through the journal, so exchanges
+ * and fees turn into inserts instead of updates on a handful of hot rows. Their {@code Account.balance} column is
+ * refreshed by {@link #takeSnapshots()}. Customer accounts still keep their balance on the row (it is locked by the
+ * transfer anyway), and the journal records the same change next to it.
+ * <p>
+ * Every house account is split into {@code ledger.house.shards} shards. A posting goes to the shard its transfer
+ * hashes to (or a random one), a debit that needs a balance check locks only the shard it takes the money from
+ * (see {@link #debit}), snapshots are kept per shard and the balance of the account is the sum over its shards.
+ * {@link #rebalanceHouseAccounts()} evens the shards out in the background. Customer accounts only use shard 0.
+ */
+@Service
+@Slf4j
+public class LedgerService {
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final AccountRepository accountRepository;
+    private final HouseAccountShardRepository houseAccountShardRepository;
+    private final int houseShards;
+
+    public LedgerService(LedgerEntryRepository ledgerEntryRepository, BalanceSnapshotRepository balanceSnapshotRepository,
+                         AccountRepository accountRepository, HouseAccountShardRepository houseAccountShardRepository,
+                         @Value("${ledger.house.shards:8}") int houseShards) {
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.balanceSnapshotRepository = balanceSnapshotRepository;
+        this.accountRepository = accountRepository;
+        this.houseAccountShardRepository = houseAccountShardRepository;
+        this.houseShards = Math.max(1, houseShards);
+    }
+
+    public static boolean isHouseAccount(Account account) {
+        return account.getType() == AccountType.BANK;
+    }
+
+    /**
+     * Appends a posting to the journal. A positive amount credits the account, a negative one debits it.
+     * {@code Account.balance} is not touched.
+     *
+     * @param transfer    transfer the posting belongs to, or null for postings outside of transfers
+     * @param account     account being credited or debited
+     * @param amount      signed amount in the account's currency
+     * @param description short description of the posting
+     */
+    public LedgerEntry post(Transfer transfer, Account account, double amount, String description) {
+        return postToShard(transfer, account, shardFor(account, transfer), amount, description);
+    }
+
+    /**
+     * Debits a house account after checking the balance of the shards the money is taken from. Shards are locked
+     * with SKIP LOCKED, starting from the shard the transfer hashes to, so concurrent debits of the same house
+     * account take different shards instead of queueing on one row, and a transaction never waits for a shard
+     * while it holds another one. The amount is taken from the first shard that covers it; otherwise it is split
+     * over the shards this transaction locked, richest first.
+     *
+     * @return false if every shard is locked by this transaction and together they do not cover the amount;
+     * nothing is posted in that case
+     * @throws CannotAcquireLockException if the shards this transaction got do not cover the amount and the others
+     *                                    are held by concurrent debits; the caller retries it as a transient failure
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean debit(Transfer transfer, Account account, double amount, String description) {
+        Long accountId = account.getId();
+        ensureShards(accountId);
+
+        int start = shardFor(account, transfer);
+        Map<Integer, Double> locked = new LinkedHashMap<>();
+        for (int i = 0; i < houseShards; i++) {
+            int shard = (start + i) % houseShards;
+            if (houseAccountShardRepository.tryLockShard(accountId, shard).isEmpty()) {
+                continue;
+            }
+
+            double balance = getShardBalance(account, shard);
+            if (balance >= amount) {
+                postToShard(transfer, account, shard, -amount, description);
+                return true;
+            }
+            locked.put(shard, balance);
+        }
+
+        double total = locked.values().stream().mapToDouble(Double::doubleValue).sum();
+        if (total < amount) {
+            if (locked.size() < houseShards) {
+                throw new CannotAcquireLockException("Shards of house account " + accountId + " are held by other transfers");
+            }
+            return false;
+        }
+
+        CurrencyType currency = account.getCurrencyType();
+        long remaining = Money.toMinor(amount, currency);
+        List<Map.Entry<Integer, Double>> richestFirst = new ArrayList<>(locked.entrySet());
+        richestFirst.sort(Map.Entry.<Integer, Double>comparingByValue().reversed());
+        for (Map.Entry<Integer, Double> shard : richestFirst) {
+            long taken = Math.min(remaining, Money.toMinor(shard.getValue(), currency));
+            if (taken <= 0) {
+                break;
+            }
+            postToShard(transfer, account, shard.getKey(), -Money.toMajor(taken, currency), description);
+            remaining -= taken;
+        }
+        return true;
+    }
+
+    private LedgerEntry postToShard(Transfer transfer, Account account, int shard, double amount, String description) {
+        LedgerEntry entry = new LedgerEntry();
+        entry.setAccountId(account.getId());
+        entry.setShard(shard);
+        entry.setCurrencyType(account.getCurrencyType());
+        entry.setAmount(amount);
+        entry.setTransfer(transfer);
+        entry.setDescription(description);
+        entry.setCreatedAt(System.currentTimeMillis());
+        return ledgerEntryRepository.save(entry);
+    }
+
+    /**
+     * Shard a posting goes to: the one its transfer hashes to, so all postings of a transfer land together, or a
+     * random one for postings outside of transfers. Customer accounts always use shard 0.
+     */
+    private int shardFor(Account account, Transfer transfer) {
+        if (!isHouseAccount(account) || houseShards == 1) {
+            return 0;
+        }
+        if (transfer != null && transfer.getId() != null) {
+            return Math.floorMod(Long.hashCode(transfer.getId()), houseShards);
+        }
+        return ThreadLocalRandom.current().nextInt(houseShards);
+    }
+
+    private void ensureShards(Long accountId) {
+        if (!houseAccountShardRepository.existsByAccountIdAndShard(accountId, houseShards - 1)) {
+            houseAccountShardRepository.createShards(accountId, houseShards);
+        }
+    }
+
+    /**
+     * Current balance of the account. For house accounts it is computed from the journal, since their row
+     * is only refreshed periodically.
+     */
+    public double getBalance(Account account) {
+        if (!isHouseAccount(account)) {
+            return account.getBalance();
+        }
+
+        Optional<BalanceSnapshot> latest = balanceSnapshotRepository.findFirstByAccountIdOrderByTxWatermarkDesc(account.getId());
+        if (latest.isPresent()) {
+            long txWatermark = latest.get().getTxWatermark();
+            return balanceSnapshotRepository.findByAccountIdAndTxWatermark(account.getId(), txWatermark).stream()
+                    .mapToDouble(BalanceSnapshot::getBalance)
+                    .sum()
+                    + ledgerEntryRepository.sumForAccountBetweenTx(account.getId(), txWatermark, Long.MAX_VALUE);
+        }
+        return openingBalance(account) + ledgerEntryRepository.sumForAccountBetweenTx(account.getId(), 0L, Long.MAX_VALUE);
+    }
+
+    /**
+     * Current balance of one shard: its latest snapshot plus the postings to it since. Until the account has its
+     * first snapshot, the opening balance belongs to shard 0.
+     */
+    double getShardBalance(Account account, int shard) {
+        Optional<BalanceSnapshot> snapshot = balanceSnapshotRepository.findFirstByAccountIdAndShardOrderByTxWatermarkDesc(account.getId(), shard);
+        if (snapshot.isPresent()) {
+            return snapshot.get().getBalance()
+                    + ledgerEntryRepository.sumForShardBetweenTx(account.getId(), shard, snapshot.get().getTxWatermark(), Long.MAX_VALUE);
+        }
+
+        boolean holdsOpeningBalance = shard == 0
+                && balanceSnapshotRepository.findFirstByAccountIdOrderByTxWatermarkDesc(account.getId()).isEmpty();
+        return (holdsOpeningBalance ? openingBalance(account) : 0.0)
+                + ledgerEntryRepository.sumForShardBetweenTx(account.getId(), shard, 0L, Long.MAX_VALUE);
+    }
+
+    /**
+     * Balance before the first posting, for accounts that have no snapshot yet. A house account's row has not been
+     * refreshed before its first snapshot, so it still holds the opening balance. A customer account's row already
+     * contains every posting.
+     */
+    private double openingBalance(Account account) {
+        if (isHouseAccount(account)) {
+            return account.getBalance();
+        }
+        return ledgerEntryRepository.findBalanceBeforeEntries(account.getId());
+    }
+
+    /**
+     * Snapshots every account that has postings since its last snapshot and refreshes the balance column of house
+     * accounts. A snapshot stops at the current transaction watermark, so postings of transactions that are still
+     * running are left for the next one. Every shard of the previous snapshot is carried over, so the shards of an
+     * account always share the latest watermark.
+     */
+    @Scheduled(fixedDelayString = "${ledger.snapshot.interval-ms:60000}")
+    @Transactional
+    public void takeSnapshots() {
+        long txWatermark = balanceSnapshotRepository.findTxWatermark();
+        List<Long> accountIds = ledgerEntryRepository.findAccountIdsWithEntriesSinceLastSnapshot(txWatermark);
+
+        for (Account account : accountRepository.findAllById(accountIds)) {
+            Optional<BalanceSnapshot> previous = balanceSnapshotRepository.findFirstByAccountIdOrderByTxWatermarkDesc(account.getId());
+            long from = previous.map(BalanceSnapshot::getTxWatermark).orElse(0L);
+
+            Map<Integer, Double> balances = new TreeMap<>();
+            if (previous.isPresent()) {
+                balanceSnapshotRepository.findByAccountIdAndTxWatermark(account.getId(), from)
+                        .forEach(shard -> balances.put(shard.getShard(), shard.getBalance()));
+            } else {
+                balances.put(0, openingBalance(account));
+            }
+            for (ShardAmountView posted : ledgerEntryRepository.sumByShardBetweenTx(account.getId(), from, txWatermark)) {
+                balances.merge(posted.getShard(), posted.getAmount(), Double::sum);
+            }
+
+            double total = 0.0;
+            for (Map.Entry<Integer, Double> shard : balances.entrySet()) {
+                BalanceSnapshot snapshot = new BalanceSnapshot();
+                snapshot.setAccountId(account.getId());
+                snapshot.setShard(shard.getKey());
+                snapshot.setBalance(shard.getValue());
+                snapshot.setTxWatermark(txWatermark);
+                snapshot.setAsOf(System.currentTimeMillis());
+                balanceSnapshotRepository.save(snapshot);
+                total += shard.getValue();
+            }
+
+            if (isHouseAccount(account)) {
+                double current = total + ledgerEntryRepository.sumForAccountBetweenTx(account.getId(), txWatermark, Long.MAX_VALUE);
+                accountRepository.updateBalance(account.getId(), current);
+            }
+        }
+
+        if (!accountIds.isEmpty()) {
+            log.debug("Ledger snapshot up to transaction {} written for {} accounts", txWatermark, accountIds.size());
+        }
+    }
+
+    /**
+     * Evens out the shards of every house account. Exchange legs and fees post to hashed shards without a balance
+     * check, so over time some shards collect money and others go negative, and debits have to split over several
+     * shards. The job locks whichever shards are free right now (SKIP LOCKED, it never waits behind a transfer) and
+     * moves money between them with postings that add up to zero, so the balance of the account does not change.
+     */
+    @Scheduled(fixedDelayString = "${ledger.house.rebalance-interval-ms:30000}")
+    @Transactional
+    public void rebalanceHouseAccounts() {
+        if (houseShards == 1) {
+            return;
+        }
+        for (Account account : accountRepository.findByType(AccountType.BANK)) {
+            rebalance(account);
+        }
+    }
+
+    private void rebalance(Account account) {
+        ensureShards(account.getId());
+        List<Integer> shards = houseAccountShardRepository.tryLockFreeShards(account.getId());
+        if (shards.size() < 2) {
+            return;
+        }
+
+        CurrencyType currency = account.getCurrencyType();
+        Map<Integer, Long> balances = new TreeMap<>();
+        long total = 0L;
+        for (Integer shard : shards) {
+            long balance = Money.toMinor(getShardBalance(account, shard), currency);
+            balances.put(shard, balance);
+            total += balance;
+        }
+
+        // Ostatak deljenja ide prvim podracunima, pa je zbir svih pomeranja tacno nula
+        long share = Math.floorDiv(total, shards.size());
+        long remainder = Math.floorMod(total, shards.size());
+        int index = 0;
+        int moved = 0;
+        for (Map.Entry<Integer, Long> shard : balances.entrySet()) {
+            long target = share + (index++ < remainder ? 1 : 0);
+            long delta = target - shard.getValue();
+            if (delta != 0) {
+                postToShard(null, account, shard.getKey(), Money.toMajor(delta, currency), "Preraspodela podračuna");
+                moved++;
+            }
+        }
+
+        if (moved > 0) {
+            log.debug("Rebalanced {} shards of house account {}", moved, account.getId());
+        }
+    }
+}
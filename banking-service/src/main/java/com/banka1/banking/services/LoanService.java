@@ -11,13 +11,13 @@ import com.banka1.banking.models.Loan;
 import com.banka1.banking.models.RateChange;
 import com.banka1.banking.models.helper.InterestType;
 import com.banka1.banking.models.helper.LoanType;
+import com.banka1.banking.models.helper.Money;
 import com.banka1.banking.models.helper.PaymentStatus;
 import com.banka1.banking.repository.AccountRepository;
 import com.banka1.banking.repository.InstallmentsRepository;
 import com.banka1.banking.repository.LoanRepository;
 import com.banka1.banking.repository.RateChangeRepository;
 import com.banka1.common.listener.MessageHelper;
-import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -50,6 +50,7 @@ public class LoanService {
     private final TransactionService transactionService;
     private final BankAccountUtils bankAccountUtils;
     private final TransferService transferService;
+    private final TransferExecutionService transferExecutionService;
     private final RateChangeRepository rateChangeRepository;
     private final UserServiceEmployee userServiceEmployee;
 
@@ -169,7 +170,13 @@ public class LoanService {
     }
 
     public void calculateRemaining(Loan loan) {
-        loan.setRemainingAmount((loan.getNumberOfInstallments() - loan.getNumberOfPaidInstallments()) * loan.getMonthlyPayment());
+        int remainingInstallments = loan.getNumberOfInstallments() - loan.getNumberOfPaidInstallments();
+        if (loan.getCurrencyType() == null) {
+            // Kredit bez valute nema najmanju jedinicu na koju bi se zaokruzilo
+            loan.setRemainingAmount(remainingInstallments * loan.getMonthlyPayment());
+            return;
+        }
+        loan.setRemainingAmount(Money.of(loan.getMonthlyPayment(), loan.getCurrencyType()).times(remainingInstallments).toDouble());
     }
 
     public Loan updateLoanRate(Loan loan, boolean save) {
@@ -179,7 +186,9 @@ public class LoanService {
         rate += calculateMargin(loan.getLoanType()) + loan.getPenalty();
         if (rate != loan.getEffectiveRate()) {
             loan.setEffectiveRate(rate);
-            loan.setMonthlyPayment(calculateInstallment(loan.getLoanAmount(), loan.getEffectiveRate() / 12, loan.getNumberOfInstallments()));
+            double installment = calculateInstallment(loan.getLoanAmount(), loan.getEffectiveRate() / 12, loan.getNumberOfInstallments());
+            // Rata se zaokruzuje na najmanju jedinicu valute, pa je preostali dug tacan zbir rata
+            loan.setMonthlyPayment(loan.getCurrencyType() != null ? Money.of(installment, loan.getCurrencyType()).toDouble() : installment);
             calculateRemaining(loan);
             if (save)
                 return loanRepository.save(loan);
@@ -278,7 +287,8 @@ public class LoanService {
                         acc,
                         transferDTO);
 
-                transferService.processExternalTransfer(transfer.getId());
+                // Isto zakljucavanje racuna i ponavljanje kao za ostale transfere
+                transferExecutionService.execute(transfer.getId());
 
                 createNextInstallment(loan, 0);
 
@@ -350,8 +360,12 @@ public class LoanService {
 	    return loan.getNumberOfInstallments()-loan.getNumberOfPaidInstallments();
     }
 
+    /**
+     * Charges every due installment. There is no transaction around the whole run: each installment transfer
+     * locks the customer's account and commits on its own (see {@link TransferExecutionService}), so the locks
+     * are not held until the last installment is charged, and one failed charge does not roll back the others.
+     */
     @Scheduled(cron = "0 0 0 * * *")  // Pokreće se svakog dana u ponoć
-    @Transactional
     public void processLoanPayments() {
         processDueInstallments();
     }
@@ -447,12 +461,13 @@ public class LoanService {
                     null
             );
 
-            if (!transferService.validateMoneyTransfer(transferDTO))
+            // Rata je obavezno zaduzenje, ne podleze limitu potrosnje klijenta
+            if (!transferService.validateMoneyTransfer(transferDTO, false))
                 throw new RuntimeException("Kreiran nevalidan transfer");
 
             var transfer = transferService.createMoneyTransferEntity(customerAccount, bankAccount, transferDTO);
 
-            transferService.processExternalTransfer(transfer.getId());
+            transferExecutionService.execute(transfer.getId(), false);
 
             installment.setTransaction(transactionService.findByTransfer(transfer));
 
@@ -0,0 +1,171 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.repository.MonthEndRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the month-end maintenance fee and savings interest postings (see {@link MonthEndChunkService}).
+ * <p>
+ * Accounts are split into id ranges of {@code month-end.chunk-size} that {@code month-end.workers} threads take from
+ * a shared queue, each chunk in its own transaction. Chunks already checkpointed are skipped, so a run that was
+ * interrupted by a crash or a failed chunk is resumed on the next start without posting anything twice. Replicas
+ * that start the same run share the chunks the same way. The run is marked finished once every chunk is through.
+ * <p>
+ * Runs are handed off to a single {@code month-end-runner} thread that executes them one after another, so neither
+ * the scheduler thread nor application startup waits for a run to finish.
+ */
+@Service
+@Slf4j
+public class MonthEndBatchService {
+
+    private final MonthEndRepository monthEndRepository;
+    private final MonthEndChunkService monthEndChunkService;
+    private final int chunkSize;
+    private final int workers;
+    private final ZoneId zone;
+    private final ExecutorService executor;
+    private final Executor runner;
+
+    @Autowired
+    public MonthEndBatchService(MonthEndRepository monthEndRepository, MonthEndChunkService monthEndChunkService,
+                                @Value("${month-end.chunk-size:1000}") int chunkSize,
+                                @Value("${month-end.workers:4}") int workers,
+                                @Value("${month-end.zone:Europe/Belgrade}") String zone) {
+        this(monthEndRepository, monthEndChunkService, chunkSize, workers, zone, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "month-end-runner");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    MonthEndBatchService(MonthEndRepository monthEndRepository, MonthEndChunkService monthEndChunkService,
+                         int chunkSize, int workers, String zone, Executor runner) {
+        this.monthEndRepository = monthEndRepository;
+        this.monthEndChunkService = monthEndChunkService;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.workers = Math.max(1, workers);
+        this.zone = ZoneId.of(zone);
+        this.executor = Executors.newFixedThreadPool(this.workers, runnable -> {
+            Thread thread = new Thread(runnable, "month-end-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.runner = runner;
+    }
+
+    @Scheduled(cron = "${month-end.cron:0 30 0 1 * *}", zone = "${month-end.zone:Europe/Belgrade}")
+    public void runForPreviousMonth() {
+        submit(YearMonth.now(zone).minusMonths(1));
+    }
+
+    /**
+     * Finishes the runs that were interrupted while the service was down.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinishedRuns() {
+        runner.execute(() -> {
+            try {
+                for (String period : monthEndRepository.findUnfinishedPeriods()) {
+                    log.info("Resuming month-end run for {}", period);
+                    run(YearMonth.parse(period));
+                }
+            } catch (RuntimeException e) {
+                log.error("Unfinished month-end runs could not be resumed: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Queues the month-end run for {@code period} on the runner thread.
+     *
+     * @return number of postings made by the run, once it is through
+     */
+    public CompletableFuture<Integer> submit(YearMonth period) {
+        CompletableFuture<Integer> result = CompletableFuture.supplyAsync(() -> run(period), runner);
+        result.whenComplete((postings, e) -> {
+            if (e != null) {
+                log.error("Month-end run for {} failed: {}", period, e.getMessage());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Posts the month-end fees and interest for {@code period}, or whatever of it is not posted yet. Called only
+     * on the runner thread, so runs never overlap within one replica.
+     *
+     * @return number of postings made by this call
+     */
+    int run(YearMonth period) {
+        long started = System.currentTimeMillis();
+        String key = period.toString();
+        monthEndRepository.createRun(key, chunkSize, monthEndRepository.findMaxAccountId(), started);
+        MonthEndRepository.Run run = monthEndRepository.findRun(key).orElseThrow();
+        if (run.finishedAt() != null) {
+            return 0;
+        }
+
+        // Granice delova su one zapamcene pri pocetku obracuna, ne trenutno podesavanje
+        Set<Long> completed = monthEndRepository.findCompletedChunks(key);
+        Queue<Long> pending = new ConcurrentLinkedQueue<>();
+        for (long chunkStart = 0; chunkStart <= run.maxAccountId(); chunkStart += run.chunkSize()) {
+            if (!completed.contains(chunkStart)) {
+                pending.add(chunkStart);
+            }
+        }
+
+        AtomicInteger postings = new AtomicInteger();
+        AtomicInteger failedChunks = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            tasks.add(() -> {
+                Long chunkStart;
+                while ((chunkStart = pending.poll()) != null) {
+                    try {
+                        postings.addAndGet(monthEndChunkService.processChunk(period, chunkStart, chunkStart + run.chunkSize()));
+                    } catch (RuntimeException e) {
+                        // Deo ostaje bez checkpoint-a i obradjuje se pri sledecem pokretanju
+                        failedChunks.incrementAndGet();
+                        log.error("Month-end chunk {} from account {} failed: {}", key, chunkStart, e.getMessage());
+                    }
+                }
+                return null;
+            });
+        }
+
+        try {
+            executor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Month-end run for {} was interrupted", key);
+            return postings.get();
+        }
+
+        if (failedChunks.get() == 0) {
+            monthEndRepository.finishRun(key, System.currentTimeMillis());
+        }
+        log.info("Month-end run for {}: {} postings, {} failed chunks, {} ms", key, postings.get(),
+                failedChunks.get(), System.currentTimeMillis() - started);
+        return postings.get();
+    }
+}
@@ -0,0 +1,105 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.models.Account;
+import com.banka1.banking.models.helper.AccountSubtype;
+import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.models.helper.Money;
+import com.banka1.banking.repository.MonthEndRepository;
+import com.banka1.banking.repository.MonthEndRepository.AccountRow;
+import com.banka1.banking.repository.MonthEndRepository.Posting;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * Month-end postings for one id range of customer accounts, committed as one transaction.
+ * <p>
+ * Every active customer account is charged its {@code monthlyMaintenanceFee} if its available balance covers it,
+ * and every SAVINGS account with a positive balance is credited one month of interest at
+ * {@code month-end.savings-annual-rate}. Each charge and credit is a {@code Transaction} against the bank's account
+ * in the same currency plus a journal entry of the customer account, all written with JDBC batches. The bank's side
+ * is journaled once per currency per chunk, so the house accounts get a handful of entries instead of one per
+ * customer.
+ */
+@Service
+public class MonthEndChunkService {
+
+    private final MonthEndRepository monthEndRepository;
+    private final LedgerService ledgerService;
+    private final BankAccountUtils bankAccountUtils;
+    private final CurrencyCache currencyCache;
+    private final double savingsAnnualRate;
+
+    public MonthEndChunkService(MonthEndRepository monthEndRepository, LedgerService ledgerService,
+                                BankAccountUtils bankAccountUtils, CurrencyCache currencyCache,
+                                @Value("${month-end.savings-annual-rate:0.02}") double savingsAnnualRate) {
+        this.monthEndRepository = monthEndRepository;
+        this.ledgerService = ledgerService;
+        this.bankAccountUtils = bankAccountUtils;
+        this.currencyCache = currencyCache;
+        this.savingsAnnualRate = savingsAnnualRate;
+    }
+
+    /**
+     * Posts the fees and interest of the accounts with ids in {@code [fromId, toId)}. The chunk's checkpoint is
+     * written in the same transaction, so after a crash the chunk is either fully posted or not at all.
+     *
+     * @return number of postings, or {@code 0} if the chunk was already processed
+     */
+    @Transactional
+    public int processChunk(YearMonth period, long fromId, long toId) {
+        long now = System.currentTimeMillis();
+        if (!monthEndRepository.claimChunk(period.toString(), fromId, now)) {
+            return 0;
+        }
+
+        String feeDescription = "Održavanje računa za " + period;
+        String interestDescription = "Kamata na štednju za " + period;
+        Map<CurrencyType, Account> bankAccounts = new EnumMap<>(CurrencyType.class);
+        Map<CurrencyType, Money> fees = new EnumMap<>(CurrencyType.class);
+        Map<CurrencyType, Money> interest = new EnumMap<>(CurrencyType.class);
+        SortedMap<Long, Double> balanceChanges = new TreeMap<>();
+        List<Posting> postings = new ArrayList<>();
+
+        for (AccountRow account : monthEndRepository.lockAccounts(fromId, toId)) {
+            CurrencyType currency = account.currencyType();
+            Account bankAccount = bankAccounts.computeIfAbsent(currency, bankAccountUtils::getBankAccountForCurrency);
+            long currencyId = currencyCache.get(currency).getId();
+            Money change = Money.zero(currency);
+
+            Money fee = Money.of(account.monthlyMaintenanceFee(), currency);
+            Money available = Money.of(account.balance() - account.reservedBalance(), currency);
+            if (fee.getMinorUnits() > 0 && !available.isLessThan(fee)) {
+                postings.add(new Posting(account.id(), bankAccount.getId(), account.id(), currencyId, currency,
+                        fee.toDouble(), fee.negate().toDouble(), feeDescription));
+                fees.merge(currency, fee, Money::plus);
+                change = change.minus(fee);
+            }
+
+            if (account.subtype() == AccountSubtype.SAVINGS) {
+                // Kamata se racuna na stanje pre naknade
+                Money credit = Money.of(account.balance(), currency).times(savingsAnnualRate / 12);
+                if (credit.getMinorUnits() > 0) {
+                    postings.add(new Posting(bankAccount.getId(), account.id(), account.id(), currencyId, currency,
+                            credit.toDouble(), credit.toDouble(), interestDescription));
+                    interest.merge(currency, credit, Money::plus);
+                    change = change.plus(credit);
+                }
+            }
+
+            if (change.getMinorUnits() != 0) {
+                balanceChanges.put(account.id(), change.toDouble());
+            }
+        }
+
+        monthEndRepository.insertPostings(postings, now);
+        monthEndRepository.updateBalances(balanceChanges);
+        fees.forEach((currency, total) -> ledgerService.post(null, bankAccounts.get(currency), total.toDouble(), feeDescription));
+        interest.forEach((currency, total) -> ledgerService.post(null, bankAccounts.get(currency), total.negate().toDouble(), interestDescription));
+        monthEndRepository.completeChunk(period.toString(), fromId, postings.size());
+        return postings.size();
+    }
+}
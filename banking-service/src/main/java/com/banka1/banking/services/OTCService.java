@@ -41,7 +41,7 @@ public class OTCService {
     private final TransactionRepository transactionRepository;
     private final TransferRepository transferRepository;
     private final UserServiceCustomer userServiceCustomer;
-    private final CurrencyRepository currencyRepository;
+    private final CurrencyCache currencyCache;
 
     private void sendFailureMessage(String uid, String message) throws JmsException {
         jmsTemplate.convertAndSend(destinationOtcAck, messageHelper.createTextMessage(new OTCTransactionACKDTO(
@@ -134,7 +134,7 @@ public class OTCService {
                 bankTransaction.setBankOnly(false);
                 bankTransaction.setFinalAmount(transaction.getAmount());
                 bankTransaction.setFee(0.0);
-                bankTransaction.setCurrency(currencyRepository.getByCode(fromAccount.getCurrencyType()));
+                bankTransaction.setCurrency(currencyCache.get(fromAccount.getCurrencyType()));
                 bankTransaction.setAmount(transaction.getAmount());
                 bankTransaction.setDescription("OTC transakcija");
                 bankTransaction.setTimestamp(Instant.now().toEpochMilli());
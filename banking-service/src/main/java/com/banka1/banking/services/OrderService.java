@@ -2,6 +2,7 @@ package com.banka1.banking.services;
 
 import com.banka1.banking.dto.MoneyTransferDTO;
 import com.banka1.banking.models.Account;
+import com.banka1.banking.models.helper.Money;
 import com.banka1.banking.repository.AccountRepository;
 import com.banka1.banking.services.implementation.AuthService;
 import lombok.RequiredArgsConstructor;
@@ -18,6 +19,7 @@ public class OrderService {
     private final BankAccountUtils bankAccountUtils;
     private final AccountRepository accountRepository;
     private final TransferService transferService;
+    private final LedgerService ledgerService;
 
     @Transactional
     public Double executeOrder(String direction, Long userId, Long accountId, Double amount, Double fee) {
@@ -28,8 +30,18 @@ public class OrderService {
             throw new RuntimeException("Korisnik nije vlasnik računa");
         }
 
-        if (direction.equalsIgnoreCase("buy") && account.getBalance() < amount + fee) {
-            throw new IllegalArgumentException("Nedovoljno sredstava na računu za iznos + proviziju");
+        Money orderAmount = Money.of(amount, account.getCurrencyType());
+        Money orderFee = Money.of(fee != null ? fee : 0.0, account.getCurrencyType());
+        boolean houseAccount = LedgerService.isHouseAccount(account);
+
+        if (direction.equalsIgnoreCase("buy")) {
+            // Racun banke se proverava i zaduzuje odjednom, pod bravom podracuna sa kog se skida iznos
+            boolean covered = houseAccount
+                    ? ledgerService.debit(null, account, orderAmount.plus(orderFee).toDouble(), "Realizacija naloga")
+                    : !Money.of(ledgerService.getBalance(account), account.getCurrencyType()).isLessThan(orderAmount.plus(orderFee));
+            if (!covered) {
+                throw new IllegalArgumentException("Nedovoljno sredstava na računu za iznos + proviziju");
+            }
         }
 
         boolean sameCurrency = account.getCurrencyType().equals(bankAccount.getCurrencyType());
@@ -37,15 +49,16 @@ public class OrderService {
                 account.getCurrencyType(), bankAccount.getCurrencyType(), direction, !sameCurrency);
 
         if (Objects.equals(account.getId(), bankAccount.getId())) {
+            // Racun banke se menja samo kroz knjizenja, stanje osvezava LedgerService
             if (direction.equalsIgnoreCase("buy")) {
-                account.setBalance(account.getBalance() - amount - fee);
+                if (!houseAccount) {
+                    ledgerService.post(null, account, orderAmount.plus(orderFee).negate().toDouble(), "Realizacija naloga");
+                }
             } else if (direction.equalsIgnoreCase("sell")) {
-                account.setBalance(account.getBalance() + amount);
+                ledgerService.post(null, account, orderAmount.toDouble(), "Realizacija naloga");
             } else {
                 throw new IllegalArgumentException("Nepoznata direkcija");
             }
-
-            accountRepository.save(account);
         } else {
             // Glavni transfer
             MoneyTransferDTO dto = new MoneyTransferDTO();
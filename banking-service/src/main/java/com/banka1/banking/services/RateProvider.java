@@ -0,0 +1,41 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.models.helper.CurrencyType;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Source of the daily exchange rate list used by {@link CurrencyService#fetchExchangeRates()}.
+ * <p>
+ * The implementation is chosen with {@code exchange-rate.provider}: {@code cdn} downloads the public currency API,
+ * {@code file} reads the same format from a local file for tests and environments without internet access.
+ */
+public interface RateProvider {
+
+    /**
+     * Units of every other supported currency for one unit of {@code base}.
+     *
+     * @return rates by target currency, or {@code null} if the source has no list for {@code base}
+     */
+    Map<CurrencyType, Double> fetchRates(CurrencyType base);
+
+    /**
+     * Reads the rates of {@code base} from a node in the currency API format: {@code {"eur": 117.2, "usd": ...}}
+     * with lowercase codes. Currencies the bank does not support are skipped.
+     */
+    static Map<CurrencyType, Double> parseRates(JsonNode ratesNode, CurrencyType base) {
+        if (ratesNode == null || !ratesNode.isObject()) {
+            return null;
+        }
+        Map<CurrencyType, Double> rates = new EnumMap<>(CurrencyType.class);
+        for (CurrencyType target : CurrencyType.values()) {
+            JsonNode rate = ratesNode.get(target.name().toLowerCase());
+            if (target != base && rate != null && rate.isNumber()) {
+                rates.put(target, rate.asDouble());
+            }
+        }
+        return rates;
+    }
+}
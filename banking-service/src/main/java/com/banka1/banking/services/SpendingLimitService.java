@@ -0,0 +1,164 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.models.Account;
+import com.banka1.banking.repository.AccountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Enforces the daily and monthly spending limits of customer accounts.
+ * <p>
+ * Executed transfers are added to in-memory counters guarded by a fixed set of lock stripes, so recording
+ * spending never takes an account row lock on the transfer path. The counters are written behind to
+ * {@code daily_spent}/{@code monthly_spent} every {@code spending-limit.flush-interval-ms} with one
+ * {@code UPDATE ... SET daily_spent = daily_spent + ?} per dirty account, so several replicas can add to
+ * the same account without overwriting each other. A limit check compares the persisted values of the
+ * already loaded account plus whatever this replica has not written yet.
+ * <p>
+ * Entity saves never write the spent columns (they are not updatable), only the bulk updates here do.
+ * At midnight, after a final flush, the daily counters are zeroed with one bulk UPDATE, and on the first of
+ * the month the monthly ones as well.
+ */
+@Service
+@Slf4j
+public class SpendingLimitService {
+
+    private final AccountRepository accountRepository;
+    private final ZoneId zone;
+    private final Object[] stripes;
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    private static final class Counter {
+        // Potrošnja koja još nije poslata u bazu
+        private double pending;
+        // Potrošnja koja se upravo upisuje; računa se u limit dok UPDATE ne prođe
+        private double inFlight;
+    }
+
+    public SpendingLimitService(AccountRepository accountRepository,
+                                @Value("${spending-limit.stripes:64}") int stripes,
+                                @Value("${spending-limit.zone:Europe/Belgrade}") String zone) {
+        this.accountRepository = accountRepository;
+        this.zone = ZoneId.of(zone);
+        this.stripes = new Object[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Object();
+        }
+    }
+
+    /**
+     * Whether debiting {@code amount} from the account would go over its daily or monthly limit.
+     * House accounts of the bank have no limits.
+     */
+    public boolean wouldExceedLimit(Account account, double amount) {
+        if (LedgerService.isHouseAccount(account)) {
+            return false;
+        }
+        double unwritten = unwritten(account.getId());
+        return exceeds(account.getDailySpent(), unwritten + amount, account.getDailyLimit())
+                || exceeds(account.getMonthlySpent(), unwritten + amount, account.getMonthlyLimit());
+    }
+
+    /**
+     * Adds an executed debit to the account's counters. Inside a transaction the amount is counted only
+     * once the transaction commits, so rolled back transfers do not use up the limit.
+     */
+    public void recordSpending(Account account, double amount) {
+        if (LedgerService.isHouseAccount(account) || amount <= 0) {
+            return;
+        }
+        Long accountId = account.getId();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(accountId, amount);
+                }
+            });
+        } else {
+            add(accountId, amount);
+        }
+    }
+
+    /**
+     * Writes the spending recorded since the last flush. A failed write is kept and retried on the next flush.
+     */
+    @Scheduled(fixedDelayString = "${spending-limit.flush-interval-ms:1000}")
+    public void flush() {
+        for (Long accountId : counters.keySet()) {
+            double delta;
+            synchronized (stripe(accountId)) {
+                Counter counter = counters.get(accountId);
+                if (counter == null || counter.pending == 0) {
+                    continue;
+                }
+                delta = counter.pending;
+                counter.pending = 0;
+                counter.inFlight += delta;
+            }
+
+            boolean written = false;
+            try {
+                accountRepository.addSpent(accountId, delta);
+                written = true;
+            } catch (RuntimeException e) {
+                log.error("Spending of account {} could not be written: {}", accountId, e.getMessage());
+            }
+
+            synchronized (stripe(accountId)) {
+                Counter counter = counters.get(accountId);
+                counter.inFlight -= delta;
+                if (!written) {
+                    counter.pending += delta;
+                } else if (counter.pending == 0 && counter.inFlight == 0) {
+                    counters.remove(accountId);
+                }
+            }
+        }
+    }
+
+    @Scheduled(cron = "0 0 0 * * *", zone = "${spending-limit.zone:Europe/Belgrade}")
+    public void resetLimits() {
+        resetLimits(LocalDate.now(zone));
+    }
+
+    void resetLimits(LocalDate today) {
+        // Potrošnja od pre ponoći mora ući u mesečni zbir pre nego što se dnevni obriše
+        flush();
+        int reset = today.getDayOfMonth() == 1 ? accountRepository.resetDailyAndMonthlySpent() : accountRepository.resetDailySpent();
+        log.info("Reset spending limits of {} accounts", reset);
+    }
+
+    private void add(Long accountId, double amount) {
+        synchronized (stripe(accountId)) {
+            counters.computeIfAbsent(accountId, id -> new Counter()).pending += amount;
+        }
+    }
+
+    private double unwritten(Long accountId) {
+        synchronized (stripe(accountId)) {
+            Counter counter = counters.get(accountId);
+            return counter == null ? 0 : counter.pending + counter.inFlight;
+        }
+    }
+
+    private Object stripe(Long accountId) {
+        return stripes[Math.floorMod(Long.hashCode(accountId), stripes.length)];
+    }
+
+    private static boolean exceeds(Double spent, double amount, Double limit) {
+        if (limit == null) {
+            return false;
+        }
+        return (spent != null ? spent : 0) + amount > limit;
+    }
+}
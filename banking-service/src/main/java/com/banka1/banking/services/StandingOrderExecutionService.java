@@ -0,0 +1,108 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.models.Transfer;
+import com.banka1.banking.models.helper.TransferStatus;
+import com.banka1.banking.repository.TransferRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Executes due standing orders without OTP.
+ * <p>
+ * Every tick claims due orders in batches of {@code standing-order.batch-size}, each batch in its own
+ * transaction (see {@link StandingOrderService#claimDueOrders}). The created transfers are dispatched to the
+ * execution queue only after that transaction has committed, so a consumer never picks up a transfer whose
+ * row is not visible yet. A tick stops after {@code standing-order.max-batches-per-tick} batches and leaves
+ * the rest to the next tick, so one replica cannot hold the scheduler thread for too long.
+ * <p>
+ * The claim has already advanced the order when its transfers are dispatched, so a replica that dies in between
+ * leaves PENDING transfers behind. {@link #redispatchStalled()} dispatches them later, so every claimed run is paid
+ * once even then, only late.
+ */
+@Service
+@Slf4j
+public class StandingOrderExecutionService {
+
+    private final StandingOrderService standingOrderService;
+    private final TransferDispatchService transferDispatchService;
+    private final TransferRepository transferRepository;
+    private final int batchSize;
+    private final int maxBatchesPerTick;
+    private final long redispatchAfterMs;
+
+    public StandingOrderExecutionService(StandingOrderService standingOrderService,
+                                         TransferDispatchService transferDispatchService,
+                                         TransferRepository transferRepository,
+                                         @Value("${standing-order.batch-size:500}") int batchSize,
+                                         @Value("${standing-order.max-batches-per-tick:20}") int maxBatchesPerTick,
+                                         @Value("${standing-order.redispatch-after-ms:120000}") long redispatchAfterMs) {
+        this.standingOrderService = standingOrderService;
+        this.transferDispatchService = transferDispatchService;
+        this.transferRepository = transferRepository;
+        this.batchSize = batchSize;
+        this.maxBatchesPerTick = maxBatchesPerTick;
+        this.redispatchAfterMs = redispatchAfterMs;
+    }
+
+    @Scheduled(fixedDelayString = "${standing-order.tick-ms:10000}")
+    public void executeDueOrders() {
+        executeDueOrders(System.currentTimeMillis());
+    }
+
+    int executeDueOrders(long now) {
+        int executed = 0;
+        for (int batch = 0; batch < maxBatchesPerTick; batch++) {
+            List<Transfer> transfers = standingOrderService.claimDueOrders(now, batchSize);
+            for (Transfer transfer : transfers) {
+                try {
+                    transferDispatchService.dispatch(transfer);
+                } catch (RuntimeException e) {
+                    // Dispatch je vec oznacio transfer kao FAILED, nalog nastavlja po rasporedu
+                    log.error("Standing order transfer {} could not be dispatched: {}", transfer.getId(), e.getMessage());
+                }
+            }
+            executed += transfers.size();
+            if (transfers.size() < batchSize) {
+                break;
+            }
+        }
+        if (executed > 0) {
+            log.info("Executed {} standing orders", executed);
+        }
+        return executed;
+    }
+
+    /**
+     * Dispatches standing order transfers that are still PENDING {@code standing-order.redispatch-after-ms} after
+     * they were created, i.e. whose claiming replica died before dispatching them. {@link TransferDispatchService#dispatch}
+     * moves a transfer out of PENDING with a conditional update, so a transfer that its own replica is still
+     * dispatching, or that another replica recovers at the same time, is queued only once.
+     *
+     * @return number of transfers dispatched
+     */
+    @Scheduled(fixedDelayString = "${standing-order.redispatch-interval-ms:60000}", initialDelayString = "${standing-order.redispatch-interval-ms:60000}")
+    public int redispatchStalled() {
+        return redispatchStalled(System.currentTimeMillis());
+    }
+
+    int redispatchStalled(long now) {
+        int dispatched = 0;
+        for (Transfer transfer : transferRepository.findStandingOrderTransfersByStatusAndCreatedAtBefore(TransferStatus.PENDING, now - redispatchAfterMs)) {
+            try {
+                if (transferDispatchService.dispatch(transfer)) {
+                    dispatched++;
+                }
+            } catch (RuntimeException e) {
+                log.error("Standing order transfer {} could not be dispatched again: {}", transfer.getId(), e.getMessage());
+            }
+        }
+        if (dispatched > 0) {
+            log.warn("Dispatched {} standing order transfers that were left pending", dispatched);
+        }
+        return dispatched;
+    }
+}
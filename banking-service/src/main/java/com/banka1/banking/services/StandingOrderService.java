@@ -0,0 +1,213 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.dto.StandingOrderDTO;
+import com.banka1.banking.models.Account;
+import com.banka1.banking.models.StandingOrder;
+import com.banka1.banking.models.Transfer;
+import com.banka1.banking.models.helper.StandingOrderStatus;
+import com.banka1.banking.repository.AccountRepository;
+import com.banka1.banking.repository.StandingOrderRepository;
+import com.banka1.banking.repository.projection.StandingOrderView;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Creates, lists and cancels standing orders and turns due orders into transfers.
+ * <p>
+ * Due orders are found through the partial index on {@code next_run_at} of active orders, so a tick reads
+ * only the orders that are due and never scans the whole table. Every order runs at its cron time shifted
+ * by a fixed per-order offset within {@code standing-order.spread-window-ms}, which spreads orders that share
+ * a schedule (e.g. the first of the month) over the window instead of executing them all in the same second.
+ */
+@Service
+public class StandingOrderService {
+
+    // Broj uzastopnih termina na kojima se proverava minimalni razmak izvršenja
+    private static final int INTERVAL_CHECK_RUNS = 5;
+
+    private final StandingOrderRepository standingOrderRepository;
+    private final AccountRepository accountRepository;
+    private final TransferService transferService;
+    private final long spreadWindowMs;
+    private final long minIntervalMs;
+    private final ZoneId zone;
+
+    public StandingOrderService(StandingOrderRepository standingOrderRepository,
+                                AccountRepository accountRepository,
+                                TransferService transferService,
+                                @Value("${standing-order.spread-window-ms:7200000}") long spreadWindowMs,
+                                @Value("${standing-order.min-interval-ms:3600000}") long minIntervalMs,
+                                @Value("${standing-order.zone:Europe/Belgrade}") String zone) {
+        this.standingOrderRepository = standingOrderRepository;
+        this.accountRepository = accountRepository;
+        this.transferService = transferService;
+        this.spreadWindowMs = spreadWindowMs;
+        this.minIntervalMs = minIntervalMs;
+        this.zone = ZoneId.of(zone);
+    }
+
+    /**
+     * Validates and stores a new standing order. Same rules as a single money transfer apply to the accounts.
+     *
+     * @return id of the created order
+     */
+    @Transactional
+    public Long createStandingOrder(StandingOrderDTO dto) {
+        Account fromAccount = accountRepository.findByAccountNumber(dto.getFromAccountNumber())
+                .orElseThrow(() -> new IllegalArgumentException("Račun nije pronađen."));
+        Account toAccount = accountRepository.findByAccountNumber(dto.getRecipientAccount())
+                .orElseThrow(() -> new IllegalArgumentException("Račun nije pronađen."));
+
+        if (dto.getAmount() == null || dto.getAmount() <= 0) {
+            throw new IllegalArgumentException("Iznos mora biti veći od nule.");
+        }
+        if (fromAccount.getOwnerID().equals(toAccount.getOwnerID())) {
+            throw new IllegalArgumentException("Računi pripadaju istom korisniku.");
+        }
+
+        CronExpression cron = parseCron(dto.getCron());
+        long now = System.currentTimeMillis();
+        Long firstRun = nextScheduledAt(cron, now);
+        if (firstRun == null || (dto.getEndDate() != null && firstRun > dto.getEndDate())) {
+            throw new IllegalArgumentException("Nalog nema nijedno izvršenje pre datuma završetka.");
+        }
+
+        StandingOrder order = new StandingOrder();
+        order.setOwnerId(fromAccount.getOwnerID());
+        order.setFromAccount(fromAccount);
+        order.setToAccount(toAccount);
+        order.setAmount(dto.getAmount());
+        order.setReceiver(dto.getReceiver());
+        order.setAdress(dto.getAdress());
+        order.setPaymentCode(dto.getPayementCode());
+        order.setPaymentReference(dto.getPayementReference());
+        order.setPaymentDescription(dto.getPayementDescription());
+        order.setCron(dto.getCron());
+        order.setEndDate(dto.getEndDate());
+        order.setStatus(StandingOrderStatus.ACTIVE);
+        order.setCreatedAt(now);
+        order.setNextScheduledAt(firstRun);
+        order.setNextRunAt(firstRun);
+
+        // Pomak zavisi od id-ja, pa se vreme izvršenja postavlja tek kad je nalog dobio id
+        StandingOrder saved = standingOrderRepository.saveAndFlush(order);
+        long firstRunAt = firstRun + spreadOffset(saved.getId());
+        if (pastEndDate(saved, firstRunAt)) {
+            throw new IllegalArgumentException("Nalog nema nijedno izvršenje pre datuma završetka.");
+        }
+        saved.setNextRunAt(firstRunAt);
+        return saved.getId();
+    }
+
+    public List<StandingOrderView> getActiveStandingOrders(Long userId) {
+        return standingOrderRepository.findViewsByOwnerIdAndStatus(userId, StandingOrderStatus.ACTIVE);
+    }
+
+    /**
+     * Cancels an active standing order of the user. Transfers that were already created are not affected.
+     */
+    @Transactional
+    public void cancelStandingOrder(Long standingOrderId, Long userId) {
+        StandingOrder order = standingOrderRepository.findById(standingOrderId)
+                .orElseThrow(() -> new IllegalArgumentException("Trajni nalog nije pronađen."));
+        if (!Objects.equals(order.getOwnerId(), userId)) {
+            throw new SecurityException("Trajni nalog ne pripada korisniku.");
+        }
+        if (order.getStatus() != StandingOrderStatus.ACTIVE) {
+            throw new IllegalArgumentException("Trajni nalog nije aktivan.");
+        }
+        order.setStatus(StandingOrderStatus.CANCELLED);
+        standingOrderRepository.save(order);
+    }
+
+    /**
+     * Claims up to {@code limit} due orders, creates their transfers and moves every order to its next run.
+     * <p>
+     * Orders are locked with {@code FOR UPDATE SKIP LOCKED}, so replicas that run the scheduler at the same
+     * time claim disjoint orders without waiting for each other. Every claimed order leaves the due range
+     * before the transaction commits, so it is never claimed twice for the same run.
+     *
+     * @return created transfers, not yet dispatched
+     */
+    @Transactional
+    public List<Transfer> claimDueOrders(long now, int limit) {
+        List<Long> ids = standingOrderRepository.claimDueIds(now, limit);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<StandingOrder> orders = standingOrderRepository.findWithAccountsByIdIn(ids);
+        List<Transfer> transfers = transferService.createStandingOrderTransfers(orders);
+
+        for (int i = 0; i < orders.size(); i++) {
+            StandingOrder order = orders.get(i);
+            order.setLastRunAt(now);
+            order.setLastTransferId(transfers.get(i).getId());
+            advance(order, now);
+        }
+        standingOrderRepository.saveAll(orders);
+        return transfers;
+    }
+
+    /**
+     * Moves the order to its first cron time whose run is after {@code now}. Runs missed while the service
+     * was down are not made up for, the order executes once and continues on schedule. The order is finished
+     * once its next run, spread offset included, would be after its end date.
+     */
+    void advance(StandingOrder order, long now) {
+        long offset = spreadOffset(order.getId());
+        Long next = nextScheduledAt(CronExpression.parse(order.getCron()), Math.max(order.getNextScheduledAt(), now - offset));
+        if (next == null || pastEndDate(order, next + offset)) {
+            order.setStatus(StandingOrderStatus.FINISHED);
+            return;
+        }
+        order.setNextScheduledAt(next);
+        order.setNextRunAt(next + offset);
+    }
+
+    private static boolean pastEndDate(StandingOrder order, long runAt) {
+        return order.getEndDate() != null && runAt > order.getEndDate();
+    }
+
+    /**
+     * Fixed offset of the order within the spread window. Ids are mixed first, so consecutive orders do not
+     * end up in consecutive milliseconds.
+     */
+    long spreadOffset(Long standingOrderId) {
+        if (spreadWindowMs <= 0) {
+            return 0;
+        }
+        return Math.floorMod(standingOrderId * 0x9E3779B97F4A7C15L, spreadWindowMs);
+    }
+
+    private CronExpression parseCron(String expression) {
+        CronExpression cron;
+        try {
+            cron = CronExpression.parse(expression);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Nevalidan cron izraz.");
+        }
+
+        ZonedDateTime previous = cron.next(ZonedDateTime.now(zone));
+        for (int i = 0; previous != null && i < INTERVAL_CHECK_RUNS; i++) {
+            ZonedDateTime next = cron.next(previous);
+            if (next != null && next.toInstant().toEpochMilli() - previous.toInstant().toEpochMilli() < minIntervalMs) {
+                throw new IllegalArgumentException("Nalog se ne sme izvršavati češće od jednom u " + minIntervalMs / 60000 + " minuta.");
+            }
+            previous = next;
+        }
+        return cron;
+    }
+
+    private Long nextScheduledAt(CronExpression cron, long after) {
+        ZonedDateTime next = cron.next(Instant.ofEpochMilli(after).atZone(zone));
+        return next == null ? null : next.toInstant().toEpochMilli();
+    }
+}
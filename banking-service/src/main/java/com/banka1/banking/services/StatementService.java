@@ -0,0 +1,97 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.dto.CustomerDTO;
+import com.banka1.banking.models.Account;
+import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.models.helper.StatementFormat;
+import com.banka1.banking.repository.TransactionRepository;
+import com.banka1.banking.repository.projection.TransactionHistoryView;
+import com.banka1.banking.services.implementation.CsvStatementWriter;
+import com.banka1.banking.services.implementation.PdfStatementWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Account statements of any length, written straight to the response stream.
+ * <p>
+ * Transactions are read through a database cursor as slim projections and written in chunks of
+ * {@value TransactionRepository#STATEMENT_FETCH_SIZE}. Counterpart names of a chunk are resolved with one batched
+ * customer lookup, and the chunk is flushed before the next one is read, so memory use does not depend on the size
+ * of the statement.
+ */
+@Service
+@RequiredArgsConstructor
+public class StatementService {
+
+    private final TransactionRepository transactionRepository;
+    private final UserServiceCustomer userServiceCustomer;
+    private final BankAccountUtils bankAccountUtils;
+
+    @Value("${statement.zone:Europe/Belgrade}")
+    private String zone;
+
+    /**
+     * Writes the statement of {@code account} for {@code [timestampFrom, timestampTo)}, oldest first. Bank-only
+     * transactions are included only on the bank's own accounts. Must be called from the thread that writes the
+     * response, because the cursor is only open inside this method's transaction.
+     */
+    @Transactional(readOnly = true)
+    public void writeStatement(Account account, StatementFormat format, Long timestampFrom, Long timestampTo,
+                               OutputStream out) throws IOException {
+        boolean includeBankOnly = Objects.equals(bankAccountUtils.getBankAccountForCurrency(CurrencyType.RSD).getOwnerID(), account.getOwnerID());
+        StatementWriter writer = format == StatementFormat.PDF
+                ? new PdfStatementWriter(out, ZoneId.of(zone))
+                : new CsvStatementWriter(out, ZoneId.of(zone));
+
+        writer.begin(account, timestampFrom, timestampTo);
+        try (Stream<TransactionHistoryView> rows = transactionRepository.streamStatement(account.getId(), includeBankOnly,
+                timestampFrom == null ? Long.MIN_VALUE : timestampFrom,
+                timestampTo == null ? Long.MAX_VALUE : timestampTo)) {
+            List<TransactionHistoryView> chunk = new ArrayList<>(TransactionRepository.STATEMENT_FETCH_SIZE);
+            Iterator<TransactionHistoryView> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == TransactionRepository.STATEMENT_FETCH_SIZE) {
+                    writeChunk(writer, account, chunk);
+                    chunk.clear();
+                }
+            }
+            writeChunk(writer, account, chunk);
+        }
+        writer.finish();
+    }
+
+    private void writeChunk(StatementWriter writer, Account account, List<TransactionHistoryView> chunk) throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Set<Long> ownerIds = new HashSet<>();
+        for (TransactionHistoryView transaction : chunk) {
+            ownerIds.add(counterpartOwnerId(transaction, account));
+        }
+        Map<Long, CustomerDTO> customers = userServiceCustomer.getCustomersByIds(ownerIds);
+
+        for (TransactionHistoryView transaction : chunk) {
+            CustomerDTO counterpart = customers.get(counterpartOwnerId(transaction, account));
+            writer.row(transaction, isOutgoing(transaction, account),
+                    counterpart == null ? null : counterpart.getFirstName() + " " + counterpart.getLastName());
+        }
+        writer.endChunk();
+    }
+
+    private static boolean isOutgoing(TransactionHistoryView transaction, Account account) {
+        return Objects.equals(transaction.getFromAccountId(), account.getId());
+    }
+
+    private static Long counterpartOwnerId(TransactionHistoryView transaction, Account account) {
+        return isOutgoing(transaction, account) ? transaction.getToOwnerId() : transaction.getFromOwnerId();
+    }
+}
@@ -0,0 +1,25 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.models.Account;
+import com.banka1.banking.repository.projection.TransactionHistoryView;
+
+import java.io.IOException;
+
+/**
+ * Writes an account statement in one format, row by row, straight to the response stream. Rows arrive in chunks;
+ * after each chunk the writer hands everything written so far to the stream, so nothing is kept per row.
+ */
+public interface StatementWriter {
+
+    void begin(Account account, Long timestampFrom, Long timestampTo) throws IOException;
+
+    /**
+     * @param outgoing        whether the money left the statement's account
+     * @param counterpartName owner of the other account, or {@code null} if unknown
+     */
+    void row(TransactionHistoryView transaction, boolean outgoing, String counterpartName) throws IOException;
+
+    void endChunk() throws IOException;
+
+    void finish() throws IOException;
+}
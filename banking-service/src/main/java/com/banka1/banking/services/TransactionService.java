@@ -1,17 +1,23 @@
 package com.banka1.banking.services;
 
+import com.banka1.banking.dto.CustomerDTO;
+import com.banka1.banking.dto.TransactionHistoryFilterDTO;
+import com.banka1.banking.dto.TransactionHistoryItemDTO;
+import com.banka1.banking.dto.TransactionHistoryPageDTO;
 import com.banka1.banking.models.Account;
 import com.banka1.banking.models.Transaction;
 import com.banka1.banking.models.Transfer;
 import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.models.helper.TransactionDirection;
 import com.banka1.banking.repository.AccountRepository;
 import com.banka1.banking.repository.TransactionRepository;
+import com.banka1.banking.repository.projection.TransactionHistoryView;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
-import java.util.Objects;
+import java.util.*;
 
 @Service
 @RequiredArgsConstructor
@@ -20,6 +26,10 @@ public class TransactionService {
     private final AccountRepository accountRepository;
     private final TransactionRepository transactionRepository;
     private final BankAccountUtils bankAccountUtils;
+    private final UserServiceCustomer userServiceCustomer;
+
+    private static final Comparator<TransactionHistoryView> NEWEST_FIRST =
+            Comparator.comparing(TransactionHistoryView::getTimestamp).thenComparing(TransactionHistoryView::getId).reversed();
 
     @Transactional
     public List<Transaction> getTransactionsByUserId(Long userId) {
@@ -38,4 +48,96 @@ public class TransactionService {
     public Transaction findByTransfer(Transfer transfer) {
         return transactionRepository.findByTransferId(transfer.getId()).orElse(null);
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns one page of the account's transactions, newest first, in the format of
+     * {@link #getUserTransactionHistory}. Bank-only transactions are shown only on the bank's own accounts.
+     */
+    @Transactional(readOnly = true)
+    public TransactionHistoryPageDTO getAccountTransactionHistory(Account account, TransactionHistoryFilterDTO filter,
+                                                                  String cursor, Integer limit) {
+        return getTransactionHistory(List.of(account.getId()), isBank(account.getOwnerID()), filter, cursor, limit);
+    }
+
+    /**
+     * Returns one page of the transactions on all of the user's accounts, newest first. The cursor encodes the
+     * (timestamp, id) of the last item on the previous page, like the transfer history cursor, so every page costs
+     * the same regardless of how long the history is.
+     *
+     * @param cursor {@code nextCursor} of the previous page, or {@code null} for the first page
+     * @param limit  page size, capped at {@value TransferService#MAX_HISTORY_PAGE_SIZE}
+     */
+    @Transactional(readOnly = true)
+    public TransactionHistoryPageDTO getUserTransactionHistory(Long userId, TransactionHistoryFilterDTO filter,
+                                                               String cursor, Integer limit) {
+        List<Long> accountIds = accountRepository.findByOwnerID(userId).stream().map(Account::getId).toList();
+        if (accountIds.isEmpty()) {
+            return new TransactionHistoryPageDTO(List.of(), null);
+        }
+        return getTransactionHistory(accountIds, isBank(userId), filter, cursor, limit);
+    }
+
+    private TransactionHistoryPageDTO getTransactionHistory(List<Long> accountIds, boolean includeBankOnly,
+                                                            TransactionHistoryFilterDTO filter, String cursor, Integer limit) {
+        int pageSize = limit == null ? TransferService.DEFAULT_HISTORY_PAGE_SIZE
+                : Math.max(1, Math.min(limit, TransferService.MAX_HISTORY_PAGE_SIZE));
+        long[] after = cursor == null || cursor.isBlank() ? new long[]{Long.MAX_VALUE, Long.MAX_VALUE}
+                : TransferService.decodeHistoryCursor(cursor);
+        TransactionHistoryFilterDTO f = filter == null ? new TransactionHistoryFilterDTO() : filter;
+        Long timestampFrom = f.getTimestampFrom() == null ? Long.MIN_VALUE : f.getTimestampFrom();
+        Long timestampTo = f.getTimestampTo() == null ? Long.MAX_VALUE : f.getTimestampTo();
+        Double minAmount = f.getMinAmount() == null ? -Double.MAX_VALUE : f.getMinAmount();
+        Double maxAmount = f.getMaxAmount() == null ? Double.MAX_VALUE : f.getMaxAmount();
+        Set<CurrencyType> currencies = f.getCurrency() == null ? EnumSet.allOf(CurrencyType.class) : EnumSet.of(f.getCurrency());
+
+        // Odlazne i dolazne se citaju posebno, svaka po svom indeksu, pa se spajaju; po jedna stavka vise od strane
+        // govori da li postoji sledeca strana
+        Map<Long, TransactionHistoryView> merged = new HashMap<>();
+        if (f.getDirection() != TransactionDirection.INCOMING) {
+            for (TransactionHistoryView row : transactionRepository.findOutgoingHistoryPage(accountIds, includeBankOnly,
+                    timestampFrom, timestampTo, minAmount, maxAmount, currencies, after[0], after[1], Limit.of(pageSize + 1))) {
+                merged.put(row.getId(), row);
+            }
+        }
+        if (f.getDirection() != TransactionDirection.OUTGOING) {
+            // Prenos izmedju dva racuna istog korisnika dolazi iz oba upita, a prikazuje se jednom
+            for (TransactionHistoryView row : transactionRepository.findIncomingHistoryPage(accountIds, includeBankOnly,
+                    timestampFrom, timestampTo, minAmount, maxAmount, currencies, after[0], after[1], Limit.of(pageSize + 1))) {
+                merged.putIfAbsent(row.getId(), row);
+            }
+        }
+        List<TransactionHistoryView> rows = new ArrayList<>(merged.values());
+        rows.sort(NEWEST_FIRST);
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            TransactionHistoryView last = rows.get(pageSize - 1);
+            nextCursor = TransferService.encodeHistoryCursor(last.getTimestamp(), last.getId());
+        }
+        return new TransactionHistoryPageDTO(withNames(rows), nextCursor);
+    }
+
+    private List<TransactionHistoryItemDTO> withNames(List<TransactionHistoryView> rows) {
+        Set<Long> ownerIds = new HashSet<>();
+        for (TransactionHistoryView row : rows) {
+            ownerIds.add(row.getFromOwnerId());
+            ownerIds.add(row.getToOwnerId());
+        }
+        Map<Long, CustomerDTO> customers = ownerIds.isEmpty() ? Map.of() : userServiceCustomer.getCustomersByIds(ownerIds);
+
+        List<TransactionHistoryItemDTO> items = new ArrayList<>(rows.size());
+        for (TransactionHistoryView row : rows) {
+            items.add(new TransactionHistoryItemDTO(row, name(customers.get(row.getFromOwnerId())), name(customers.get(row.getToOwnerId()))));
+        }
+        return items;
+    }
+
+    private static String name(CustomerDTO customer) {
+        return customer == null ? null : customer.getFirstName() + " " + customer.getLastName();
+    }
+
+    private boolean isBank(Long ownerId) {
+        return Objects.equals(bankAccountUtils.getBankAccountForCurrency(CurrencyType.RSD).getOwnerID(), ownerId);
+    }
+}
@@ -0,0 +1,139 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.dto.TransferExecutionDTO;
+import com.banka1.banking.models.Transfer;
+import com.banka1.banking.models.helper.TransferStatus;
+import com.banka1.banking.repository.TransferRepository;
+import com.banka1.banking.repository.projection.TransferAccountsView;
+import com.banka1.common.listener.MessageHelper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Hands verified transfers over to the execution queue instead of running them on the HTTP thread.
+ * <p>
+ * Every message carries the source account id as its ActiveMQ message group ({@code JMSXGroupID}).
+ * The broker delivers all messages of a group to the same consumer, in order, so transfers from one
+ * account settle sequentially while transfers from unrelated accounts are spread across consumers.
+ * <p>
+ * The status change commits before the message is sent, so a crash in between leaves a QUEUED transfer that no
+ * message will ever execute. {@link #redispatchStale()} sends such transfers again.
+ */
+@Service
+@Slf4j
+public class TransferDispatchService {
+
+    static final String GROUP_PROPERTY = "JMSXGroupID";
+
+    private final TransferRepository transferRepository;
+    private final TransferService transferService;
+    private final JmsTemplate jmsTemplate;
+    private final MessageHelper messageHelper;
+    private final String destinationTransferExecute;
+    private final long redispatchAfterMs;
+
+    public TransferDispatchService(TransferRepository transferRepository, TransferService transferService, JmsTemplate jmsTemplate, MessageHelper messageHelper,
+                                   @Value("${destination.transfer.execute}") String destinationTransferExecute,
+                                   @Value("${transfer.queue.redispatch-after-ms:120000}") long redispatchAfterMs) {
+        this.transferRepository = transferRepository;
+        this.transferService = transferService;
+        this.jmsTemplate = jmsTemplate;
+        this.messageHelper = messageHelper;
+        this.destinationTransferExecute = destinationTransferExecute;
+        this.redispatchAfterMs = redispatchAfterMs;
+    }
+
+    /**
+     * Moves the transfer from {@link TransferStatus#PENDING} to {@link TransferStatus#QUEUED} and publishes it for
+     * execution. The status change is a conditional update, so a transfer that was already queued, e.g. by a
+     * repeated OTP confirmation, is not sent to the queue a second time.
+     *
+     * @return {@code false} if the transfer was no longer pending and nothing was queued
+     */
+    public boolean dispatch(Transfer transfer) {
+        if (transferRepository.updateStatusAndQueuedAtByIdAndStatus(transfer.getId(), TransferStatus.PENDING, TransferStatus.QUEUED, System.currentTimeMillis()) == 0) {
+            log.warn("Transfer {} is no longer pending, not queueing it again", transfer.getId());
+            return false;
+        }
+        transfer.setStatus(TransferStatus.QUEUED);
+        transferService.publishStatusChange(transfer);
+
+        try {
+            send(transfer.getId(), transfer.getFromAccountId().getId());
+        } catch (RuntimeException e) {
+            log.error("Transfer {} could not be queued: {}", transfer.getId(), e.getMessage());
+            transferService.markTransferFailed(transfer.getId(), "Transfer nije prosleđen na izvršenje");
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Sends again every transfer that has been QUEUED for longer than {@code transfer.queue.redispatch-after-ms}.
+     * Running a transfer twice does no harm: both messages share the source account's message group, so they are
+     * consumed one after the other, and the second one finds the transfer no longer awaiting execution. Each
+     * transfer is claimed by moving its {@code queuedAt} forward with a conditional update, so only one replica
+     * sends it, and a transfer that is only waiting behind a long queue is sent again at most once per interval.
+     *
+     * @return number of transfers sent again
+     */
+    @Scheduled(fixedDelayString = "${transfer.queue.redispatch-interval-ms:60000}", initialDelayString = "${transfer.queue.redispatch-interval-ms:60000}")
+    public int redispatchStale() {
+        long now = System.currentTimeMillis();
+        long queuedBefore = now - redispatchAfterMs;
+
+        int resent = 0;
+        for (Long transferId : transferRepository.findIdsByStatusAndQueuedAtBefore(TransferStatus.QUEUED, queuedBefore)) {
+            if (transferRepository.updateQueuedAtByIdAndStatusAndQueuedAtBefore(transferId, TransferStatus.QUEUED, queuedBefore, now) == 0) {
+                continue;
+            }
+            Optional<TransferAccountsView> accounts = transferRepository.findAccountsViewById(transferId);
+            if (accounts.isEmpty()) {
+                continue;
+            }
+            try {
+                send(transferId, accounts.get().getFromAccountId());
+                resent++;
+            } catch (RuntimeException e) {
+                // queuedAt je vec pomeren, pa se transfer ponovo salje tek u sledecem intervalu
+                log.error("Transfer {} could not be queued again: {}", transferId, e.getMessage());
+            }
+        }
+
+        if (resent > 0) {
+            log.warn("Sent {} transfers that were queued but not executed to the execution queue again", resent);
+        }
+        return resent;
+    }
+
+    private void send(Long transferId, Long fromAccountId) {
+        jmsTemplate.convertAndSend(destinationTransferExecute,
+                messageHelper.createTextMessage(new TransferExecutionDTO(transferId, fromAccountId)),
+                message -> {
+                    message.setStringProperty(GROUP_PROPERTY, "account-" + fromAccountId);
+                    return message;
+                });
+    }
+
+    /**
+     * Queues every pending transfer of a batch.
+     *
+     * @return ids of the queued transfers
+     */
+    public List<Long> dispatchBatch(String batchId) {
+        List<Long> queued = new ArrayList<>();
+        for (Long transferId : transferService.findPendingBatchTransferIds(batchId)) {
+            if (dispatch(transferService.findById(transferId))) {
+                queued.add(transferId);
+            }
+        }
+        return queued;
+    }
+}
@@ -0,0 +1,101 @@
+package com.banka1.banking.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs {@link TransferService#processTransfer(Long, boolean)} and retries it when the database reports a
+ * transient lock or serialization failure. Every attempt is a fresh transaction, since the call
+ * goes through the transactional proxy of {@link TransferService}.
+ */
+@Service
+@Slf4j
+public class TransferExecutionService {
+
+    // serialization_failure, deadlock_detected, lock_not_available
+    private static final Set<String> TRANSIENT_SQL_STATES = Set.of("40001", "40P01", "55P03");
+
+    private final TransferService transferService;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+
+    public TransferExecutionService(TransferService transferService,
+                                    @Value("${transfer.retry.max-attempts:5}") int maxAttempts,
+                                    @Value("${transfer.retry.initial-backoff-ms:20}") long initialBackoffMs,
+                                    @Value("${transfer.retry.max-backoff-ms:500}") long maxBackoffMs) {
+        this.transferService = transferService;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    public String execute(Long transferId) {
+        return retrying(transferId, () -> transferService.processTransfer(transferId));
+    }
+
+    /**
+     * Executes the transfer with retries. {@code enforceSpendingLimit} is only {@code false} for debits the
+     * bank makes itself, such as loan installments.
+     */
+    public String execute(Long transferId, boolean enforceSpendingLimit) {
+        return retrying(transferId, () -> transferService.processTransfer(transferId, enforceSpendingLimit));
+    }
+
+    private String retrying(Long transferId, Supplier<String> attemptTransfer) {
+        int attempt = 1;
+        while (true) {
+            try {
+                return attemptTransfer.get();
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !isTransient(e)) {
+                    throw e;
+                }
+                long backoff = backoffFor(attempt);
+                log.warn("Transfer {} hit a transient lock failure (attempt {}/{}), retrying in {} ms: {}",
+                        transferId, attempt, maxAttempts, backoff, e.getMessage());
+                sleep(backoff);
+                attempt++;
+            }
+        }
+    }
+
+    /**
+     * Exponential backoff with full jitter, capped at {@code maxBackoffMs}.
+     */
+    long backoffFor(int attempt) {
+        long ceiling = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 16));
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+
+    static boolean isTransient(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof TransientDataAccessException) {
+                return true;
+            }
+            if (t instanceof SQLException sqlException && TRANSIENT_SQL_STATES.contains(sqlException.getSQLState())) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Transfer retry interrupted", e);
+        }
+    }
+}
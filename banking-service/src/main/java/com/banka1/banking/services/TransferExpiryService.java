@@ -0,0 +1,193 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.dto.TransferStatusEventDTO;
+import com.banka1.banking.models.Transfer;
+import com.banka1.banking.models.helper.TransferStatus;
+import com.banka1.banking.repository.TransferRepository;
+import com.banka1.banking.repository.projection.PendingTransferView;
+import com.banka1.banking.repository.projection.TransferOwnerView;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Cancels transfers that were not verified within {@code transfer.expiry.ttl-ms}.
+ * <p>
+ * Pending transfer ids are kept in an in-memory hashed timing wheel with one-second ticks. Every tick only
+ * looks at one slot, and the database is touched only when some transfer actually expires, with a single
+ * {@code UPDATE ... WHERE id IN (...) AND status = 'PENDING'}. Transfers that were verified in the meantime
+ * are left alone by the status condition, so nothing has to be removed from the wheel. Every cancellation is
+ * published as a {@link TransferStatusEventDTO}.
+ * <p>
+ * The wheel is per replica and is lost on restart, so every expired PENDING transfer is cancelled in bulk
+ * on startup and then every {@code transfer.expiry.sweep-interval-ms} as the durable safety net.
+ * <p>
+ * Transfers created by standing orders never wait for OTP and are never cancelled here; a standing order
+ * transfer that stays PENDING is dispatched again by {@link StandingOrderExecutionService#redispatchStalled()}.
+ */
+@Service
+@Slf4j
+public class TransferExpiryService {
+
+    private static final int UPDATE_CHUNK_SIZE = 1000;
+
+    private final TransferRepository transferRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long ttlMs;
+    private final TimingWheel wheel;
+
+    public TransferExpiryService(TransferRepository transferRepository,
+                                 ApplicationEventPublisher eventPublisher,
+                                 @Value("${transfer.expiry.ttl-ms:300000}") long ttlMs,
+                                 @Value("${transfer.expiry.tick-ms:1000}") long tickMs,
+                                 @Value("${transfer.expiry.wheel-size:512}") int wheelSize) {
+        this.transferRepository = transferRepository;
+        this.eventPublisher = eventPublisher;
+        this.ttlMs = ttlMs;
+        this.wheel = new TimingWheel(tickMs, wheelSize, System.currentTimeMillis());
+    }
+
+    /**
+     * Schedules expiry of a newly created PENDING transfer. Must be called after the transfer has an id.
+     */
+    public void schedule(Transfer transfer) {
+        long createdAt = transfer.getCreatedAt() != null ? transfer.getCreatedAt() : System.currentTimeMillis();
+        wheel.add(transfer.getId(), createdAt + ttlMs);
+    }
+
+    public void scheduleAll(List<Transfer> transfers) {
+        transfers.forEach(this::schedule);
+    }
+
+    @Scheduled(fixedRateString = "${transfer.expiry.tick-ms:1000}")
+    @Transactional
+    public void expireDue() {
+        expireDue(System.currentTimeMillis());
+    }
+
+    int expireDue(long now) {
+        int cancelled = cancel(wheel.advance(now), now);
+        if (cancelled > 0) {
+            log.info("Cancelled {} expired pending transfers", cancelled);
+        }
+        return cancelled;
+    }
+
+    /**
+     * Bulk-cancels every PENDING transfer older than the TTL that waits for OTP, including ones created by
+     * other replicas or before a restart.
+     */
+    @Scheduled(fixedDelayString = "${transfer.expiry.sweep-interval-ms:300000}", initialDelayString = "${transfer.expiry.sweep-interval-ms:300000}")
+    @Transactional
+    public int sweep() {
+        long now = System.currentTimeMillis();
+        int cancelled = cancel(transferRepository.findOtpIdsByStatusAndCreatedAtBefore(TransferStatus.PENDING, now - ttlMs), now);
+        if (cancelled > 0) {
+            log.info("Expiry sweep cancelled {} pending transfers", cancelled);
+        }
+        return cancelled;
+    }
+
+    private int cancel(List<Long> ids, long now) {
+        int cancelled = 0;
+        for (int from = 0; from < ids.size(); from += UPDATE_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + UPDATE_CHUNK_SIZE, ids.size()));
+            int updated = transferRepository.updateStatusByIdInAndStatus(chunk, TransferStatus.PENDING, TransferStatus.CANCELLED);
+            if (updated > 0) {
+                for (TransferOwnerView view : transferRepository.findOwnerViewsByIdInAndStatus(chunk, TransferStatus.CANCELLED)) {
+                    eventPublisher.publishEvent(new TransferStatusEventDTO(view.getId(), view.getOwnerId(),
+                            TransferStatus.CANCELLED, "Transfer nije verifikovan na vreme", now));
+                }
+            }
+            cancelled += updated;
+        }
+        return cancelled;
+    }
+
+    /**
+     * Cancels what expired while the service was down and puts the still-valid pending transfers into the wheel.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void loadPendingTransfers() {
+        sweep();
+        List<PendingTransferView> pending = transferRepository.findOtpPendingViewsByStatus(TransferStatus.PENDING);
+        for (PendingTransferView view : pending) {
+            wheel.add(view.getId(), view.getCreatedAt() + ttlMs);
+        }
+        log.info("Loaded {} pending transfers into the expiry wheel", pending.size());
+    }
+
+    /**
+     * Hashed timing wheel: an id with deadline {@code d} goes into slot {@code tick(d) mod size}. Advancing the
+     * wheel visits only the slots of the ticks that passed and takes out the entries whose deadline has come;
+     * entries of later rounds stay in the slot.
+     */
+    static final class TimingWheel {
+
+        private record Entry(long id, long deadlineTick) {
+        }
+
+        private final long tickMs;
+        private final List<Entry>[] slots;
+        private final int mask;
+        private long currentTick;
+
+        @SuppressWarnings("unchecked")
+        TimingWheel(long tickMs, int size, long startMs) {
+            int slotCount = Integer.highestOneBit(Math.max(2, size - 1)) << 1;
+            this.tickMs = tickMs;
+            this.slots = new List[slotCount];
+            for (int i = 0; i < slotCount; i++) {
+                slots[i] = new ArrayList<>();
+            }
+            this.mask = slotCount - 1;
+            this.currentTick = startMs / tickMs;
+        }
+
+        synchronized void add(long id, long deadlineMs) {
+            long deadlineTick = Math.max(Math.floorDiv(deadlineMs + tickMs - 1, tickMs), currentTick + 1);
+            slots[(int) (deadlineTick & mask)].add(new Entry(id, deadlineTick));
+        }
+
+        synchronized List<Long> advance(long nowMs) {
+            long nowTick = nowMs / tickMs;
+            if (nowTick <= currentTick) {
+                return List.of();
+            }
+
+            List<Long> due = new ArrayList<>();
+            // Posle duze pauze dovoljno je obici svaki slot jednom
+            long fromTick = Math.max(currentTick + 1, nowTick - slots.length + 1);
+            for (long tick = fromTick; tick <= nowTick; tick++) {
+                Iterator<Entry> iterator = slots[(int) (tick & mask)].iterator();
+                while (iterator.hasNext()) {
+                    Entry entry = iterator.next();
+                    if (entry.deadlineTick() <= nowTick) {
+                        due.add(entry.id());
+                        iterator.remove();
+                    }
+                }
+            }
+            currentTick = nowTick;
+            return due;
+        }
+
+        synchronized int size() {
+            int size = 0;
+            for (List<Entry> slot : slots) {
+                size += slot.size();
+            }
+            return size;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.models.Account;
+import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.models.helper.TransferStatus;
+import com.banka1.banking.models.helper.TransferType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for the stages of the transfer lifecycle.
+ * <p>
+ * Every stage is recorded in {@value #STAGE_TIMER} with the tags {@code stage}, {@code type},
+ * {@code currency_pair} and {@code outcome}, so the dashboard can show which stage dominates the latency
+ * of a given kind of transfer. Status changes are counted in {@value #STATUS_COUNTER}. Callers take the
+ * start time with {@link System#nanoTime()} and pass it in once the stage is over.
+ * <p>
+ * Meters are cached per tag combination; with a handful of currencies the number of series stays small.
+ */
+@Service
+public class TransferMetrics {
+
+    public static final String STAGE_TIMER = "banking.transfer.stage";
+    public static final String STATUS_COUNTER = "banking.transfer.status";
+
+    public static final String SUCCESS = "success";
+    public static final String REJECTED = "rejected";
+    public static final String ERROR = "error";
+
+    private static final String UNKNOWN = "none";
+
+    public enum Stage {
+        VALIDATION,
+        CUSTOMER_LOOKUP,
+        OTP_GENERATION,
+        EXCHANGE_CALCULATION,
+        PERSISTENCE,
+        NOTIFICATION,
+        EXECUTION
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public TransferMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Records a stage that started at {@code startNanos}.
+     *
+     * @param type         transfer type, {@code null} if it is not known yet (e.g. the accounts were not found)
+     * @param currencyPair pair in the form {@code EUR/RSD}, see {@link #currencyPair(Account, Account)}
+     */
+    public void record(Stage stage, TransferType type, String currencyPair, String outcome, long startNanos) {
+        String typeTag = type != null ? type.name() : UNKNOWN;
+        String pairTag = currencyPair != null ? currencyPair : UNKNOWN;
+        String key = stage + "|" + typeTag + "|" + pairTag + "|" + outcome;
+        timers.computeIfAbsent(key, k -> Timer.builder(STAGE_TIMER)
+                        .description("Duration of one stage of the transfer lifecycle")
+                        .tag("stage", stage.name().toLowerCase())
+                        .tag("type", typeTag)
+                        .tag("currency_pair", pairTag)
+                        .tag("outcome", outcome)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void countStatus(TransferType type, TransferStatus status) {
+        String typeTag = type != null ? type.name() : UNKNOWN;
+        counters.computeIfAbsent(typeTag + "|" + status, k -> Counter.builder(STATUS_COUNTER)
+                        .description("Transfers that reached the given status")
+                        .tag("type", typeTag)
+                        .tag("status", status.name())
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    public static String currencyPair(Account fromAccount, Account toAccount) {
+        if (fromAccount == null || toAccount == null) {
+            return null;
+        }
+        return currencyPair(fromAccount.getCurrencyType(), toAccount.getCurrencyType());
+    }
+
+    public static String currencyPair(CurrencyType from, CurrencyType to) {
+        return from + "/" + to;
+    }
+}
@@ -1,37 +1,62 @@
 package com.banka1.banking.services;
 
+import com.banka1.banking.dto.BatchMoneyTransferDTO;
+import com.banka1.banking.dto.BatchMoneyTransferResultDTO;
+import com.banka1.banking.dto.BatchTransferItemResultDTO;
 import com.banka1.banking.dto.CustomerDTO;
 import com.banka1.banking.dto.InternalTransferDTO;
 import com.banka1.banking.dto.MoneyTransferDTO;
 import com.banka1.banking.dto.NotificationDTO;
+import com.banka1.banking.dto.TransferHistoryPageDTO;
+import com.banka1.banking.dto.TransferStatusEventDTO;
 import com.banka1.banking.models.*;
 import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.models.helper.Money;
 import com.banka1.banking.models.helper.TransferStatus;
 import com.banka1.banking.models.helper.TransferType;
 import com.banka1.banking.repository.*;
+import com.banka1.banking.repository.projection.TransferHistoryView;
 import com.banka1.common.listener.MessageHelper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.jms.core.JmsTemplate;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class TransferService {
 
+    static final int DEFAULT_HISTORY_PAGE_SIZE = 20;
+    static final int MAX_HISTORY_PAGE_SIZE = 100;
+
     private final AccountRepository accountRepository;
 
     private final TransferRepository transferRepository;
 
-    private final CurrencyRepository currencyRepository;
+    private final CurrencyCache currencyCache;
 
     private final TransactionRepository transactionRepository;
 
@@ -50,12 +75,23 @@ public class TransferService {
     private final BankAccountUtils bankAccountUtils;
     private final ReceiverService receiverService;
 
+    private final AccountLockService accountLockService;
+
+    private final LedgerService ledgerService;
+
+    private final TransferExpiryService transferExpiryService;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final SpendingLimitService spendingLimitService;
+
+    private final TransferMetrics transferMetrics;
 
-    public TransferService(AccountRepository accountRepository, TransferRepository transferRepository, TransactionRepository transactionRepository, CurrencyRepository currencyRepository, JmsTemplate jmsTemplate, MessageHelper messageHelper, @Value("${destination.email}") String destinationEmail, UserServiceCustomer userServiceCustomer, ExchangeService exchangeService, OtpTokenService otpTokenService, BankAccountUtils bankAccountUtils, ReceiverService receiverService) {
+    public TransferService(AccountRepository accountRepository, TransferRepository transferRepository, TransactionRepository transactionRepository, CurrencyCache currencyCache, JmsTemplate jmsTemplate, MessageHelper messageHelper, @Value("${destination.email}") String destinationEmail, UserServiceCustomer userServiceCustomer, ExchangeService exchangeService, OtpTokenService otpTokenService, BankAccountUtils bankAccountUtils, ReceiverService receiverService, AccountLockService accountLockService, LedgerService ledgerService, TransferExpiryService transferExpiryService, ApplicationEventPublisher eventPublisher, SpendingLimitService spendingLimitService, TransferMetrics transferMetrics) {
         this.accountRepository = accountRepository;
         this.transferRepository = transferRepository;
         this.transactionRepository = transactionRepository;
-        this.currencyRepository = currencyRepository;
+        this.currencyCache = currencyCache;
         this.jmsTemplate = jmsTemplate;
         this.messageHelper = messageHelper;
         this.destinationEmail = destinationEmail;
@@ -64,19 +100,44 @@ public class TransferService {
         this.otpTokenService = otpTokenService;
         this.bankAccountUtils = bankAccountUtils;
         this.receiverService = receiverService;
+        this.accountLockService = accountLockService;
+        this.ledgerService = ledgerService;
+        this.transferExpiryService = transferExpiryService;
+        this.eventPublisher = eventPublisher;
+        this.spendingLimitService = spendingLimitService;
+        this.transferMetrics = transferMetrics;
     }
 
-    @Transactional(isolation = Isolation.SERIALIZABLE)
+    /**
+     * Executes a verified transfer. All accounts involved are locked up front in ascending id order
+     * (see {@link AccountLockService}), so the transfer runs at READ COMMITTED instead of SERIALIZABLE.
+     * Transient lock failures are retried by {@link TransferExecutionService}.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public String processTransfer(Long transferId) {
+        return processTransfer(transferId, true);
+    }
+
+    /**
+     * Executes a transfer like {@link #processTransfer(Long)}. With {@code enforceSpendingLimit} set to
+     * {@code false} an external transfer is neither checked nor counted against the spending limit, see
+     * {@link #processExternalTransfer(Long, boolean)}.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public String processTransfer(Long transferId, boolean enforceSpendingLimit) {
+        accountLockService.lockTransferAccounts(transferId);
+
         Transfer transfer = transferRepository.findById(transferId)
                 .orElseThrow(() -> new RuntimeException("Transfer not found"));
 
         System.out.println("Transfer type: " + transfer.getType());
-        return switch (transfer.getType()) {
-            case INTERNAL, EXCHANGE -> processInternalTransfer(transferId);
-            case EXTERNAL, FOREIGN -> processExternalTransfer(transferId);
-            default -> throw new RuntimeException("Invalid transfer type");
-        };
+        return timed(TransferMetrics.Stage.EXECUTION, transfer.getType(),
+                TransferMetrics.currencyPair(transfer.getFromAccountId(), transfer.getToAccountId()),
+                () -> switch (transfer.getType()) {
+                    case INTERNAL, EXCHANGE -> processInternalTransfer(transferId);
+                    case EXTERNAL, FOREIGN -> processExternalTransfer(transferId, enforceSpendingLimit);
+                    default -> throw new RuntimeException("Invalid transfer type");
+                });
     }
 
     /**
@@ -101,16 +162,32 @@ public class TransferService {
 
         CurrencyType fromCurrencyType = fromAccount.getCurrencyType();
         CurrencyType toCurrencyType = toAccount.getCurrencyType();
+        Map<String, Object> quotedExchange = quotedExchange(transfer);
 
         if (fromCurrencyType == CurrencyType.RSD) {
             log.debug("Performing RSD to Foreign exchange");
-            return performRsdToForeign(transfer.getAmount(), fromAccount, toAccount);
+            return performRsdToForeign(transfer.getAmount(), fromAccount, toAccount, quotedExchange);
         } else if (toCurrencyType == CurrencyType.RSD) {
             log.debug("Performing Foreign to RSD exchange");
-            return performForeignToRsd(transfer.getAmount(), fromAccount, toAccount);
+            return performForeignToRsd(transfer.getAmount(), fromAccount, toAccount, quotedExchange);
         }
         log.debug("Performing Foreign to Foreign exchange");
-        return performForeignToForeignExchange(transfer, fromAccount, toAccount);
+        return performForeignToForeignExchange(transfer, fromAccount, toAccount, quotedExchange);
+    }
+
+    /**
+     * Amounts locked by the exchange quote the transfer was created with, in the shape of
+     * {@link ExchangeService#calculatePreviewExchange}, or {@code null} if the rate has to be computed now.
+     */
+    private static Map<String, Object> quotedExchange(Transfer transfer) {
+        if (transfer.getQuoteId() == null) {
+            return null;
+        }
+        return Map.of(
+                "finalAmount", transfer.getQuotedFinalAmount(),
+                "fee", transfer.getQuotedFee(),
+                "provision", transfer.getQuotedProvision()
+        );
     }
 
     /**
@@ -121,46 +198,45 @@ public class TransferService {
      * 3) Convert RSD to USD (applying exchange fee)
      * 4) Transfer resulting USD from bank's USD account to customer's account
      * 5) "Spawn" exchange fees on bank's RSD account
+     * With a quoted exchange both conversions are skipped and the quoted amount and RSD provision are booked.
      */
     private Map<String, Object> performForeignToForeignExchange(
             Transfer transfer,
             Account fromAccount,
-            Account toAccount
+            Account toAccount,
+            Map<String, Object> quotedExchange
     ) {
-        Currency rsd = currencyRepository.getByCode(CurrencyType.RSD);
-        Currency fromCurrency = currencyRepository.getByCode(fromAccount.getCurrencyType());
-        Currency toCurrency = currencyRepository.getByCode(toAccount.getCurrencyType());
-        CustomerDTO receiver = userServiceCustomer.getCustomerById(toAccount.getOwnerID());
+        Currency rsd = currencyCache.get(CurrencyType.RSD);
+        Currency fromCurrency = currencyCache.get(fromAccount.getCurrencyType());
+        Currency toCurrency = currencyCache.get(toAccount.getCurrencyType());
+        TransferType type = exchangeType(fromAccount, toAccount);
+        CustomerDTO receiver = findCustomer(toAccount.getOwnerID(), type, TransferMetrics.currencyPair(fromAccount, toAccount));
 
         Account fromCurrencyBankAccount = bankAccountUtils.getBankAccountForCurrency(fromAccount.getCurrencyType());
         Account rsdBankAccount = bankAccountUtils.getBankAccountForCurrency(CurrencyType.RSD);
         Account toCurrencyBankAccount = bankAccountUtils.getBankAccountForCurrency(toAccount.getCurrencyType());
 
-        Map<String, Object> firstExchange = exchangeService.calculatePreviewExchangeAutomatic(
-                fromAccount.getCurrencyType().toString(),
-                "RSD",
-                transfer.getAmount()
-        );
-        Double firstExchangedAmount = (Double) firstExchange.get("finalAmount");
-        Double firstExchangeProvision = (Double) firstExchange.get("provision");
-
-        Map<String, Object> secondExchange = exchangeService.calculatePreviewExchangeAutomatic(
-                "RSD",
-                toAccount.getCurrencyType().toString(),
-                firstExchangedAmount
-        );
-        Double secondExchangedAmount = (Double) secondExchange.get("finalAmount");
-        Double secondExchangeProvision = (Double) secondExchange.get("provision");
-
-
-
-        fromAccount.setBalance(fromAccount.getBalance() - transfer.getAmount());
-        fromCurrencyBankAccount.setBalance(fromCurrencyBankAccount.getBalance() + transfer.getAmount());
-
-        rsdBankAccount.setBalance(rsdBankAccount.getBalance() + firstExchangeProvision + secondExchangeProvision);
+        Map<String, Object> secondExchange;
+        Double secondExchangedAmount;
+        double exchangeFee;
+        if (quotedExchange != null) {
+            secondExchange = quotedExchange;
+            secondExchangedAmount = (Double) quotedExchange.get("finalAmount");
+            exchangeFee = (Double) quotedExchange.get("provision");
+        } else {
+            Map<String, Object> firstExchange = calculateExchange(type, fromAccount.getCurrencyType(), CurrencyType.RSD, transfer.getAmount());
+            Double firstExchangedAmount = (Double) firstExchange.get("finalAmount");
+            Double firstExchangeProvision = (Double) firstExchange.get("provision");
+
+            secondExchange = calculateExchange(type, CurrencyType.RSD, toAccount.getCurrencyType(), firstExchangedAmount);
+            secondExchangedAmount = (Double) secondExchange.get("finalAmount");
+            Double secondExchangeProvision = (Double) secondExchange.get("provision");
+            // Obe provizije su izrazene u RSD
+            exchangeFee = Money.of(firstExchangeProvision, CurrencyType.RSD)
+                    .plus(Money.of(secondExchangeProvision, CurrencyType.RSD))
+                    .toDouble();
+        }
 
-        toCurrencyBankAccount.setBalance(toCurrencyBankAccount.getBalance() - secondExchangedAmount);
-        toAccount.setBalance(toAccount.getBalance() + secondExchangedAmount);
 
 
         Transfer transferToBank = createTransfer(
@@ -187,7 +263,7 @@ public class TransferService {
         Transfer feeTransfer = createTransfer(
                 fromAccount,
                 rsdBankAccount,
-                firstExchangeProvision + secondExchangeProvision,
+                exchangeFee,
                 "Exchange fee from " + fromCurrency.getCode() + " to " + toCurrency.getCode(),
                 rsdBankAccount.getCompany().getName(),
                 fromCurrency,
@@ -220,7 +296,7 @@ public class TransferService {
         Transaction feeTransaction = createFeeTransaction(
                 rsdBankAccount,
                 fromAccount,
-                firstExchangeProvision + secondExchangeProvision,
+                exchangeFee,
                 rsd,
                 "Exchange fee from " + fromCurrency.getCode() + " to " + toCurrency.getCode(),
                 feeTransfer
@@ -228,10 +304,18 @@ public class TransferService {
 
         saveTransfersAndTransactions(
                 List.of(transferToBank, transferFromBank, feeTransfer),
-                List.of(transactionToBank, transactionFromBank, feeTransaction),
-                List.of(fromCurrencyBankAccount, toCurrencyBankAccount, rsdBankAccount)
+                List.of(transactionToBank, transactionFromBank, feeTransaction)
         );
 
+        applyBalanceChange(transferToBank, fromAccount, -transfer.getAmount(), "Promena valute");
+        ledgerService.post(transferToBank, fromCurrencyBankAccount, transfer.getAmount(), "Promena valute");
+
+        ledgerService.post(transferFromBank, toCurrencyBankAccount, -secondExchangedAmount, "Promena valute");
+        applyBalanceChange(transferFromBank, toAccount, secondExchangedAmount, "Promena valute");
+
+        // Provizija je razlika u kursu, pa nema protivstavku na računu klijenta
+        ledgerService.post(feeTransfer, rsdBankAccount, exchangeFee, "Provizija za menjačnicu");
+
         return secondExchange;
     }
 
@@ -239,6 +323,10 @@ public class TransferService {
      * Performs an exchange from RSD to a foreign currency.
      */
     public Map<String, Object> performRsdToForeign(Double amount, Account fromAccount, Account toAccount) {
+        return performRsdToForeign(amount, fromAccount, toAccount, null);
+    }
+
+    private Map<String, Object> performRsdToForeign(Double amount, Account fromAccount, Account toAccount, Map<String, Object> quotedExchange) {
         if (amount <= 0) {
             throw new IllegalArgumentException("Amount must be positive");
         }
@@ -246,26 +334,20 @@ public class TransferService {
             throw new IllegalArgumentException("Invalid account currency types");
         }
 
-        Currency rsd = currencyRepository.getByCode(CurrencyType.RSD);
-        Currency toCurrency = currencyRepository.getByCode(toAccount.getCurrencyType());
+        Currency rsd = currencyCache.get(CurrencyType.RSD);
+        Currency toCurrency = currencyCache.get(toAccount.getCurrencyType());
         Account rsdBankAccount = bankAccountUtils.getBankAccountForCurrency(rsd.getCode());
         Account foreignBankAccount = bankAccountUtils.getBankAccountForCurrency(toAccount.getCurrencyType());
-        CustomerDTO receiver = userServiceCustomer.getCustomerById(toAccount.getOwnerID());
+        TransferType type = exchangeType(fromAccount, toAccount);
+        CustomerDTO receiver = findCustomer(toAccount.getOwnerID(), type, TransferMetrics.currencyPair(fromAccount, toAccount));
 
-        Map<String, Object> exchange = exchangeService.calculatePreviewExchangeAutomatic(
-                "RSD",
-                toAccount.getCurrencyType().toString(),
-                amount
-        );
+        Map<String, Object> exchange = quotedExchange != null
+                ? quotedExchange
+                : calculateExchange(type, CurrencyType.RSD, toAccount.getCurrencyType(), amount);
 
         Double finalAmount = (Double) exchange.get("finalAmount");
         Double provision = (Double) exchange.get("provision");
 
-        fromAccount.setBalance(fromAccount.getBalance() - amount);
-        rsdBankAccount.setBalance(rsdBankAccount.getBalance() + amount);
-        foreignBankAccount.setBalance(foreignBankAccount.getBalance() - finalAmount);
-        toAccount.setBalance(toAccount.getBalance() + finalAmount);
-
         Transfer transferToBank = createTransfer(
                 fromAccount,
                 rsdBankAccount,
@@ -312,10 +394,14 @@ public class TransferService {
 
         saveTransfersAndTransactions(
                 List.of(transferToBank, transferFromBank),
-                List.of(transactionToBank, transactionFromBank),
-                List.of(rsdBankAccount, foreignBankAccount)
+                List.of(transactionToBank, transactionFromBank)
         );
 
+        applyBalanceChange(transferToBank, fromAccount, -amount, "Promena valute");
+        ledgerService.post(transferToBank, rsdBankAccount, amount, "Promena valute");
+        ledgerService.post(transferFromBank, foreignBankAccount, -finalAmount, "Promena valute");
+        applyBalanceChange(transferFromBank, toAccount, finalAmount, "Promena valute");
+
         return exchange;
     }
 
@@ -323,6 +409,10 @@ public class TransferService {
      * Performs an exchange from a foreign currency to RSD.
      */
     public Map<String, Object> performForeignToRsd(Double amount, Account fromAccount, Account toAccount) {
+        return performForeignToRsd(amount, fromAccount, toAccount, null);
+    }
+
+    private Map<String, Object> performForeignToRsd(Double amount, Account fromAccount, Account toAccount, Map<String, Object> quotedExchange) {
         if (amount <= 0) {
             throw new IllegalArgumentException("Amount must be positive");
         }
@@ -330,28 +420,22 @@ public class TransferService {
             throw new IllegalArgumentException("Invalid account currency types");
         }
 
-        Currency rsd = currencyRepository.getByCode(CurrencyType.RSD);
-        Currency fromCurrency = currencyRepository.getByCode(fromAccount.getCurrencyType());
+        Currency rsd = currencyCache.get(CurrencyType.RSD);
+        Currency fromCurrency = currencyCache.get(fromAccount.getCurrencyType());
 
-        Map<String, Object> exchange = exchangeService.calculatePreviewExchangeAutomatic(
-                fromAccount.getCurrencyType().toString(),
-                "RSD",
-                amount
-        );
+        TransferType type = exchangeType(fromAccount, toAccount);
+        Map<String, Object> exchange = quotedExchange != null
+                ? quotedExchange
+                : calculateExchange(type, fromAccount.getCurrencyType(), CurrencyType.RSD, amount);
 
         Double finalAmount = (Double) exchange.get("finalAmount");
         Double provision = (Double) exchange.get("provision");
 
-        CustomerDTO receiver = userServiceCustomer.getCustomerById(toAccount.getOwnerID());
+        CustomerDTO receiver = findCustomer(toAccount.getOwnerID(), type, TransferMetrics.currencyPair(fromAccount, toAccount));
 
         Account rsdBankAccount = bankAccountUtils.getBankAccountForCurrency(rsd.getCode());
         Account foreignBankAccount = bankAccountUtils.getBankAccountForCurrency(fromAccount.getCurrencyType());
 
-        fromAccount.setBalance(fromAccount.getBalance() - amount);
-        foreignBankAccount.setBalance(foreignBankAccount.getBalance() + amount);
-        rsdBankAccount.setBalance(rsdBankAccount.getBalance() - finalAmount);
-        toAccount.setBalance(toAccount.getBalance() + finalAmount);
-
         Transfer transferToBank = createTransfer(
                 fromAccount,
                 foreignBankAccount,
@@ -398,10 +482,14 @@ public class TransferService {
 
         saveTransfersAndTransactions(
                 List.of(transferToBank, transferFromBank),
-                List.of(transactionToBank, transactionFromBank),
-                List.of(rsdBankAccount, foreignBankAccount)
+                List.of(transactionToBank, transactionFromBank)
         );
 
+        applyBalanceChange(transferToBank, fromAccount, -amount, "Promena valute");
+        ledgerService.post(transferToBank, foreignBankAccount, amount, "Promena valute");
+        ledgerService.post(transferFromBank, rsdBankAccount, -finalAmount, "Promena valute");
+        applyBalanceChange(transferFromBank, toAccount, finalAmount, "Promena valute");
+
         return exchange;
     }
 
@@ -487,16 +575,38 @@ public class TransferService {
 
 
     /**
-     * Helper method to save multiple transfers, transactions, and accounts.
+     * Helper method to save multiple transfers and transactions.
      */
     private void saveTransfersAndTransactions(
             List<Transfer> transfers,
-            List<Transaction> transactions,
-            List<Account> accounts
+            List<Transaction> transactions
     ) {
         transferRepository.saveAll(transfers);
         transactionRepository.saveAll(transactions);
-        accountRepository.saveAll(accounts);
+    }
+
+    /**
+     * Applies a balance change and records it in the ledger. House accounts are only posted to the ledger,
+     * their row is refreshed by {@link LedgerService#takeSnapshots()}.
+     */
+    private void applyBalanceChange(Transfer transfer, Account account, double delta, String description) {
+        if (!LedgerService.isHouseAccount(account)) {
+            account.setBalance(Money.add(account.getBalance(), delta, account.getCurrencyType()));
+        }
+        ledgerService.post(transfer, account, delta, description);
+    }
+
+    /**
+     * Checks that the source account covers the amount. A customer account is locked by the transfer, so its row
+     * balance is checked and the debit follows with the rest of the transfer. A house account is debited right away
+     * through {@link LedgerService#debit}, which checks the balance of the shard it takes the money from under that
+     * shard's lock, so the caller must not debit it again.
+     */
+    private boolean reserveFunds(Transfer transfer, Account account, double amount, String description) {
+        if (LedgerService.isHouseAccount(account)) {
+            return ledgerService.debit(transfer, account, amount, description);
+        }
+        return account.getBalance() >= amount;
     }
 
 
@@ -505,7 +615,7 @@ public class TransferService {
         Transfer transfer = transferRepository.findById(transferId).orElseThrow(() -> new RuntimeException("Transfer not found"));
 
         // Provera statusa i tipa transfera
-        if (!transfer.getStatus().equals(TransferStatus.PENDING)) {
+        if (!isAwaitingExecution(transfer)) {
             throw new RuntimeException("Transfer is not in pending state");
         }
 
@@ -517,19 +627,29 @@ public class TransferService {
         Account toAccount = transfer.getToAccountId();
 
         //Ukoliko na racunu ne postoji dovoljno sredstava za izvrsenje
-        if (fromAccount.getBalance() < transfer.getAmount()) {
+        if (!reserveFunds(transfer, fromAccount, transfer.getAmount(), "Interni prenos")) {
             transfer.setStatus(TransferStatus.FAILED);
             transferRepository.save(transfer);
             throw new RuntimeException("Insufficient funds");
         }
 
+        // Limit se proverava tek ovde, pod zakljucanim racunom, jer vise transfera na cekanju moze proci proveru pri kreiranju
+        if (spendingLimitService.wouldExceedLimit(fromAccount, transfer.getAmount())) {
+            transfer.setStatus(TransferStatus.FAILED);
+            transfer.setNote("Spending limit exceeded");
+            transferRepository.save(transfer);
+            throw new RuntimeException("Spending limit exceeded");
+        }
+
         try{
             // Azuriranje balansa
             Map<String, Object> exchangeMap = null;
 
             if(transfer.getType().equals(TransferType.INTERNAL)) {
-                fromAccount.setBalance(fromAccount.getBalance() - transfer.getAmount());
-                toAccount.setBalance(toAccount.getBalance() + transfer.getAmount());
+                if (!LedgerService.isHouseAccount(fromAccount)) {
+                    applyBalanceChange(transfer, fromAccount, -transfer.getAmount(), "Interni prenos");
+                }
+                applyBalanceChange(transfer, toAccount, transfer.getAmount(), "Interni prenos");
             }
             else {
                 exchangeMap = performCurrencyExchangeTransfer(transfer, fromAccount, toAccount);
@@ -560,6 +680,8 @@ public class TransferService {
             transfer.setStatus(TransferStatus.COMPLETED);
             transfer.setCompletedAt(System.currentTimeMillis());
             transferRepository.save(transfer);
+            publishStatusChange(transfer);
+            spendingLimitService.recordSpending(fromAccount, transfer.getAmount());
 
             //Inkrementiranje transakcije za fast payment opciju
             if(transfer.getSavedReceiverId() != null)
@@ -574,10 +696,20 @@ public class TransferService {
 
     @Transactional
     public String processExternalTransfer(Long transferId) {
+        return processExternalTransfer(transferId, true);
+    }
+
+    /**
+     * Executes an external or foreign transfer. The spending limit of the source account is checked here, with the
+     * account already locked, unless {@code enforceSpendingLimit} is {@code false}, which is only used for debits
+     * the bank makes itself, such as loan installments. Those are neither checked nor counted against the limit.
+     */
+    @Transactional
+    public String processExternalTransfer(Long transferId, boolean enforceSpendingLimit) {
         Transfer transfer = transferRepository.findById(transferId)
                 .orElseThrow(() -> new RuntimeException("Transfer not found"));
 
-        if (!transfer.getStatus().equals(TransferStatus.PENDING)) {
+        if (!isAwaitingExecution(transfer)) {
             throw new RuntimeException("Transfer is not in pending state");
         }
 
@@ -589,19 +721,29 @@ public class TransferService {
         Account toAccount = transfer.getToAccountId();
         Double amount = transfer.getAmount();
 
-        if (fromAccount.getBalance() < amount) {
+        if (!reserveFunds(transfer, fromAccount, amount, "Prenos novca")) {
             transfer.setStatus(TransferStatus.FAILED);
             transfer.setNote("Insufficient balance");
             transferRepository.save(transfer);
             throw new RuntimeException("Insufficient balance for transfer");
         }
 
+        if (enforceSpendingLimit && spendingLimitService.wouldExceedLimit(fromAccount, amount)) {
+            transfer.setStatus(TransferStatus.FAILED);
+            transfer.setNote("Spending limit exceeded");
+            transferRepository.save(transfer);
+            throw new RuntimeException("Spending limit exceeded");
+        }
+
         try {
-            fromAccount.setBalance(fromAccount.getBalance() - amount);
+            // Racun banke je vec zaduzen u reserveFunds
+            if (!LedgerService.isHouseAccount(fromAccount)) {
+                applyBalanceChange(transfer, fromAccount, -amount, "Prenos novca");
+            }
             Map<String, Object> exchangeMap = null;
 
             if(transfer.getType().equals(TransferType.EXTERNAL))
-                toAccount.setBalance(toAccount.getBalance() + transfer.getAmount());
+                applyBalanceChange(transfer, toAccount, transfer.getAmount(), "Prenos novca");
             else {
                 exchangeMap = performCurrencyExchangeTransfer(transfer, fromAccount, toAccount);
             }
@@ -630,6 +772,10 @@ public class TransferService {
             transfer.setStatus(TransferStatus.COMPLETED);
             transfer.setCompletedAt(Instant.now().toEpochMilli());
             transferRepository.save(transfer);
+            publishStatusChange(transfer);
+            if (enforceSpendingLimit) {
+                spendingLimitService.recordSpending(fromAccount, amount);
+            }
 
             //Inkrementiranje transakcije za fast payment opciju
             if(transfer.getSavedReceiverId() != null)
@@ -646,10 +792,22 @@ public class TransferService {
     }
 
     public boolean validateInternalTransfer(InternalTransferDTO transferDTO){
+        long start = System.nanoTime();
+        String outcome = TransferMetrics.ERROR;
 
         Optional<Account> fromAccountInternal = accountRepository.findById(transferDTO.getFromAccountId());
         Optional<Account> toAccountInternal = accountRepository.findById(transferDTO.getToAccountId());
+        try {
+            boolean valid = isValidInternalTransfer(transferDTO, fromAccountInternal, toAccountInternal);
+            outcome = valid ? TransferMetrics.SUCCESS : TransferMetrics.REJECTED;
+            return valid;
+        } finally {
+            transferMetrics.record(TransferMetrics.Stage.VALIDATION, TransferType.INTERNAL,
+                    TransferMetrics.currencyPair(fromAccountInternal.orElse(null), toAccountInternal.orElse(null)), outcome, start);
+        }
+    }
 
+    private boolean isValidInternalTransfer(InternalTransferDTO transferDTO, Optional<Account> fromAccountInternal, Optional<Account> toAccountInternal) {
         if(fromAccountInternal.isEmpty() || toAccountInternal.isEmpty()){
             return false;
         }
@@ -660,14 +818,40 @@ public class TransferService {
         if(!fromAccount.getCurrencyType().equals(toAccount.getCurrencyType())){
             return false;
         }
+
+        if (spendingLimitService.wouldExceedLimit(fromAccount, transferDTO.getAmount())) {
+            return false;
+        }
         return fromAccount.getOwnerID().equals(toAccount.getOwnerID());
     }
 
     public boolean validateMoneyTransfer(MoneyTransferDTO transferDTO){
+        return validateMoneyTransfer(transferDTO, true);
+    }
+
+    /**
+     * Validates a money transfer, with or without the spending limit check of the source account. The check is
+     * skipped only for debits the bank makes itself, such as loan installments.
+     */
+    public boolean validateMoneyTransfer(MoneyTransferDTO transferDTO, boolean checkSpendingLimit){
+        long start = System.nanoTime();
+        String outcome = TransferMetrics.ERROR;
 
         Optional<Account> fromAccountOtp = accountRepository.findByAccountNumber(transferDTO.getFromAccountNumber());
         Optional<Account> toAccountOtp = accountRepository.findByAccountNumber(transferDTO.getRecipientAccount());
+        try {
+            boolean valid = isValidMoneyTransfer(transferDTO, fromAccountOtp, toAccountOtp, checkSpendingLimit);
+            outcome = valid ? TransferMetrics.SUCCESS : TransferMetrics.REJECTED;
+            return valid;
+        } finally {
+            Account fromAccount = fromAccountOtp.orElse(null);
+            Account toAccount = toAccountOtp.orElse(null);
+            transferMetrics.record(TransferMetrics.Stage.VALIDATION, moneyTransferType(fromAccount, toAccount),
+                    TransferMetrics.currencyPair(fromAccount, toAccount), outcome, start);
+        }
+    }
 
+    private boolean isValidMoneyTransfer(MoneyTransferDTO transferDTO, Optional<Account> fromAccountOtp, Optional<Account> toAccountOtp, boolean checkSpendingLimit) {
         if(fromAccountOtp.isEmpty() || toAccountOtp.isEmpty()){
             return false;
         }
@@ -679,6 +863,10 @@ public class TransferService {
             return false;
         }
 
+        if (checkSpendingLimit && spendingLimitService.wouldExceedLimit(fromAccount, transferDTO.getAmount())) {
+            return false;
+        }
+
         // PROVERA ZA RECEIVERA
         if (transferDTO.getSavedReceiverId() != null) {
             Receiver receiverExists = receiverService.findById(transferDTO.getSavedReceiverId());
@@ -692,11 +880,9 @@ public class TransferService {
     }
 
     public Transfer createInternalTransferEntity(Account fromAccount, Account toAccount,InternalTransferDTO internalTransferDTO, CustomerDTO customerData, String description) {
-        Currency fromCurrency = currencyRepository.findByCode(fromAccount.getCurrencyType())
-                .orElseThrow(() -> new IllegalArgumentException("Greska"));
+        Currency fromCurrency = currencyCache.get(fromAccount.getCurrencyType());
 
-        Currency toCurrency = currencyRepository.findByCode(toAccount.getCurrencyType())
-                .orElseThrow(() -> new IllegalArgumentException("Greska"));
+        Currency toCurrency = currencyCache.get(toAccount.getCurrencyType());
 
         String firstName = customerData.getFirstName();
         String lastName = customerData.getLastName();
@@ -713,9 +899,18 @@ public class TransferService {
         transfer.setToCurrency(toCurrency);
         transfer.setCreatedAt(System.currentTimeMillis());
 
-        return transferRepository.saveAndFlush(transfer);
+        Transfer saved = timed(TransferMetrics.Stage.PERSISTENCE, TransferType.INTERNAL,
+                TransferMetrics.currencyPair(fromAccount, toAccount), () -> transferRepository.saveAndFlush(transfer));
+        transferExpiryService.schedule(saved);
+        return saved;
     }
 
+    /**
+     * Creates a pending internal transfer, issues its OTP and sends the verification notifications. Everything runs
+     * in one transaction, so if the notifications cannot be sent nothing is persisted and the request can simply be
+     * retried, which is what {@link IdempotencyService} relies on when it releases the key of a failed request.
+     */
+    @Transactional
     public Long createInternalTransfer(InternalTransferDTO internalTransferDTO){
 
         Optional<Account> fromAccountOtp = accountRepository.findById(internalTransferDTO.getFromAccountId());
@@ -725,9 +920,10 @@ public class TransferService {
 
             Account fromAccount = fromAccountOtp.get();
             Account toAccount = toAccountOtp.get();
+            String currencyPair = TransferMetrics.currencyPair(fromAccount, toAccount);
 
             Long customerId = fromAccount.getOwnerID();
-            CustomerDTO customerData = userServiceCustomer.getCustomerById(customerId);
+            CustomerDTO customerData = findCustomer(customerId, TransferType.INTERNAL, currencyPair);
 
             if (customerData == null ) {
                 throw new IllegalArgumentException("Korisnik nije pronađen");
@@ -739,7 +935,7 @@ public class TransferService {
 
             var transfer = createInternalTransferEntity(fromAccount, toAccount, internalTransferDTO, customerData, "Interni prenos");
 
-            String otpCode = otpTokenService.generateOtp(transfer.getId());
+            String otpCode = generateOtp(transfer.getId(), TransferType.INTERNAL, currencyPair);
             transfer.setOtp(otpCode);
             transferRepository.save(transfer);
 
@@ -761,8 +957,7 @@ public class TransferService {
             Map<String, String> data = Map.of("transferId", transfer.getId().toString(), "otp", otpCode);
             pushNotification.setAdditionalData(data);
 
-            jmsTemplate.convertAndSend(destinationEmail,messageHelper.createTextMessage(emailDto));
-            jmsTemplate.convertAndSend(destinationEmail,messageHelper.createTextMessage(pushNotification));
+            sendNotifications(TransferType.INTERNAL, currencyPair, emailDto, pushNotification);
 
             return transfer.getId();
         }
@@ -770,19 +965,28 @@ public class TransferService {
     }
 
     public Transfer createMoneyTransferEntity(Account fromAccount, Account toAccount, MoneyTransferDTO moneyTransferDTO) {
-        Currency fromCurrency = currencyRepository.findByCode(fromAccount.getCurrencyType())
-                .orElseThrow(() -> new IllegalArgumentException("Greska"));
+        Currency fromCurrency = currencyCache.get(fromAccount.getCurrencyType());
+
+        Currency toCurrency = currencyCache.get(toAccount.getCurrencyType());
 
-        Currency toCurrency = currencyRepository.findByCode(toAccount.getCurrencyType())
-                .orElseThrow(() -> new IllegalArgumentException("Greska"));
+        TransferType type = moneyTransferType(fromAccount, toAccount);
+        String currencyPair = TransferMetrics.currencyPair(fromAccount, toAccount);
 
         Long customerId = fromAccount.getOwnerID();
-        CustomerDTO customerData = userServiceCustomer.getCustomerById(customerId);
+        CustomerDTO customerData = findCustomer(customerId, type, currencyPair);
 
         if (customerData == null ) {
             throw new IllegalArgumentException("Korisnik nije pronađen");
         }
 
+        Transfer transfer = buildMoneyTransfer(fromAccount, toAccount, moneyTransferDTO, fromCurrency, toCurrency);
+
+        Transfer saved = timed(TransferMetrics.Stage.PERSISTENCE, type, currencyPair, () -> transferRepository.saveAndFlush(transfer));
+        transferExpiryService.schedule(saved);
+        return saved;
+    }
+
+    private Transfer buildMoneyTransfer(Account fromAccount, Account toAccount, MoneyTransferDTO moneyTransferDTO, Currency fromCurrency, Currency toCurrency) {
         Transfer transfer = new Transfer();
         transfer.setFromAccountId(fromAccount);
         transfer.setToAccountId(toAccount);
@@ -790,7 +994,7 @@ public class TransferService {
         transfer.setReceiver(moneyTransferDTO.getReceiver());
         transfer.setAdress(moneyTransferDTO.getAdress() != null ? moneyTransferDTO.getAdress() : "N/A");
         transfer.setStatus(TransferStatus.PENDING);
-        transfer.setType(fromCurrency.equals(toCurrency) ? TransferType.EXTERNAL : TransferType.FOREIGN);
+        transfer.setType(moneyTransferType(fromAccount, toAccount));
         transfer.setFromCurrency(fromCurrency);
         transfer.setToCurrency(toCurrency);
         transfer.setPaymentCode(moneyTransferDTO.getPayementCode());
@@ -799,10 +1003,14 @@ public class TransferService {
         transfer.setCreatedAt(System.currentTimeMillis());
 
         transfer.setSavedReceiverId(moneyTransferDTO.getSavedReceiverId());
-
-        return transferRepository.saveAndFlush(transfer);
+        return transfer;
     }
 
+    /**
+     * Creates a pending money transfer, issues its OTP and sends the verification notifications, all in one
+     * transaction (see {@link #createInternalTransfer}).
+     */
+    @Transactional
     public Long createMoneyTransfer(MoneyTransferDTO moneyTransferDTO){
 
         Optional<Account> fromAccountOtp = accountRepository.findByAccountNumber(moneyTransferDTO.getFromAccountNumber());
@@ -812,9 +1020,11 @@ public class TransferService {
 
             Account fromAccount = fromAccountOtp.get();
             Account toAccount = toAccountOtp.get();
+            TransferType type = moneyTransferType(fromAccount, toAccount);
+            String currencyPair = TransferMetrics.currencyPair(fromAccount, toAccount);
 
             Long customerId = fromAccount.getOwnerID();
-            CustomerDTO customerData = userServiceCustomer.getCustomerById(customerId);
+            CustomerDTO customerData = findCustomer(customerId, type, currencyPair);
 
             if (customerData == null ) {
                 throw new IllegalArgumentException("Korisnik nije pronađen");
@@ -826,7 +1036,7 @@ public class TransferService {
 
             var transfer = createMoneyTransferEntity(fromAccount, toAccount, moneyTransferDTO);
 
-            String otpCode = otpTokenService.generateOtp(transfer.getId());
+            String otpCode = generateOtp(transfer.getId(), type, currencyPair);
             transfer.setOtp(otpCode);
             transferRepository.save(transfer);
 
@@ -848,8 +1058,7 @@ public class TransferService {
             Map<String, String> data = Map.of("transferId", transfer.getId().toString(), "otp", otpCode);
             pushNotification.setAdditionalData(data);
 
-            jmsTemplate.convertAndSend(destinationEmail,messageHelper.createTextMessage(emailDto));
-            jmsTemplate.convertAndSend(destinationEmail,messageHelper.createTextMessage(pushNotification));
+            sendNotifications(type, currencyPair, emailDto, pushNotification);
 
             return transfer.getId();
 
@@ -857,18 +1066,263 @@ public class TransferService {
         return null;
     }
 
-    @Scheduled(fixedRate = 10000)
-    public void cancelExpiredTransfers(){
+    /**
+     * Creates every transfer of a batch order in one pass. Accounts and currencies are loaded with one
+     * query each, the customer is fetched once and a single OTP is issued on the first transfer of the
+     * batch. All transfers are persisted in one transaction, so Hibernate writes them as JDBC batches
+     * on commit instead of one saveAndFlush per transfer.
+     * <p>
+     * Items that fail validation are reported in the result and do not stop the rest of the batch.
+     *
+     * @param batchDTO transfers to create
+     * @return batch id, id of the transfer carrying the OTP and a result for every item
+     */
+    @Transactional
+    public BatchMoneyTransferResultDTO createMoneyTransferBatch(BatchMoneyTransferDTO batchDTO) {
+        List<MoneyTransferDTO> items = batchDTO.getTransfers();
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("Paket ne sadrži nijedan transfer.");
+        }
 
-        long expirationTime = System.currentTimeMillis() - (5*60*1000);
+        Set<String> accountNumbers = new HashSet<>();
+        for (MoneyTransferDTO item : items) {
+            if (item.getFromAccountNumber() != null) accountNumbers.add(item.getFromAccountNumber());
+            if (item.getRecipientAccount() != null) accountNumbers.add(item.getRecipientAccount());
+        }
+        Map<String, Account> accounts = accountRepository.findByAccountNumberIn(accountNumbers).stream()
+                .collect(Collectors.toMap(Account::getAccountNumber, Function.identity()));
+        Map<CurrencyType, Currency> currencies = currencyCache.getAll();
+        Map<Long, Boolean> knownReceivers = new HashMap<>();
+        Map<Long, Double> batchSpending = new HashMap<>();
+
+        BatchTransferItemResultDTO[] results = new BatchTransferItemResultDTO[items.size()];
+        List<Transfer> transfers = new ArrayList<>();
+        List<Integer> transferIndexes = new ArrayList<>();
+        String batchId = UUID.randomUUID().toString();
+        Long ownerId = null;
+
+        for (int i = 0; i < items.size(); i++) {
+            MoneyTransferDTO item = items.get(i);
+            Account fromAccount = accounts.get(item.getFromAccountNumber());
+            Account toAccount = accounts.get(item.getRecipientAccount());
+
+            String error = validateBatchItem(item, fromAccount, toAccount, ownerId, knownReceivers, batchSpending);
+            if (error != null) {
+                results[i] = BatchTransferItemResultDTO.failed(i, error);
+                continue;
+            }
+            ownerId = fromAccount.getOwnerID();
+            batchSpending.merge(fromAccount.getId(), item.getAmount(), Double::sum);
+
+            Transfer transfer = buildMoneyTransfer(fromAccount, toAccount, item,
+                    currencies.get(fromAccount.getCurrencyType()), currencies.get(toAccount.getCurrencyType()));
+            transfer.setBatchId(batchId);
+            transfers.add(transfer);
+            transferIndexes.add(i);
+        }
 
-        List<Transfer> expiredTransfers = transferRepository.findAllByStatusAndCreatedAtBefore(TransferStatus.PENDING,expirationTime);
+        if (transfers.isEmpty()) {
+            return new BatchMoneyTransferResultDTO(null, null, Arrays.asList(results));
+        }
 
-        for (Transfer transfer : expiredTransfers){
-            transfer.setStatus(TransferStatus.CANCELLED);
-            transferRepository.save(transfer);
+        // Paket može mešati valute, pa se etape beleže po prvom transferu
+        Transfer leadTransfer = transfers.get(0);
+        TransferType leadType = leadTransfer.getType();
+        String leadPair = TransferMetrics.currencyPair(leadTransfer.getFromAccountId(), leadTransfer.getToAccountId());
+
+        CustomerDTO customerData = findCustomer(ownerId, leadType, leadPair);
+        if (customerData == null) {
+            throw new IllegalArgumentException("Korisnik nije pronađen");
+        }
+
+        timed(TransferMetrics.Stage.PERSISTENCE, leadType, leadPair, () -> transferRepository.saveAll(transfers));
+        transferExpiryService.scheduleAll(transfers);
+        for (int i = 0; i < transfers.size(); i++) {
+            results[transferIndexes.get(i)] = BatchTransferItemResultDTO.ok(transferIndexes.get(i), transfers.get(i).getId());
+        }
+
+        String otpCode = generateOtp(leadTransfer.getId(), leadType, leadPair);
+        leadTransfer.setOtp(otpCode);
+
+        NotificationDTO emailDto = new NotificationDTO();
+        emailDto.setSubject("Verifikacija");
+        emailDto.setEmail(customerData.getEmail());
+        emailDto.setMessage("Vaš verifikacioni kod za paket od " + transfers.size() + " transfera je: " + otpCode);
+        emailDto.setFirstName(customerData.getFirstName());
+        emailDto.setLastName(customerData.getLastName());
+        emailDto.setType("email");
+
+        NotificationDTO pushNotification = new NotificationDTO();
+        pushNotification.setSubject("Verifikacija");
+        pushNotification.setMessage("Kliknite kako biste verifikovali paket transfera");
+        pushNotification.setFirstName(customerData.getFirstName());
+        pushNotification.setLastName(customerData.getLastName());
+        pushNotification.setEmail(customerData.getEmail());
+        pushNotification.setType("firebase");
+        pushNotification.setAdditionalData(Map.of("transferId", leadTransfer.getId().toString(), "otp", otpCode, "batchId", batchId));
+
+        sendNotifications(leadType, leadPair, emailDto, pushNotification);
+
+        return new BatchMoneyTransferResultDTO(batchId, leadTransfer.getId(), Arrays.asList(results));
+    }
+
+    /**
+     * Same checks as {@link #validateMoneyTransfer(MoneyTransferDTO)}, against accounts that were already loaded.
+     * All transfers of a batch must be sent by the same customer, since they share one OTP, and earlier
+     * items of the batch count against the spending limit of their account.
+     *
+     * @return error message, or null if the item is valid
+     */
+    private String validateBatchItem(MoneyTransferDTO item, Account fromAccount, Account toAccount, Long ownerId, Map<Long, Boolean> knownReceivers, Map<Long, Double> batchSpending) {
+        if (fromAccount == null || toAccount == null) {
+            return "Račun nije pronađen.";
+        }
+        if (item.getAmount() == null || item.getAmount() <= 0) {
+            return "Iznos mora biti veći od nule.";
+        }
+        if (fromAccount.getOwnerID().equals(toAccount.getOwnerID())) {
+            return "Računi pripadaju istom korisniku.";
+        }
+        if (ownerId != null && !ownerId.equals(fromAccount.getOwnerID())) {
+            return "Svi transferi u paketu moraju poticati od istog korisnika.";
+        }
+        if (spendingLimitService.wouldExceedLimit(fromAccount, batchSpending.getOrDefault(fromAccount.getId(), 0.0) + item.getAmount())) {
+            return "Prekoračen dnevni ili mesečni limit računa.";
+        }
+        if (item.getSavedReceiverId() != null
+                && !knownReceivers.computeIfAbsent(item.getSavedReceiverId(), this::receiverExists)) {
+            return "Primalac nije pronađen.";
         }
+        return null;
+    }
 
+    private boolean receiverExists(Long receiverId) {
+        try {
+            return receiverService.findById(receiverId) != null;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates the next transfer of every given standing order. The customer authorized the payments when the
+     * order was created, so no OTP is issued and the customer service is not called. The transfers are left
+     * {@link TransferStatus#PENDING}; the caller dispatches them once its transaction has committed. They are
+     * marked with their standing order and are not subject to OTP expiry.
+     *
+     * @param orders due standing orders with both accounts loaded
+     * @return created transfers, in the order of {@code orders}
+     */
+    public List<Transfer> createStandingOrderTransfers(List<StandingOrder> orders) {
+        Map<CurrencyType, Currency> currencies = currencyCache.getAll();
+
+        List<Transfer> transfers = new ArrayList<>(orders.size());
+        for (StandingOrder order : orders) {
+            Account fromAccount = order.getFromAccount();
+            Account toAccount = order.getToAccount();
+            MoneyTransferDTO payment = new MoneyTransferDTO(fromAccount.getAccountNumber(), toAccount.getAccountNumber(),
+                    order.getAmount(), order.getReceiver(), order.getAdress(), order.getPaymentCode(),
+                    order.getPaymentReference(), order.getPaymentDescription(), null);
+            Transfer transfer = buildMoneyTransfer(fromAccount, toAccount, payment,
+                    currencies.get(fromAccount.getCurrencyType()), currencies.get(toAccount.getCurrencyType()));
+            transfer.setStandingOrderId(order.getId());
+            transfers.add(transfer);
+        }
+
+        // Bez OTP-a nema ni isticanja, transfer ostaje PENDING dok ga ne posalje izvrsenje naloga
+        transferRepository.saveAll(transfers);
+        return transfers;
+    }
+
+    /**
+     * A transfer can be executed while it waits for OTP (synchronous callers) or after it was queued.
+     */
+    private boolean isAwaitingExecution(Transfer transfer) {
+        return transfer.getStatus() == TransferStatus.PENDING || transfer.getStatus() == TransferStatus.QUEUED;
+    }
+
+    /**
+     * Marks a transfer that could not be executed as failed. Runs in its own transaction, since the
+     * transaction of the failed execution has already been rolled back.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void markTransferFailed(Long transferId, String reason) {
+        transferRepository.findById(transferId).ifPresent(transfer -> {
+            if (isAwaitingExecution(transfer)) {
+                transfer.setStatus(TransferStatus.FAILED);
+                transfer.setNote(reason);
+                transferRepository.save(transfer);
+                publishStatusChange(transfer);
+            }
+        });
+    }
+
+    /**
+     * Publishes the current status of the transfer to {@link TransferStatusPublisher}. The publisher only
+     * sends it to the status topic once the surrounding transaction commits, so statuses that get rolled back are
+     * never seen.
+     */
+    public void publishStatusChange(Transfer transfer) {
+        transferMetrics.countStatus(transfer.getType(), transfer.getStatus());
+        eventPublisher.publishEvent(new TransferStatusEventDTO(transfer.getId(), transfer.getFromAccountId().getOwnerID(),
+                transfer.getStatus(), transfer.getNote(), System.currentTimeMillis()));
+    }
+
+    /**
+     * Runs one stage of the lifecycle and records its duration in {@link TransferMetrics}. A stage that throws
+     * is recorded with the {@code error} outcome.
+     */
+    private <T> T timed(TransferMetrics.Stage stage, TransferType type, String currencyPair, Supplier<T> action) {
+        long start = System.nanoTime();
+        String outcome = TransferMetrics.ERROR;
+        try {
+            T result = action.get();
+            outcome = TransferMetrics.SUCCESS;
+            return result;
+        } finally {
+            transferMetrics.record(stage, type, currencyPair, outcome, start);
+        }
+    }
+
+    private CustomerDTO findCustomer(Long customerId, TransferType type, String currencyPair) {
+        return timed(TransferMetrics.Stage.CUSTOMER_LOOKUP, type, currencyPair, () -> userServiceCustomer.getCustomerById(customerId));
+    }
+
+    private String generateOtp(Long transferId, TransferType type, String currencyPair) {
+        return timed(TransferMetrics.Stage.OTP_GENERATION, type, currencyPair, () -> otpTokenService.generateOtp(transferId));
+    }
+
+    private Map<String, Object> calculateExchange(TransferType type, CurrencyType from, CurrencyType to, Double amount) {
+        return timed(TransferMetrics.Stage.EXCHANGE_CALCULATION, type, TransferMetrics.currencyPair(from, to),
+                () -> exchangeService.calculatePreviewExchangeAutomatic(from.toString(), to.toString(), amount));
+    }
+
+    private void sendNotifications(TransferType type, String currencyPair, NotificationDTO... notifications) {
+        timed(TransferMetrics.Stage.NOTIFICATION, type, currencyPair, () -> {
+            for (NotificationDTO notification : notifications) {
+                jmsTemplate.convertAndSend(destinationEmail, messageHelper.createTextMessage(notification));
+            }
+            return null;
+        });
+    }
+
+    private static TransferType moneyTransferType(Account fromAccount, Account toAccount) {
+        if (fromAccount == null || toAccount == null) {
+            return null;
+        }
+        return fromAccount.getCurrencyType() == toAccount.getCurrencyType() ? TransferType.EXTERNAL : TransferType.FOREIGN;
+    }
+
+    // Menjačnica je prenos između sopstvenih računa, sve ostalo je devizni prenos
+    private static TransferType exchangeType(Account fromAccount, Account toAccount) {
+        return Objects.equals(fromAccount.getOwnerID(), toAccount.getOwnerID()) ? TransferType.EXCHANGE : TransferType.FOREIGN;
+    }
+
+    /**
+     * Pending transfers that belong to the given batch, in creation order.
+     */
+    public List<Long> findPendingBatchTransferIds(String batchId) {
+        return transferRepository.findIdsByBatchIdAndStatus(batchId, TransferStatus.PENDING);
     }
 
     public Transfer findById(Long transferId) {
@@ -879,5 +1333,46 @@ public class TransferService {
     public List<Transfer> getAllTransfersStartedByUser(Long userId) {
         return transferRepository.findAllByFromAccountId_OwnerID(userId);
     }
+
+    /**
+     * Returns one page of the user's transfer history, newest first. The cursor encodes the (created at, id) of the
+     * last item on the previous page, so every page costs the same regardless of how many transfers the user has.
+     *
+     * @param cursor {@code nextCursor} of the previous page, or {@code null} for the first page
+     * @param limit  page size, capped at {@value #MAX_HISTORY_PAGE_SIZE}
+     */
+    public TransferHistoryPageDTO getTransferHistory(Long userId, TransferStatus status, TransferType type,
+                                                     Long createdFrom, Long createdTo, String cursor, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_HISTORY_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_HISTORY_PAGE_SIZE));
+        long[] after = cursor == null || cursor.isBlank() ? new long[]{Long.MAX_VALUE, Long.MAX_VALUE} : decodeHistoryCursor(cursor);
+
+        // Jedna stavka vise od strane govori da li postoji sledeca strana
+        List<TransferHistoryView> rows = transferRepository.findHistoryPage(userId,
+                status == null ? EnumSet.allOf(TransferStatus.class) : EnumSet.of(status),
+                type == null ? EnumSet.allOf(TransferType.class) : EnumSet.of(type),
+                createdFrom == null ? Long.MIN_VALUE : createdFrom,
+                createdTo == null ? Long.MAX_VALUE : createdTo,
+                after[0], after[1], Limit.of(pageSize + 1));
+
+        if (rows.size() <= pageSize) {
+            return new TransferHistoryPageDTO(rows, null);
+        }
+        List<TransferHistoryView> page = rows.subList(0, pageSize);
+        TransferHistoryView last = page.get(pageSize - 1);
+        return new TransferHistoryPageDTO(page, encodeHistoryCursor(last.getCreatedAt(), last.getId()));
+    }
+
+    static String encodeHistoryCursor(Long createdAt, Long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((createdAt + ":" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static long[] decodeHistoryCursor(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            return new long[]{Long.parseLong(parts[0]), Long.parseLong(parts[1])};
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Nevalidan cursor");
+        }
+    }
 }
 
@@ -0,0 +1,49 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.dto.TransferStatusEventDTO;
+import com.banka1.common.listener.MessageHelper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.activemq.command.ActiveMQTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Publishes transfer status changes to a JMS topic once the transaction that made them commits.
+ * <p>
+ * Transfers are executed and expired on every replica, while a client's SSE stream is open on only one of them.
+ * Every replica consumes the topic (see {@code TransferStatusListener}) and hands the change to its
+ * {@link TransferStatusStreamService}, so the client gets the change wherever it was made. The owner id is not
+ * part of the event's JSON, so it travels as the {@value #OWNER_PROPERTY} message property.
+ */
+@Service
+@Slf4j
+public class TransferStatusPublisher {
+
+    public static final String OWNER_PROPERTY = "ownerId";
+
+    private final JmsTemplate jmsTemplate;
+    private final MessageHelper messageHelper;
+    private final ActiveMQTopic topic;
+
+    public TransferStatusPublisher(JmsTemplate jmsTemplate, MessageHelper messageHelper,
+                                   @Value("${destination.transfer.status}") String destinationTransferStatus) {
+        this.jmsTemplate = jmsTemplate;
+        this.messageHelper = messageHelper;
+        this.topic = new ActiveMQTopic(destinationTransferStatus);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void publish(TransferStatusEventDTO event) {
+        try {
+            jmsTemplate.convertAndSend(topic, messageHelper.createTextMessage(event), message -> {
+                message.setLongProperty(OWNER_PROPERTY, event.getOwnerId());
+                return message;
+            });
+        } catch (RuntimeException e) {
+            // Status je vec sacuvan, klijent ce ga videti pri sledecem ucitavanju liste
+            log.warn("Status {} of transfer {} was not published: {}", event.getStatus(), event.getTransferId(), e.getMessage());
+        }
+    }
+}
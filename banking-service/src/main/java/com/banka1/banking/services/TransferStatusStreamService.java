@@ -0,0 +1,280 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.dto.TransferStatusEventDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes transfer status changes to the owner of the source account over server-sent events, so mobile clients
+ * do not have to poll {@code /mobile-transfers}.
+ * <p>
+ * Status changes reach this service from the transfer status topic (see {@link TransferStatusPublisher}), so every
+ * replica sees every change no matter which replica made it. Every change gets an event id of the form
+ * {@code <start>-<sequence>} and is kept in a bounded ring buffer. A client that reconnects with
+ * {@code Last-Event-ID} gets the changes it missed from the buffer. If they are no longer there (the buffer wrapped,
+ * or the id comes from another replica or before a restart), the client gets a single {@code reset} event and
+ * should reload the transfer list once.
+ * <p>
+ * Events are not written to the clients on the caller's thread. Each subscription has its own queue that is
+ * drained on the {@code transfer.stream.sender-threads} pool, so a slow client only delays itself. A client whose
+ * queue grows past {@code transfer.stream.max-pending} is disconnected and resumes with {@code Last-Event-ID}.
+ */
+@Service
+@Slf4j
+public class TransferStatusStreamService {
+
+    static final String STATUS_EVENT = "transfer-status";
+    static final String RESET_EVENT = "reset";
+
+    private static final long NO_EVENT_ID = Long.MIN_VALUE;
+
+    // Oznake u redu pretplate koje nisu dogadjaji iz bafera
+    private static final Object RESET = new Object();
+    private static final Object HEARTBEAT = new Object();
+
+    private final long emitterTimeoutMs;
+    private final int maxPending;
+    private final Executor senderExecutor;
+    private final String streamId = Long.toString(System.currentTimeMillis());
+    private final StoredEvent[] buffer;
+    private long nextSequence = 1;
+
+    // Menja se samo pod monitorom servisa, zajedno sa baferom
+    private final Map<Long, List<Subscription>> subscriptions = new HashMap<>();
+
+    private record StoredEvent(long sequence, TransferStatusEventDTO event) {
+    }
+
+    private static final class Subscription {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final Queue<Object> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+        // Dira ga samo nit koja prazni red
+        private long lastSentSequence;
+
+        private Subscription(Long userId, SseEmitter emitter, long lastSentSequence) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.lastSentSequence = lastSentSequence;
+        }
+    }
+
+    @Autowired
+    public TransferStatusStreamService(@Value("${transfer.stream.buffer-size:1024}") int bufferSize,
+                                       @Value("${transfer.stream.timeout-ms:1800000}") long emitterTimeoutMs,
+                                       @Value("${transfer.stream.max-pending:256}") int maxPending,
+                                       @Value("${transfer.stream.sender-threads:4}") int senderThreads) {
+        this(bufferSize, emitterTimeoutMs, maxPending, Executors.newFixedThreadPool(Math.max(1, senderThreads), runnable -> {
+            Thread thread = new Thread(runnable, "transfer-stream-sender");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    TransferStatusStreamService(int bufferSize, long emitterTimeoutMs, int maxPending, Executor senderExecutor) {
+        this.buffer = new StoredEvent[bufferSize];
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.maxPending = maxPending;
+        this.senderExecutor = senderExecutor;
+    }
+
+    /**
+     * Opens a stream for the user and replays what was missed since {@code lastEventId}.
+     *
+     * @param userId      owner of the transfers
+     * @param lastEventId value of the {@code Last-Event-ID} header, {@code null} on the first connect
+     */
+    public SseEmitter subscribe(Long userId, String lastEventId) {
+        SseEmitter emitter = newEmitter();
+        long lastSequence = parseSequence(lastEventId);
+        Subscription subscription = new Subscription(userId, emitter, lastSequence);
+
+        // Propusteni dogadjaji i prijava idu pod istim monitorom kao upis u bafer, pa se nijedan dogadjaj ne izgubi
+        synchronized (this) {
+            List<StoredEvent> missed = new ArrayList<>();
+            boolean complete = lastSequence == NO_EVENT_ID || eventsAfter(lastSequence, userId, missed);
+            if (!complete) {
+                enqueue(subscription, RESET);
+            }
+            missed.forEach(stored -> enqueue(subscription, stored));
+            subscriptions.computeIfAbsent(userId, id -> new CopyOnWriteArrayList<>()).add(subscription);
+        }
+
+        emitter.onCompletion(() -> remove(subscription));
+        emitter.onTimeout(() -> remove(subscription));
+        emitter.onError(e -> remove(subscription));
+        return emitter;
+    }
+
+    /**
+     * Stores a status change received from the topic and queues it for the owner's open streams.
+     */
+    public void onStatusChange(TransferStatusEventDTO event) {
+        synchronized (this) {
+            StoredEvent stored = append(event);
+            List<Subscription> userSubscriptions = subscriptions.get(event.getOwnerId());
+            if (userSubscriptions != null) {
+                userSubscriptions.forEach(subscription -> enqueue(subscription, stored));
+            }
+        }
+    }
+
+    /**
+     * Keeps idle connections open through proxies and drops the ones whose client went away.
+     */
+    @Scheduled(fixedRateString = "${transfer.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        List<Subscription> all = new ArrayList<>();
+        synchronized (this) {
+            subscriptions.values().forEach(all::addAll);
+        }
+        all.forEach(subscription -> enqueue(subscription, HEARTBEAT));
+    }
+
+    SseEmitter newEmitter() {
+        return new SseEmitter(emitterTimeoutMs);
+    }
+
+    synchronized int subscriberCount(Long userId) {
+        List<Subscription> userSubscriptions = subscriptions.get(userId);
+        return userSubscriptions == null ? 0 : userSubscriptions.size();
+    }
+
+    private void enqueue(Subscription subscription, Object item) {
+        if (subscription.closed) {
+            return;
+        }
+        if (subscription.pendingCount.incrementAndGet() > maxPending) {
+            close(subscription, new IllegalStateException("Client is too slow, " + maxPending + " events pending"));
+            return;
+        }
+        subscription.pending.add(item);
+        if (subscription.draining.compareAndSet(false, true)) {
+            senderExecutor.execute(() -> drain(subscription));
+        }
+    }
+
+    /**
+     * Sends the queued items of one subscription in order. At most one drain runs per subscription.
+     */
+    private void drain(Subscription subscription) {
+        do {
+            Object item;
+            while ((item = subscription.pending.poll()) != null) {
+                subscription.pendingCount.decrementAndGet();
+                if (subscription.closed) {
+                    continue;
+                }
+                try {
+                    send(subscription, item);
+                } catch (IOException | IllegalStateException e) {
+                    close(subscription, e);
+                }
+            }
+            subscription.draining.set(false);
+        } while (!subscription.pending.isEmpty() && subscription.draining.compareAndSet(false, true));
+    }
+
+    private void send(Subscription subscription, Object item) throws IOException {
+        if (item == HEARTBEAT) {
+            subscription.emitter.send(SseEmitter.event().comment("heartbeat"));
+            return;
+        }
+        if (item == RESET) {
+            subscription.emitter.send(SseEmitter.event().name(RESET_EVENT).data(""));
+            return;
+        }
+        StoredEvent stored = (StoredEvent) item;
+        // Isti dogadjaj moze stici i kroz replay i uzivo, salje se samo jednom
+        if (stored.sequence() <= subscription.lastSentSequence) {
+            return;
+        }
+        subscription.emitter.send(SseEmitter.event()
+                .id(streamId + "-" + stored.sequence())
+                .name(STATUS_EVENT)
+                .data(stored.event()));
+        subscription.lastSentSequence = stored.sequence();
+    }
+
+    private void close(Subscription subscription, Exception cause) {
+        if (subscription.closed) {
+            return;
+        }
+        subscription.closed = true;
+        remove(subscription);
+        log.debug("Transfer status stream of user {} closed: {}", subscription.userId, cause.getMessage());
+        senderExecutor.execute(() -> subscription.emitter.completeWithError(cause));
+    }
+
+    private synchronized void remove(Subscription subscription) {
+        List<Subscription> userSubscriptions = subscriptions.get(subscription.userId);
+        if (userSubscriptions != null && userSubscriptions.remove(subscription) && userSubscriptions.isEmpty()) {
+            subscriptions.remove(subscription.userId);
+        }
+    }
+
+    private StoredEvent append(TransferStatusEventDTO event) {
+        StoredEvent stored = new StoredEvent(nextSequence++, event);
+        buffer[(int) (stored.sequence() % buffer.length)] = stored;
+        return stored;
+    }
+
+    /**
+     * Collects the user's buffered events after {@code lastSequence}. Called under the service monitor.
+     *
+     * @return {@code false} if some events after {@code lastSequence} already fell out of the buffer
+     */
+    private boolean eventsAfter(long lastSequence, Long userId, List<StoredEvent> result) {
+        long newest = nextSequence - 1;
+        long oldest = Math.max(1, newest - buffer.length + 1);
+        if (lastSequence < oldest - 1 || lastSequence > newest) {
+            return false;
+        }
+        for (long sequence = lastSequence + 1; sequence <= newest; sequence++) {
+            StoredEvent stored = buffer[(int) (sequence % buffer.length)];
+            if (userId.equals(stored.event().getOwnerId())) {
+                result.add(stored);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sequence from an event id of this stream, {@link #NO_EVENT_ID} on the first connect and -1 for an id
+     * that this stream cannot resume from.
+     */
+    private long parseSequence(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return NO_EVENT_ID;
+        }
+        int separator = lastEventId.lastIndexOf('-');
+        if (separator < 0 || !lastEventId.substring(0, separator).equals(streamId)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(lastEventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
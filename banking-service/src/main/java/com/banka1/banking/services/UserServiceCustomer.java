@@ -7,19 +7,32 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jms.core.JmsTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.*;
 
 @Service
 @RequiredArgsConstructor
 public class UserServiceCustomer {
     private final JmsTemplate jmsTemplate;
     private final MessageHelper messageHelper;
+    private final CustomerCache customerCache;
 
     @Value("${destination.customer}")
     private String destination;
     @Value("${destination.customer.email}")
     private String destinationEmail;
+    @Value("${destination.customer.by-ids}")
+    private String destinationByIds;
+
+    // Najveci broj id-jeva u jednoj poruci
+    static final int IDS_PER_MESSAGE = 1000;
 
     public CustomerDTO getCustomerById(Long customerId) {
+        CustomerDTO cached = customerCache.get(customerId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long version = customerCache.version();
         var message = jmsTemplate.sendAndReceive(destination, session -> session.createTextMessage(messageHelper.createTextMessage(customerId)));
         CustomerDTO response;
         try {
@@ -32,9 +45,50 @@ public class UserServiceCustomer {
             throw new IllegalArgumentException("Korisnik nije pronađen ili API nije vratio očekivani format.");
         }
 
+        customerCache.put(response, version);
         return response;
     }
 
+    /**
+     * Fetches many customers with one request to user-service instead of one request per id. Customers already in
+     * the near-cache are not requested.
+     *
+     * @return customers by id; ids without a customer are missing from the map
+     */
+    public Map<Long, CustomerDTO> getCustomersByIds(Set<Long> customerIds) {
+        Map<Long, CustomerDTO> customers = new HashMap<>();
+        List<Long> ids = new ArrayList<>();
+        for (Long customerId : customerIds) {
+            CustomerDTO cached = customerCache.get(customerId);
+            if (cached != null) {
+                customers.put(customerId, cached);
+            } else {
+                ids.add(customerId);
+            }
+        }
+
+        long version = customerCache.version();
+        for (int from = 0; from < ids.size(); from += IDS_PER_MESSAGE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + IDS_PER_MESSAGE, ids.size()));
+            var message = jmsTemplate.sendAndReceive(destinationByIds, session -> session.createTextMessage(messageHelper.createTextMessage(chunk)));
+            CustomerDTO[] response;
+            try {
+                response = messageHelper.getMessage(message, CustomerDTO[].class);
+            } catch (JMSException e) {
+                throw new RuntimeException(e);
+            }
+
+            if (response == null) {
+                throw new IllegalArgumentException("Korisnici nisu pronađeni ili API nije vratio očekivani format.");
+            }
+            for (CustomerDTO customer : response) {
+                customers.put(customer.getId(), customer);
+                customerCache.put(customer, version);
+            }
+        }
+        return customers;
+    }
+
     public CustomerDTO getCustomerByEmail(String email){
         var message = jmsTemplate.sendAndReceive(destinationEmail, session -> session.createTextMessage(messageHelper.createTextMessage(destinationEmail)));
         CustomerDTO response;
@@ -0,0 +1,45 @@
+package com.banka1.banking.services.implementation;
+
+import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.services.RateProvider;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+// Kursna lista sa javnog currency API-ja, jedan HTTP poziv po baznoj valuti
+@Service
+@ConditionalOnProperty(name = "exchange-rate.provider", havingValue = "cdn", matchIfMissing = true)
+public class CdnRateProvider implements RateProvider {
+
+    private final RestTemplate restTemplate;
+    private final String baseUrl;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public CdnRateProvider(RestTemplate restTemplate,
+                           @Value("${exchange-rate.cdn-url:https://cdn.jsdelivr.net/npm/@fawazahmed0/currency-api@latest/v1/currencies/}") String baseUrl) {
+        this.restTemplate = restTemplate;
+        this.baseUrl = baseUrl;
+    }
+
+    @Override
+    public Map<CurrencyType, Double> fetchRates(CurrencyType base) {
+        String code = base.name().toLowerCase();
+        String jsonResponse = restTemplate.getForObject(baseUrl + code + ".json", String.class);
+        if (jsonResponse == null) {
+            return null;
+        }
+        try {
+            JsonNode root = objectMapper.readTree(jsonResponse);
+            return RateProvider.parseRates(root.get(code), base);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.banka1.banking.services.implementation;
+
+import com.banka1.banking.models.Account;
+import com.banka1.banking.models.helper.TransactionDirection;
+import com.banka1.banking.repository.projection.TransactionHistoryView;
+import com.banka1.banking.services.StatementWriter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+public class CsvStatementWriter implements StatementWriter {
+
+    private static final String HEADER = "id,timestamp,direction,counterpartAccountNumber,counterpartName," +
+            "amount,fee,finalAmount,currency,description";
+
+    private final Writer writer;
+    private final DateTimeFormatter dateFormat;
+
+    public CsvStatementWriter(OutputStream out, ZoneId zone) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        this.dateFormat = DateTimeFormatter.ISO_OFFSET_DATE_TIME.withZone(zone);
+    }
+
+    @Override
+    public void begin(Account account, Long timestampFrom, Long timestampTo) throws IOException {
+        writer.write(HEADER);
+        writer.write("\r\n");
+    }
+
+    @Override
+    public void row(TransactionHistoryView transaction, boolean outgoing, String counterpartName) throws IOException {
+        writer.write(String.valueOf(transaction.getId()));
+        writer.write(',');
+        writer.write(dateFormat.format(Instant.ofEpochMilli(transaction.getTimestamp())));
+        writer.write(',');
+        writer.write((outgoing ? TransactionDirection.OUTGOING : TransactionDirection.INCOMING).name());
+        writer.write(',');
+        writer.write(field(outgoing ? transaction.getToAccountNumber() : transaction.getFromAccountNumber()));
+        writer.write(',');
+        writer.write(field(counterpartName));
+        writer.write(',');
+        writer.write(amount(transaction.getAmount()));
+        writer.write(',');
+        writer.write(amount(transaction.getFee()));
+        writer.write(',');
+        writer.write(amount(transaction.getFinalAmount()));
+        writer.write(',');
+        writer.write(transaction.getCurrency() == null ? "" : transaction.getCurrency().name());
+        writer.write(',');
+        writer.write(field(transaction.getDescription()));
+        writer.write("\r\n");
+    }
+
+    @Override
+    public void endChunk() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writer.flush();
+    }
+
+    static String amount(Double value) {
+        return value == null ? "" : String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    /**
+     * Navodnici po RFC 4180; tekst koji počinje znakom formule dobija apostrof da ga tabela ne bi izvršila.
+     */
+    static String field(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        if ("=+-@".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+}
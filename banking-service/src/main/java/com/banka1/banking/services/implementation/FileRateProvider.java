@@ -0,0 +1,40 @@
+package com.banka1.banking.services.implementation;
+
+import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.services.RateProvider;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+// Kursna lista iz lokalnog fajla, za testove i rad bez interneta.
+// Fajl je objekat po baznim valutama u formatu currency API-ja: {"rsd": {"eur": 0.0085, ...}, "eur": {"rsd": 117.2}}
+@Service
+@ConditionalOnProperty(name = "exchange-rate.provider", havingValue = "file")
+public class FileRateProvider implements RateProvider {
+
+    private final Resource file;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public FileRateProvider(@Value("${exchange-rate.provider-file:classpath:exchange-rates.json}") Resource file) {
+        this.file = file;
+    }
+
+    @Override
+    public Map<CurrencyType, Double> fetchRates(CurrencyType base) {
+        // Fajl se cita pri svakom osvezavanju, pa izmena kurseva ne trazi restart
+        try (InputStream input = file.getInputStream()) {
+            JsonNode root = objectMapper.readTree(input);
+            return RateProvider.parseRates(root.get(base.name().toLowerCase()), base);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.banka1.banking.services.implementation;
+
+import com.banka1.banking.models.Account;
+import com.banka1.banking.repository.projection.TransactionHistoryView;
+import com.banka1.banking.services.StatementWriter;
+import com.lowagie.text.*;
+import com.lowagie.text.pdf.BaseFont;
+import com.lowagie.text.pdf.PdfPCell;
+import com.lowagie.text.pdf.PdfPTable;
+import com.lowagie.text.pdf.PdfWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Izvod kao PDF tabela. Svaki deo redova se dodaje kao posebna tabela sa ponovljenim zaglavljem, pa se završene
+ * strane odmah upisuju u izlaz i u memoriji ostaje samo strana koja se trenutno slaže.
+ */
+public class PdfStatementWriter implements StatementWriter {
+
+    private static final String[] COLUMNS = {"Datum", "Smer", "Račun druge strane", "Druga strana", "Opis", "Iznos", "Provizija", "Konačan iznos", "Valuta"};
+    private static final float[] WIDTHS = {14, 7, 16, 14, 20, 9, 7, 9, 5};
+
+    private final Document document = new Document(PageSize.A4.rotate(), 28, 28, 28, 28);
+    private final OutputStream out;
+    private final DateTimeFormatter dateFormat;
+    private Font font;
+    private Font headerFont;
+    private PdfPTable table;
+
+    public PdfStatementWriter(OutputStream out, ZoneId zone) {
+        this.out = out;
+        this.dateFormat = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm").withZone(zone);
+    }
+
+    @Override
+    public void begin(Account account, Long timestampFrom, Long timestampTo) throws IOException {
+        try {
+            // Cp1250 pokriva č, ć, đ, š i ž bez ugrađivanja fonta
+            BaseFont baseFont = BaseFont.createFont(BaseFont.HELVETICA, BaseFont.CP1250, BaseFont.NOT_EMBEDDED);
+            BaseFont boldFont = BaseFont.createFont(BaseFont.HELVETICA_BOLD, BaseFont.CP1250, BaseFont.NOT_EMBEDDED);
+            font = new Font(baseFont, 8);
+            headerFont = new Font(boldFont, 8);
+
+            // Izlazni tok zatvara Spring posle odgovora
+            PdfWriter.getInstance(document, out).setCloseStream(false);
+            document.open();
+            document.add(new Paragraph("Izvod za račun " + account.getAccountNumber(), new Font(boldFont, 14)));
+            document.add(new Paragraph("Period: " + (timestampFrom == null ? "od otvaranja računa" : "od " + date(timestampFrom))
+                    + (timestampTo == null ? " do danas" : " do " + date(timestampTo)), new Font(baseFont, 10)));
+            document.add(Chunk.NEWLINE);
+        } catch (DocumentException e) {
+            throw new IOException("Izvod nije mogao da se napravi", e);
+        }
+        table = newTable();
+    }
+
+    @Override
+    public void row(TransactionHistoryView transaction, boolean outgoing, String counterpartName) {
+        cell(date(transaction.getTimestamp()), Element.ALIGN_LEFT);
+        cell(outgoing ? "Odlazna" : "Dolazna", Element.ALIGN_LEFT);
+        cell(outgoing ? transaction.getToAccountNumber() : transaction.getFromAccountNumber(), Element.ALIGN_LEFT);
+        cell(counterpartName, Element.ALIGN_LEFT);
+        cell(transaction.getDescription(), Element.ALIGN_LEFT);
+        cell(CsvStatementWriter.amount(transaction.getAmount()), Element.ALIGN_RIGHT);
+        cell(CsvStatementWriter.amount(transaction.getFee()), Element.ALIGN_RIGHT);
+        cell(CsvStatementWriter.amount(transaction.getFinalAmount()), Element.ALIGN_RIGHT);
+        cell(transaction.getCurrency() == null ? null : transaction.getCurrency().name(), Element.ALIGN_LEFT);
+    }
+
+    @Override
+    public void endChunk() throws IOException {
+        if (table.getRows().size() <= table.getHeaderRows()) {
+            return;
+        }
+        try {
+            document.add(table);
+        } catch (DocumentException e) {
+            throw new IOException("Izvod nije mogao da se napravi", e);
+        }
+        out.flush();
+        table = newTable();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        endChunk();
+        document.close();
+    }
+
+    private PdfPTable newTable() {
+        PdfPTable newTable = new PdfPTable(WIDTHS);
+        newTable.setWidthPercentage(100);
+        newTable.setHeaderRows(1);
+        newTable.setSplitLate(false);
+        for (String column : COLUMNS) {
+            PdfPCell cell = new PdfPCell(new Phrase(column, headerFont));
+            cell.setGrayFill(0.9f);
+            newTable.addCell(cell);
+        }
+        return newTable;
+    }
+
+    private void cell(String text, int alignment) {
+        PdfPCell cell = new PdfPCell(new Phrase(text == null ? "" : text, font));
+        cell.setHorizontalAlignment(alignment);
+        table.addCell(cell);
+    }
+
+    private String date(Long timestamp) {
+        return dateFormat.format(Instant.ofEpochMilli(timestamp));
+    }
+}
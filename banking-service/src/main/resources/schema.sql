@@ -120,13 +120,55 @@ create table exchange_pair
     base_currency_id   bigint           not null
         constraint fkkg59kymnfgyny7rsqufplwun4
             references currency,
-    id                 bigint generated by default as identity
+    id                 bigint generated by default as identity (increment by 50)
         primary key,
     target_currency_id bigint           not null
         constraint fkef7bcvui45w4576jmvspq8u9h
-            references currency
+            references currency,
+    generation         bigint           not null
+);
+
+create index if not exists idx_exchange_pair_generation on exchange_pair (generation, base_currency_id);
+
+drop table if exists exchange_rate_generation cascade;
+create table exchange_rate_generation
+(
+    id         bigint generated by default as identity
+        primary key,
+    created_at bigint  not null,
+    active     boolean not null default false
+);
+
+drop table if exists exchange_rate_history cascade;
+create table exchange_rate_history
+(
+    base_currency   char(3)          not null,
+    target_currency char(3)          not null,
+    recorded_at     bigint           not null,
+    exchange_rate   double precision not null,
+    primary key (base_currency, target_currency, recorded_at)
+) partition by range (recorded_at);
+
+-- Mesecne particije pravi aplikacija pri prvom upisu u mesec; ovde zavrsava samo ono za sta particija nije napravljena
+create table exchange_rate_history_default partition of exchange_rate_history default;
+
+drop table if exists exchange_quote cascade;
+create table exchange_quote
+(
+    id            varchar(36)      not null
+        primary key,
+    user_id       bigint           not null,
+    from_currency varchar(3)       not null,
+    to_currency   varchar(3)       not null,
+    amount        double precision not null,
+    final_amount  double precision not null,
+    fee           double precision not null,
+    provision     double precision not null,
+    expires_at    bigint           not null
 );
 
+create index if not exists idx_exchange_quote_expires_at on exchange_quote (expires_at);
+
 
 drop table if exists loan cascade;
 create table loan
@@ -201,13 +243,14 @@ create table transfer
     amount              double precision not null,
     completed_at        bigint,
     created_at          bigint,
+    queued_at           bigint,
     from_account_id     bigint           not null
         constraint fkfbrtpigqywdcc6e64ichki73j
             references account,
     from_currency_id    bigint           not null
         constraint fkc6agh3nies7d6f97aapxdhg06
             references currency,
-    id                  bigint generated by default as identity
+    id                  bigint generated by default as identity (increment by 50)
         primary key,
     to_account_id       bigint           not null
         constraint fkrppn0djf9uip7gj308swxq54j
@@ -223,10 +266,17 @@ create table transfer
     payment_reference   varchar(255),
     receiver            varchar(255),
     status              varchar(255),
+    batch_id            varchar(36),
+    standing_order_id   bigint,
+    from_owner_id       bigint,
+    quote_id            varchar(36),
+    quoted_final_amount double precision,
+    quoted_fee          double precision,
+    quoted_provision    double precision,
     saved_receiver_id   bigint
         constraint transfer_status_check
             check ((status)::text = ANY
-        ((ARRAY ['PENDING':: character varying, 'COMPLETED':: character varying, 'CANCELLED':: character varying, 'FAILED':: character varying])::text[])
+        ((ARRAY ['PENDING':: character varying, 'QUEUED':: character varying, 'COMPLETED':: character varying, 'CANCELLED':: character varying, 'FAILED':: character varying])::text[])
 ) ,
     type                varchar(255)
         constraint transfer_type_check
@@ -234,6 +284,14 @@ create table transfer
                    ((ARRAY ['INTERNAL'::character varying, 'EXTERNAL'::character varying, 'EXCHANGE'::character varying, 'FOREIGN'::character varying])::text[]))
 );
 
+create index if not exists idx_transfer_batch_id on transfer (batch_id);
+create index if not exists idx_transfer_status_created_at on transfer (status, created_at);
+-- Transferi koji su predugo u redu bez izvrsenja ponovo se salju
+create index if not exists idx_transfer_queued_at on transfer (queued_at) where status = 'QUEUED';
+-- Transferi trajnih naloga koji nisu poslati na izvrsenje ponovo se salju
+create index if not exists idx_transfer_standing_order_pending on transfer (created_at) where status = 'PENDING' and standing_order_id is not null;
+create index if not exists idx_transfer_owner_history on transfer (from_owner_id, created_at desc, id desc) include (status, type);
+
 
 drop table if exists transaction cascade;
 create table transaction
@@ -248,18 +306,141 @@ create table transaction
     from_account_id bigint           not null
         constraint fkrff4jlxetafju1e5cks5mfcnk
             references account,
-    id              bigint generated by default as identity
+    id              bigint generated by default as identity (increment by 50)
         primary key,
     timestamp       bigint           not null,
     to_account_id   bigint           not null
         constraint fkluqt8k2pa8d4gmggx4rhl5vgv
             references account,
-    transfer_id     bigint           not null
+    transfer_id     bigint
         constraint fk219909wacaej3s32ttmue0irq
             references transfer,
     description     varchar(255)
 );
 
+create index if not exists idx_transaction_from_account_history on transaction (from_account_id, timestamp desc, id desc);
+create index if not exists idx_transaction_to_account_history on transaction (to_account_id, timestamp desc, id desc);
+
+
+drop table if exists ledger_entry cascade;
+create table ledger_entry
+(
+    id            bigint generated by default as identity (increment by 50)
+        primary key,
+    account_id    bigint           not null
+        references account,
+    currency_type varchar(255)     not null,
+    amount        double precision not null,
+    transfer_id   bigint
+        references transfer,
+    description   varchar(255),
+    created_at    bigint           not null,
+    -- Podracun (shard) racuna banke na koji je knjizenje palo; racuni klijenata imaju samo podracun 0
+    shard         integer          not null default 0,
+    -- Transakcija baze koja je upisala knjizenje; granica snapshot-a ide po njoj, ne po vremenu upisa
+    tx_id         bigint           not null default cast(cast(pg_current_xact_id() as text) as bigint)
+);
+
+create index if not exists idx_ledger_entry_account_tx on ledger_entry (account_id, tx_id);
+create index if not exists idx_ledger_entry_account_shard_tx on ledger_entry (account_id, shard, tx_id);
+
+-- Podracuni racuna banke: redovi koji se zakljucavaju umesto reda racuna kada se sa racuna banke skida novac
+drop table if exists house_account_shard cascade;
+create table house_account_shard
+(
+    account_id bigint  not null
+        references account,
+    shard      integer not null,
+    primary key (account_id, shard)
+);
+
+drop table if exists balance_snapshot cascade;
+create table balance_snapshot
+(
+    id           bigint generated by default as identity
+        primary key,
+    account_id   bigint           not null
+        references account,
+    shard        integer          not null default 0,
+    balance      double precision not null,
+    tx_watermark bigint           not null,
+    as_of        bigint           not null
+);
+
+create index if not exists idx_balance_snapshot_account_tx on balance_snapshot (account_id, tx_watermark);
+
+-- Mesecni obracun odrzavanja racuna i kamate: jedan red po mesecu i po jedan red za svaki obradjeni deo racuna
+drop table if exists month_end_checkpoint cascade;
+drop table if exists month_end_run cascade;
+create table month_end_run
+(
+    period         varchar(7) not null
+        primary key,
+    chunk_size     integer    not null,
+    max_account_id bigint     not null,
+    started_at     bigint     not null,
+    finished_at    bigint
+);
+
+create table month_end_checkpoint
+(
+    period       varchar(7) not null
+        references month_end_run,
+    chunk_start  bigint     not null,
+    postings     integer    not null default 0,
+    processed_at bigint     not null,
+    primary key (period, chunk_start)
+);
+
+drop table if exists standing_order cascade;
+create table standing_order
+(
+    id                  bigint generated by default as identity
+        primary key,
+    owner_id            bigint           not null,
+    from_account_id     bigint           not null
+        references account,
+    to_account_id       bigint           not null
+        references account,
+    amount              double precision not null,
+    receiver            varchar(255),
+    adress              varchar(255),
+    payment_code        varchar(255),
+    payment_reference   varchar(255),
+    payment_description varchar(255),
+    cron                varchar(255)     not null,
+    end_date            bigint,
+    next_scheduled_at   bigint           not null,
+    next_run_at         bigint           not null,
+    status              varchar(255)     not null
+        constraint standing_order_status_check
+            check ((status)::text = ANY
+                   ((ARRAY ['ACTIVE'::character varying, 'CANCELLED'::character varying, 'FINISHED'::character varying])::text[])),
+    last_run_at         bigint,
+    last_transfer_id    bigint,
+    created_at          bigint           not null
+);
+
+-- Samo aktivni nalozi ulaze u indeks, pa scheduler cita dospele naloge bez skeniranja cele tabele
+create index if not exists idx_standing_order_due on standing_order (next_run_at) where status = 'ACTIVE';
+create index if not exists idx_standing_order_owner on standing_order (owner_id, status);
+
+drop table if exists idempotency_record cascade;
+create table idempotency_record
+(
+    id              bigint generated by default as identity
+        primary key,
+    user_id         bigint       not null,
+    idempotency_key varchar(255) not null,
+    endpoint        varchar(255) not null,
+    request_hash    varchar(64)  not null,
+    status_code     integer,
+    response_body   text,
+    created_at      bigint       not null,
+    constraint uk_idempotency_record_user_key_endpoint unique (user_id, idempotency_key, endpoint)
+);
+
+create index if not exists idx_idempotency_record_created_at on idempotency_record (created_at);
 
 drop table if exists installment cascade;
 create table installment
@@ -1,29 +1,37 @@
 package com.banka1.banking;
 
 import com.banka1.banking.dto.ExchangePairDTO;
+import com.banka1.banking.dto.ExchangeRateCandleDTO;
 import com.banka1.banking.models.Currency;
 import com.banka1.banking.models.ExchangePair;
+import com.banka1.banking.models.ExchangeRateGeneration;
 import com.banka1.banking.models.helper.CurrencyType;
-import com.banka1.banking.repository.CurrencyRepository;
+import com.banka1.banking.models.helper.RateHistoryInterval;
 import com.banka1.banking.repository.ExchangePairRepository;
+import com.banka1.banking.repository.ExchangeRateGenerationRepository;
+import com.banka1.banking.repository.ExchangeRateHistoryRepository;
+import com.banka1.banking.services.CurrencyCache;
 import com.banka1.banking.services.CurrencyService;
+import com.banka1.banking.services.ExchangeRateService;
+import com.banka1.banking.services.RateProvider;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.web.client.RestTemplate;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,10 +41,19 @@ class CurrencyServiceTest {
     private ExchangePairRepository exchangePairRepository;
 
     @Mock
-    private CurrencyRepository currencyRepository;
+    private CurrencyCache currencyCache;
 
     @Mock
-    private RestTemplate restTemplate;
+    private RateProvider rateProvider;
+
+    @Mock
+    private ExchangeRateService exchangeRateService;
+
+    @Mock
+    private ExchangeRateGenerationRepository exchangeRateGenerationRepository;
+
+    @Mock
+    private ExchangeRateHistoryRepository exchangeRateHistoryRepository;
 
     @InjectMocks
     private CurrencyService currencyService;
@@ -51,8 +68,8 @@ class CurrencyServiceTest {
         );
 
         // Simulacija API poziva
-        when(restTemplate.getForObject(eq("https://cdn.jsdelivr.net/npm/@fawazahmed0/currency-api@latest/v1/currencies/rsd.json"), eq(String.class)))
-                .thenReturn("{\"rsd\":{\"eur\":117.3,\"usd\":108.5}}");
+        when(rateProvider.fetchRates(CurrencyType.RSD))
+                .thenReturn(Map.of(CurrencyType.EUR, 117.3, CurrencyType.USD, 108.5));
 
         // Mock baze valuta
         Currency rsd = new Currency();
@@ -64,25 +81,118 @@ class CurrencyServiceTest {
         Currency usd = new Currency();
         usd.setCode(CurrencyType.USD);
 
-        when(currencyRepository.findByCode(CurrencyType.RSD)).thenReturn(Optional.of(rsd));
-        when(currencyRepository.findByCode(CurrencyType.EUR)).thenReturn(Optional.of(eur));
-        when(currencyRepository.findByCode(CurrencyType.USD)).thenReturn(Optional.of(usd));
+        when(currencyCache.getAll()).thenReturn(Map.of(CurrencyType.RSD, rsd, CurrencyType.EUR, eur, CurrencyType.USD, usd));
+        when(exchangeRateGenerationRepository.save(any(ExchangeRateGeneration.class))).thenAnswer(invocation -> {
+            ExchangeRateGeneration generation = invocation.getArgument(0);
+            generation.setId(7L);
+            return generation;
+        });
+        when(exchangeRateGenerationRepository.activate(7L)).thenReturn(1);
 
         // Poziv testirane metode
         currencyService.fetchExchangeRates();
 
-        // Provera da li su kursni parovi sačuvani u bazi
-        verify(exchangePairRepository, times(1)).save(argThat(pair ->
+        // Provera da su kursni parovi nove generacije sačuvani jednim pozivom i da je generacija aktivirana
+        ArgumentCaptor<List<ExchangePair>> captor = ArgumentCaptor.forClass(List.class);
+        verify(exchangePairRepository).saveAll(captor.capture());
+        List<ExchangePair> pairs = captor.getValue();
+        assertEquals(2, pairs.size());
+        assertTrue(pairs.stream().allMatch(pair -> pair.getGeneration() == 7L));
+        assertTrue(pairs.stream().anyMatch(pair ->
                 pair.getBaseCurrency().getCode() == CurrencyType.RSD &&
                         pair.getTargetCurrency().getCode() == CurrencyType.EUR &&
                         pair.getExchangeRate() == 117.3
         ));
-
-        verify(exchangePairRepository, times(1)).save(argThat(pair ->
+        assertTrue(pairs.stream().anyMatch(pair ->
                 pair.getBaseCurrency().getCode() == CurrencyType.RSD &&
                         pair.getTargetCurrency().getCode() == CurrencyType.USD &&
                         pair.getExchangeRate() == 108.5
         ));
+
+        InOrder inOrder = inOrder(exchangePairRepository, exchangeRateGenerationRepository, exchangeRateService);
+        inOrder.verify(exchangePairRepository).saveAll(anyList());
+        inOrder.verify(exchangeRateGenerationRepository).activate(7L);
+        verify(exchangeRateHistoryRepository).recordGeneration(eq(7L), anyLong());
+        inOrder.verify(exchangeRateService).reload();
+        verify(exchangePairRepository, never()).deleteAll();
+        verify(exchangePairRepository, timeout(1000)).deleteInactiveGenerations();
+    }
+
+    @Test
+    @DisplayName("Test: fetchExchangeRates() - Neuspelo preuzimanje zadržava kurseve prethodne liste")
+    void testFetchExchangeRates_FailedBaseKeepsPreviousRates() {
+        when(rateProvider.fetchRates(CurrencyType.RSD)).thenReturn(Map.of(CurrencyType.EUR, 117.3));
+        when(rateProvider.fetchRates(CurrencyType.EUR)).thenThrow(new IllegalStateException("Read timed out"));
+
+        Currency rsd = new Currency();
+        rsd.setCode(CurrencyType.RSD);
+        Currency eur = new Currency();
+        eur.setCode(CurrencyType.EUR);
+        when(currencyCache.getAll()).thenReturn(Map.of(CurrencyType.RSD, rsd, CurrencyType.EUR, eur));
+
+        ExchangePair previous = new ExchangePair();
+        previous.setBaseCurrency(eur);
+        previous.setTargetCurrency(rsd);
+        previous.setExchangeRate(0.0085);
+        previous.setDate(LocalDate.now().minusDays(1));
+        previous.setGeneration(6L);
+        when(exchangePairRepository.findActiveByBaseCurrencyCode(CurrencyType.EUR)).thenReturn(List.of(previous));
+        when(exchangeRateGenerationRepository.save(any(ExchangeRateGeneration.class))).thenAnswer(invocation -> {
+            ExchangeRateGeneration generation = invocation.getArgument(0);
+            generation.setId(7L);
+            return generation;
+        });
+
+        currencyService.fetchExchangeRates();
+
+        ArgumentCaptor<List<ExchangePair>> captor = ArgumentCaptor.forClass(List.class);
+        verify(exchangePairRepository).saveAll(captor.capture());
+        assertEquals(2, captor.getValue().size());
+        assertTrue(captor.getValue().stream().anyMatch(pair ->
+                pair.getBaseCurrency().getCode() == CurrencyType.EUR && pair.getExchangeRate() == 0.0085 && pair.getGeneration() == 7L));
+        verify(exchangeRateGenerationRepository).activate(7L);
+    }
+
+    @Test
+    @DisplayName("Test: getExchangeRateHistory() - Istorija para sažeta po intervalu")
+    void testGetExchangeRateHistory_DirectPair() {
+        ExchangeRateCandleDTO candle = new ExchangeRateCandleDTO(1_000L, 117.1, 117.4, 117.0, 117.3, 7L);
+        when(exchangeRateHistoryRepository.findCandles(CurrencyType.EUR, CurrencyType.RSD, 0L, 5_000L, RateHistoryInterval.WEEK))
+                .thenReturn(List.of(candle));
+
+        List<ExchangeRateCandleDTO> result = currencyService.getExchangeRateHistory(CurrencyType.EUR, CurrencyType.RSD, 0L, 5_000L, RateHistoryInterval.WEEK);
+
+        assertEquals(List.of(candle), result);
+        verify(exchangeRateHistoryRepository, never()).findCandles(eq(CurrencyType.RSD), any(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("Test: getExchangeRateHistory() - Par bez sopstvene istorije se računa iz suprotnog para")
+    void testGetExchangeRateHistory_ReversePair() {
+        when(exchangeRateHistoryRepository.findCandles(CurrencyType.EUR, CurrencyType.RSD, 0L, 5_000L, RateHistoryInterval.DAY))
+                .thenReturn(List.of());
+        when(exchangeRateHistoryRepository.findCandles(CurrencyType.RSD, CurrencyType.EUR, 0L, 5_000L, RateHistoryInterval.DAY))
+                .thenReturn(List.of(new ExchangeRateCandleDTO(1_000L, 0.01, 0.02, 0.005, 0.008, 2L)));
+
+        List<ExchangeRateCandleDTO> result = currencyService.getExchangeRateHistory(CurrencyType.EUR, CurrencyType.RSD, 0L, 5_000L, null);
+
+        assertEquals(1, result.size());
+        ExchangeRateCandleDTO candle = result.get(0);
+        assertEquals(100.0, candle.getOpen(), 1e-9);
+        assertEquals(200.0, candle.getHigh(), 1e-9);
+        assertEquals(50.0, candle.getLow(), 1e-9);
+        assertEquals(125.0, candle.getClose(), 1e-9);
+        assertEquals(2L, candle.getSamples());
+    }
+
+    @Test
+    @DisplayName("Test: getExchangeRateHistory() - Nevalidan period ili par")
+    void testGetExchangeRateHistory_InvalidRange() {
+        assertThrows(IllegalArgumentException.class,
+                () -> currencyService.getExchangeRateHistory(CurrencyType.EUR, CurrencyType.RSD, 5_000L, 1_000L, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> currencyService.getExchangeRateHistory(CurrencyType.EUR, CurrencyType.EUR, null, null, null));
+        verifyNoInteractions(exchangeRateHistoryRepository);
     }
 
     @Test
@@ -101,7 +211,7 @@ class CurrencyServiceTest {
         eurToUsd.setExchangeRate(1.1);
         eurToUsd.setDate(LocalDate.now());
 
-        when(exchangePairRepository.findByBaseCurrencyCode(CurrencyType.EUR))
+        when(exchangePairRepository.findActiveByBaseCurrencyCode(CurrencyType.EUR))
                 .thenReturn(List.of(eurToUsd));
 
         // Poziv metode
@@ -124,7 +234,7 @@ class CurrencyServiceTest {
         Currency usd = new Currency();
         usd.setCode(CurrencyType.USD);
 
-        when(currencyRepository.findAll()).thenReturn(List.of(eur, usd));
+        when(currencyCache.getAll()).thenReturn(Map.of(CurrencyType.EUR, eur, CurrencyType.USD, usd));
 
         // Poziv metode
         List<String> result = currencyService.getAvailableCurrencies();
@@ -151,7 +261,7 @@ class CurrencyServiceTest {
         pair.setExchangeRate(117.3);
         pair.setDate(LocalDate.now());
 
-        when(exchangePairRepository.findAll()).thenReturn(List.of(pair));
+        when(exchangePairRepository.findActive()).thenReturn(List.of(pair));
 
         // Poziv metode
         List<ExchangePairDTO> result = currencyService.getAllExchangeRates();
@@ -167,13 +277,14 @@ class CurrencyServiceTest {
     @DisplayName("Test: fetchExchangeRates() - API vraća prazan odgovor")
     void testFetchExchangeRates_EmptyResponse() {
         // Simulacija praznog API odgovora
-        when(restTemplate.getForObject(eq("https://cdn.jsdelivr.net/npm/@fawazahmed0/currency-api@latest/v1/currencies/rsd.json"), eq(String.class)))
-                .thenReturn("{\"rsd\":{}}");
+        when(rateProvider.fetchRates(CurrencyType.RSD)).thenReturn(Map.of());
 
         // Pokretanje metode
         currencyService.fetchExchangeRates();
 
-        // Provera da se ništa ne čuva u bazi jer API nije vratio podatke
-        verify(exchangePairRepository, never()).save(any(ExchangePair.class));
+        // Provera da se ništa ne čuva u bazi jer API nije vratio podatke, a aktivna lista se ipak učitava iz baze
+        verify(exchangePairRepository, never()).saveAll(anyList());
+        verify(exchangeRateGenerationRepository, never()).activate(anyLong());
+        verify(exchangeRateService).reload();
     }
 }
@@ -0,0 +1,77 @@
+package com.banka1.banking.benchmark;
+
+import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.models.helper.Money;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares the exchange arithmetic done with boxed {@code Double} (as the services did before) against
+ * {@link Money}: convert, take a 1% fee, subtract it and add the result to a running balance.
+ * <p>
+ * This is a warmed-up loop rather than a JMH harness, so treat the numbers as relative. It also prints how far
+ * the {@code Double} balance drifted from the exact one. Runs only when {@code BENCHMARK_MONEY} is set:
+ * <pre>
+ * BENCHMARK_MONEY=1 ./gradlew :banking-service:test --tests '*MoneyArithmeticBenchmark'
+ * </pre>
+ */
+@EnabledIfEnvironmentVariable(named = "BENCHMARK_MONEY", matches = ".+")
+class MoneyArithmeticBenchmark {
+
+    private static final int OPERATIONS = 5_000_000;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+    private static final double RATE = 1 / 117.2332942555686;
+
+    private final double[] amounts = ThreadLocalRandom.current().doubles(OPERATIONS, 1, 100_000)
+            .map(amount -> Math.round(amount * 100) / 100.0)
+            .toArray();
+
+    @Test
+    void compareDoubleWithMoney() {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            boxedDouble();
+            money();
+        }
+
+        long doubleNanos = 0;
+        long moneyNanos = 0;
+        Double doubleBalance = null;
+        Money moneyBalance = null;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            doubleBalance = boxedDouble();
+            doubleNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            moneyBalance = money();
+            moneyNanos += System.nanoTime() - start;
+        }
+
+        System.out.printf("Double: %6.2f ns/op, balance %.6f%n", (double) doubleNanos / MEASURED_ROUNDS / OPERATIONS, doubleBalance);
+        System.out.printf("Money:  %6.2f ns/op, balance %s%n", (double) moneyNanos / MEASURED_ROUNDS / OPERATIONS, moneyBalance);
+    }
+
+    private Double boxedDouble() {
+        Double balance = 0.0;
+        for (double value : amounts) {
+            Double amount = value;
+            Double converted = amount * RATE;
+            Double fee = converted * 0.01;
+            balance = balance + (converted - fee);
+        }
+        return balance;
+    }
+
+    private Money money() {
+        long balance = 0;
+        for (double value : amounts) {
+            Money converted = Money.of(value, CurrencyType.RSD).convert(RATE, CurrencyType.EUR);
+            Money fee = converted.times(0.01);
+            balance += converted.minus(fee).getMinorUnits();
+        }
+        return Money.ofMinor(balance, CurrencyType.EUR);
+    }
+}
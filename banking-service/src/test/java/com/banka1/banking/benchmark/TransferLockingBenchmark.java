@@ -0,0 +1,166 @@
+package com.banka1.banking.benchmark;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the old SERIALIZABLE read-modify-write transfer path against ordered
+ * {@code SELECT ... FOR UPDATE} at READ COMMITTED, on a small set of hot accounts.
+ * <p>
+ * Needs a throwaway PostgreSQL database, so it only runs when {@code BENCHMARK_JDBC_URL} is set:
+ * <pre>
+ * BENCHMARK_JDBC_URL=jdbc:postgresql://localhost:5432/bench BENCHMARK_JDBC_USER=postgres \
+ * BENCHMARK_JDBC_PASSWORD=postgres ./gradlew :banking-service:test --tests '*TransferLockingBenchmark'
+ * </pre>
+ */
+@EnabledIfEnvironmentVariable(named = "BENCHMARK_JDBC_URL", matches = ".+")
+class TransferLockingBenchmark {
+
+    private static final int ACCOUNTS = 8;
+    private static final int THREADS = 16;
+    private static final int TRANSFERS_PER_THREAD = 250;
+    private static final int MAX_ATTEMPTS = 5;
+
+    private final String url = System.getenv("BENCHMARK_JDBC_URL");
+    private final String user = System.getenv().getOrDefault("BENCHMARK_JDBC_USER", "postgres");
+    private final String password = System.getenv().getOrDefault("BENCHMARK_JDBC_PASSWORD", "postgres");
+
+    @Test
+    void compareSerializableWithOrderedLocking() throws Exception {
+        Result serializable = run(this::serializableTransfer);
+        Result ordered = run(this::orderedLockTransfer);
+
+        System.out.printf("SERIALIZABLE read-modify-write:   %8.1f transfers/sec, %d failed, %d retries%n",
+                serializable.throughput(), serializable.failed(), serializable.retries());
+        System.out.printf("READ COMMITTED + ordered locks:   %8.1f transfers/sec, %d failed, %d retries%n",
+                ordered.throughput(), ordered.failed(), ordered.retries());
+    }
+
+    private Result run(TransferStrategy strategy) throws Exception {
+        resetAccounts();
+
+        AtomicLong failed = new AtomicLong();
+        AtomicLong retries = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                try (Connection connection = DriverManager.getConnection(url, user, password)) {
+                    connection.setAutoCommit(false);
+                    for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                        long from = ThreadLocalRandom.current().nextInt(1, ACCOUNTS + 1);
+                        long to = from % ACCOUNTS + 1;
+                        if (!transferWithRetry(connection, strategy, from, to, retries)) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - start;
+
+        long total = (long) THREADS * TRANSFERS_PER_THREAD;
+        return new Result((total - failed.get()) / (elapsed / 1_000_000_000.0), failed.get(), retries.get());
+    }
+
+    private boolean transferWithRetry(Connection connection, TransferStrategy strategy, long from, long to,
+                                      AtomicLong retries) throws SQLException {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                strategy.transfer(connection, from, to);
+                connection.commit();
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                String state = e.getSQLState();
+                if (!"40001".equals(state) && !"40P01".equals(state)) {
+                    throw e;
+                }
+                retries.incrementAndGet();
+            }
+        }
+        return false;
+    }
+
+    private void serializableTransfer(Connection connection, long from, long to) throws SQLException {
+        connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        double fromBalance = readBalance(connection, from);
+        double toBalance = readBalance(connection, to);
+        writeBalance(connection, from, fromBalance - 1);
+        writeBalance(connection, to, toBalance + 1);
+    }
+
+    private void orderedLockTransfer(Connection connection, long from, long to) throws SQLException {
+        connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        try (PreparedStatement lock = connection.prepareStatement(
+                "select id from bench_account where id in (?, ?) order by id for update")) {
+            lock.setLong(1, from);
+            lock.setLong(2, to);
+            lock.executeQuery().close();
+        }
+        double fromBalance = readBalance(connection, from);
+        double toBalance = readBalance(connection, to);
+        writeBalance(connection, from, fromBalance - 1);
+        writeBalance(connection, to, toBalance + 1);
+    }
+
+    private double readBalance(Connection connection, long id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "select balance from bench_account where id = ?")) {
+            statement.setLong(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getDouble(1);
+            }
+        }
+    }
+
+    private void writeBalance(Connection connection, long id, double balance) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "update bench_account set balance = ? where id = ?")) {
+            statement.setDouble(1, balance);
+            statement.setLong(2, id);
+            statement.executeUpdate();
+        }
+    }
+
+    private void resetAccounts() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, user, password);
+             Statement statement = connection.createStatement()) {
+            statement.execute("drop table if exists bench_account");
+            statement.execute("create table bench_account (id bigint primary key, balance double precision not null)");
+            statement.execute("insert into bench_account select g, 1000000 from generate_series(1, " + ACCOUNTS + ") g");
+        }
+    }
+
+    @FunctionalInterface
+    private interface TransferStrategy {
+        void transfer(Connection connection, long from, long to) throws SQLException;
+    }
+
+    private record Result(double throughput, long failed, long retries) {
+    }
+}
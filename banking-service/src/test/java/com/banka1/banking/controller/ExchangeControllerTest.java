@@ -2,7 +2,11 @@ package com.banka1.banking.controller;
 
 import com.banka1.banking.controllers.ExchangeController;
 import com.banka1.banking.dto.ExchangeMoneyTransferDTO;
+import com.banka1.banking.dto.ExchangePreviewDTO;
 import com.banka1.banking.services.ExchangeService;
+import com.banka1.banking.services.IdempotencyService;
+import com.banka1.banking.services.implementation.AuthService;
+import io.jsonwebtoken.Claims;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -10,7 +14,12 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
 
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -19,6 +28,12 @@ class ExchangeControllerTest {
     @Mock
     ExchangeService exchangeService;
 
+    @Mock
+    IdempotencyService idempotencyService;
+
+    @Mock
+    AuthService authService;
+
     @InjectMocks
     ExchangeController exchangeController;
 
@@ -29,11 +44,55 @@ class ExchangeControllerTest {
         
         when(exchangeService.validateExchangeTransfer(dto)).thenReturn(true);
         when(exchangeService.createExchangeTransfer(dto)).thenReturn(123L);
+        Claims claims = mock(Claims.class);
+        when(authService.getToken("Bearer token")).thenReturn("token");
+        when(authService.parseToken("token")).thenReturn(claims);
+        when(claims.get("id", Long.class)).thenReturn(5L);
+        when(idempotencyService.execute(eq("key-1"), eq(5L), eq("/exchange-transfer"), eq(dto), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<ResponseEntity<?>>>getArgument(4).get());
 
-        ResponseEntity<?> response = exchangeController.exchangeMoneyTransfer(dto);
+        ResponseEntity<?> response = exchangeController.exchangeMoneyTransfer("Bearer token", dto, "key-1");
         
         assertEquals(200, response.getStatusCodeValue());
         verify(exchangeService).validateExchangeTransfer(dto);
         verify(exchangeService).createExchangeTransfer(dto);
     }
+
+    @Test
+    void testPreviewExchange_QuotesForTokenUser() {
+        ExchangePreviewDTO dto = new ExchangePreviewDTO("EUR", "RSD", 100.0);
+        Claims claims = mock(Claims.class);
+        when(authService.getToken("Bearer token")).thenReturn("token");
+        when(authService.parseToken("token")).thenReturn(claims);
+        when(claims.get("id", Long.class)).thenReturn(5L);
+        Map<String, Object> quote = Map.of("exchangeRate", 117.5, "quoteId", "q-1");
+        when(exchangeService.quoteExchange(5L, "EUR", "RSD", 100.0)).thenReturn(quote);
+
+        ResponseEntity<?> response = exchangeController.previewExchange("Bearer token", dto);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(quote, response.getBody());
+    }
+
+    @Test
+    void testPreviewExchanges_ReturnsAllQuotesInOneResponse() {
+        List<ExchangePreviewDTO> items = List.of(new ExchangePreviewDTO("EUR", "RSD", 100.0), new ExchangePreviewDTO("USD", "RSD", 100.0));
+        List<Map<String, Object>> quotes = List.of(Map.of("finalAmount", 11601.81), Map.of("finalAmount", 10591.02));
+        when(exchangeService.calculatePreviewExchanges(items)).thenReturn(quotes);
+
+        ResponseEntity<?> response = exchangeController.previewExchanges(items);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(Map.of("quotes", quotes), response.getBody());
+    }
+
+    @Test
+    void testPreviewExchanges_TooManyItems() {
+        when(exchangeService.calculatePreviewExchanges(anyList())).thenThrow(new IllegalArgumentException("Najviše 500 konverzija po zahtevu."));
+
+        ResponseEntity<?> response = exchangeController.previewExchanges(List.of());
+
+        assertEquals(400, response.getStatusCodeValue());
+        assertEquals(Map.of("error", "Najviše 500 konverzija po zahtevu."), response.getBody());
+    }
 }
\ No newline at end of file
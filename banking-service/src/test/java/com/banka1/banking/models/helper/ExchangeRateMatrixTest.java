@@ -0,0 +1,54 @@
+package com.banka1.banking.models.helper;
+
+import com.banka1.banking.models.Currency;
+import com.banka1.banking.models.ExchangePair;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExchangeRateMatrixTest {
+
+    @Test
+    void directPairWinsOverReverse() {
+        ExchangeRateMatrix matrix = ExchangeRateMatrix.builder()
+                .rate(CurrencyType.EUR, CurrencyType.RSD, 117.0)
+                .rate(CurrencyType.RSD, CurrencyType.EUR, 0.0086)
+                .build();
+
+        assertEquals(117.0, matrix.rate(CurrencyType.EUR, CurrencyType.RSD));
+        assertEquals(0.0086, matrix.rate(CurrencyType.RSD, CurrencyType.EUR));
+    }
+
+    @Test
+    void missingPairsAreFilledFromReverseAndCrossRates() {
+        ExchangeRateMatrix matrix = ExchangeRateMatrix.builder()
+                .rate(CurrencyType.EUR, CurrencyType.RSD, 117.0)
+                .rate(CurrencyType.RSD, CurrencyType.USD, 0.0093)
+                .build();
+
+        assertEquals(1 / 117.0, matrix.rate(CurrencyType.RSD, CurrencyType.EUR));
+        assertEquals(117.0 * 0.0093, matrix.rate(CurrencyType.EUR, CurrencyType.USD), 1e-12);
+        assertEquals(2, matrix.getPairCount());
+        assertFalse(matrix.hasRate(CurrencyType.EUR, CurrencyType.CHF));
+        assertFalse(matrix.hasRate(CurrencyType.EUR, CurrencyType.EUR));
+    }
+
+    @Test
+    void ofReadsExchangePairs() {
+        Currency eur = new Currency();
+        eur.setCode(CurrencyType.EUR);
+        Currency rsd = new Currency();
+        rsd.setCode(CurrencyType.RSD);
+        ExchangePair pair = new ExchangePair();
+        pair.setBaseCurrency(eur);
+        pair.setTargetCurrency(rsd);
+        pair.setExchangeRate(117.0);
+
+        ExchangeRateMatrix matrix = ExchangeRateMatrix.of(List.of(pair));
+
+        assertEquals(117.0, matrix.rate(CurrencyType.EUR, CurrencyType.RSD));
+        assertTrue(Double.isNaN(ExchangeRateMatrix.EMPTY.rate(CurrencyType.EUR, CurrencyType.RSD)));
+    }
+}
@@ -0,0 +1,98 @@
+package com.banka1.banking.models.helper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void ofRoundsToCurrencyMinorUnits() {
+        assertEquals(268L, Money.of(2.675, CurrencyType.RSD).getMinorUnits());
+        assertEquals(1234L, Money.of(1234.4, CurrencyType.JPY).getMinorUnits());
+        assertEquals(-250L, Money.of(-2.5, CurrencyType.EUR).getMinorUnits());
+    }
+
+    @Test
+    void toMinorMatchesDecimalRoundingOnBothPaths() {
+        // Vec zaokruzeni iznosi idu bez BigDecimal-a, ostali preko njega
+        assertEquals(12345L, Money.toMinor(123.45, CurrencyType.EUR));
+        assertEquals(-1L, Money.toMinor(-0.01, CurrencyType.RSD));
+        assertEquals(30L, Money.toMinor(0.1 + 0.2, CurrencyType.USD));
+        assertEquals(268L, Money.toMinor(2.675, CurrencyType.RSD));
+        assertEquals(2L, Money.toMinor(0.015, CurrencyType.EUR));
+        assertEquals(1234L, Money.toMinor(1234.5, CurrencyType.JPY));
+    }
+
+    @Test
+    void addRoundsLikeMoneyPlus() {
+        assertEquals(100.3, Money.add(100.1, 0.2, CurrencyType.RSD));
+        assertEquals(Money.of(99.99, CurrencyType.EUR).plus(Money.of(-0.005, CurrencyType.EUR)).toDouble(),
+                Money.add(99.99, -0.005, CurrencyType.EUR));
+    }
+
+    @Test
+    void repeatedAdditionDoesNotDrift() {
+        Money total = Money.zero(CurrencyType.EUR);
+        double doubleTotal = 0.0;
+        for (int i = 0; i < 1000; i++) {
+            total = total.plus(Money.of(0.1, CurrencyType.EUR));
+            doubleTotal += 0.1;
+        }
+
+        assertEquals(100.0, total.toDouble());
+        assertNotEquals(100.0, doubleTotal);
+    }
+
+    @Test
+    void timesRoundsHalfEven() {
+        assertEquals(12L, Money.ofMinor(1250, CurrencyType.RSD).times(0.01).getMinorUnits());
+        assertEquals(14L, Money.ofMinor(1350, CurrencyType.RSD).times(0.01).getMinorUnits());
+        assertEquals(Money.of(300.0, CurrencyType.USD), Money.of(25.0, CurrencyType.USD).times(12));
+    }
+
+    @Test
+    void convertUsesTargetCurrencyDigits() {
+        Money rsd = Money.of(1000.0, CurrencyType.RSD);
+
+        assertEquals(8.53, rsd.convert(1 / 117.2332942555686, CurrencyType.EUR).toDouble());
+        assertEquals(Money.ofMinor(1426, CurrencyType.JPY), rsd.convert(1.4256, CurrencyType.JPY));
+    }
+
+    @Test
+    void arithmeticRejectsMixedCurrencies() {
+        Money rsd = Money.of(1.0, CurrencyType.RSD);
+        Money eur = Money.of(1.0, CurrencyType.EUR);
+
+        assertThrows(IllegalArgumentException.class, () -> rsd.plus(eur));
+        assertThrows(IllegalArgumentException.class, () -> rsd.compareTo(eur));
+    }
+
+    @Test
+    void arithmeticFailsOnOverflow() {
+        Money max = Money.ofMinor(Long.MAX_VALUE, CurrencyType.RSD);
+
+        assertThrows(ArithmeticException.class, () -> max.plus(Money.ofMinor(1, CurrencyType.RSD)));
+        assertThrows(ArithmeticException.class, () -> max.times(2.0));
+    }
+
+    @Test
+    void jsonRoundTrip() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        Money money = Money.of(12.3, CurrencyType.EUR);
+
+        String json = mapper.writeValueAsString(money);
+        JsonNode node = mapper.readTree(json);
+
+        assertEquals(2, node.size());
+        assertEquals("EUR", node.get("currency").asText());
+        assertEquals(12.3, node.get("amount").asDouble());
+        assertTrue(json.contains("\"amount\":12.30"));
+        assertEquals(money, mapper.readValue(json, Money.class));
+        assertEquals(new BigDecimal("12.30"), money.getAmount());
+    }
+}
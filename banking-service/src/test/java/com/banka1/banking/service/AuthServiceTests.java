@@ -402,4 +402,22 @@ public class AuthServiceTests {
 
         verify(joinPoint, times(3)).proceed();
     }
+
+    @Test
+    void authorizationTest_exchangePreviewCustomerOnly() throws Throwable {
+        when(joinPoint.getSignature()).thenReturn(methodSignature);
+        when(joinPoint.getArgs()).thenReturn(new Object[] { "Bearer ValidanToken", new ExchangePreviewDTO("EUR", "RSD", 100.0) });
+        when(methodSignature.getParameterNames()).thenReturn(new String[] { "authorization", "exchangePreviewDTO" });
+        when(methodSignature.getParameterTypes()).thenReturn(new Class[] { String.class, ExchangePreviewDTO.class });
+        when(methodSignature.getMethod()).thenReturn(method);
+        when(method.getAnnotation(AccountAuthorization.class)).thenReturn(accountAuthorization);
+        when(accountAuthorization.customerOnlyOperation()).thenReturn(true);
+        when(authService.getToken(notNull(String.class))).thenReturn("ValidanToken");
+        when(authService.parseToken(notNull(String.class))).thenReturn(claims);
+        when(claims.get("id", Long.class)).thenReturn(1L);
+
+        authAspect.authorizeAccountAction(joinPoint);
+
+        verify(joinPoint, times(1)).proceed();
+    }
 }
@@ -9,6 +9,7 @@ import com.banka1.banking.repository.*;
 import com.banka1.banking.services.BankAccountUtils;
 import com.banka1.banking.services.LoanService;
 import com.banka1.banking.services.TransactionService;
+import com.banka1.banking.services.TransferExecutionService;
 import com.banka1.banking.services.TransferService;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -34,6 +35,9 @@ class LoanPaymentSchedulerTest {
 	@Mock
 	private TransferService transferService;
 
+	@Mock
+	private TransferExecutionService transferExecutionService;
+
 	@Mock
 	private BankAccountUtils bankAccountUtils;
 
@@ -65,6 +69,7 @@ class LoanPaymentSchedulerTest {
 
 		loan = new Loan();
 		loan.setLoanAmount(1000.0);
+		loan.setCurrencyType(CurrencyType.AUD);
 		loan.setEffectiveRate(4.45);
 		loan.setInterestType(InterestType.FIXED);
 		loan.setLoanType(LoanType.CASH);
@@ -99,7 +104,7 @@ class LoanPaymentSchedulerTest {
 		when(installmentsRepository.getDueInstallments(any(LocalDate.class))).thenReturn(Arrays.asList(installment1,
 				installment2));
 		when(bankAccountUtils.getBankAccountForCurrency(CurrencyType.AUD)).thenReturn(bankAccount);
-		when(transferService.validateMoneyTransfer(any(MoneyTransferDTO.class))).thenReturn(true);
+		when(transferService.validateMoneyTransfer(any(MoneyTransferDTO.class), eq(false))).thenReturn(true);
 		when(transferService.createMoneyTransferEntity(eq(userAccount), eq(bankAccount), any(MoneyTransferDTO.class))).thenReturn(transfer);
 		when(loanRepository.save(any(Loan.class))).then(invocationOnMock -> invocationOnMock.getArgument(0));
 
@@ -115,6 +120,11 @@ class LoanPaymentSchedulerTest {
 
 		verify(installmentsRepository).save(installment1);
 		verify(installmentsRepository).save(installment2);
+		// Rate se ne proveravaju niti racunaju u limit potrosnje
+		verify(transferService, never()).validateMoneyTransfer(any(MoneyTransferDTO.class));
+		// Rata prolazi kroz zakljucavanje racuna i ponavljanje kao svaki transfer
+		verify(transferExecutionService, times(2)).execute(1L, false);
+		verify(transferService, never()).processExternalTransfer(anyLong(), anyBoolean());
 	}
 
 	@Test
@@ -143,7 +153,7 @@ class LoanPaymentSchedulerTest {
 	void testProcessLoanPaymentsInvalidTransfer() {
 		when(installmentsRepository.getDueInstallments(any(LocalDate.class))).thenReturn(Arrays.asList(installment1,
 				installment2));
-		when(transferService.validateMoneyTransfer(any(MoneyTransferDTO.class))).thenReturn(false);
+		when(transferService.validateMoneyTransfer(any(MoneyTransferDTO.class), eq(false))).thenReturn(false);
 		when(bankAccountUtils.getBankAccountForCurrency(CurrencyType.AUD)).thenReturn(bankAccount);
 
 		installment1.setAmount(loanService.calculateInstallment(loan.getLoanAmount(), installment1.getInterestRate(), loan.getNumberOfInstallments()));
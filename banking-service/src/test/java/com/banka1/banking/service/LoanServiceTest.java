@@ -57,6 +57,7 @@ public class LoanServiceTest {
         account.setId(1L);
         account.setType(AccountType.CURRENT);
         account.setSubtype(AccountSubtype.PERSONAL);
+        account.setCurrencyType(CurrencyType.RSD);
 
         when(accountRepository.findById(createLoanDTO.getAccountId())).thenReturn(Optional.of(account));
 
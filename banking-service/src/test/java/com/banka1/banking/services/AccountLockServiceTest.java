@@ -0,0 +1,108 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.models.helper.AccountType;
+import com.banka1.banking.repository.AccountRepository;
+import com.banka1.banking.repository.TransferRepository;
+import com.banka1.banking.repository.projection.TransferAccountsView;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AccountLockServiceTest {
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private TransferRepository transferRepository;
+
+    @InjectMocks
+    private AccountLockService accountLockService;
+
+    @Test
+    void lockAccountsUsesAscendingDistinctIds() {
+        accountLockService.lockAccounts(List.of(42L, 7L, 42L, 13L));
+
+        List<Long> locked = captureLockedIds();
+        assertEquals(List.of(7L, 13L, 42L), locked);
+    }
+
+    @Test
+    void lockAccountsSkipsQueryForEmptyInput() {
+        assertTrue(accountLockService.lockAccounts(List.of()).isEmpty());
+        verify(accountRepository, never()).lockAllByIdInOrder(any());
+    }
+
+    @Test
+    void transferLocksCustomerAccountsInOrder() {
+        when(transferRepository.findAccountsViewById(1L))
+                .thenReturn(Optional.of(view(20L, AccountType.CURRENT, 10L, AccountType.FOREIGN_CURRENCY)));
+
+        accountLockService.lockTransferAccounts(1L);
+
+        assertEquals(List.of(10L, 20L), captureLockedIds());
+    }
+
+    @Test
+    void transferSkipsHouseAccounts() {
+        when(transferRepository.findAccountsViewById(1L))
+                .thenReturn(Optional.of(view(5L, AccountType.CURRENT, 100L, AccountType.BANK)));
+
+        accountLockService.lockTransferAccounts(1L);
+
+        assertEquals(List.of(5L), captureLockedIds());
+    }
+
+    @Test
+    void transferDoesNotLockHouseAccountItDebits() {
+        when(transferRepository.findAccountsViewById(1L))
+                .thenReturn(Optional.of(view(100L, AccountType.BANK, 5L, AccountType.CURRENT)));
+
+        accountLockService.lockTransferAccounts(1L);
+
+        assertEquals(List.of(5L), captureLockedIds());
+    }
+
+    @Test
+    void lockTransferAccountsFailsForUnknownTransfer() {
+        when(transferRepository.findAccountsViewById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(RuntimeException.class, () -> accountLockService.lockTransferAccounts(1L));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> captureLockedIds() {
+        ArgumentCaptor<Collection<Long>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(accountRepository).lockAllByIdInOrder(captor.capture());
+        return new ArrayList<>(captor.getValue());
+    }
+
+    private static TransferAccountsView view(Long from, AccountType fromType, Long to, AccountType toType) {
+        return new TransferAccountsView() {
+            @Override
+            public Long getFromAccountId() { return from; }
+
+            @Override
+            public Long getToAccountId() { return to; }
+
+            @Override
+            public AccountType getFromAccountType() { return fromType; }
+
+            @Override
+            public AccountType getToAccountType() { return toType; }
+        };
+    }
+}
@@ -24,7 +24,9 @@ import org.springframework.jms.core.JmsTemplate;
 
 import javax.jms.TextMessage;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.*;
@@ -71,6 +73,7 @@ public class AccountServiceTest {
         Transaction txTo = new Transaction();
         Account otherAccount = new Account();
         otherAccount.setId(2L);
+        otherAccount.setOwnerID(200L);
         txTo.setFromAccountId(otherAccount);
         txTo.setToAccountId(account);
         txTo.setBankOnly(false);
@@ -98,7 +101,11 @@ public class AccountServiceTest {
         customer.setFirstName("John");
         customer.setLastName("Doe");
 
-        when(userServiceCustomer.getCustomerById(any())).thenReturn(customer);
+        CustomerDTO otherCustomer = new CustomerDTO();
+        otherCustomer.setFirstName("Jane");
+        otherCustomer.setLastName("Roe");
+
+        when(userServiceCustomer.getCustomersByIds(Set.of(100L, 200L))).thenReturn(Map.of(100L, customer, 200L, otherCustomer));
 
 
         List<TransactionResponseDTO> result = accountService.getTransactionsForAccount(accountId);
@@ -107,6 +114,11 @@ public class AccountServiceTest {
         assertEquals(2, result.size());
         assertEquals("John Doe", result.get(0).getSenderName());
         assertEquals("John Doe", result.get(0).getReceiverName());
+        assertEquals("Jane Roe", result.get(1).getSenderName());
+        assertEquals("John Doe", result.get(1).getReceiverName());
+        // Jedan zahtev ka user-service za celu istoriju
+        verify(userServiceCustomer, times(1)).getCustomersByIds(Set.of(100L, 200L));
+        verify(userServiceCustomer, never()).getCustomerById(any());
         verify(accountRepository).findById(accountId);
         verify(transactionRepository).findByFromAccountId(account);
         verify(transactionRepository).findByToAccountId(account);
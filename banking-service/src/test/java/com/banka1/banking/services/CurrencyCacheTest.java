@@ -0,0 +1,64 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.models.Currency;
+import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.repository.CurrencyRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CurrencyCacheTest {
+
+    @Mock
+    private CurrencyRepository currencyRepository;
+
+    @InjectMocks
+    private CurrencyCache currencyCache;
+
+    @Test
+    void lookupsAfterFirstDoNotQueryTheDatabase() {
+        Currency rsd = currency(CurrencyType.RSD);
+        Currency eur = currency(CurrencyType.EUR);
+        when(currencyRepository.findAll()).thenReturn(List.of(rsd, eur));
+
+        // Tri po menjackoj transakciji i dva po transferu, za hiljadu transfera
+        for (int i = 0; i < 1000; i++) {
+            assertSame(rsd, currencyCache.get(CurrencyType.RSD));
+            assertSame(eur, currencyCache.get(CurrencyType.EUR));
+        }
+        assertEquals(2, currencyCache.getAll().size());
+
+        verify(currencyRepository, times(1)).findAll();
+        verifyNoMoreInteractions(currencyRepository);
+    }
+
+    @Test
+    void unknownCurrencyIsRejected() {
+        when(currencyRepository.findAll()).thenReturn(List.of(currency(CurrencyType.RSD)));
+
+        assertThrows(IllegalArgumentException.class, () -> currencyCache.get(CurrencyType.JPY));
+    }
+
+    @Test
+    void emptyTableIsNotCached() {
+        when(currencyRepository.findAll()).thenReturn(List.of()).thenReturn(List.of(currency(CurrencyType.RSD)));
+
+        assertTrue(currencyCache.getAll().isEmpty());
+        assertEquals(CurrencyType.RSD, currencyCache.get(CurrencyType.RSD).getCode());
+        verify(currencyRepository, times(2)).findAll();
+    }
+
+    private static Currency currency(CurrencyType code) {
+        Currency currency = new Currency();
+        currency.setCode(code);
+        return currency;
+    }
+}
@@ -0,0 +1,77 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.dto.CustomerDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustomerCacheTest {
+
+    private SimpleMeterRegistry registry;
+    private CustomerCache customerCache;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        customerCache = new CustomerCache(60_000, 2, registry);
+    }
+
+    @Test
+    void hitsAndMissesAreCounted() {
+        assertNull(customerCache.get(1L));
+        customerCache.put(customer(1L), customerCache.version());
+
+        assertEquals("John", customerCache.get(1L).getFirstName());
+        assertEquals("John", customerCache.get(1L).getFirstName());
+
+        assertEquals(2, registry.get(CustomerCache.CACHE_COUNTER).tag("result", "hit").counter().count());
+        assertEquals(1, registry.get(CustomerCache.CACHE_COUNTER).tag("result", "miss").counter().count());
+        assertEquals(1, registry.get(CustomerCache.CACHE_COUNTER + ".size").gauge().value());
+    }
+
+    @Test
+    void expiredEntryIsAMiss() {
+        customerCache = new CustomerCache(-1, 2, registry);
+        customerCache.put(customer(1L), customerCache.version());
+
+        assertNull(customerCache.get(1L));
+        assertEquals(0, registry.get(CustomerCache.CACHE_COUNTER + ".size").gauge().value());
+    }
+
+    @Test
+    void evictRemovesCustomer() {
+        customerCache.put(customer(1L), customerCache.version());
+
+        customerCache.evict(1L);
+
+        assertNull(customerCache.get(1L));
+    }
+
+    @Test
+    void answerFetchedDuringEvictionIsNotCached() {
+        long version = customerCache.version();
+        // Izmena klijenta stigne dok je zahtev ka user-service jos u toku
+        customerCache.evict(1L);
+        customerCache.put(customer(1L), version);
+
+        assertNull(customerCache.get(1L));
+    }
+
+    @Test
+    void leastRecentlyUsedCustomerIsDropped() {
+        customerCache.put(customer(1L), customerCache.version());
+        customerCache.put(customer(2L), customerCache.version());
+        customerCache.get(1L);
+        customerCache.put(customer(3L), customerCache.version());
+
+        assertNotNull(customerCache.get(1L));
+        assertNull(customerCache.get(2L));
+        assertNotNull(customerCache.get(3L));
+    }
+
+    private static CustomerDTO customer(Long id) {
+        return new CustomerDTO(id, "John", "Doe", "2000-01-01", "john@example.com", "0601234567", "Main St 1");
+    }
+}
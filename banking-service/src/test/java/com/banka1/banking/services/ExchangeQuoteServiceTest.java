@@ -0,0 +1,105 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.models.ExchangeQuote;
+import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.repository.ExchangeQuoteRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ExchangeQuoteServiceTest {
+
+    private ExchangeQuoteService exchangeQuoteService;
+    private ExchangeQuoteRepository exchangeQuoteRepository;
+
+    // Tabela exchange_quote, zajednicka za sve instance servisa
+    private final Map<String, ExchangeQuote> table = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        exchangeQuoteRepository = mock(ExchangeQuoteRepository.class);
+        when(exchangeQuoteRepository.save(any(ExchangeQuote.class))).thenAnswer(invocation -> {
+            ExchangeQuote quote = invocation.getArgument(0);
+            table.put(quote.getId(), quote);
+            return quote;
+        });
+        when(exchangeQuoteRepository.findByIdAndUserId(anyString(), anyLong())).thenAnswer(invocation ->
+                Optional.ofNullable(table.get(invocation.<String>getArgument(0)))
+                        .filter(quote -> quote.getUserId().equals(invocation.getArgument(1))));
+        when(exchangeQuoteRepository.deleteQuote(anyString())).thenAnswer(invocation ->
+                table.remove(invocation.<String>getArgument(0)) != null ? 1 : 0);
+        exchangeQuoteService = new ExchangeQuoteService(exchangeQuoteRepository, 60_000L);
+    }
+
+    @Test
+    void quoteCanBeConsumedOnce() {
+        ExchangeQuote quote = exchangeQuoteService.issue(10L, CurrencyType.EUR, CurrencyType.RSD, 100.0, 11600.0, 117.0, 117.0);
+
+        ExchangeQuote consumed = exchangeQuoteService.consume(quote.getId(), 10L, CurrencyType.EUR, CurrencyType.RSD, 100.0);
+
+        assertEquals(11600.0, consumed.getFinalAmount());
+        assertThrows(IllegalArgumentException.class,
+                () -> exchangeQuoteService.consume(quote.getId(), 10L, CurrencyType.EUR, CurrencyType.RSD, 100.0));
+    }
+
+    @Test
+    void quoteIssuedOnAnotherReplicaCanBeConsumed() {
+        ExchangeQuote quote = new ExchangeQuoteService(exchangeQuoteRepository, 60_000L)
+                .issue(10L, CurrencyType.EUR, CurrencyType.RSD, 100.0, 11600.0, 117.0, 117.0);
+
+        assertNotNull(exchangeQuoteService.consume(quote.getId(), 10L, CurrencyType.EUR, CurrencyType.RSD, 100.0));
+    }
+
+    @Test
+    void quoteOfAnotherUserIsRejected() {
+        ExchangeQuote quote = exchangeQuoteService.issue(10L, CurrencyType.EUR, CurrencyType.RSD, 100.0, 11600.0, 117.0, 117.0);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> exchangeQuoteService.consume(quote.getId(), 11L, CurrencyType.EUR, CurrencyType.RSD, 100.0));
+        assertNotNull(exchangeQuoteService.consume(quote.getId(), 10L, CurrencyType.EUR, CurrencyType.RSD, 100.0));
+    }
+
+    @Test
+    void quoteForOtherAmountOrCurrencyIsRejected() {
+        ExchangeQuote quote = exchangeQuoteService.issue(10L, CurrencyType.EUR, CurrencyType.RSD, 100.0, 11600.0, 117.0, 117.0);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> exchangeQuoteService.consume(quote.getId(), 10L, CurrencyType.EUR, CurrencyType.RSD, 200.0));
+        assertThrows(IllegalArgumentException.class,
+                () -> exchangeQuoteService.consume(quote.getId(), 10L, CurrencyType.USD, CurrencyType.RSD, 100.0));
+        assertNotNull(exchangeQuoteService.consume(quote.getId(), 10L, CurrencyType.EUR, CurrencyType.RSD, 100.0));
+    }
+
+    @Test
+    void expiredQuoteIsRejected() {
+        exchangeQuoteService = new ExchangeQuoteService(exchangeQuoteRepository, -1L);
+        ExchangeQuote quote = exchangeQuoteService.issue(10L, CurrencyType.EUR, CurrencyType.RSD, 100.0, 11600.0, 117.0, 117.0);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> exchangeQuoteService.consume(quote.getId(), 10L, CurrencyType.EUR, CurrencyType.RSD, 100.0));
+    }
+
+    @Test
+    void quoteDeletedConcurrentlyIsRejected() {
+        ExchangeQuote quote = exchangeQuoteService.issue(10L, CurrencyType.EUR, CurrencyType.RSD, 100.0, 11600.0, 117.0, 117.0);
+        // Druga instanca je ponudu iskoristila izmedju citanja i brisanja
+        when(exchangeQuoteRepository.deleteQuote(quote.getId())).thenReturn(0);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> exchangeQuoteService.consume(quote.getId(), 10L, CurrencyType.EUR, CurrencyType.RSD, 100.0));
+    }
+
+    @Test
+    void expiredQuotesAreDeleted() {
+        exchangeQuoteService.evictExpired();
+
+        verify(exchangeQuoteRepository).deleteExpired(anyLong());
+    }
+}
@@ -0,0 +1,75 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.models.Currency;
+import com.banka1.banking.models.ExchangePair;
+import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.models.helper.ExchangeRateMatrix;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExchangeRateSnapshotStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writtenPairsAreReadBackWithDerivedRates() {
+        ExchangeRateSnapshotStore store = new ExchangeRateSnapshotStore(directory.resolve("rates/exchange-rates.snapshot").toString());
+
+        store.write(List.of(pair(CurrencyType.EUR, CurrencyType.RSD, 117.2), pair(CurrencyType.USD, CurrencyType.RSD, 107.0)));
+        ExchangeRateMatrix matrix = store.read();
+
+        assertNotNull(matrix);
+        assertEquals(2, matrix.getPairCount());
+        assertEquals(117.2, matrix.rate(CurrencyType.EUR, CurrencyType.RSD));
+        assertEquals(1 / 117.2, matrix.rate(CurrencyType.RSD, CurrencyType.EUR), 1e-12);
+        assertEquals(117.2 / 107.0, matrix.rate(CurrencyType.EUR, CurrencyType.USD), 1e-12);
+    }
+
+    @Test
+    void newSnapshotReplacesOldOne() {
+        ExchangeRateSnapshotStore store = new ExchangeRateSnapshotStore(directory.resolve("exchange-rates.snapshot").toString());
+
+        store.write(List.of(pair(CurrencyType.EUR, CurrencyType.RSD, 117.2)));
+        store.write(List.of(pair(CurrencyType.EUR, CurrencyType.RSD, 117.5)));
+
+        assertEquals(117.5, store.read().rate(CurrencyType.EUR, CurrencyType.RSD));
+    }
+
+    @Test
+    void missingOrDamagedSnapshotIsIgnored() throws IOException {
+        Path file = directory.resolve("exchange-rates.snapshot");
+        ExchangeRateSnapshotStore store = new ExchangeRateSnapshotStore(file.toString());
+        assertNull(store.read());
+
+        Files.write(file, new byte[]{1, 2, 3});
+        assertNull(store.read());
+
+        store.write(List.of(pair(CurrencyType.EUR, CurrencyType.RSD, 117.2)));
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+        assertNull(store.read());
+    }
+
+    private static ExchangePair pair(CurrencyType base, CurrencyType target, double rate) {
+        ExchangePair pair = new ExchangePair();
+        pair.setBaseCurrency(currency(base));
+        pair.setTargetCurrency(currency(target));
+        pair.setExchangeRate(rate);
+        return pair;
+    }
+
+    private static Currency currency(CurrencyType code) {
+        Currency currency = new Currency();
+        currency.setCode(code);
+        return currency;
+    }
+}
@@ -2,15 +2,17 @@ package com.banka1.banking.services;
 
 import com.banka1.banking.dto.CustomerDTO;
 import com.banka1.banking.dto.ExchangeMoneyTransferDTO;
+import com.banka1.banking.dto.ExchangePreviewDTO;
 import com.banka1.banking.dto.NotificationDTO;
 import com.banka1.banking.models.Account;
 import com.banka1.banking.models.Currency;
-import com.banka1.banking.models.ExchangePair;
+import com.banka1.banking.models.ExchangeQuote;
 import com.banka1.banking.models.Transfer;
 import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.models.helper.ExchangeCalculation;
+import com.banka1.banking.models.helper.ExchangeRateMatrix;
 import com.banka1.banking.repository.AccountRepository;
 import com.banka1.banking.repository.CurrencyRepository;
-import com.banka1.banking.repository.ExchangePairRepository;
 import com.banka1.banking.repository.TransferRepository;
 import com.banka1.common.listener.MessageHelper;
 import org.junit.jupiter.api.BeforeEach;
@@ -22,6 +24,8 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.jms.core.JmsTemplate;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -39,7 +43,7 @@ public class ExchangeServiceTest {
     private TransferRepository transferRepository;
 
     @Mock
-    private CurrencyRepository currencyRepository;
+    private CurrencyCache currencyCache;
 
     @Mock
     private JmsTemplate jmsTemplate;
@@ -54,7 +58,16 @@ public class ExchangeServiceTest {
     private OtpTokenService otpTokenService;
 
     @Mock
-    private ExchangePairRepository exchangePairRepository;
+    private ExchangeRateService exchangeRateService;
+
+    @Mock
+    private TransferExpiryService transferExpiryService;
+
+    @Mock
+    private TransferMetrics transferMetrics;
+
+    @Mock
+    private ExchangeQuoteService exchangeQuoteService;
 
     @InjectMocks
     private ExchangeService exchangeService;
@@ -117,8 +130,8 @@ public class ExchangeServiceTest {
     void createExchangeTransferSuccess() {
         when(accountRepository.findById(1L)).thenReturn(Optional.of(fromAccount));
         when(accountRepository.findById(2L)).thenReturn(Optional.of(toAccount));
-        when(currencyRepository.findByCode(CurrencyType.EUR)).thenReturn(Optional.of(currencyEUR));
-        when(currencyRepository.findByCode(CurrencyType.USD)).thenReturn(Optional.of(currencyUSD));
+        when(currencyCache.get(CurrencyType.EUR)).thenReturn(currencyEUR);
+        when(currencyCache.get(CurrencyType.USD)).thenReturn(currencyUSD);
         when(userServiceCustomer.getCustomerById(10L)).thenReturn(customerDTO);
         doReturn("123456").when(otpTokenService).generateOtp(anyLong());
 
@@ -139,12 +152,76 @@ public class ExchangeServiceTest {
         verify(jmsTemplate, times(2)).convertAndSend(eq("test-destination"), eq("Simulirana poruka"));
     }
 
+    @Test
+    void createExchangeTransferReadsCurrenciesFromCacheNotRepository() {
+        CurrencyRepository currencyRepository = mock(CurrencyRepository.class);
+        when(currencyRepository.findAll()).thenReturn(List.of(currencyEUR, currencyUSD));
+        ExchangeService cachedExchangeService = new ExchangeService(accountRepository, new CurrencyCache(currencyRepository),
+                transferRepository, jmsTemplate, messageHelper, "test-destination", userServiceCustomer, otpTokenService,
+                exchangeRateService, transferExpiryService, transferMetrics, exchangeQuoteService);
+        when(accountRepository.findById(1L)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findById(2L)).thenReturn(Optional.of(toAccount));
+        when(userServiceCustomer.getCustomerById(10L)).thenReturn(customerDTO);
+        doReturn("123456").when(otpTokenService).generateOtp(anyLong());
+        when(transferRepository.saveAndFlush(any(Transfer.class))).thenAnswer(invocation -> {
+            Transfer savedTransfer = invocation.getArgument(0);
+            savedTransfer.setId(102L);
+            return savedTransfer;
+        });
+
+        for (int i = 0; i < 100; i++) {
+            cachedExchangeService.createExchangeTransfer(exchangeMoneyTransferDTO);
+        }
+
+        // Valute se citaju iz baze jednom, ne po zahtevu
+        verify(currencyRepository, times(1)).findAll();
+        verifyNoMoreInteractions(currencyRepository);
+        verify(transferRepository, times(100)).saveAndFlush(argThat(transfer ->
+                transfer.getFromCurrency() == currencyEUR && transfer.getToCurrency() == currencyUSD));
+    }
+
+    @Test
+    void createExchangeTransferKeepsQuoteWhenCustomerIsMissing() {
+        exchangeMoneyTransferDTO.setQuoteId("quote-1");
+        when(accountRepository.findById(1L)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findById(2L)).thenReturn(Optional.of(toAccount));
+
+        assertThrows(IllegalArgumentException.class, () -> exchangeService.createExchangeTransfer(exchangeMoneyTransferDTO));
+
+        verifyNoInteractions(exchangeQuoteService);
+        verify(transferRepository, never()).saveAndFlush(any(Transfer.class));
+    }
+
+    @Test
+    void createExchangeTransferLocksQuoteOfAccountOwner() {
+        exchangeMoneyTransferDTO.setQuoteId("quote-1");
+        ExchangeQuote quote = new ExchangeQuote();
+        quote.setId("quote-1");
+        quote.setFinalAmount(540.0);
+        quote.setFee(2.7);
+        quote.setProvision(316.0);
+        when(accountRepository.findById(1L)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findById(2L)).thenReturn(Optional.of(toAccount));
+        when(userServiceCustomer.getCustomerById(10L)).thenReturn(customerDTO);
+        when(exchangeQuoteService.consume("quote-1", 10L, CurrencyType.EUR, CurrencyType.USD, 500.0)).thenReturn(quote);
+        doReturn("123456").when(otpTokenService).generateOtp(anyLong());
+        when(transferRepository.saveAndFlush(any(Transfer.class))).thenAnswer(invocation -> {
+            Transfer savedTransfer = invocation.getArgument(0);
+            savedTransfer.setId(102L);
+            return savedTransfer;
+        });
+
+        exchangeService.createExchangeTransfer(exchangeMoneyTransferDTO);
+
+        verify(transferRepository).saveAndFlush(argThat(transfer -> "quote-1".equals(transfer.getQuoteId())
+                && transfer.getQuotedFinalAmount() == 540.0));
+    }
+
     @Test
     void calculatePreviewExchange_withDirectPair() {
-        ExchangePair pair = new ExchangePair();
-        pair.setExchangeRate(117.2332942555686);
-        when(exchangePairRepository.findByBaseCurrencyCodeAndTargetCurrencyCode(CurrencyType.RSD, CurrencyType.EUR))
-                .thenReturn(Optional.of(pair));
+        when(exchangeRateService.getMatrix()).thenReturn(ExchangeRateMatrix.builder()
+                .rate(CurrencyType.RSD, CurrencyType.EUR, 117.2332942555686)
+                .build());
 
         Map<String, Object> result = exchangeService.calculatePreviewExchange("RSD", "EUR", 1000.0);
 
@@ -157,17 +234,11 @@ public class ExchangeServiceTest {
 
     @Test
     void calculatePreviewExchangeForeign_withBothDirectPairs() {
-        // FROM -> RSD
-        ExchangePair usdToRsd = new ExchangePair();
-        usdToRsd.setExchangeRate(108.0);
-        when(exchangePairRepository.findByBaseCurrencyCodeAndTargetCurrencyCode(CurrencyType.USD, CurrencyType.RSD))
-                .thenReturn(Optional.of(usdToRsd));
-
-        // RSD -> EUR
-        ExchangePair rsdToEur = new ExchangePair();
-        rsdToEur.setExchangeRate(117.0);
-        when(exchangePairRepository.findByBaseCurrencyCodeAndTargetCurrencyCode(CurrencyType.RSD, CurrencyType.EUR))
-                .thenReturn(Optional.of(rsdToEur));
+        // FROM -> RSD, RSD -> EUR
+        when(exchangeRateService.getMatrix()).thenReturn(ExchangeRateMatrix.builder()
+                .rate(CurrencyType.USD, CurrencyType.RSD, 108.0)
+                .rate(CurrencyType.RSD, CurrencyType.EUR, 117.0)
+                .build());
 
         // Act
         Map<String, Object> result = exchangeService.calculatePreviewExchangeForeign("USD", "EUR", 100.0);
@@ -178,5 +249,88 @@ public class ExchangeServiceTest {
         assertNotNull(result.get("totalFee"));
         assertNotNull(result.get("finalAmount"));
     }
-}
 
+    @Test
+    void quoteExchange_foreignLocksSameAmountsAsPreview() {
+        when(exchangeRateService.getMatrix()).thenReturn(ExchangeRateMatrix.builder()
+                .rate(CurrencyType.USD, CurrencyType.RSD, 108.0)
+                .rate(CurrencyType.RSD, CurrencyType.EUR, 117.0)
+                .build());
+        ExchangeQuote issued = new ExchangeQuote();
+        issued.setId("quote-1");
+        issued.setExpiresAt(1000L);
+        when(exchangeQuoteService.issue(eq(10L), eq(CurrencyType.USD), eq(CurrencyType.EUR), eq(100.0), anyDouble(), anyDouble(), anyDouble()))
+                .thenReturn(issued);
+
+        Map<String, Object> preview = exchangeService.calculatePreviewExchangeForeign("USD", "EUR", 100.0);
+        Map<String, Object> quote = exchangeService.quoteExchange(10L, "USD", "EUR", 100.0);
+
+        assertEquals("quote-1", quote.get("quoteId"));
+        assertEquals(1000L, quote.get("expiresAt"));
+        assertEquals(preview.get("firstExchangeRate"), quote.get("firstExchangeRate"));
+        assertEquals((Double) preview.get("secondExchangeRate"), (Double) quote.get("secondExchangeRate"), 1e-12);
+        assertEquals(preview.get("finalAmount"), quote.get("finalAmount"));
+        verify(exchangeQuoteService).issue(eq(10L), eq(CurrencyType.USD), eq(CurrencyType.EUR), eq(100.0),
+                eq((Double) preview.get("finalAmount")), anyDouble(), anyDouble());
+    }
+
+    @Test
+    void calculateExchange_usesReversePairWhenDirectIsMissing() {
+        when(exchangeRateService.getMatrix()).thenReturn(ExchangeRateMatrix.builder()
+                .rate(CurrencyType.RSD, CurrencyType.EUR, 0.0085)
+                .build());
+
+        ExchangeCalculation calculation = exchangeService.calculateExchange(CurrencyType.EUR, CurrencyType.RSD, 10.0);
+
+        assertEquals(1 / 0.0085, calculation.exchangeRate(), 1e-9);
+        assertEquals(1176.47, calculation.convertedAmount());
+        assertEquals(11.76, calculation.fee());
+        assertEquals(1164.71, calculation.finalAmount());
+        assertFalse(calculation.isViaRsd());
+    }
+
+    @Test
+    void calculateExchange_withoutRateFails() {
+        when(exchangeRateService.getMatrix()).thenReturn(ExchangeRateMatrix.EMPTY);
+
+        assertThrows(RuntimeException.class, () -> exchangeService.calculateExchange(CurrencyType.EUR, CurrencyType.RSD, 10.0));
+        assertThrows(RuntimeException.class, () -> exchangeService.calculateExchange(CurrencyType.EUR, CurrencyType.USD, 10.0));
+    }
+
+    @Test
+    void calculatePreviewExchanges_usesOneMatrixAndKeepsFailedItemsSeparate() {
+        when(exchangeRateService.getMatrix()).thenReturn(ExchangeRateMatrix.builder()
+                .rate(CurrencyType.RSD, CurrencyType.EUR, 0.0085)
+                .rate(CurrencyType.USD, CurrencyType.RSD, 108.0)
+                .build());
+
+        List<Map<String, Object>> results = exchangeService.calculatePreviewExchanges(List.of(
+                new ExchangePreviewDTO("EUR", "RSD", 10.0),
+                new ExchangePreviewDTO("USD", "EUR", 100.0),
+                new ExchangePreviewDTO("EUR", "XYZ", 10.0),
+                new ExchangePreviewDTO("EUR", "JPY", 10.0),
+                new ExchangePreviewDTO("EUR", "RSD", -1.0)));
+
+        assertEquals(5, results.size());
+        assertEquals(exchangeService.calculateExchange(CurrencyType.EUR, CurrencyType.RSD, 10.0).toMap().get("finalAmount"),
+                results.get(0).get("finalAmount"));
+        assertEquals("EUR", results.get(0).get("fromCurrency"));
+        assertEquals(108.0, results.get(1).get("firstExchangeRate"));
+        assertEquals("Nepoznata valuta: XYZ", results.get(2).get("error"));
+        assertNotNull(results.get(3).get("error"));
+        assertNotNull(results.get(4).get("error"));
+        assertNull(results.get(0).get("error"));
+        // Jedan poziv za celu listu i jedan za proveru iznad
+        verify(exchangeRateService, times(2)).getMatrix();
+        verifyNoInteractions(exchangeQuoteService);
+    }
+
+    @Test
+    void calculatePreviewExchanges_rejectsEmptyAndTooLargeLists() {
+        assertThrows(IllegalArgumentException.class, () -> exchangeService.calculatePreviewExchanges(List.of()));
+        List<ExchangePreviewDTO> tooMany = Collections.nCopies(ExchangeService.MAX_BULK_PREVIEW_ITEMS + 1,
+                new ExchangePreviewDTO("EUR", "RSD", 1.0));
+        assertThrows(IllegalArgumentException.class, () -> exchangeService.calculatePreviewExchanges(tooMany));
+        verifyNoInteractions(exchangeRateService);
+    }
+}
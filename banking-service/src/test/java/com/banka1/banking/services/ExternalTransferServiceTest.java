@@ -2,6 +2,7 @@ package com.banka1.banking.services;
 import com.banka1.banking.models.Account;
 import com.banka1.banking.models.Transaction;
 import com.banka1.banking.models.Transfer;
+import com.banka1.banking.models.helper.CurrencyType;
 import com.banka1.banking.models.helper.TransferStatus;
 import com.banka1.banking.models.helper.TransferType;
 import com.banka1.banking.repository.AccountRepository;
@@ -13,6 +14,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.Optional;
 
@@ -31,6 +33,18 @@ public class ExternalTransferServiceTest {
     @Mock
     private TransactionRepository transactionRepository;
 
+    @Mock
+    private LedgerService ledgerService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private SpendingLimitService spendingLimitService;
+
+    @Mock
+    private TransferMetrics transferMetrics;
+
     @InjectMocks
     private TransferService transferService;
 
@@ -43,10 +57,12 @@ public class ExternalTransferServiceTest {
         fromAccount = new Account();
         fromAccount.setId(1L);
         fromAccount.setBalance(1000.0);
+        fromAccount.setCurrencyType(CurrencyType.RSD);
 
         toAccount = new Account();
         toAccount.setId(2L);
         toAccount.setBalance(500.0);
+        toAccount.setCurrencyType(CurrencyType.RSD);
 
         transfer = new Transfer();
         transfer.setId(1L);
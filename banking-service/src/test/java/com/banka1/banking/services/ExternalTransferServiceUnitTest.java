@@ -3,6 +3,7 @@ package com.banka1.banking.services;
 import com.banka1.banking.models.Account;
 import com.banka1.banking.models.Transaction;
 import com.banka1.banking.models.Transfer;
+import com.banka1.banking.models.helper.CurrencyType;
 import com.banka1.banking.models.helper.TransferStatus;
 import com.banka1.banking.models.helper.TransferType;
 import com.banka1.banking.repository.AccountRepository;
@@ -14,6 +15,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
@@ -33,6 +35,21 @@ class ExternalTransferServiceUnitTest {
     @Mock
     private AccountRepository accountRepository;
 
+    @Mock
+    private AccountLockService accountLockService;
+
+    @Mock
+    private LedgerService ledgerService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private SpendingLimitService spendingLimitService;
+
+    @Mock
+    private TransferMetrics transferMetrics;
+
     @InjectMocks
     private TransferService transferService;
 
@@ -45,10 +62,12 @@ class ExternalTransferServiceUnitTest {
         fromAccount = new Account();
         fromAccount.setId(1L);
         fromAccount.setBalance(5000.0);
+        fromAccount.setCurrencyType(CurrencyType.RSD);
 
         toAccount = new Account();
         toAccount.setId(2L);
         toAccount.setBalance(3000.0);
+        toAccount.setCurrencyType(CurrencyType.RSD);
 
         transfer = new Transfer();
         transfer.setId(100L);
@@ -0,0 +1,177 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.dto.BatchMoneyTransferDTO;
+import com.banka1.banking.dto.ExchangeMoneyTransferDTO;
+import com.banka1.banking.dto.InternalTransferDTO;
+import com.banka1.banking.dto.MoneyTransferDTO;
+import com.banka1.banking.models.IdempotencyRecord;
+import com.banka1.banking.repository.IdempotencyRecordRepository;
+import com.banka1.banking.utils.ResponseTemplate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private IdempotencyService idempotencyService;
+
+    private InternalTransferDTO request;
+    private AtomicInteger calls;
+    private Supplier<ResponseEntity<?>> action;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService(idempotencyRecordRepository, objectMapper, 100, 60_000L);
+
+        request = new InternalTransferDTO();
+        request.setFromAccountId(1L);
+        request.setToAccountId(2L);
+        request.setAmount(500.0);
+
+        calls = new AtomicInteger();
+        action = () -> ResponseTemplate.create(ResponseEntity.status(HttpStatus.OK), true,
+                Map.of("transferId", 10L + calls.incrementAndGet()), null);
+    }
+
+    @Test
+    void requestWithoutKeyAlwaysRuns() {
+        idempotencyService.execute(null, 1L, "/internal-transfer", request, action);
+        idempotencyService.execute(" ", 1L, "/internal-transfer", request, action);
+
+        assertEquals(2, calls.get());
+        verifyNoInteractions(idempotencyRecordRepository);
+    }
+
+    @Test
+    void retryIsServedFromCache() {
+        ResponseEntity<?> first = idempotencyService.execute("key-1", 1L, "/internal-transfer", request, action);
+        ResponseEntity<?> retry = idempotencyService.execute("key-1", 1L, "/internal-transfer", request, action);
+
+        assertEquals(1, calls.get());
+        assertEquals(first.getBody(), retry.getBody());
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+
+        ArgumentCaptor<IdempotencyRecord> captor = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(idempotencyRecordRepository).save(captor.capture());
+        assertEquals(200, captor.getValue().getStatusCode());
+        assertTrue(captor.getValue().getResponseBody().contains("\"transferId\":11"));
+        verify(idempotencyRecordRepository, times(1)).saveAndFlush(any());
+    }
+
+    @Test
+    void retryOnAnotherReplicaIsServedFromDatabase() throws Exception {
+        IdempotencyRecord stored = new IdempotencyRecord();
+        stored.setIdempotencyKey("key-1");
+        stored.setEndpoint("/internal-transfer");
+        stored.setStatusCode(200);
+        stored.setResponseBody("{\"success\":true,\"data\":{\"transferId\":11}}");
+        stored.setCreatedAt(System.currentTimeMillis());
+        // Hash se racuna isto kao u servisu, pa ga dobijamo iz zapisa koji bi servis napravio
+        when(idempotencyRecordRepository.saveAndFlush(any(IdempotencyRecord.class))).thenAnswer(invocation -> {
+            stored.setRequestHash(invocation.<IdempotencyRecord>getArgument(0).getRequestHash());
+            throw new DataIntegrityViolationException("duplicate key");
+        });
+        when(idempotencyRecordRepository.findByUserIdAndIdempotencyKeyAndEndpoint(1L, "key-1", "/internal-transfer")).thenReturn(Optional.of(stored));
+
+        ResponseEntity<?> response = idempotencyService.execute("key-1", 1L, "/internal-transfer", request, action);
+
+        assertEquals(0, calls.get());
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(objectMapper.readValue(stored.getResponseBody(), Map.class), response.getBody());
+    }
+
+    @Test
+    void keyInProgressIsRejected() {
+        IdempotencyRecord inProgress = new IdempotencyRecord();
+        inProgress.setRequestHash("hash");
+        inProgress.setCreatedAt(System.currentTimeMillis());
+        when(idempotencyRecordRepository.saveAndFlush(any(IdempotencyRecord.class))).thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(idempotencyRecordRepository.findByUserIdAndIdempotencyKeyAndEndpoint(1L, "key-1", "/internal-transfer")).thenReturn(Optional.of(inProgress));
+
+        ResponseEntity<?> response = idempotencyService.execute("key-1", 1L, "/internal-transfer", request, action);
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    void sameKeyWithDifferentBodyIsRejected() {
+        idempotencyService.execute("key-1", 1L, "/internal-transfer", request, action);
+
+        request.setAmount(600.0);
+        ResponseEntity<?> response = idempotencyService.execute("key-1", 1L, "/internal-transfer", request, action);
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, response.getStatusCode());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void failedResponseReleasesKey() {
+        Supplier<ResponseEntity<?>> failing = () -> {
+            calls.incrementAndGet();
+            return ResponseTemplate.create(ResponseEntity.status(HttpStatus.BAD_REQUEST), false, null, "Nevalidni podaci ili nedovoljno sredstava.");
+        };
+
+        idempotencyService.execute("key-1", 1L, "/internal-transfer", request, failing);
+        idempotencyService.execute("key-1", 1L, "/internal-transfer", request, failing);
+
+        assertEquals(2, calls.get());
+        verify(idempotencyRecordRepository, times(2)).delete(any(IdempotencyRecord.class));
+        verify(idempotencyRecordRepository, never()).save(any());
+    }
+
+    @Test
+    void releasedKeysOnlyGuardActionsThatPersistAtomically() throws Exception {
+        // Kljuc neuspelog zahteva se oslobadja, pa kreiranje transfera ne sme ostaviti nista upisano kada ne uspe
+        assertNotNull(TransferService.class.getMethod("createInternalTransfer", InternalTransferDTO.class).getAnnotation(Transactional.class));
+        assertNotNull(TransferService.class.getMethod("createMoneyTransfer", MoneyTransferDTO.class).getAnnotation(Transactional.class));
+        assertNotNull(TransferService.class.getMethod("createMoneyTransferBatch", BatchMoneyTransferDTO.class).getAnnotation(Transactional.class));
+        assertNotNull(ExchangeService.class.getMethod("createExchangeTransfer", ExchangeMoneyTransferDTO.class).getAnnotation(Transactional.class));
+    }
+
+    @Test
+    void keysAreScopedToUser() {
+        ResponseEntity<?> first = idempotencyService.execute("key-1", 1L, "/internal-transfer", request, action);
+        ResponseEntity<?> otherUser = idempotencyService.execute("key-1", 2L, "/internal-transfer", request, action);
+
+        assertEquals(2, calls.get());
+        assertNotEquals(first.getBody(), otherUser.getBody());
+        assertNull(otherUser.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+
+        ArgumentCaptor<IdempotencyRecord> captor = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(idempotencyRecordRepository, times(2)).saveAndFlush(captor.capture());
+        assertEquals(1L, captor.getAllValues().get(0).getUserId());
+        assertEquals(2L, captor.getAllValues().get(1).getUserId());
+    }
+
+    @Test
+    void keysAreScopedToEndpoint() {
+        idempotencyService.execute("key-1", 1L, "/internal-transfer", request, action);
+        idempotencyService.execute("key-1", 1L, "/money-transfer", request, action);
+
+        assertEquals(2, calls.get());
+    }
+}
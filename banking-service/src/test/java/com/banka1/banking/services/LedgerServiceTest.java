@@ -0,0 +1,282 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.models.Account;
+import com.banka1.banking.models.BalanceSnapshot;
+import com.banka1.banking.models.LedgerEntry;
+import com.banka1.banking.models.Transfer;
+import com.banka1.banking.models.helper.AccountType;
+import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.repository.AccountRepository;
+import com.banka1.banking.repository.BalanceSnapshotRepository;
+import com.banka1.banking.repository.HouseAccountShardRepository;
+import com.banka1.banking.repository.LedgerEntryRepository;
+import com.banka1.banking.repository.projection.ShardAmountView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerServiceTest {
+
+    @Mock
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Mock
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private HouseAccountShardRepository houseAccountShardRepository;
+
+    private LedgerService ledgerService;
+
+    private Account houseAccount;
+    private Account customerAccount;
+
+    @BeforeEach
+    void setUp() {
+        ledgerService = new LedgerService(ledgerEntryRepository, balanceSnapshotRepository, accountRepository, houseAccountShardRepository, 4);
+
+        houseAccount = new Account();
+        houseAccount.setId(1L);
+        houseAccount.setType(AccountType.BANK);
+        houseAccount.setCurrencyType(CurrencyType.RSD);
+        houseAccount.setBalance(1000.0);
+
+        customerAccount = new Account();
+        customerAccount.setId(2L);
+        customerAccount.setType(AccountType.CURRENT);
+        customerAccount.setCurrencyType(CurrencyType.RSD);
+        customerAccount.setBalance(300.0);
+    }
+
+    @Test
+    void postAppendsEntryWithoutTouchingBalance() {
+        when(ledgerEntryRepository.save(any(LedgerEntry.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        LedgerEntry entry = ledgerService.post(null, houseAccount, -250.0, "Realizacija naloga");
+
+        assertEquals(1L, entry.getAccountId());
+        assertEquals(CurrencyType.RSD, entry.getCurrencyType());
+        assertEquals(-250.0, entry.getAmount());
+        assertNotNull(entry.getCreatedAt());
+        assertEquals(1000.0, houseAccount.getBalance());
+    }
+
+    @Test
+    void postSpreadsHouseAccountTransfersOverShards() {
+        when(ledgerEntryRepository.save(any(LedgerEntry.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertEquals(1, ledgerService.post(transfer(5L), houseAccount, 10.0, "Promena valute").getShard());
+        assertEquals(2, ledgerService.post(transfer(6L), houseAccount, 10.0, "Promena valute").getShard());
+        assertEquals(0, ledgerService.post(transfer(5L), customerAccount, 10.0, "Promena valute").getShard());
+    }
+
+    @Test
+    void customerBalanceComesFromRow() {
+        assertEquals(300.0, ledgerService.getBalance(customerAccount));
+        verifyNoInteractions(ledgerEntryRepository, balanceSnapshotRepository);
+    }
+
+    @Test
+    void houseBalanceWithoutSnapshotAddsAllPostingsToRow() {
+        when(balanceSnapshotRepository.findFirstByAccountIdOrderByTxWatermarkDesc(1L)).thenReturn(Optional.empty());
+        when(ledgerEntryRepository.sumForAccountBetweenTx(1L, 0L, Long.MAX_VALUE)).thenReturn(150.0);
+
+        assertEquals(1150.0, ledgerService.getBalance(houseAccount));
+    }
+
+    @Test
+    void houseBalanceIsSumOfShardSnapshotsPlusPostingsAboveWatermark() {
+        BalanceSnapshot first = snapshot(0, 3000.0, 100L);
+        BalanceSnapshot second = snapshot(1, 2000.0, 100L);
+
+        when(balanceSnapshotRepository.findFirstByAccountIdOrderByTxWatermarkDesc(1L)).thenReturn(Optional.of(first));
+        when(balanceSnapshotRepository.findByAccountIdAndTxWatermark(1L, 100L)).thenReturn(List.of(first, second));
+        when(ledgerEntryRepository.sumForAccountBetweenTx(1L, 100L, Long.MAX_VALUE)).thenReturn(-200.0);
+
+        assertEquals(4800.0, ledgerService.getBalance(houseAccount));
+    }
+
+    @Test
+    void takeSnapshotsStopsAtTransactionWatermark() {
+        when(balanceSnapshotRepository.findTxWatermark()).thenReturn(500L);
+        when(ledgerEntryRepository.findAccountIdsWithEntriesSinceLastSnapshot(500L)).thenReturn(List.of(1L, 2L));
+        when(accountRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(houseAccount, customerAccount));
+        when(balanceSnapshotRepository.findFirstByAccountIdOrderByTxWatermarkDesc(anyLong())).thenReturn(Optional.empty());
+        // Red klijentskog racuna vec sadrzi 100.0 knjizenja, pre njih je stanje bilo 200.0
+        when(ledgerEntryRepository.findBalanceBeforeEntries(2L)).thenReturn(200.0);
+        when(ledgerEntryRepository.sumByShardBetweenTx(1L, 0L, 500L)).thenReturn(List.of(shardSum(0, 20.0), shardSum(3, 30.0)));
+        when(ledgerEntryRepository.sumByShardBetweenTx(2L, 0L, 500L)).thenReturn(List.of(shardSum(0, 100.0)));
+        // Knjizenje transakcije koja je jos u toku ulazi u stanje reda, ali ne i u snapshot
+        when(ledgerEntryRepository.sumForAccountBetweenTx(1L, 500L, Long.MAX_VALUE)).thenReturn(25.0);
+
+        ledgerService.takeSnapshots();
+
+        ArgumentCaptor<BalanceSnapshot> captor = ArgumentCaptor.forClass(BalanceSnapshot.class);
+        verify(balanceSnapshotRepository, times(3)).save(captor.capture());
+        // Pocetno stanje racuna banke ide na podracun 0
+        assertEquals(0, captor.getAllValues().get(0).getShard());
+        assertEquals(1020.0, captor.getAllValues().get(0).getBalance());
+        assertEquals(500L, captor.getAllValues().get(0).getTxWatermark());
+        assertEquals(3, captor.getAllValues().get(1).getShard());
+        assertEquals(30.0, captor.getAllValues().get(1).getBalance());
+        assertEquals(300.0, captor.getAllValues().get(2).getBalance());
+
+        verify(accountRepository).updateBalance(1L, 1075.0);
+        verify(accountRepository, never()).updateBalance(eq(2L), anyDouble());
+    }
+
+    @Test
+    void takeSnapshotsCarriesEveryShardFromPreviousWatermark() {
+        BalanceSnapshot first = snapshot(0, 1500.0, 300L);
+        BalanceSnapshot second = snapshot(1, 500.0, 300L);
+
+        when(balanceSnapshotRepository.findTxWatermark()).thenReturn(500L);
+        when(ledgerEntryRepository.findAccountIdsWithEntriesSinceLastSnapshot(500L)).thenReturn(List.of(1L));
+        when(accountRepository.findAllById(List.of(1L))).thenReturn(List.of(houseAccount));
+        when(balanceSnapshotRepository.findFirstByAccountIdOrderByTxWatermarkDesc(1L)).thenReturn(Optional.of(first));
+        when(balanceSnapshotRepository.findByAccountIdAndTxWatermark(1L, 300L)).thenReturn(List.of(first, second));
+        when(ledgerEntryRepository.sumByShardBetweenTx(1L, 300L, 500L)).thenReturn(List.of(shardSum(1, -100.0)));
+        when(ledgerEntryRepository.sumForAccountBetweenTx(1L, 500L, Long.MAX_VALUE)).thenReturn(0.0);
+
+        ledgerService.takeSnapshots();
+
+        ArgumentCaptor<BalanceSnapshot> captor = ArgumentCaptor.forClass(BalanceSnapshot.class);
+        verify(balanceSnapshotRepository, times(2)).save(captor.capture());
+        assertEquals(1500.0, captor.getAllValues().get(0).getBalance());
+        assertEquals(400.0, captor.getAllValues().get(1).getBalance());
+        verify(accountRepository).updateBalance(1L, 1900.0);
+    }
+
+    @Test
+    void debitTakesAmountFromHashedShard() {
+        when(houseAccountShardRepository.existsByAccountIdAndShard(1L, 3)).thenReturn(true);
+        when(houseAccountShardRepository.tryLockShard(1L, 1)).thenReturn(List.of(1));
+        stubShardBalance(1, 500.0);
+        when(ledgerEntryRepository.save(any(LedgerEntry.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertTrue(ledgerService.debit(transfer(5L), houseAccount, 200.0, "Prenos novca"));
+
+        ArgumentCaptor<LedgerEntry> captor = ArgumentCaptor.forClass(LedgerEntry.class);
+        verify(ledgerEntryRepository).save(captor.capture());
+        assertEquals(1, captor.getValue().getShard());
+        assertEquals(-200.0, captor.getValue().getAmount());
+        verify(houseAccountShardRepository, never()).tryLockShard(1L, 2);
+    }
+
+    @Test
+    void debitSkipsBusyShardsAndSplitsOverLockedOnes() {
+        when(houseAccountShardRepository.existsByAccountIdAndShard(1L, 3)).thenReturn(false);
+        when(houseAccountShardRepository.tryLockShard(1L, 1)).thenReturn(List.of(1));
+        when(houseAccountShardRepository.tryLockShard(1L, 2)).thenReturn(List.of());
+        when(houseAccountShardRepository.tryLockShard(1L, 3)).thenReturn(List.of(3));
+        when(houseAccountShardRepository.tryLockShard(1L, 0)).thenReturn(List.of(0));
+        stubShardBalance(1, 100.0);
+        stubShardBalance(3, 150.0);
+        stubShardBalance(0, -20.0);
+        when(ledgerEntryRepository.save(any(LedgerEntry.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertTrue(ledgerService.debit(transfer(5L), houseAccount, 200.0, "Prenos novca"));
+
+        verify(houseAccountShardRepository).createShards(1L, 4);
+        ArgumentCaptor<LedgerEntry> captor = ArgumentCaptor.forClass(LedgerEntry.class);
+        verify(ledgerEntryRepository, times(2)).save(captor.capture());
+        assertEquals(3, captor.getAllValues().get(0).getShard());
+        assertEquals(-150.0, captor.getAllValues().get(0).getAmount());
+        assertEquals(1, captor.getAllValues().get(1).getShard());
+        assertEquals(-50.0, captor.getAllValues().get(1).getAmount());
+    }
+
+    @Test
+    void debitFailsWhenAllShardsTogetherDoNotCoverAmount() {
+        when(houseAccountShardRepository.existsByAccountIdAndShard(1L, 3)).thenReturn(true);
+        when(houseAccountShardRepository.tryLockShard(eq(1L), anyInt()))
+                .thenAnswer(invocation -> List.of(invocation.<Integer>getArgument(1)));
+        for (int shard = 0; shard < 4; shard++) {
+            stubShardBalance(shard, 10.0);
+        }
+
+        assertFalse(ledgerService.debit(transfer(5L), houseAccount, 200.0, "Prenos novca"));
+        verify(ledgerEntryRepository, never()).save(any());
+    }
+
+    @Test
+    void debitIsRetriedWhenMissingFundsAreOnBusyShards() {
+        when(houseAccountShardRepository.existsByAccountIdAndShard(1L, 3)).thenReturn(true);
+        when(houseAccountShardRepository.tryLockShard(eq(1L), anyInt())).thenReturn(List.of());
+        when(houseAccountShardRepository.tryLockShard(1L, 1)).thenReturn(List.of(1));
+        stubShardBalance(1, 10.0);
+
+        assertThrows(CannotAcquireLockException.class,
+                () -> ledgerService.debit(transfer(5L), houseAccount, 200.0, "Prenos novca"));
+        verify(ledgerEntryRepository, never()).save(any());
+    }
+
+    @Test
+    void rebalanceEvensOutFreeShardsWithoutChangingTheBalance() {
+        when(accountRepository.findByType(AccountType.BANK)).thenReturn(List.of(houseAccount));
+        when(houseAccountShardRepository.existsByAccountIdAndShard(1L, 3)).thenReturn(true);
+        // Podracun 2 drzi transfer koji je u toku, pa ga preraspodela preskace
+        when(houseAccountShardRepository.tryLockFreeShards(1L)).thenReturn(List.of(0, 1, 3));
+        stubShardBalance(0, 900.0);
+        stubShardBalance(1, -100.0);
+        stubShardBalance(3, 200.01);
+        when(ledgerEntryRepository.save(any(LedgerEntry.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ledgerService.rebalanceHouseAccounts();
+
+        ArgumentCaptor<LedgerEntry> captor = ArgumentCaptor.forClass(LedgerEntry.class);
+        verify(ledgerEntryRepository, times(3)).save(captor.capture());
+        List<LedgerEntry> moves = captor.getAllValues();
+        assertEquals(-566.66, moves.get(0).getAmount(), 1e-9);
+        assertEquals(433.34, moves.get(1).getAmount(), 1e-9);
+        assertEquals(133.32, moves.get(2).getAmount(), 1e-9);
+        assertEquals(0L, moves.stream().mapToLong(move -> Math.round(move.getAmount() * 100)).sum());
+        assertEquals(List.of(0, 1, 3), moves.stream().map(LedgerEntry::getShard).toList());
+    }
+
+    private void stubShardBalance(int shard, double balance) {
+        BalanceSnapshot snapshot = snapshot(shard, balance, 100L);
+        when(balanceSnapshotRepository.findFirstByAccountIdAndShardOrderByTxWatermarkDesc(1L, shard)).thenReturn(Optional.of(snapshot));
+        when(ledgerEntryRepository.sumForShardBetweenTx(1L, shard, 100L, Long.MAX_VALUE)).thenReturn(0.0);
+    }
+
+    private static BalanceSnapshot snapshot(int shard, double balance, long txWatermark) {
+        BalanceSnapshot snapshot = new BalanceSnapshot();
+        snapshot.setAccountId(1L);
+        snapshot.setShard(shard);
+        snapshot.setBalance(balance);
+        snapshot.setTxWatermark(txWatermark);
+        return snapshot;
+    }
+
+    private static Transfer transfer(Long id) {
+        Transfer transfer = new Transfer();
+        transfer.setId(id);
+        return transfer;
+    }
+
+    private static ShardAmountView shardSum(int shard, double amount) {
+        return new ShardAmountView() {
+            @Override
+            public Integer getShard() { return shard; }
+
+            @Override
+            public Double getAmount() { return amount; }
+        };
+    }
+}
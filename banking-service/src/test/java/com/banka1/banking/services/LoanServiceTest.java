@@ -431,6 +431,18 @@ public class LoanServiceTest {
         assertEquals(PaymentStatus.PENDING, pendingLoans.get(0).getPaymentStatus());
     }
 
+    @Test
+    public void testCalculateRemaining_WithoutCurrency() {
+        Loan loan = new Loan();
+        loan.setNumberOfInstallments(12);
+        loan.setNumberOfPaidInstallments(2);
+        loan.setMonthlyPayment(100.5);
+
+        loanService.calculateRemaining(loan);
+
+        assertEquals(1005.0, loan.getRemainingAmount());
+    }
+
 
 
 
@@ -0,0 +1,100 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.repository.MonthEndRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MonthEndBatchServiceTest {
+
+    private static final YearMonth PERIOD = YearMonth.of(2025, 3);
+
+    @Mock
+    private MonthEndRepository monthEndRepository;
+
+    @Mock
+    private MonthEndChunkService monthEndChunkService;
+
+    private MonthEndBatchService monthEndBatchService;
+
+    @BeforeEach
+    void setUp() {
+        monthEndBatchService = new MonthEndBatchService(monthEndRepository, monthEndChunkService, 1000, 3, "Europe/Belgrade", Runnable::run);
+    }
+
+    @Test
+    void resumedRunSkipsCheckpointedChunks() {
+        when(monthEndRepository.findMaxAccountId()).thenReturn(50L);
+        // Obracun je zapoceo sa delovima od 10 racuna do racuna 35, pre nego sto je podesavanje promenjeno
+        when(monthEndRepository.findRun("2025-03")).thenReturn(Optional.of(new MonthEndRepository.Run("2025-03", 10, 35L, null)));
+        when(monthEndRepository.findCompletedChunks("2025-03")).thenReturn(Set.of(0L, 20L));
+        when(monthEndChunkService.processChunk(eq(PERIOD), anyLong(), anyLong())).thenReturn(4);
+
+        assertEquals(8, monthEndBatchService.run(PERIOD));
+
+        verify(monthEndChunkService).processChunk(PERIOD, 10L, 20L);
+        verify(monthEndChunkService).processChunk(PERIOD, 30L, 40L);
+        verifyNoMoreInteractions(monthEndChunkService);
+        verify(monthEndRepository).finishRun(eq("2025-03"), anyLong());
+    }
+
+    @Test
+    void runWithFailedChunkStaysOpen() {
+        when(monthEndRepository.findRun("2025-03")).thenReturn(Optional.of(new MonthEndRepository.Run("2025-03", 1000, 2500L, null)));
+        when(monthEndRepository.findCompletedChunks("2025-03")).thenReturn(Set.of());
+        when(monthEndChunkService.processChunk(eq(PERIOD), anyLong(), anyLong())).thenReturn(1);
+        when(monthEndChunkService.processChunk(PERIOD, 1000L, 2000L)).thenThrow(new RuntimeException("deadlock"));
+
+        assertEquals(2, monthEndBatchService.run(PERIOD));
+
+        verify(monthEndChunkService, times(3)).processChunk(eq(PERIOD), anyLong(), anyLong());
+        verify(monthEndRepository, never()).finishRun(any(), anyLong());
+    }
+
+    @Test
+    void finishedRunIsNotRepeated() {
+        when(monthEndRepository.findRun("2025-03")).thenReturn(Optional.of(new MonthEndRepository.Run("2025-03", 1000, 2500L, 1L)));
+
+        assertEquals(0, monthEndBatchService.run(PERIOD));
+
+        verifyNoInteractions(monthEndChunkService);
+    }
+
+    @Test
+    void unfinishedRunsAreResumedOnStartup() {
+        when(monthEndRepository.findUnfinishedPeriods()).thenReturn(List.of("2025-03"));
+        when(monthEndRepository.findRun("2025-03")).thenReturn(Optional.of(new MonthEndRepository.Run("2025-03", 1000, 500L, null)));
+        when(monthEndRepository.findCompletedChunks("2025-03")).thenReturn(Set.of());
+
+        monthEndBatchService.resumeUnfinishedRuns();
+
+        verify(monthEndChunkService).processChunk(PERIOD, 0L, 1000L);
+        verify(monthEndRepository).finishRun(eq("2025-03"), anyLong());
+    }
+
+    @Test
+    void scheduledRunIsHandedOffToRunner() {
+        List<Runnable> runner = new ArrayList<>();
+        monthEndBatchService = new MonthEndBatchService(monthEndRepository, monthEndChunkService, 1000, 3, "Europe/Belgrade", runner::add);
+
+        monthEndBatchService.runForPreviousMonth();
+        monthEndBatchService.resumeUnfinishedRuns();
+
+        // Nit scheduler-a i start aplikacije samo predaju obracun, ne rade ga
+        assertEquals(2, runner.size());
+        verifyNoInteractions(monthEndRepository, monthEndChunkService);
+    }
+}
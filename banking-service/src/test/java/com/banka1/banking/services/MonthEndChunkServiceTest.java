@@ -0,0 +1,113 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.models.Account;
+import com.banka1.banking.models.Currency;
+import com.banka1.banking.models.helper.AccountSubtype;
+import com.banka1.banking.models.helper.AccountType;
+import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.repository.MonthEndRepository;
+import com.banka1.banking.repository.MonthEndRepository.AccountRow;
+import com.banka1.banking.repository.MonthEndRepository.Posting;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MonthEndChunkServiceTest {
+
+    private static final YearMonth PERIOD = YearMonth.of(2025, 3);
+
+    @Mock
+    private MonthEndRepository monthEndRepository;
+
+    @Mock
+    private LedgerService ledgerService;
+
+    @Mock
+    private BankAccountUtils bankAccountUtils;
+
+    @Mock
+    private CurrencyCache currencyCache;
+
+    private MonthEndChunkService monthEndChunkService;
+
+    @BeforeEach
+    void setUp() {
+        monthEndChunkService = new MonthEndChunkService(monthEndRepository, ledgerService, bankAccountUtils, currencyCache, 0.024);
+    }
+
+    @Test
+    void chargesFeesAndCreditsSavingsInterest() {
+        Account bankRsd = bankAccount(900L, CurrencyType.RSD);
+        Account bankEur = bankAccount(901L, CurrencyType.EUR);
+        when(monthEndRepository.claimChunk(eq("2025-03"), eq(0L), anyLong())).thenReturn(true);
+        when(monthEndRepository.lockAccounts(0L, 1000L)).thenReturn(List.of(
+                new AccountRow(1L, CurrencyType.RSD, AccountSubtype.STANDARD, 1000.0, 0.0, 250.0),
+                new AccountRow(2L, CurrencyType.RSD, AccountSubtype.SAVINGS, 10000.0, 0.0, 100.0),
+                // Raspolozivo stanje ne pokriva naknadu
+                new AccountRow(3L, CurrencyType.EUR, AccountSubtype.STANDARD, 15.0, 10.0, 10.0)));
+        when(bankAccountUtils.getBankAccountForCurrency(CurrencyType.RSD)).thenReturn(bankRsd);
+        when(bankAccountUtils.getBankAccountForCurrency(CurrencyType.EUR)).thenReturn(bankEur);
+        when(currencyCache.get(CurrencyType.RSD)).thenReturn(currency(1L, CurrencyType.RSD));
+        when(currencyCache.get(CurrencyType.EUR)).thenReturn(currency(2L, CurrencyType.EUR));
+
+        assertEquals(3, monthEndChunkService.processChunk(PERIOD, 0L, 1000L));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Posting>> postings = ArgumentCaptor.forClass(List.class);
+        verify(monthEndRepository).insertPostings(postings.capture(), anyLong());
+        assertEquals(List.of(
+                new Posting(1L, 900L, 1L, 1L, CurrencyType.RSD, 250.0, -250.0, "Održavanje računa za 2025-03"),
+                new Posting(2L, 900L, 2L, 1L, CurrencyType.RSD, 100.0, -100.0, "Održavanje računa za 2025-03"),
+                new Posting(900L, 2L, 2L, 1L, CurrencyType.RSD, 20.0, 20.0, "Kamata na štednju za 2025-03")), postings.getValue());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<SortedMap<Long, Double>> balances = ArgumentCaptor.forClass(SortedMap.class);
+        verify(monthEndRepository).updateBalances(balances.capture());
+        assertEquals(Map.of(1L, -250.0, 2L, -80.0), balances.getValue());
+
+        // Racun banke dobija po jednu stavku dnevnika za naknade i za kamatu
+        verify(ledgerService).post(null, bankRsd, 350.0, "Održavanje računa za 2025-03");
+        verify(ledgerService).post(null, bankRsd, -20.0, "Kamata na štednju za 2025-03");
+        verifyNoMoreInteractions(ledgerService);
+        verify(monthEndRepository).completeChunk("2025-03", 0L, 3);
+    }
+
+    @Test
+    void processedChunkIsSkipped() {
+        when(monthEndRepository.claimChunk(eq("2025-03"), eq(0L), anyLong())).thenReturn(false);
+
+        assertEquals(0, monthEndChunkService.processChunk(PERIOD, 0L, 1000L));
+
+        verify(monthEndRepository, never()).lockAccounts(anyLong(), anyLong());
+        verify(monthEndRepository, never()).insertPostings(any(), anyLong());
+        verifyNoInteractions(ledgerService);
+    }
+
+    private static Account bankAccount(Long id, CurrencyType currency) {
+        Account account = new Account();
+        account.setId(id);
+        account.setType(AccountType.BANK);
+        account.setCurrencyType(currency);
+        return account;
+    }
+
+    private static Currency currency(Long id, CurrencyType code) {
+        Currency currency = new Currency();
+        currency.setId(id);
+        currency.setCode(code);
+        return currency;
+    }
+}
@@ -2,6 +2,7 @@ package com.banka1.banking.services;
 
 import com.banka1.banking.dto.MoneyTransferDTO;
 import com.banka1.banking.models.Account;
+import com.banka1.banking.models.helper.AccountType;
 import com.banka1.banking.models.helper.CurrencyType;
 import com.banka1.banking.repository.AccountRepository;
 import com.banka1.banking.repository.TransactionRepository;
@@ -29,6 +30,8 @@ public class OrderServiceTest {
     private AccountRepository accountRepository;
     @Mock
     private TransferService transferService;
+    @Mock
+    private LedgerService ledgerService;
 
     @InjectMocks
     private OrderService orderService;
@@ -51,6 +54,9 @@ public class OrderServiceTest {
         bankAccount.setAccountNumber("000-111");
         bankAccount.setBalance(1000000.0);
         bankAccount.setCurrencyType(CurrencyType.RSD);
+
+        lenient().when(ledgerService.getBalance(any(Account.class)))
+                .thenAnswer(invocation -> invocation.<Account>getArgument(0).getBalance());
     }
 
     @Test
@@ -135,17 +141,49 @@ public class OrderServiceTest {
     }
 
     @Test
-    void testExecuteOrder_SameAccount_UpdatesBalanceDirectly() {
+    void testExecuteOrder_SameAccount_PostsToLedger() {
         when(accountService.findById(1L)).thenReturn(userAccount);
         when(bankAccountUtils.getBankAccountForCurrency(CurrencyType.RSD)).thenReturn(userAccount);
 
         double result = orderService.executeOrder("buy", 10L, 1L, 1000.0, 100.0);
 
         assertEquals(1000.0, result);
-        assertEquals(98900.0, userAccount.getBalance());
-        verify(accountRepository).save(userAccount);
+        assertEquals(100000.0, userAccount.getBalance());
+        verify(ledgerService).post(isNull(), eq(userAccount), eq(-1100.0), anyString());
+        verify(accountRepository, never()).save(any());
+        verifyNoInteractions(transferService);
+    }
+    @Test
+    void testExecuteOrder_HouseAccountIsDebitedThroughShards() {
+        bankAccount.setOwnerID(10L);
+        bankAccount.setType(AccountType.BANK);
+        when(accountService.findById(2L)).thenReturn(bankAccount);
+        when(bankAccountUtils.getBankAccountForCurrency(CurrencyType.RSD)).thenReturn(bankAccount);
+        when(ledgerService.debit(isNull(), eq(bankAccount), eq(1100.0), anyString())).thenReturn(true);
+
+        double result = orderService.executeOrder("buy", 10L, 2L, 1000.0, 100.0);
+
+        assertEquals(1000.0, result);
+        verify(ledgerService, never()).post(any(), any(), anyDouble(), anyString());
+        verify(ledgerService, never()).getBalance(any());
         verifyNoInteractions(transferService);
     }
+
+    @Test
+    void testExecuteOrder_HouseAccountWithoutFundsFails() {
+        bankAccount.setOwnerID(10L);
+        bankAccount.setType(AccountType.BANK);
+        when(accountService.findById(2L)).thenReturn(bankAccount);
+        when(bankAccountUtils.getBankAccountForCurrency(CurrencyType.RSD)).thenReturn(bankAccount);
+        when(ledgerService.debit(isNull(), eq(bankAccount), eq(1100.0), anyString())).thenReturn(false);
+
+        assertThrows(IllegalArgumentException.class, () ->
+                orderService.executeOrder("buy", 10L, 2L, 1000.0, 100.0)
+        );
+
+        verify(ledgerService, never()).post(any(), any(), anyDouble(), anyString());
+    }
+
     @Test
     void testExecuteOrder_RollbackIfTransferFails() {
         when(accountService.findById(1L)).thenReturn(userAccount);
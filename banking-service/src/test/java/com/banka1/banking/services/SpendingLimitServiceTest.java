@@ -0,0 +1,106 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.models.Account;
+import com.banka1.banking.models.helper.AccountType;
+import com.banka1.banking.repository.AccountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SpendingLimitServiceTest {
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    private SpendingLimitService spendingLimitService;
+
+    private Account account;
+
+    @BeforeEach
+    void setUp() {
+        spendingLimitService = new SpendingLimitService(accountRepository, 8, "Europe/Belgrade");
+
+        account = new Account();
+        account.setId(1L);
+        account.setType(AccountType.CURRENT);
+        account.setDailyLimit(1000.0);
+        account.setMonthlyLimit(5000.0);
+        account.setDailySpent(600.0);
+        account.setMonthlySpent(600.0);
+    }
+
+    @Test
+    void limitCountsPersistedAndUnwrittenSpending() {
+        assertFalse(spendingLimitService.wouldExceedLimit(account, 400.0));
+
+        spendingLimitService.recordSpending(account, 300.0);
+
+        assertTrue(spendingLimitService.wouldExceedLimit(account, 200.0));
+        assertFalse(spendingLimitService.wouldExceedLimit(account, 100.0));
+    }
+
+    @Test
+    void monthlyLimitIsCheckedToo() {
+        account.setDailySpent(0.0);
+        account.setMonthlySpent(4900.0);
+
+        assertTrue(spendingLimitService.wouldExceedLimit(account, 200.0));
+    }
+
+    @Test
+    void houseAccountsHaveNoLimit() {
+        account.setType(AccountType.BANK);
+
+        assertFalse(spendingLimitService.wouldExceedLimit(account, 1_000_000.0));
+        spendingLimitService.recordSpending(account, 1_000_000.0);
+        spendingLimitService.flush();
+        verifyNoInteractions(accountRepository);
+    }
+
+    @Test
+    void flushWritesOneDeltaPerAccount() {
+        spendingLimitService.recordSpending(account, 100.0);
+        spendingLimitService.recordSpending(account, 50.0);
+
+        spendingLimitService.flush();
+        spendingLimitService.flush();
+
+        verify(accountRepository, times(1)).addSpent(1L, 150.0);
+        // Upisana potrosnja je sada u bazi, pa se vise ne racuna dvaput
+        assertFalse(spendingLimitService.wouldExceedLimit(account, 400.0));
+    }
+
+    @Test
+    void failedFlushIsRetried() {
+        spendingLimitService.recordSpending(account, 100.0);
+        when(accountRepository.addSpent(1L, 100.0)).thenThrow(new RuntimeException("connection lost")).thenReturn(1);
+
+        spendingLimitService.flush();
+        assertTrue(spendingLimitService.wouldExceedLimit(account, 350.0));
+        spendingLimitService.flush();
+
+        verify(accountRepository, times(2)).addSpent(1L, 100.0);
+    }
+
+    @Test
+    void resetFlushesFirstAndResetsMonthOnFirstDay() {
+        spendingLimitService.recordSpending(account, 100.0);
+
+        spendingLimitService.resetLimits(LocalDate.of(2026, 5, 14));
+        spendingLimitService.resetLimits(LocalDate.of(2026, 6, 1));
+
+        var order = inOrder(accountRepository);
+        order.verify(accountRepository).addSpent(1L, 100.0);
+        order.verify(accountRepository).resetDailySpent();
+        order.verify(accountRepository).resetDailyAndMonthlySpent();
+    }
+}
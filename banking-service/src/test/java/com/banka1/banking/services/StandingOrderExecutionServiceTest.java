@@ -0,0 +1,102 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.models.Transfer;
+import com.banka1.banking.models.helper.TransferStatus;
+import com.banka1.banking.repository.TransferRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StandingOrderExecutionServiceTest {
+
+    @Mock
+    private StandingOrderService standingOrderService;
+
+    @Mock
+    private TransferDispatchService transferDispatchService;
+
+    @Mock
+    private TransferRepository transferRepository;
+
+    private StandingOrderExecutionService executionService;
+
+    @BeforeEach
+    void setUp() {
+        executionService = new StandingOrderExecutionService(standingOrderService, transferDispatchService, transferRepository, 2, 3, 1000L);
+    }
+
+    @Test
+    void claimsBatchesUntilOneIsNotFull() {
+        when(standingOrderService.claimDueOrders(100L, 2))
+                .thenReturn(List.of(transfer(1L), transfer(2L)))
+                .thenReturn(List.of(transfer(3L)));
+
+        assertEquals(3, executionService.executeDueOrders(100L));
+
+        verify(standingOrderService, times(2)).claimDueOrders(100L, 2);
+        verify(transferDispatchService, times(3)).dispatch(any(Transfer.class));
+    }
+
+    @Test
+    void tickStopsAfterMaxBatches() {
+        when(standingOrderService.claimDueOrders(100L, 2)).thenAnswer(invocation -> List.of(transfer(1L), transfer(2L)));
+
+        assertEquals(6, executionService.executeDueOrders(100L));
+
+        verify(standingOrderService, times(3)).claimDueOrders(100L, 2);
+    }
+
+    @Test
+    void failedDispatchDoesNotStopTheBatch() {
+        Transfer failing = transfer(1L);
+        Transfer next = transfer(2L);
+        when(standingOrderService.claimDueOrders(100L, 2)).thenReturn(List.of(failing, next)).thenReturn(List.of());
+        doThrow(new RuntimeException("broker down")).when(transferDispatchService).dispatch(failing);
+
+        executionService.executeDueOrders(100L);
+
+        verify(transferDispatchService).dispatch(next);
+    }
+
+    @Test
+    void redispatchesStandingOrderTransfersLeftPending() {
+        Transfer stalled = transfer(1L);
+        Transfer takenOver = transfer(2L);
+        when(transferRepository.findStandingOrderTransfersByStatusAndCreatedAtBefore(TransferStatus.PENDING, 4000L))
+                .thenReturn(List.of(stalled, takenOver));
+        when(transferDispatchService.dispatch(stalled)).thenReturn(true);
+        when(transferDispatchService.dispatch(takenOver)).thenReturn(false);
+
+        assertEquals(1, executionService.redispatchStalled(5000L));
+
+        verify(transferDispatchService).dispatch(stalled);
+        verify(transferDispatchService).dispatch(takenOver);
+    }
+
+    @Test
+    void failedRedispatchDoesNotStopTheOthers() {
+        Transfer failing = transfer(1L);
+        Transfer next = transfer(2L);
+        when(transferRepository.findStandingOrderTransfersByStatusAndCreatedAtBefore(TransferStatus.PENDING, 4000L))
+                .thenReturn(List.of(failing, next));
+        doThrow(new RuntimeException("broker down")).when(transferDispatchService).dispatch(failing);
+        when(transferDispatchService.dispatch(next)).thenReturn(true);
+
+        assertEquals(1, executionService.redispatchStalled(5000L));
+    }
+
+    private static Transfer transfer(Long id) {
+        Transfer transfer = new Transfer();
+        transfer.setId(id);
+        return transfer;
+    }
+}
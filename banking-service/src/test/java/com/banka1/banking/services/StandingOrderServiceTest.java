@@ -0,0 +1,234 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.dto.StandingOrderDTO;
+import com.banka1.banking.models.Account;
+import com.banka1.banking.models.StandingOrder;
+import com.banka1.banking.models.Transfer;
+import com.banka1.banking.models.helper.StandingOrderStatus;
+import com.banka1.banking.repository.AccountRepository;
+import com.banka1.banking.repository.StandingOrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.support.CronExpression;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StandingOrderServiceTest {
+
+    private static final long WINDOW_MS = 7_200_000L;
+    private static final ZoneId ZONE = ZoneId.of("Europe/Belgrade");
+
+    @Mock
+    private StandingOrderRepository standingOrderRepository;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private TransferService transferService;
+
+    private StandingOrderService standingOrderService;
+
+    private Account fromAccount;
+    private Account toAccount;
+
+    @BeforeEach
+    void setUp() {
+        standingOrderService = new StandingOrderService(standingOrderRepository, accountRepository, transferService,
+                WINDOW_MS, 3_600_000L, "Europe/Belgrade");
+
+        fromAccount = new Account();
+        fromAccount.setId(1L);
+        fromAccount.setOwnerID(100L);
+        fromAccount.setAccountNumber("111000100000000110");
+
+        toAccount = new Account();
+        toAccount.setId(2L);
+        toAccount.setOwnerID(200L);
+        toAccount.setAccountNumber("111000100011000110");
+    }
+
+    @Test
+    void createStoresOrderWithSpreadFirstRun() {
+        when(accountRepository.findByAccountNumber("111000100000000110")).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByAccountNumber("111000100011000110")).thenReturn(Optional.of(toAccount));
+        when(standingOrderRepository.saveAndFlush(any(StandingOrder.class))).thenAnswer(invocation -> {
+            StandingOrder order = invocation.getArgument(0);
+            order.setId(42L);
+            return order;
+        });
+
+        Long id = standingOrderService.createStandingOrder(dto("0 0 9 1 * *", null));
+
+        assertEquals(42L, id);
+        ArgumentCaptor<StandingOrder> captor = ArgumentCaptor.forClass(StandingOrder.class);
+        verify(standingOrderRepository).saveAndFlush(captor.capture());
+        StandingOrder order = captor.getValue();
+        assertEquals(StandingOrderStatus.ACTIVE, order.getStatus());
+        assertEquals(100L, order.getOwnerId());
+        ZonedDateTime scheduled = ZonedDateTime.ofInstant(Instant.ofEpochMilli(order.getNextScheduledAt()), ZONE);
+        assertEquals(1, scheduled.getDayOfMonth());
+        assertEquals(9, scheduled.getHour());
+        assertEquals(order.getNextScheduledAt() + standingOrderService.spreadOffset(42L), order.getNextRunAt());
+    }
+
+    @Test
+    void createRejectsTooFrequentCron() {
+        when(accountRepository.findByAccountNumber("111000100000000110")).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByAccountNumber("111000100011000110")).thenReturn(Optional.of(toAccount));
+
+        assertThrows(IllegalArgumentException.class, () -> standingOrderService.createStandingOrder(dto("0 */5 * * * *", null)));
+        assertThrows(IllegalArgumentException.class, () -> standingOrderService.createStandingOrder(dto("not a cron", null)));
+        verify(standingOrderRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void createRejectsEndDateBeforeFirstRun() {
+        when(accountRepository.findByAccountNumber("111000100000000110")).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByAccountNumber("111000100011000110")).thenReturn(Optional.of(toAccount));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> standingOrderService.createStandingOrder(dto("0 0 9 1 * *", System.currentTimeMillis() - 1000)));
+    }
+
+    @Test
+    void createRejectsEndDateBeforeSpreadFirstRun() {
+        when(accountRepository.findByAccountNumber("111000100000000110")).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByAccountNumber("111000100011000110")).thenReturn(Optional.of(toAccount));
+        when(standingOrderRepository.saveAndFlush(any(StandingOrder.class))).thenAnswer(invocation -> {
+            StandingOrder order = invocation.getArgument(0);
+            order.setId(42L);
+            return order;
+        });
+        long firstRun = CronExpression.parse("0 0 9 1 * *").next(ZonedDateTime.now(ZONE)).toInstant().toEpochMilli();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> standingOrderService.createStandingOrder(dto("0 0 9 1 * *", firstRun + standingOrderService.spreadOffset(42L) - 1)));
+    }
+
+    @Test
+    void claimCreatesTransfersAndMovesOrdersToNextRun() {
+        long scheduled = ZonedDateTime.of(2026, 5, 1, 9, 0, 0, 0, ZONE).toInstant().toEpochMilli();
+        StandingOrder order = order(7L, scheduled, null);
+        long now = order.getNextRunAt() + 1000;
+        Transfer transfer = new Transfer();
+        transfer.setId(900L);
+
+        when(standingOrderRepository.claimDueIds(now, 100)).thenReturn(List.of(7L));
+        when(standingOrderRepository.findWithAccountsByIdIn(List.of(7L))).thenReturn(List.of(order));
+        when(transferService.createStandingOrderTransfers(List.of(order))).thenReturn(List.of(transfer));
+
+        List<Transfer> transfers = standingOrderService.claimDueOrders(now, 100);
+
+        assertEquals(List.of(transfer), transfers);
+        assertEquals(900L, order.getLastTransferId());
+        assertEquals(now, order.getLastRunAt());
+        assertEquals(StandingOrderStatus.ACTIVE, order.getStatus());
+        long nextScheduled = ZonedDateTime.of(2026, 6, 1, 9, 0, 0, 0, ZONE).toInstant().toEpochMilli();
+        assertEquals(nextScheduled, order.getNextScheduledAt());
+        assertEquals(nextScheduled + standingOrderService.spreadOffset(7L), order.getNextRunAt());
+        verify(standingOrderRepository).saveAll(List.of(order));
+    }
+
+    @Test
+    void claimWithNothingDueDoesNotTouchTransfers() {
+        when(standingOrderRepository.claimDueIds(anyLong(), anyInt())).thenReturn(List.of());
+
+        assertTrue(standingOrderService.claimDueOrders(System.currentTimeMillis(), 100).isEmpty());
+        verifyNoInteractions(transferService);
+    }
+
+    @Test
+    void orderPastEndDateIsFinished() {
+        long scheduled = ZonedDateTime.of(2026, 5, 1, 9, 0, 0, 0, ZONE).toInstant().toEpochMilli();
+        StandingOrder order = order(7L, scheduled, scheduled + 1000);
+
+        standingOrderService.advance(order, order.getNextRunAt() + 1000);
+
+        assertEquals(StandingOrderStatus.FINISHED, order.getStatus());
+    }
+
+    @Test
+    void orderIsFinishedWhenSpreadRunWouldPassEndDate() {
+        long scheduled = ZonedDateTime.of(2026, 5, 1, 9, 0, 0, 0, ZONE).toInstant().toEpochMilli();
+        long nextScheduled = ZonedDateTime.of(2026, 6, 1, 9, 0, 0, 0, ZONE).toInstant().toEpochMilli();
+        StandingOrder order = order(7L, scheduled, nextScheduled + standingOrderService.spreadOffset(7L) - 1);
+
+        standingOrderService.advance(order, order.getNextRunAt() + 1000);
+
+        assertEquals(StandingOrderStatus.FINISHED, order.getStatus());
+        assertEquals(scheduled, order.getNextScheduledAt());
+    }
+
+    @Test
+    void missedRunsAreNotMadeUp() {
+        long scheduled = ZonedDateTime.of(2026, 1, 1, 9, 0, 0, 0, ZONE).toInstant().toEpochMilli();
+        StandingOrder order = order(7L, scheduled, null);
+        long now = ZonedDateTime.of(2026, 4, 15, 12, 0, 0, 0, ZONE).toInstant().toEpochMilli();
+
+        standingOrderService.advance(order, now);
+
+        assertTrue(order.getNextRunAt() > now);
+        assertEquals(ZonedDateTime.of(2026, 5, 1, 9, 0, 0, 0, ZONE).toInstant().toEpochMilli(), order.getNextScheduledAt());
+    }
+
+    @Test
+    void spreadOffsetStaysWithinWindow() {
+        for (long id = 1; id <= 1000; id++) {
+            long offset = standingOrderService.spreadOffset(id);
+            assertTrue(offset >= 0 && offset < WINDOW_MS);
+        }
+        assertNotEquals(standingOrderService.spreadOffset(1L), standingOrderService.spreadOffset(2L));
+    }
+
+    @Test
+    void cancelRejectsOrderOfAnotherUser() {
+        StandingOrder order = order(7L, System.currentTimeMillis(), null);
+        when(standingOrderRepository.findById(7L)).thenReturn(Optional.of(order));
+
+        assertThrows(SecurityException.class, () -> standingOrderService.cancelStandingOrder(7L, 999L));
+        assertEquals(StandingOrderStatus.ACTIVE, order.getStatus());
+
+        standingOrderService.cancelStandingOrder(7L, 100L);
+        assertEquals(StandingOrderStatus.CANCELLED, order.getStatus());
+    }
+
+    private StandingOrder order(Long id, long scheduledAt, Long endDate) {
+        StandingOrder order = new StandingOrder();
+        order.setId(id);
+        order.setOwnerId(100L);
+        order.setFromAccount(fromAccount);
+        order.setToAccount(toAccount);
+        order.setAmount(150.0);
+        order.setCron("0 0 9 1 * *");
+        order.setEndDate(endDate);
+        order.setStatus(StandingOrderStatus.ACTIVE);
+        order.setNextScheduledAt(scheduledAt);
+        order.setNextRunAt(scheduledAt + standingOrderService.spreadOffset(id));
+        return order;
+    }
+
+    private static StandingOrderDTO dto(String cron, Long endDate) {
+        StandingOrderDTO dto = new StandingOrderDTO();
+        dto.setFromAccountNumber("111000100000000110");
+        dto.setRecipientAccount("111000100011000110");
+        dto.setAmount(150.0);
+        dto.setPayementDescription("Kirija");
+        dto.setCron(cron);
+        dto.setEndDate(endDate);
+        return dto;
+    }
+}
@@ -0,0 +1,125 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.dto.CustomerDTO;
+import com.banka1.banking.models.Account;
+import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.models.helper.StatementFormat;
+import com.banka1.banking.repository.TransactionRepository;
+import com.banka1.banking.repository.projection.TransactionHistoryView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatementServiceTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private UserServiceCustomer userServiceCustomer;
+
+    @Mock
+    private BankAccountUtils bankAccountUtils;
+
+    @InjectMocks
+    private StatementService statementService;
+
+    private Account account;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(statementService, "zone", "UTC");
+        account = new Account();
+        account.setId(1L);
+        account.setOwnerID(100L);
+        account.setAccountNumber("111000100000000110");
+        Account bankAccount = new Account();
+        bankAccount.setOwnerID(1L);
+        when(bankAccountUtils.getBankAccountForCurrency(CurrencyType.RSD)).thenReturn(bankAccount);
+    }
+
+    @Test
+    void csvStatementNamesCounterparts() throws Exception {
+        TransactionHistoryView outgoing = row(10L, 0L, 1L, 2L, 200L, "Kirija, mart");
+        TransactionHistoryView incoming = row(11L, 60_000L, 2L, 1L, 200L, "=HYPERLINK(\"x\")");
+        when(transactionRepository.streamStatement(1L, false, Long.MIN_VALUE, Long.MAX_VALUE)).thenReturn(Stream.of(outgoing, incoming));
+        when(userServiceCustomer.getCustomersByIds(Set.of(200L))).thenReturn(Map.of(
+                200L, new CustomerDTO(200L, "Jane", "Roe", "2000-01-01", "jane@example.com", "0607654321", "Main St 2")));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        statementService.writeStatement(account, StatementFormat.CSV, null, null, out);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).startsWith("id,timestamp,direction"));
+        assertEquals("10,1970-01-01T00:00:00Z,OUTGOING,acc-2,Jane Roe,100.00,1.00,99.00,RSD,\"Kirija, mart\"", lines.get(1));
+        // Tekst koji izgleda kao formula se ne izvrsava u tabeli
+        assertEquals("11,1970-01-01T00:01:00Z,INCOMING,acc-2,Jane Roe,100.00,1.00,99.00,RSD,\"'=HYPERLINK(\"\"x\"\")\"", lines.get(2));
+    }
+
+    @Test
+    void counterpartsAreLookedUpOncePerChunk() throws Exception {
+        int rows = TransactionRepository.STATEMENT_FETCH_SIZE + 1;
+        when(transactionRepository.streamStatement(eq(1L), eq(false), anyLong(), anyLong())).thenReturn(
+                IntStream.range(0, rows).mapToObj(i -> row((long) i, (long) i, 1L, 2L, 200L + i % 3, "Opis")));
+        when(userServiceCustomer.getCustomersByIds(anySet())).thenReturn(Map.of());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        statementService.writeStatement(account, StatementFormat.CSV, 0L, 1_000_000L, out);
+
+        assertEquals(rows + 1, out.toString(StandardCharsets.UTF_8).lines().count());
+        verify(userServiceCustomer, times(2)).getCustomersByIds(anySet());
+        verify(transactionRepository).streamStatement(1L, false, 0L, 1_000_000L);
+    }
+
+    @Test
+    void pdfStatementIsAPdfDocument() throws Exception {
+        TransactionHistoryView transaction = row(10L, 0L, 1L, 2L, 200L, "Uplata za račun");
+        when(transactionRepository.streamStatement(eq(1L), eq(false), anyLong(), anyLong())).thenReturn(Stream.of(transaction));
+        when(userServiceCustomer.getCustomersByIds(Set.of(200L))).thenReturn(Map.of());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        statementService.writeStatement(account, StatementFormat.PDF, null, null, out);
+
+        String pdf = out.toString(StandardCharsets.ISO_8859_1);
+        assertTrue(pdf.startsWith("%PDF-"));
+        assertTrue(pdf.trim().endsWith("%%EOF"));
+    }
+
+    private static TransactionHistoryView row(Long id, Long timestamp, Long fromAccountId, Long toAccountId,
+                                              Long counterpartOwnerId, String description) {
+        TransactionHistoryView view = mock(TransactionHistoryView.class, withSettings().strictness(Strictness.LENIENT));
+        when(view.getId()).thenReturn(id);
+        when(view.getTimestamp()).thenReturn(timestamp);
+        when(view.getFromAccountId()).thenReturn(fromAccountId);
+        when(view.getToAccountId()).thenReturn(toAccountId);
+        when(view.getFromAccountNumber()).thenReturn("acc-" + fromAccountId);
+        when(view.getToAccountNumber()).thenReturn("acc-" + toAccountId);
+        when(view.getFromOwnerId()).thenReturn(fromAccountId == 1L ? 100L : counterpartOwnerId);
+        when(view.getToOwnerId()).thenReturn(toAccountId == 1L ? 100L : counterpartOwnerId);
+        when(view.getAmount()).thenReturn(100.0);
+        when(view.getFee()).thenReturn(1.0);
+        when(view.getFinalAmount()).thenReturn(99.0);
+        when(view.getCurrency()).thenReturn(CurrencyType.RSD);
+        when(view.getDescription()).thenReturn(description);
+        return view;
+    }
+}
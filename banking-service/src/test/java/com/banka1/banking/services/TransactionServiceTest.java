@@ -1,5 +1,9 @@
 package com.banka1.banking.services;
 
+import com.banka1.banking.dto.CustomerDTO;
+import com.banka1.banking.dto.TransactionHistoryFilterDTO;
+import com.banka1.banking.dto.TransactionHistoryItemDTO;
+import com.banka1.banking.dto.TransactionHistoryPageDTO;
 import com.banka1.banking.models.Account;
 import com.banka1.banking.models.Currency;
 import com.banka1.banking.models.Installment;
@@ -7,23 +11,25 @@ import com.banka1.banking.models.Loan;
 import com.banka1.banking.models.Transaction;
 import com.banka1.banking.models.Transfer;
 import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.models.helper.TransactionDirection;
 import com.banka1.banking.models.helper.TransferStatus;
 import com.banka1.banking.models.helper.TransferType;
 import com.banka1.banking.repository.AccountRepository;
 import com.banka1.banking.repository.CurrencyRepository;
 import com.banka1.banking.repository.TransactionRepository;
 import com.banka1.banking.repository.TransferRepository;
+import com.banka1.banking.repository.projection.TransactionHistoryView;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.quality.Strictness;
+import org.springframework.data.domain.Limit;
 
 import java.time.Instant;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -47,6 +53,9 @@ public class TransactionServiceTest {
     @Mock
     private BankAccountUtils bankAccountUtils;
 
+    @Mock
+    private UserServiceCustomer userServiceCustomer;
+
     @InjectMocks
     private TransactionService transactionService;
 
@@ -112,4 +121,77 @@ public class TransactionServiceTest {
 
         assertEquals(expectedTransactions, actualTransactions);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetUserTransactionHistoryMergesBothDirections() {
+        Account bankAccount = new Account();
+        bankAccount.setOwnerID(1L);
+        when(bankAccountUtils.getBankAccountForCurrency(CurrencyType.RSD)).thenReturn(bankAccount);
+        when(accountRepository.findByOwnerID(100L)).thenReturn(List.of(fromAccount, toAccount));
+
+        // Transakcija 40 je izmedju dva racuna korisnika pa je vracaju oba upita
+        TransactionHistoryView ownTransfer = historyRow(40L, 4000L, 100L, 100L);
+        when(transactionRepository.findOutgoingHistoryPage(eq(List.of(1L, 2L)), eq(false), eq(Long.MIN_VALUE), eq(Long.MAX_VALUE),
+                eq(-Double.MAX_VALUE), eq(Double.MAX_VALUE), eq(EnumSet.allOf(CurrencyType.class)), eq(Long.MAX_VALUE), eq(Long.MAX_VALUE),
+                argThat(limit -> limit.max() == 3)))
+                .thenReturn(List.of(ownTransfer, historyRow(20L, 2000L, 100L, 200L)));
+        when(transactionRepository.findIncomingHistoryPage(eq(List.of(1L, 2L)), eq(false), anyLong(), anyLong(),
+                anyDouble(), anyDouble(), anyCollection(), anyLong(), anyLong(), any(Limit.class)))
+                .thenReturn(List.of(ownTransfer, historyRow(30L, 3000L, 200L, 100L), historyRow(10L, 1000L, 200L, 100L)));
+        when(userServiceCustomer.getCustomersByIds(Set.of(100L, 200L))).thenReturn(Map.of(
+                100L, new CustomerDTO(100L, "John", "Doe", "2000-01-01", "john@example.com", "0601234567", "Main St 1"),
+                200L, new CustomerDTO(200L, "Jane", "Roe", "2000-01-01", "jane@example.com", "0607654321", "Main St 2")));
+
+        TransactionHistoryPageDTO page = transactionService.getUserTransactionHistory(100L, null, null, 2);
+
+        assertEquals(List.of(40L, 30L), page.getTransactions().stream().map(item -> item.getTransaction().getId()).toList());
+        TransactionHistoryItemDTO incoming = page.getTransactions().get(1);
+        assertEquals("Jane Roe", incoming.getSenderName());
+        assertEquals("John Doe", incoming.getReceiverName());
+        assertArrayEquals(new long[]{3000L, 30L}, TransferService.decodeHistoryCursor(page.getNextCursor()));
+    }
+
+    @Test
+    void testGetAccountTransactionHistoryOutgoingOnly() {
+        Account bankAccount = new Account();
+        bankAccount.setOwnerID(100L);
+        when(bankAccountUtils.getBankAccountForCurrency(CurrencyType.RSD)).thenReturn(bankAccount);
+        fromAccount.setOwnerID(100L);
+        when(transactionRepository.findOutgoingHistoryPage(anyCollection(), anyBoolean(), anyLong(), anyLong(),
+                anyDouble(), anyDouble(), anyCollection(), anyLong(), anyLong(), any(Limit.class)))
+                .thenReturn(List.of(historyRow(10L, 1000L, 100L, 100L)));
+        when(userServiceCustomer.getCustomersByIds(Set.of(100L))).thenReturn(Map.of());
+
+        TransactionHistoryFilterDTO filter = new TransactionHistoryFilterDTO(500L, 5000L, 10.0, 200.0, CurrencyType.EUR, TransactionDirection.OUTGOING);
+        TransactionHistoryPageDTO page = transactionService.getAccountTransactionHistory(fromAccount, filter,
+                TransferService.encodeHistoryCursor(2000L, 20L), null);
+
+        assertEquals(1, page.getTransactions().size());
+        assertNull(page.getTransactions().get(0).getSenderName());
+        assertNull(page.getNextCursor());
+        // Racun banke vidi i transakcije samo za banku
+        verify(transactionRepository).findOutgoingHistoryPage(eq(List.of(1L)), eq(true), eq(500L), eq(5000L), eq(10.0), eq(200.0),
+                eq(EnumSet.of(CurrencyType.EUR)), eq(2000L), eq(20L), argThat(limit -> limit.max() == TransferService.DEFAULT_HISTORY_PAGE_SIZE + 1));
+        verify(transactionRepository, never()).findIncomingHistoryPage(any(), anyBoolean(), any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testGetUserTransactionHistoryWithoutAccounts() {
+        when(accountRepository.findByOwnerID(100L)).thenReturn(List.of());
+
+        TransactionHistoryPageDTO page = transactionService.getUserTransactionHistory(100L, null, null, null);
+
+        assertTrue(page.getTransactions().isEmpty());
+        assertNull(page.getNextCursor());
+        verifyNoInteractions(transactionRepository, userServiceCustomer);
+    }
+
+    private static TransactionHistoryView historyRow(Long id, Long timestamp, Long fromOwnerId, Long toOwnerId) {
+        TransactionHistoryView view = mock(TransactionHistoryView.class, withSettings().strictness(Strictness.LENIENT));
+        when(view.getId()).thenReturn(id);
+        when(view.getTimestamp()).thenReturn(timestamp);
+        when(view.getFromOwnerId()).thenReturn(fromOwnerId);
+        when(view.getToOwnerId()).thenReturn(toOwnerId);
+        return view;
+    }
+}
@@ -0,0 +1,162 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.dto.TransferExecutionDTO;
+import com.banka1.banking.models.Account;
+import com.banka1.banking.models.Transfer;
+import com.banka1.banking.models.helper.TransferStatus;
+import com.banka1.banking.repository.TransferRepository;
+import com.banka1.banking.repository.projection.TransferAccountsView;
+import com.banka1.common.listener.MessageHelper;
+import jakarta.jms.Message;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.MessagePostProcessor;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferDispatchServiceTest {
+
+    @Mock
+    private TransferRepository transferRepository;
+
+    @Mock
+    private TransferService transferService;
+
+    @Mock
+    private JmsTemplate jmsTemplate;
+
+    @Mock
+    private MessageHelper messageHelper;
+
+    private TransferDispatchService transferDispatchService;
+
+    private Transfer transfer;
+
+    @BeforeEach
+    void setUp() {
+        transferDispatchService = new TransferDispatchService(transferRepository, transferService, jmsTemplate, messageHelper, "execute-transfer", 120000L);
+
+        Account fromAccount = new Account();
+        fromAccount.setId(7L);
+
+        transfer = new Transfer();
+        transfer.setId(1L);
+        transfer.setFromAccountId(fromAccount);
+        transfer.setStatus(TransferStatus.PENDING);
+    }
+
+    @Test
+    void dispatchQueuesTransferGroupedBySourceAccount() throws Exception {
+        when(transferRepository.updateStatusAndQueuedAtByIdAndStatus(eq(1L), eq(TransferStatus.PENDING), eq(TransferStatus.QUEUED), anyLong())).thenReturn(1);
+        when(messageHelper.createTextMessage(any())).thenReturn("{}");
+
+        assertTrue(transferDispatchService.dispatch(transfer));
+
+        assertEquals(TransferStatus.QUEUED, transfer.getStatus());
+        verify(transferService).publishStatusChange(transfer);
+
+        ArgumentCaptor<TransferExecutionDTO> dtoCaptor = ArgumentCaptor.forClass(TransferExecutionDTO.class);
+        verify(messageHelper).createTextMessage(dtoCaptor.capture());
+        assertEquals(1L, dtoCaptor.getValue().getTransferId());
+        assertEquals(7L, dtoCaptor.getValue().getFromAccountId());
+
+        ArgumentCaptor<MessagePostProcessor> postProcessorCaptor = ArgumentCaptor.forClass(MessagePostProcessor.class);
+        verify(jmsTemplate).convertAndSend(eq("execute-transfer"), eq((Object) "{}"), postProcessorCaptor.capture());
+
+        Message message = mock(Message.class);
+        postProcessorCaptor.getValue().postProcessMessage(message);
+        verify(message).setStringProperty("JMSXGroupID", "account-7");
+    }
+
+    @Test
+    void dispatchDoesNotQueueTransferThatIsNoLongerPending() {
+        when(transferRepository.updateStatusAndQueuedAtByIdAndStatus(eq(1L), eq(TransferStatus.PENDING), eq(TransferStatus.QUEUED), anyLong())).thenReturn(0);
+
+        assertFalse(transferDispatchService.dispatch(transfer));
+
+        verifyNoInteractions(jmsTemplate, messageHelper);
+        verify(transferService, never()).publishStatusChange(any());
+    }
+
+    @Test
+    void dispatchMarksTransferFailedWhenQueueIsUnavailable() {
+        when(transferRepository.updateStatusAndQueuedAtByIdAndStatus(eq(1L), eq(TransferStatus.PENDING), eq(TransferStatus.QUEUED), anyLong())).thenReturn(1);
+        when(messageHelper.createTextMessage(any())).thenReturn("{}");
+        doThrow(new RuntimeException("broker down"))
+                .when(jmsTemplate).convertAndSend(anyString(), any(Object.class), any(MessagePostProcessor.class));
+
+        assertThrows(RuntimeException.class, () -> transferDispatchService.dispatch(transfer));
+        verify(transferService).markTransferFailed(eq(1L), anyString());
+    }
+
+    @Test
+    void dispatchBatchQueuesEveryPendingTransfer() {
+        Transfer second = new Transfer();
+        second.setId(2L);
+        second.setFromAccountId(transfer.getFromAccountId());
+        second.setStatus(TransferStatus.PENDING);
+
+        when(transferService.findPendingBatchTransferIds("batch")).thenReturn(List.of(1L, 2L));
+        when(transferService.findById(1L)).thenReturn(transfer);
+        when(transferService.findById(2L)).thenReturn(second);
+        when(transferRepository.updateStatusAndQueuedAtByIdAndStatus(anyLong(), eq(TransferStatus.PENDING), eq(TransferStatus.QUEUED), anyLong())).thenReturn(1);
+        when(messageHelper.createTextMessage(any())).thenReturn("{}");
+
+        List<Long> queued = transferDispatchService.dispatchBatch("batch");
+
+        assertEquals(List.of(1L, 2L), queued);
+        assertEquals(TransferStatus.QUEUED, second.getStatus());
+        verify(jmsTemplate, times(2)).convertAndSend(anyString(), any(Object.class), any(MessagePostProcessor.class));
+    }
+
+    @Test
+    void redispatchStaleSendsTransfersStuckInQueueAgain() {
+        TransferAccountsView accounts = accountsView(7L);
+        when(transferRepository.findIdsByStatusAndQueuedAtBefore(eq(TransferStatus.QUEUED), anyLong())).thenReturn(List.of(1L, 2L));
+        when(transferRepository.updateQueuedAtByIdAndStatusAndQueuedAtBefore(eq(1L), eq(TransferStatus.QUEUED), anyLong(), anyLong())).thenReturn(1);
+        // Transfer 2 je u medjuvremenu preuzela druga instanca
+        when(transferRepository.updateQueuedAtByIdAndStatusAndQueuedAtBefore(eq(2L), eq(TransferStatus.QUEUED), anyLong(), anyLong())).thenReturn(0);
+        when(transferRepository.findAccountsViewById(1L)).thenReturn(Optional.of(accounts));
+        when(messageHelper.createTextMessage(any())).thenReturn("{}");
+
+        assertEquals(1, transferDispatchService.redispatchStale());
+
+        ArgumentCaptor<TransferExecutionDTO> dtoCaptor = ArgumentCaptor.forClass(TransferExecutionDTO.class);
+        verify(messageHelper).createTextMessage(dtoCaptor.capture());
+        assertEquals(1L, dtoCaptor.getValue().getTransferId());
+        assertEquals(7L, dtoCaptor.getValue().getFromAccountId());
+        verify(jmsTemplate).convertAndSend(eq("execute-transfer"), eq((Object) "{}"), any(MessagePostProcessor.class));
+        verify(transferService, never()).markTransferFailed(anyLong(), anyString());
+    }
+
+    @Test
+    void redispatchStaleOnlyLooksAtTransfersQueuedBeforeThreshold() {
+        when(transferRepository.findIdsByStatusAndQueuedAtBefore(eq(TransferStatus.QUEUED), anyLong())).thenReturn(List.of());
+
+        long before = System.currentTimeMillis();
+        assertEquals(0, transferDispatchService.redispatchStale());
+
+        ArgumentCaptor<Long> queuedBefore = ArgumentCaptor.forClass(Long.class);
+        verify(transferRepository).findIdsByStatusAndQueuedAtBefore(eq(TransferStatus.QUEUED), queuedBefore.capture());
+        assertTrue(queuedBefore.getValue() >= before - 120000L);
+        assertTrue(queuedBefore.getValue() <= System.currentTimeMillis() - 120000L);
+        verifyNoInteractions(jmsTemplate);
+    }
+
+    private static TransferAccountsView accountsView(Long fromAccountId) {
+        TransferAccountsView view = mock(TransferAccountsView.class);
+        when(view.getFromAccountId()).thenReturn(fromAccountId);
+        return view;
+    }
+}
@@ -0,0 +1,88 @@
+package com.banka1.banking.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.PessimisticLockingFailureException;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferExecutionServiceTest {
+
+    @Mock
+    private TransferService transferService;
+
+    private TransferExecutionService transferExecutionService;
+
+    @BeforeEach
+    void setUp() {
+        transferExecutionService = new TransferExecutionService(transferService, 3, 1, 2);
+    }
+
+    @Test
+    void executeRetriesTransientLockFailures() {
+        when(transferService.processTransfer(1L))
+                .thenThrow(new CannotAcquireLockException("lock timeout"))
+                .thenThrow(new PessimisticLockingFailureException("deadlock"))
+                .thenReturn("Transfer completed successfully");
+
+        assertEquals("Transfer completed successfully", transferExecutionService.execute(1L));
+        verify(transferService, times(3)).processTransfer(1L);
+    }
+
+    @Test
+    void executeRetriesWrappedSerializationFailure() {
+        RuntimeException wrapped = new RuntimeException("Transaction failed, rollback initiated",
+                new SQLException("could not serialize access", "40001"));
+        when(transferService.processTransfer(1L))
+                .thenThrow(wrapped)
+                .thenReturn("Transfer completed successfully");
+
+        assertEquals("Transfer completed successfully", transferExecutionService.execute(1L));
+        verify(transferService, times(2)).processTransfer(1L);
+    }
+
+    @Test
+    void executeGivesUpAfterMaxAttempts() {
+        when(transferService.processTransfer(1L)).thenThrow(new CannotAcquireLockException("lock timeout"));
+
+        assertThrows(CannotAcquireLockException.class, () -> transferExecutionService.execute(1L));
+        verify(transferService, times(3)).processTransfer(1L);
+    }
+
+    @Test
+    void executeWithoutSpendingLimitIsRetriedToo() {
+        when(transferService.processTransfer(1L, false))
+                .thenThrow(new CannotAcquireLockException("lock timeout"))
+                .thenReturn("Transfer completed successfully");
+
+        assertEquals("Transfer completed successfully", transferExecutionService.execute(1L, false));
+        verify(transferService, times(2)).processTransfer(1L, false);
+        verify(transferService, never()).processTransfer(1L);
+    }
+
+    @Test
+    void executeDoesNotRetryBusinessFailures() {
+        when(transferService.processTransfer(1L)).thenThrow(new RuntimeException("Insufficient funds"));
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> transferExecutionService.execute(1L));
+
+        assertEquals("Insufficient funds", exception.getMessage());
+        verify(transferService, times(1)).processTransfer(1L);
+    }
+
+    @Test
+    void backoffStaysWithinCap() {
+        for (int attempt = 1; attempt < 10; attempt++) {
+            long backoff = transferExecutionService.backoffFor(attempt);
+            assertTrue(backoff >= 0 && backoff <= 2);
+        }
+    }
+}
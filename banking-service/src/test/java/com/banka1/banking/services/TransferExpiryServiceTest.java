@@ -0,0 +1,181 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.dto.TransferStatusEventDTO;
+import com.banka1.banking.models.Transfer;
+import com.banka1.banking.models.helper.TransferStatus;
+import com.banka1.banking.repository.TransferRepository;
+import com.banka1.banking.repository.projection.PendingTransferView;
+import com.banka1.banking.repository.projection.TransferOwnerView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferExpiryServiceTest {
+
+    private static final long TTL_MS = 5000L;
+
+    @Mock
+    private TransferRepository transferRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private TransferExpiryService transferExpiryService;
+
+    private long now;
+
+    @BeforeEach
+    void setUp() {
+        transferExpiryService = new TransferExpiryService(transferRepository, eventPublisher, TTL_MS, 1000L, 8);
+        now = System.currentTimeMillis();
+    }
+
+    @Test
+    void transferIsCancelledOnlyAfterTtl() {
+        transferExpiryService.schedule(transfer(1L, now));
+
+        assertEquals(0, transferExpiryService.expireDue(now + TTL_MS - 1000));
+        verifyNoInteractions(transferRepository);
+
+        when(transferRepository.updateStatusByIdInAndStatus(List.of(1L), TransferStatus.PENDING, TransferStatus.CANCELLED))
+                .thenReturn(1);
+        when(transferRepository.findOwnerViewsByIdInAndStatus(List.of(1L), TransferStatus.CANCELLED))
+                .thenReturn(List.of(owner(1L, 42L)));
+
+        assertEquals(1, transferExpiryService.expireDue(now + TTL_MS + 1000));
+        assertEquals(0, transferExpiryService.expireDue(now + TTL_MS + 2000));
+        verify(transferRepository).updateStatusByIdInAndStatus(anyCollection(), any(), any());
+
+        ArgumentCaptor<TransferStatusEventDTO> event = ArgumentCaptor.forClass(TransferStatusEventDTO.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(1L, event.getValue().getTransferId());
+        assertEquals(42L, event.getValue().getOwnerId());
+        assertEquals(TransferStatus.CANCELLED, event.getValue().getStatus());
+    }
+
+    @Test
+    void transferVerifiedBeforeExpiryIsNotPublished() {
+        transferExpiryService.schedule(transfer(1L, now));
+        when(transferRepository.updateStatusByIdInAndStatus(List.of(1L), TransferStatus.PENDING, TransferStatus.CANCELLED))
+                .thenReturn(0);
+
+        assertEquals(0, transferExpiryService.expireDue(now + TTL_MS + 1000));
+
+        verify(transferRepository, never()).findOwnerViewsByIdInAndStatus(anyCollection(), any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void entriesOfLaterRoundsStayInWheel() {
+        transferExpiryService.schedule(transfer(1L, now));
+        // 8 slotova po 1s, pa ovaj rok pada u isti slot tek u sledecem krugu
+        transferExpiryService.schedule(transfer(2L, now + 8000));
+        when(transferRepository.updateStatusByIdInAndStatus(anyCollection(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Collection<Long>>getArgument(0).size());
+
+        assertEquals(1, transferExpiryService.expireDue(now + TTL_MS + 1000));
+        assertEquals(1, transferExpiryService.expireDue(now + 8000 + TTL_MS + 1000));
+
+        verify(transferRepository).updateStatusByIdInAndStatus(List.of(1L), TransferStatus.PENDING, TransferStatus.CANCELLED);
+        verify(transferRepository).updateStatusByIdInAndStatus(List.of(2L), TransferStatus.PENDING, TransferStatus.CANCELLED);
+    }
+
+    @Test
+    void longPauseExpiresEverythingThatIsDue() {
+        for (long id = 1; id <= 20; id++) {
+            transferExpiryService.schedule(transfer(id, now + id * 1000));
+        }
+        when(transferRepository.updateStatusByIdInAndStatus(anyCollection(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Collection<Long>>getArgument(0).size());
+
+        assertEquals(20, transferExpiryService.expireDue(now + 60_000));
+    }
+
+    @Test
+    void dueTransfersAreCancelledInChunks() {
+        List<Transfer> transfers = new ArrayList<>();
+        for (long id = 1; id <= 2500; id++) {
+            transfers.add(transfer(id, now));
+        }
+        transferExpiryService.scheduleAll(transfers);
+        when(transferRepository.updateStatusByIdInAndStatus(anyCollection(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Collection<Long>>getArgument(0).size());
+
+        assertEquals(2500, transferExpiryService.expireDue(now + TTL_MS + 1000));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<Long>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(transferRepository, times(3)).updateStatusByIdInAndStatus(captor.capture(), eq(TransferStatus.PENDING), eq(TransferStatus.CANCELLED));
+        assertEquals(List.of(1000, 1000, 500), captor.getAllValues().stream().map(Collection::size).toList());
+    }
+
+    @Test
+    void sweepCancelsEverythingOlderThanTtl() {
+        when(transferRepository.findOtpIdsByStatusAndCreatedAtBefore(eq(TransferStatus.PENDING), anyLong()))
+                .thenReturn(List.of(3L, 4L, 5L));
+        when(transferRepository.updateStatusByIdInAndStatus(List.of(3L, 4L, 5L), TransferStatus.PENDING, TransferStatus.CANCELLED))
+                .thenReturn(3);
+
+        assertEquals(3, transferExpiryService.sweep());
+
+        ArgumentCaptor<Long> cutoff = ArgumentCaptor.forClass(Long.class);
+        verify(transferRepository).findOtpIdsByStatusAndCreatedAtBefore(eq(TransferStatus.PENDING), cutoff.capture());
+        assertTrue(cutoff.getValue() >= now - TTL_MS);
+        assertTrue(cutoff.getValue() <= System.currentTimeMillis() - TTL_MS);
+        verify(transferRepository).findOwnerViewsByIdInAndStatus(List.of(3L, 4L, 5L), TransferStatus.CANCELLED);
+    }
+
+    @Test
+    void startupSweepsAndLoadsPendingTransfers() {
+        when(transferRepository.findOtpPendingViewsByStatus(TransferStatus.PENDING))
+                .thenReturn(List.of(pending(7L, now - 1000), pending(8L, now)));
+        when(transferRepository.updateStatusByIdInAndStatus(anyCollection(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Collection<Long>>getArgument(0).size());
+
+        transferExpiryService.loadPendingTransfers();
+
+        verify(transferRepository).findOtpIdsByStatusAndCreatedAtBefore(eq(TransferStatus.PENDING), anyLong());
+        assertEquals(2, transferExpiryService.expireDue(now + TTL_MS + 1000));
+    }
+
+    private static Transfer transfer(Long id, long createdAt) {
+        Transfer transfer = new Transfer();
+        transfer.setId(id);
+        transfer.setCreatedAt(createdAt);
+        transfer.setStatus(TransferStatus.PENDING);
+        return transfer;
+    }
+
+    private static TransferOwnerView owner(Long id, Long ownerId) {
+        return new TransferOwnerView() {
+            @Override
+            public Long getId() { return id; }
+
+            @Override
+            public Long getOwnerId() { return ownerId; }
+        };
+    }
+
+    private static PendingTransferView pending(Long id, Long createdAt) {
+        return new PendingTransferView() {
+            @Override
+            public Long getId() { return id; }
+
+            @Override
+            public Long getCreatedAt() { return createdAt; }
+        };
+    }
+}
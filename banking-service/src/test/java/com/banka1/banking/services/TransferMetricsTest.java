@@ -0,0 +1,76 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.models.Account;
+import com.banka1.banking.models.helper.CurrencyType;
+import com.banka1.banking.models.helper.TransferStatus;
+import com.banka1.banking.models.helper.TransferType;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransferMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private TransferMetrics transferMetrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        transferMetrics = new TransferMetrics(registry);
+    }
+
+    @Test
+    void recordTagsStageTypePairAndOutcome() {
+        long start = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(5);
+
+        transferMetrics.record(TransferMetrics.Stage.CUSTOMER_LOOKUP, TransferType.FOREIGN, "EUR/RSD", TransferMetrics.SUCCESS, start);
+        transferMetrics.record(TransferMetrics.Stage.CUSTOMER_LOOKUP, TransferType.FOREIGN, "EUR/RSD", TransferMetrics.SUCCESS, start);
+
+        Timer timer = registry.get(TransferMetrics.STAGE_TIMER)
+                .tag("stage", "customer_lookup")
+                .tag("type", "FOREIGN")
+                .tag("currency_pair", "EUR/RSD")
+                .tag("outcome", TransferMetrics.SUCCESS)
+                .timer();
+        assertEquals(2, timer.count());
+        assertTrue(timer.totalTime(TimeUnit.MILLISECONDS) >= 10);
+    }
+
+    @Test
+    void missingTypeAndPairAreTaggedAsNone() {
+        transferMetrics.record(TransferMetrics.Stage.VALIDATION, null, null, TransferMetrics.REJECTED, System.nanoTime());
+
+        Timer timer = registry.get(TransferMetrics.STAGE_TIMER)
+                .tag("type", "none")
+                .tag("currency_pair", "none")
+                .tag("outcome", TransferMetrics.REJECTED)
+                .timer();
+        assertEquals(1, timer.count());
+    }
+
+    @Test
+    void countStatusCountsPerTypeAndStatus() {
+        transferMetrics.countStatus(TransferType.INTERNAL, TransferStatus.COMPLETED);
+        transferMetrics.countStatus(TransferType.INTERNAL, TransferStatus.COMPLETED);
+        transferMetrics.countStatus(TransferType.INTERNAL, TransferStatus.FAILED);
+
+        assertEquals(2, registry.get(TransferMetrics.STATUS_COUNTER).tag("type", "INTERNAL").tag("status", "COMPLETED").counter().count());
+        assertEquals(1, registry.get(TransferMetrics.STATUS_COUNTER).tag("type", "INTERNAL").tag("status", "FAILED").counter().count());
+    }
+
+    @Test
+    void currencyPairUsesAccountCurrencies() {
+        Account from = new Account();
+        from.setCurrencyType(CurrencyType.EUR);
+        Account to = new Account();
+        to.setCurrencyType(CurrencyType.RSD);
+
+        assertEquals("EUR/RSD", TransferMetrics.currencyPair(from, to));
+        assertNull(TransferMetrics.currencyPair(from, null));
+    }
+}
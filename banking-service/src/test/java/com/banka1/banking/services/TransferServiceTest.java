@@ -1,18 +1,23 @@
 package com.banka1.banking.services;
 
+import com.banka1.banking.dto.BatchMoneyTransferDTO;
+import com.banka1.banking.dto.BatchMoneyTransferResultDTO;
 import com.banka1.banking.dto.CustomerDTO;
 import com.banka1.banking.dto.InternalTransferDTO;
 import com.banka1.banking.dto.MoneyTransferDTO;
 import com.banka1.banking.dto.NotificationDTO;
+import com.banka1.banking.dto.TransferHistoryPageDTO;
+import com.banka1.banking.dto.TransferStatusEventDTO;
 import com.banka1.banking.models.*;
 import com.banka1.banking.models.Currency;
+import com.banka1.banking.models.helper.AccountType;
 import com.banka1.banking.models.helper.CurrencyType;
 import com.banka1.banking.models.helper.TransferStatus;
 import com.banka1.banking.models.helper.TransferType;
 import com.banka1.banking.repository.AccountRepository;
-import com.banka1.banking.repository.CurrencyRepository;
 import com.banka1.banking.repository.TransactionRepository;
 import com.banka1.banking.repository.TransferRepository;
+import com.banka1.banking.repository.projection.TransferHistoryView;
 import com.banka1.common.listener.MessageHelper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -23,6 +28,8 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.jms.core.JmsTemplate;
 import org.springframework.test.util.ReflectionTestUtils;
 
@@ -43,7 +50,7 @@ public class TransferServiceTest {
     private TransferRepository transferRepository;
 
     @Mock
-    private CurrencyRepository currencyRepository;
+    private CurrencyCache currencyCache;
 
     @Mock
     private TransactionRepository transactionRepository;
@@ -69,6 +76,24 @@ public class TransferServiceTest {
     @Mock
     private LoanService loanService;
 
+    @Mock
+    private AccountLockService accountLockService;
+
+    @Mock
+    private LedgerService ledgerService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private SpendingLimitService spendingLimitService;
+
+    @Mock
+    private TransferMetrics transferMetrics;
+
+    @Mock
+    private TransferExpiryService transferExpiryService;
+
     @InjectMocks
     private TransferService transferService;
 
@@ -240,7 +265,7 @@ public class TransferServiceTest {
         // Setup mocks
         when(accountRepository.findById(fromAccountUSD.getId())).thenReturn(Optional.of(fromAccountUSD));
         when(accountRepository.findById(toAccount.getId())).thenReturn(Optional.of(toAccount));
-        when(currencyRepository.findByCode(CurrencyType.USD)).thenReturn(Optional.of(usdCurrency));
+        when(currencyCache.get(CurrencyType.USD)).thenReturn(usdCurrency);
         when(userServiceCustomer.getCustomerById(100L)).thenReturn(customerDTO);
         when(transferRepository.saveAndFlush(any(Transfer.class))).thenAnswer(invocation -> {
             Transfer t = invocation.getArgument(0);
@@ -258,6 +283,7 @@ public class TransferServiceTest {
         // Verify transfer was created and saved
         ArgumentCaptor<Transfer> transferCaptor = ArgumentCaptor.forClass(Transfer.class);
         verify(transferRepository).saveAndFlush(transferCaptor.capture());
+        verify(transferExpiryService).schedule(any(Transfer.class));
 
         Transfer savedTransfer = transferCaptor.getValue();
         assertEquals(fromAccountUSD, savedTransfer.getFromAccountId());
@@ -298,7 +324,7 @@ public class TransferServiceTest {
         // Setup mocks
         when(accountRepository.findByAccountNumber("123456789")).thenReturn(Optional.of(fromAccountUSD));
         when(accountRepository.findByAccountNumber("987654321")).thenReturn(Optional.of(toAccount));
-        when(currencyRepository.findByCode(CurrencyType.USD)).thenReturn(Optional.of(usdCurrency));
+        when(currencyCache.get(CurrencyType.USD)).thenReturn(usdCurrency);
         when(userServiceCustomer.getCustomerById(100L)).thenReturn(customerDTO);
         when(transferRepository.saveAndFlush(any(Transfer.class))).thenAnswer(invocation -> {
             Transfer t = invocation.getArgument(0);
@@ -316,6 +342,7 @@ public class TransferServiceTest {
         // Verify transfer was created and saved
         ArgumentCaptor<Transfer> transferCaptor = ArgumentCaptor.forClass(Transfer.class);
         verify(transferRepository).saveAndFlush(transferCaptor.capture());
+        verify(transferExpiryService).schedule(any(Transfer.class));
 
         Transfer savedTransfer = transferCaptor.getValue();
         assertEquals(fromAccountUSD, savedTransfer.getFromAccountId());
@@ -360,8 +387,8 @@ public class TransferServiceTest {
 
         when(accountRepository.findByAccountNumber("123456789")).thenReturn(Optional.of(fromAccountUSD));
         when(accountRepository.findByAccountNumber("987654321")).thenReturn(Optional.of(toAccount));
-        when(currencyRepository.findByCode(CurrencyType.USD)).thenReturn(Optional.of(usdCurrency));
-        when(currencyRepository.findByCode(CurrencyType.EUR)).thenReturn(Optional.of(eurCurrency));
+        when(currencyCache.get(CurrencyType.USD)).thenReturn(usdCurrency);
+        when(currencyCache.get(CurrencyType.EUR)).thenReturn(eurCurrency);
         when(userServiceCustomer.getCustomerById(100L)).thenReturn(customerDTO);
         when(transferRepository.saveAndFlush(any(Transfer.class))).thenAnswer(invocation -> {
             Transfer t = invocation.getArgument(0);
@@ -396,6 +423,128 @@ public class TransferServiceTest {
         verify(transferRepository, never()).saveAndFlush(any(Transfer.class));
     }
 
+    @Test
+    void testCreateMoneyTransferBatch_PersistsValidItemsWithOneOtp() {
+        MoneyTransferDTO first = new MoneyTransferDTO();
+        first.setFromAccountNumber("123456789");
+        first.setRecipientAccount("987654321");
+        first.setAmount(100.0);
+
+        MoneyTransferDTO unknownAccount = new MoneyTransferDTO();
+        unknownAccount.setFromAccountNumber("123456789");
+        unknownAccount.setRecipientAccount("000000000");
+        unknownAccount.setAmount(50.0);
+
+        MoneyTransferDTO foreign = new MoneyTransferDTO();
+        foreign.setFromAccountNumber("123456789");
+        foreign.setRecipientAccount("987654322");
+        foreign.setAmount(20.0);
+
+        when(accountRepository.findByAccountNumberIn(anyCollection()))
+                .thenReturn(List.of(fromAccountUSD, toAccount, toAccountForeign));
+        when(currencyCache.getAll()).thenReturn(Map.of(CurrencyType.USD, usdCurrency, CurrencyType.EUR, eurCurrency, CurrencyType.RSD, rsdCurrency));
+        when(userServiceCustomer.getCustomerById(100L)).thenReturn(customerDTO);
+        when(transferRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Transfer> transfers = invocation.getArgument(0);
+            long id = 10L;
+            for (Transfer t : transfers) t.setId(id++);
+            return transfers;
+        });
+        when(otpTokenService.generateOtp(10L)).thenReturn("123456");
+
+        BatchMoneyTransferResultDTO result = transferService.createMoneyTransferBatch(
+                new BatchMoneyTransferDTO(List.of(first, unknownAccount, foreign)));
+
+        assertNotNull(result.getBatchId());
+        assertEquals(10L, result.getTransferId());
+        assertEquals(3, result.getResults().size());
+        assertTrue(result.getResults().get(0).getSuccess());
+        assertEquals(10L, result.getResults().get(0).getTransferId());
+        assertFalse(result.getResults().get(1).getSuccess());
+        assertTrue(result.getResults().get(2).getSuccess());
+        assertEquals(11L, result.getResults().get(2).getTransferId());
+
+        ArgumentCaptor<List<Transfer>> transfersCaptor = ArgumentCaptor.forClass(List.class);
+        verify(transferRepository).saveAll(transfersCaptor.capture());
+        List<Transfer> saved = transfersCaptor.getValue();
+        assertEquals(2, saved.size());
+        assertTrue(saved.stream().allMatch(t -> result.getBatchId().equals(t.getBatchId())));
+        assertEquals(TransferType.EXTERNAL, saved.get(0).getType());
+        assertEquals(TransferType.FOREIGN, saved.get(1).getType());
+        assertEquals("123456", saved.get(0).getOtp());
+
+        verify(accountRepository, times(1)).findByAccountNumberIn(anyCollection());
+        verify(userServiceCustomer, times(1)).getCustomerById(100L);
+        verify(otpTokenService, times(1)).generateOtp(anyLong());
+        verify(transferRepository, never()).saveAndFlush(any());
+        verify(transferExpiryService).scheduleAll(saved);
+        verify(messageHelper, times(2)).createTextMessage(any());
+    }
+
+    @Test
+    void testCreateMoneyTransferBatch_RejectsMixedOwners() {
+        MoneyTransferDTO first = new MoneyTransferDTO("123456789", "987654321", 100.0, null, null, null, null, null, null);
+        MoneyTransferDTO otherOwner = new MoneyTransferDTO("987654321", "123456789", 100.0, null, null, null, null, null, null);
+
+        when(accountRepository.findByAccountNumberIn(anyCollection())).thenReturn(List.of(fromAccountUSD, toAccount));
+        when(currencyCache.getAll()).thenReturn(Map.of(CurrencyType.USD, usdCurrency));
+        when(userServiceCustomer.getCustomerById(100L)).thenReturn(customerDTO);
+        when(transferRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Transfer> transfers = invocation.getArgument(0);
+            transfers.forEach(t -> t.setId(1L));
+            return transfers;
+        });
+
+        BatchMoneyTransferResultDTO result = transferService.createMoneyTransferBatch(
+                new BatchMoneyTransferDTO(List.of(first, otherOwner)));
+
+        assertTrue(result.getResults().get(0).getSuccess());
+        assertFalse(result.getResults().get(1).getSuccess());
+    }
+
+    @Test
+    void testCreateMoneyTransferBatch_NoValidItems() {
+        MoneyTransferDTO invalid = new MoneyTransferDTO("123456789", "987654321", -5.0, null, null, null, null, null, null);
+
+        when(accountRepository.findByAccountNumberIn(anyCollection())).thenReturn(List.of(fromAccountUSD, toAccount));
+
+        BatchMoneyTransferResultDTO result = transferService.createMoneyTransferBatch(
+                new BatchMoneyTransferDTO(List.of(invalid)));
+
+        assertNull(result.getBatchId());
+        assertFalse(result.getResults().get(0).getSuccess());
+        verify(transferRepository, never()).saveAll(anyList());
+        verifyNoInteractions(otpTokenService, jmsTemplate);
+    }
+
+    @Test
+    void testCreateStandingOrderTransfers_NoOtp() {
+        StandingOrder order = new StandingOrder();
+        order.setId(5L);
+        order.setFromAccount(fromAccountUSD);
+        order.setToAccount(toAccount);
+        order.setAmount(150.0);
+        order.setReceiver("Marko Marković");
+        order.setPaymentCode("289");
+        order.setPaymentDescription("Kirija");
+
+        when(currencyCache.getAll()).thenReturn(Map.of(CurrencyType.USD, usdCurrency, CurrencyType.EUR, eurCurrency, CurrencyType.RSD, rsdCurrency));
+
+        List<Transfer> transfers = transferService.createStandingOrderTransfers(List.of(order));
+
+        assertEquals(1, transfers.size());
+        Transfer transfer = transfers.get(0);
+        assertEquals(TransferStatus.PENDING, transfer.getStatus());
+        assertEquals(TransferType.EXTERNAL, transfer.getType());
+        assertEquals(150.0, transfer.getAmount());
+        assertEquals("Kirija", transfer.getPaymentDescription());
+        assertNull(transfer.getOtp());
+        assertEquals(5L, transfer.getStandingOrderId());
+        verify(transferRepository).saveAll(transfers);
+        verify(transferExpiryService, never()).scheduleAll(anyList());
+        verifyNoInteractions(otpTokenService, jmsTemplate, userServiceCustomer);
+    }
+
     @Test
     void testValidateMoneyTransfer_Success() {
         MoneyTransferDTO dto = new MoneyTransferDTO();
@@ -411,6 +560,20 @@ public class TransferServiceTest {
         assertTrue(result);
     }
 
+    @Test
+    void testValidateMoneyTransfer_SpendingLimitExceeded() {
+        MoneyTransferDTO dto = new MoneyTransferDTO();
+        dto.setFromAccountNumber("123456789");
+        dto.setRecipientAccount("987654321");
+        dto.setAmount(2e4);
+
+        when(accountRepository.findByAccountNumber("123456789")).thenReturn(Optional.of(fromAccountUSD));
+        when(accountRepository.findByAccountNumber("987654321")).thenReturn(Optional.of(toAccount));
+        when(spendingLimitService.wouldExceedLimit(fromAccountUSD, 2e4)).thenReturn(true);
+
+        assertFalse(transferService.validateMoneyTransfer(dto));
+    }
+
     @Test
     void testValidateMoneyTransfer_SameOwner() {
         // Set same owner for both accounts
@@ -449,22 +612,46 @@ public class TransferServiceTest {
     }
 
     @Test
-    void testCancelExpiredTransfers() {
-        // Create a list of expired transfers
-        List<Transfer> expiredTransfers = Arrays.asList(pendingTransfer);
+    void testGetTransferHistory_FirstPageReturnsCursor() {
+        List<TransferHistoryView> rows = List.of(historyRow(30L, 3000L), historyRow(20L, 2000L), historyRow(10L, 1000L));
+        when(transferRepository.findHistoryPage(eq(100L), anyCollection(), anyCollection(), anyLong(), anyLong(), anyLong(), anyLong(), any(Limit.class)))
+                .thenReturn(rows);
 
-        // Setup mock to return expired transfers
-        when(transferRepository.findAllByStatusAndCreatedAtBefore(
-                eq(TransferStatus.PENDING), anyLong())).thenReturn(expiredTransfers);
+        TransferHistoryPageDTO page = transferService.getTransferHistory(100L, TransferStatus.COMPLETED, null, null, null, null, 2);
 
-        // Execute
-        transferService.cancelExpiredTransfers();
+        assertEquals(List.of(30L, 20L), page.getTransfers().stream().map(TransferHistoryView::getId).toList());
+        assertArrayEquals(new long[]{2000L, 20L}, TransferService.decodeHistoryCursor(page.getNextCursor()));
+        verify(transferRepository).findHistoryPage(eq(100L), eq(EnumSet.of(TransferStatus.COMPLETED)), eq(EnumSet.allOf(TransferType.class)),
+                eq(Long.MIN_VALUE), eq(Long.MAX_VALUE), eq(Long.MAX_VALUE), eq(Long.MAX_VALUE), argThat(limit -> limit.max() == 3));
+    }
 
-        // Verify
-        ArgumentCaptor<Transfer> transferCaptor = ArgumentCaptor.forClass(Transfer.class);
-        verify(transferRepository).save(transferCaptor.capture());
+    @Test
+    void testGetTransferHistory_NextPageStartsAfterCursor() {
+        List<TransferHistoryView> rows = List.of(historyRow(10L, 1000L));
+        when(transferRepository.findHistoryPage(eq(100L), anyCollection(), anyCollection(), anyLong(), anyLong(), anyLong(), anyLong(), any(Limit.class)))
+                .thenReturn(rows);
+
+        TransferHistoryPageDTO page = transferService.getTransferHistory(100L, null, TransferType.INTERNAL, 500L, 5000L,
+                TransferService.encodeHistoryCursor(2000L, 20L), 500);
+
+        assertEquals(1, page.getTransfers().size());
+        assertNull(page.getNextCursor());
+        verify(transferRepository).findHistoryPage(eq(100L), eq(EnumSet.allOf(TransferStatus.class)), eq(EnumSet.of(TransferType.INTERNAL)),
+                eq(500L), eq(5000L), eq(2000L), eq(20L), argThat(limit -> limit.max() == TransferService.MAX_HISTORY_PAGE_SIZE + 1));
+    }
 
-        assertEquals(TransferStatus.CANCELLED, transferCaptor.getValue().getStatus());
+    @Test
+    void testGetTransferHistory_InvalidCursor() {
+        assertThrows(IllegalArgumentException.class,
+                () -> transferService.getTransferHistory(100L, null, null, null, null, "not-a-cursor", null));
+        verify(transferRepository, never()).findHistoryPage(any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    private static TransferHistoryView historyRow(Long id, Long createdAt) {
+        TransferHistoryView view = mock(TransferHistoryView.class);
+        when(view.getId()).thenReturn(id);
+        when(view.getCreatedAt()).thenReturn(createdAt);
+        return view;
     }
 
     @Test
@@ -519,9 +706,9 @@ public class TransferServiceTest {
                 )
         );
 
-        when(currencyRepository.getByCode(CurrencyType.RSD)).thenReturn(rsdCurrency);
-        when(currencyRepository.getByCode(CurrencyType.EUR)).thenReturn(eurCurrency);
-        when(currencyRepository.getByCode(CurrencyType.USD)).thenReturn(usdCurrency);
+        when(currencyCache.get(CurrencyType.RSD)).thenReturn(rsdCurrency);
+        when(currencyCache.get(CurrencyType.EUR)).thenReturn(eurCurrency);
+        when(currencyCache.get(CurrencyType.USD)).thenReturn(usdCurrency);
 
         when(bankAccountUtils.getBankAccountForCurrency(eurCurrency.getCode())).thenReturn(bankAccountEUR);
         when(bankAccountUtils.getBankAccountForCurrency(usdCurrency.getCode())).thenReturn(bankAccountUSD);
@@ -535,7 +722,7 @@ public class TransferServiceTest {
         assertEquals(1105.6, fromAccountUSD.getBalance());
         assertTrue(1000000.0 < bankAccountEUR.getBalance());
         assertTrue(999900.0 > bankAccountUSD.getBalance());
-        verify(currencyRepository, times(3)).getByCode(any(CurrencyType.class));
+        verify(currencyCache, times(3)).get(any(CurrencyType.class));
     }
 
     @Test
@@ -551,6 +738,53 @@ public class TransferServiceTest {
         assertEquals(900.0, fromAccountUSD.getBalance());
         assertEquals(600.0, toAccount.getBalance());
         verify(transactionRepository, times(1)).save(any(Transaction.class));
+        verify(spendingLimitService).recordSpending(fromAccountUSD, 100.0);
+    }
+
+    @Test
+    void testProcessTransfer_ExternalWithoutSpendingLimitStillLocksAccounts() {
+        when(transferRepository.findById(2L)).thenReturn(Optional.of(externalTransfer));
+
+        String result = transferService.processTransfer(2L, false);
+
+        assertEquals("Transfer completed successfully", result);
+        assertEquals(TransferStatus.COMPLETED, externalTransfer.getStatus());
+        verify(accountLockService).lockTransferAccounts(2L);
+        verify(spendingLimitService, never()).wouldExceedLimit(any(), anyDouble());
+        verify(spendingLimitService, never()).recordSpending(any(), anyDouble());
+    }
+
+    @Test
+    void testProcessTransfer_QueuedExternal() {
+        externalTransfer.setStatus(TransferStatus.QUEUED);
+        when(transferRepository.findById(2L)).thenReturn(Optional.of(externalTransfer));
+
+        String result = transferService.processTransfer(2L);
+
+        assertEquals("Transfer completed successfully", result);
+        assertEquals(TransferStatus.COMPLETED, externalTransfer.getStatus());
+    }
+
+    @Test
+    void testMarkTransferFailed_OnlyWhileAwaitingExecution() {
+        externalTransfer.setStatus(TransferStatus.QUEUED);
+        internalTransfer.setStatus(TransferStatus.COMPLETED);
+        when(transferRepository.findById(2L)).thenReturn(Optional.of(externalTransfer));
+        when(transferRepository.findById(1L)).thenReturn(Optional.of(internalTransfer));
+
+        transferService.markTransferFailed(2L, "Insufficient funds");
+        transferService.markTransferFailed(1L, "Insufficient funds");
+
+        assertEquals(TransferStatus.FAILED, externalTransfer.getStatus());
+        assertEquals("Insufficient funds", externalTransfer.getNote());
+        assertEquals(TransferStatus.COMPLETED, internalTransfer.getStatus());
+        verify(transferRepository, times(1)).save(any(Transfer.class));
+
+        ArgumentCaptor<TransferStatusEventDTO> event = ArgumentCaptor.forClass(TransferStatusEventDTO.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(2L, event.getValue().getTransferId());
+        assertEquals(100L, event.getValue().getOwnerId());
+        assertEquals(TransferStatus.FAILED, event.getValue().getStatus());
     }
 
     @Test
@@ -567,9 +801,9 @@ public class TransferServiceTest {
                 )
         );
 
-        when(currencyRepository.getByCode(CurrencyType.RSD)).thenReturn(rsdCurrency);
-        when(currencyRepository.getByCode(CurrencyType.EUR)).thenReturn(eurCurrency);
-        when(currencyRepository.getByCode(CurrencyType.USD)).thenReturn(usdCurrency);
+        when(currencyCache.get(CurrencyType.RSD)).thenReturn(rsdCurrency);
+        when(currencyCache.get(CurrencyType.EUR)).thenReturn(eurCurrency);
+        when(currencyCache.get(CurrencyType.USD)).thenReturn(usdCurrency);
 
         when(bankAccountUtils.getBankAccountForCurrency(eurCurrency.getCode())).thenReturn(bankAccountEUR);
         when(bankAccountUtils.getBankAccountForCurrency(usdCurrency.getCode())).thenReturn(bankAccountUSD);
@@ -582,8 +816,11 @@ public class TransferServiceTest {
         assertEquals(TransferStatus.COMPLETED, foreignTransfer.getStatus());
         assertEquals(800.0, fromAccountUSD.getBalance());
         assertEquals(590.0, toAccountForeign.getBalance());
-        assertEquals(1000100.0, bankAccountUSD.getBalance());
-        assertEquals(999910.0, bankAccountEUR.getBalance());
+        // Racuni banke se menjaju samo kroz knjizenja u ledger-u
+        assertEquals(1000000.0, bankAccountUSD.getBalance());
+        assertEquals(1000000.0, bankAccountEUR.getBalance());
+        verify(ledgerService).post(any(Transfer.class), eq(bankAccountUSD), eq(100.0), anyString());
+        verify(ledgerService).post(any(Transfer.class), eq(bankAccountEUR), eq(-90.0), anyString());
     }
 
     @Test
@@ -608,6 +845,77 @@ public class TransferServiceTest {
         assertEquals(TransferStatus.FAILED, externalTransfer.getStatus());
     }
 
+    @Test
+    void testProcessInternalTransfer_SpendingLimitExceeded() {
+        internalTransfer.setAmount(100.0);
+
+        when(transferRepository.findById(1L)).thenReturn(Optional.of(internalTransfer));
+        when(spendingLimitService.wouldExceedLimit(fromAccountUSD, 100.0)).thenReturn(true);
+
+        assertThrows(RuntimeException.class, () -> transferService.processInternalTransfer(1L));
+        assertEquals(TransferStatus.FAILED, internalTransfer.getStatus());
+        assertEquals("Spending limit exceeded", internalTransfer.getNote());
+        verify(accountRepository, never()).save(any(Account.class));
+    }
+
+    @Test
+    void testProcessExternalTransfer_SpendingLimitExceeded() {
+        externalTransfer.setAmount(100.0);
+
+        when(transferRepository.findById(2L)).thenReturn(Optional.of(externalTransfer));
+        when(spendingLimitService.wouldExceedLimit(fromAccountUSD, 100.0)).thenReturn(true);
+
+        assertThrows(RuntimeException.class, () -> transferService.processExternalTransfer(2L));
+        assertEquals(TransferStatus.FAILED, externalTransfer.getStatus());
+        assertEquals("Spending limit exceeded", externalTransfer.getNote());
+        verify(accountRepository, never()).save(any(Account.class));
+    }
+
+    @Test
+    void testProcessExternalTransfer_HouseSourceIsDebitedThroughShards() {
+        bankAccountUSD.setType(AccountType.BANK);
+        externalTransfer.setFromAccountId(bankAccountUSD);
+        externalTransfer.setAmount(100.0);
+
+        when(transferRepository.findById(2L)).thenReturn(Optional.of(externalTransfer));
+        when(ledgerService.debit(externalTransfer, bankAccountUSD, 100.0, "Prenos novca")).thenReturn(true);
+
+        assertEquals("Transfer completed successfully", transferService.processExternalTransfer(2L, false));
+
+        assertEquals(1000000.0, bankAccountUSD.getBalance());
+        assertEquals(600.0, toAccount.getBalance());
+        verify(ledgerService, never()).post(any(), eq(bankAccountUSD), anyDouble(), anyString());
+        verify(ledgerService).post(externalTransfer, toAccount, 100.0, "Prenos novca");
+    }
+
+    @Test
+    void testProcessExternalTransfer_HouseSourceWithoutFunds() {
+        bankAccountUSD.setType(AccountType.BANK);
+        externalTransfer.setFromAccountId(bankAccountUSD);
+        externalTransfer.setAmount(100.0);
+
+        when(transferRepository.findById(2L)).thenReturn(Optional.of(externalTransfer));
+        when(ledgerService.debit(externalTransfer, bankAccountUSD, 100.0, "Prenos novca")).thenReturn(false);
+
+        assertThrows(RuntimeException.class, () -> transferService.processExternalTransfer(2L, false));
+        assertEquals(TransferStatus.FAILED, externalTransfer.getStatus());
+        verify(ledgerService, never()).post(any(), any(), anyDouble(), anyString());
+    }
+
+    @Test
+    void testValidateMoneyTransfer_WithoutSpendingLimit() {
+        MoneyTransferDTO dto = new MoneyTransferDTO();
+        dto.setFromAccountNumber("123456789");
+        dto.setRecipientAccount("987654321");
+        dto.setAmount(2e4);
+
+        when(accountRepository.findByAccountNumber("123456789")).thenReturn(Optional.of(fromAccountUSD));
+        when(accountRepository.findByAccountNumber("987654321")).thenReturn(Optional.of(toAccount));
+
+        assertTrue(transferService.validateMoneyTransfer(dto, false));
+        verify(spendingLimitService, never()).wouldExceedLimit(any(), anyDouble());
+    }
+
     @Test
     public void testPerformRsdToForeign_successfulExchange() {
 
@@ -645,8 +953,8 @@ public class TransferServiceTest {
         exchangeMock.put("finalAmount", 8.5);
         exchangeMock.put("provision", 0.5);
 
-        when(currencyRepository.getByCode(CurrencyType.RSD)).thenReturn(rsdCurrency);
-        when(currencyRepository.getByCode(CurrencyType.EUR)).thenReturn(eurCurrency);
+        when(currencyCache.get(CurrencyType.RSD)).thenReturn(rsdCurrency);
+        when(currencyCache.get(CurrencyType.EUR)).thenReturn(eurCurrency);
         when(bankAccountUtils.getBankAccountForCurrency(CurrencyType.RSD)).thenReturn(rsdBankAccount);
         when(bankAccountUtils.getBankAccountForCurrency(CurrencyType.EUR)).thenReturn(eurBankAccount);
         when(userServiceCustomer.getCustomerById(1L)).thenReturn(customer);
@@ -663,7 +971,9 @@ public class TransferServiceTest {
         assertEquals(4000.0, fromAccount.getBalance());
         assertEquals(208.5, toAccount.getBalance());
         assertEquals(100000.0, rsdBankAccount.getBalance());
-        assertEquals(100991.5, eurBankAccount.getBalance());
+        assertEquals(100000.0, eurBankAccount.getBalance());
+        verify(ledgerService).post(any(Transfer.class), eq(eurBankAccount), eq(1000.0), anyString());
+        verify(ledgerService).post(any(Transfer.class), eq(eurBankAccount), eq(-8.5), anyString());
     }
 
     @Test
@@ -703,8 +1013,8 @@ public class TransferServiceTest {
         exchangeMock.put("finalAmount", 11700.0);
         exchangeMock.put("provision", 100.0);
 
-        when(currencyRepository.getByCode(CurrencyType.RSD)).thenReturn(rsdCurrency);
-        when(currencyRepository.getByCode(CurrencyType.EUR)).thenReturn(eurCurrency);
+        when(currencyCache.get(CurrencyType.RSD)).thenReturn(rsdCurrency);
+        when(currencyCache.get(CurrencyType.EUR)).thenReturn(eurCurrency);
         when(userServiceCustomer.getCustomerById(1L)).thenReturn(customer);
         when(bankAccountUtils.getBankAccountForCurrency(CurrencyType.RSD)).thenReturn(rsdBankAccount);
         when(bankAccountUtils.getBankAccountForCurrency(CurrencyType.EUR)).thenReturn(eurBankAccount);
@@ -720,7 +1030,63 @@ public class TransferServiceTest {
 
         assertEquals(900.0, fromAccount.getBalance());
         assertEquals(21700.0, toAccount.getBalance());
-        assertEquals(100100.0, eurBankAccount.getBalance());
-        assertEquals(188300.0, rsdBankAccount.getBalance());
+        assertEquals(100000.0, eurBankAccount.getBalance());
+        assertEquals(200000.0, rsdBankAccount.getBalance());
+        verify(ledgerService).post(any(Transfer.class), eq(eurBankAccount), eq(100.0), anyString());
+        verify(ledgerService).post(any(Transfer.class), eq(rsdBankAccount), eq(-11700.0), anyString());
+    }
+
+    @Test
+    public void testPerformCurrencyExchangeTransfer_usesQuotedAmounts() {
+        Account fromAccount = new Account();
+        fromAccount.setCurrencyType(CurrencyType.EUR);
+        fromAccount.setBalance(1000.0);
+        fromAccount.setOwnerID(1L);
+
+        Account toAccount = new Account();
+        toAccount.setCurrencyType(CurrencyType.RSD);
+        toAccount.setBalance(10000.0);
+        toAccount.setOwnerID(1L);
+
+        Currency eurCurrency = new Currency();
+        eurCurrency.setCode(CurrencyType.EUR);
+        Currency rsdCurrency = new Currency();
+        rsdCurrency.setCode(CurrencyType.RSD);
+
+        Account eurBankAccount = new Account();
+        eurBankAccount.setCurrencyType(CurrencyType.EUR);
+        eurBankAccount.setBalance(100000.0);
+        eurBankAccount.setCompany(new Company());
+
+        Account rsdBankAccount = new Account();
+        rsdBankAccount.setCurrencyType(CurrencyType.RSD);
+        rsdBankAccount.setBalance(200000.0);
+        rsdBankAccount.setCompany(new Company());
+
+        CustomerDTO customer = new CustomerDTO();
+        customer.setFirstName("Ana");
+        customer.setLastName("Markovic");
+
+        Transfer transfer = new Transfer();
+        transfer.setAmount(100.0);
+        transfer.setQuoteId("quote-1");
+        transfer.setQuotedFinalAmount(11600.0);
+        transfer.setQuotedFee(117.0);
+        transfer.setQuotedProvision(117.0);
+
+        when(currencyCache.get(CurrencyType.RSD)).thenReturn(rsdCurrency);
+        when(currencyCache.get(CurrencyType.EUR)).thenReturn(eurCurrency);
+        when(userServiceCustomer.getCustomerById(1L)).thenReturn(customer);
+        when(bankAccountUtils.getBankAccountForCurrency(CurrencyType.RSD)).thenReturn(rsdBankAccount);
+        when(bankAccountUtils.getBankAccountForCurrency(CurrencyType.EUR)).thenReturn(eurBankAccount);
+
+        Map<String, Object> result = transferService.performCurrencyExchangeTransfer(transfer, fromAccount, toAccount);
+
+        assertEquals(11600.0, result.get("finalAmount"));
+        assertEquals(117.0, result.get("fee"));
+        assertEquals(900.0, fromAccount.getBalance());
+        assertEquals(21600.0, toAccount.getBalance());
+        verify(exchangeService, never()).calculatePreviewExchangeAutomatic(anyString(), anyString(), anyDouble());
+        verify(ledgerService).post(any(Transfer.class), eq(rsdBankAccount), eq(-11600.0), anyString());
     }
 }
\ No newline at end of file
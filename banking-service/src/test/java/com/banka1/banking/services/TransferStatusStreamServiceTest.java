@@ -0,0 +1,178 @@
+package com.banka1.banking.services;
+
+import com.banka1.banking.dto.TransferStatusEventDTO;
+import com.banka1.banking.models.helper.TransferStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransferStatusStreamServiceTest {
+
+    private TransferStatusStreamService streamService;
+
+    /**
+     * Pamti poslate dogadjaje kao SSE tekst umesto da ih pise u odgovor.
+     */
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            events.add(builder.build().stream()
+                    .map(ResponseBodyEmitter.DataWithMediaType::getData)
+                    .map(String::valueOf)
+                    .collect(Collectors.joining()));
+        }
+
+        List<String> statusEvents() {
+            return events.stream().filter(event -> event.contains("event:transfer-status")).toList();
+        }
+
+        String lastEventId() {
+            String last = statusEvents().get(statusEvents().size() - 1);
+            int start = last.indexOf("id:") + 3;
+            return last.substring(start, last.indexOf('\n', start));
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        streamService = new TransferStatusStreamService(4, 60_000L, 16, Runnable::run) {
+            @Override
+            SseEmitter newEmitter() {
+                return new RecordingEmitter();
+            }
+        };
+    }
+
+    @Test
+    void statusChangeIsSentOnlyToOwner() {
+        RecordingEmitter owner = (RecordingEmitter) streamService.subscribe(1L, null);
+        RecordingEmitter other = (RecordingEmitter) streamService.subscribe(2L, null);
+
+        streamService.onStatusChange(event(10L, 1L, TransferStatus.COMPLETED));
+
+        assertEquals(1, owner.statusEvents().size());
+        assertTrue(owner.statusEvents().get(0).contains("transferId=10"));
+        assertTrue(other.events.isEmpty());
+    }
+
+    @Test
+    void reconnectReplaysMissedEvents() {
+        RecordingEmitter first = (RecordingEmitter) streamService.subscribe(1L, null);
+        streamService.onStatusChange(event(10L, 1L, TransferStatus.QUEUED));
+        String lastEventId = first.lastEventId();
+
+        streamService.onStatusChange(event(10L, 1L, TransferStatus.COMPLETED));
+        streamService.onStatusChange(event(11L, 2L, TransferStatus.CANCELLED));
+        RecordingEmitter second = (RecordingEmitter) streamService.subscribe(1L, lastEventId);
+
+        assertEquals(1, second.statusEvents().size());
+        assertTrue(second.statusEvents().get(0).contains("status=COMPLETED"));
+        assertTrue(second.events.stream().noneMatch(event -> event.contains("event:reset")));
+    }
+
+    @Test
+    void reconnectAfterBufferWrappedGetsReset() {
+        RecordingEmitter first = (RecordingEmitter) streamService.subscribe(1L, null);
+        streamService.onStatusChange(event(10L, 1L, TransferStatus.QUEUED));
+        String lastEventId = first.lastEventId();
+
+        for (long id = 20; id < 26; id++) {
+            streamService.onStatusChange(event(id, 1L, TransferStatus.CANCELLED));
+        }
+        RecordingEmitter second = (RecordingEmitter) streamService.subscribe(1L, lastEventId);
+
+        assertEquals(1, second.events.size());
+        assertTrue(second.events.get(0).contains("event:reset"));
+
+        streamService.onStatusChange(event(30L, 1L, TransferStatus.COMPLETED));
+        assertEquals(1, second.statusEvents().size());
+    }
+
+    @Test
+    void unknownLastEventIdGetsReset() {
+        RecordingEmitter emitter = (RecordingEmitter) streamService.subscribe(1L, "123-4");
+
+        assertEquals(1, emitter.events.size());
+        assertTrue(emitter.events.get(0).contains("event:reset"));
+    }
+
+    @Test
+    void failedSendRemovesSubscription() {
+        streamService = new TransferStatusStreamService(4, 60_000L, 16, Runnable::run) {
+            @Override
+            SseEmitter newEmitter() {
+                return new SseEmitter() {
+                    @Override
+                    public void send(SseEventBuilder builder) throws IOException {
+                        throw new IOException("Broken pipe");
+                    }
+                };
+            }
+        };
+        streamService.subscribe(1L, null);
+        assertEquals(1, streamService.subscriberCount(1L));
+
+        streamService.onStatusChange(event(10L, 1L, TransferStatus.COMPLETED));
+
+        assertEquals(0, streamService.subscriberCount(1L));
+    }
+
+    @Test
+    void statusChangeIsSentOffTheCallerThread() {
+        ConcurrentLinkedQueue<Runnable> sender = new ConcurrentLinkedQueue<>();
+        streamService = new TransferStatusStreamService(4, 60_000L, 16, sender::add) {
+            @Override
+            SseEmitter newEmitter() {
+                return new RecordingEmitter();
+            }
+        };
+        RecordingEmitter emitter = (RecordingEmitter) streamService.subscribe(1L, null);
+
+        streamService.onStatusChange(event(10L, 1L, TransferStatus.QUEUED));
+        streamService.onStatusChange(event(10L, 1L, TransferStatus.COMPLETED));
+
+        assertTrue(emitter.events.isEmpty());
+        assertEquals(1, sender.size());
+        sender.poll().run();
+        assertEquals(2, emitter.statusEvents().size());
+        assertTrue(emitter.statusEvents().get(1).contains("status=COMPLETED"));
+    }
+
+    @Test
+    void slowClientIsDisconnected() {
+        ConcurrentLinkedQueue<Runnable> sender = new ConcurrentLinkedQueue<>();
+        streamService = new TransferStatusStreamService(4, 60_000L, 2, sender::add) {
+            @Override
+            SseEmitter newEmitter() {
+                return new RecordingEmitter();
+            }
+        };
+        streamService.subscribe(1L, null);
+        RecordingEmitter other = (RecordingEmitter) streamService.subscribe(2L, null);
+
+        for (long id = 10; id < 13; id++) {
+            streamService.onStatusChange(event(id, 1L, TransferStatus.COMPLETED));
+        }
+        streamService.onStatusChange(event(20L, 2L, TransferStatus.COMPLETED));
+
+        assertEquals(0, streamService.subscriberCount(1L));
+        assertEquals(1, streamService.subscriberCount(2L));
+        sender.forEach(Runnable::run);
+        assertEquals(1, other.statusEvents().size());
+    }
+
+    private static TransferStatusEventDTO event(Long transferId, Long ownerId, TransferStatus status) {
+        return new TransferStatusEventDTO(transferId, ownerId, status, null, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,60 @@
+package com.banka1.banking.services.implementation;
+
+import com.banka1.banking.models.helper.CurrencyType;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.web.client.RestTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RateProviderTest {
+
+    private static final String CDN_URL = "https://cdn.jsdelivr.net/npm/@fawazahmed0/currency-api@latest/v1/currencies/";
+
+    @Test
+    void cdnProviderReadsSupportedCurrenciesOfBase() {
+        RestTemplate restTemplate = mock(RestTemplate.class);
+        when(restTemplate.getForObject(CDN_URL + "rsd.json", String.class))
+                .thenReturn("{\"date\":\"2026-10-18\",\"rsd\":{\"eur\":0.0085,\"usd\":0.0093,\"btc\":0.0000001}}");
+
+        Map<CurrencyType, Double> rates = new CdnRateProvider(restTemplate, CDN_URL).fetchRates(CurrencyType.RSD);
+
+        assertEquals(Map.of(CurrencyType.EUR, 0.0085, CurrencyType.USD, 0.0093), rates);
+    }
+
+    @Test
+    void cdnProviderWithoutListForBaseReturnsNull() {
+        RestTemplate restTemplate = mock(RestTemplate.class);
+        when(restTemplate.getForObject(CDN_URL + "eur.json", String.class)).thenReturn("{\"date\":\"2026-10-18\"}");
+
+        assertNull(new CdnRateProvider(restTemplate, CDN_URL).fetchRates(CurrencyType.EUR));
+    }
+
+    @Test
+    void fileProviderReadsEveryBaseFromOneFile() {
+        ByteArrayResource file = new ByteArrayResource(
+                "{\"rsd\":{\"eur\":0.0085},\"eur\":{\"rsd\":117.2}}".getBytes(StandardCharsets.UTF_8));
+        FileRateProvider provider = new FileRateProvider(file);
+
+        assertEquals(Map.of(CurrencyType.EUR, 0.0085), provider.fetchRates(CurrencyType.RSD));
+        assertEquals(Map.of(CurrencyType.RSD, 117.2), provider.fetchRates(CurrencyType.EUR));
+        assertNull(provider.fetchRates(CurrencyType.JPY));
+    }
+
+    @Test
+    void bundledOfflineFileHasRatesForEveryCurrency() {
+        FileRateProvider provider = new FileRateProvider(new ClassPathResource("exchange-rates.json"));
+
+        assertEquals(CurrencyType.values().length - 1, provider.fetchRates(CurrencyType.RSD).size());
+        for (CurrencyType currency : CurrencyType.values()) {
+            if (currency != CurrencyType.RSD) {
+                assertTrue(provider.fetchRates(currency).containsKey(CurrencyType.RSD));
+            }
+        }
+    }
+}
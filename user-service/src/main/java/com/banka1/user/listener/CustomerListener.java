@@ -11,6 +11,10 @@ import org.springframework.jms.annotation.JmsListener;
 import org.springframework.jms.core.JmsTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
 @Slf4j
 @Component
 @RequiredArgsConstructor
@@ -32,6 +36,19 @@ public class CustomerListener {
         jmsTemplate.convertAndSend(message.getJMSReplyTo(), messageHelper.createTextMessage(customer));
     }
 
+    @JmsListener(destination = "${destination.customer.by-ids}", concurrency = "5-10")
+    public void onGetCustomersByIdsMessage(Message message) throws JMSException {
+        var ids = messageHelper.getMessage(message, Long[].class);
+        List<CustomerResponse> customers = List.of();
+        try {
+            if (ids != null)
+                customers = customerService.findAllByIds(Arrays.stream(ids).filter(Objects::nonNull).distinct().toList());
+        } catch (Exception e) {
+            log.error("CustomerListener (by ids): ", e);
+        }
+        jmsTemplate.convertAndSend(message.getJMSReplyTo(), messageHelper.createTextMessage(customers));
+    }
+
     @JmsListener(destination = "${destination.customer.email}", concurrency = "5-10")
     public void onGetCustomerByEmailMessage(Message message) throws JMSException {
         var email = messageHelper.getMessage(message, String.class);
@@ -2,12 +2,20 @@ package com.banka1.user.repository;
 
 import com.banka1.user.model.Customer;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
     Optional<Customer> findByEmail(String email);
 
+    // Permisije se ucitavaju u istom upitu umesto posebnog upita po klijentu
+    @Query("select distinct c from Customer c left join fetch c.permissions where c.id in :ids")
+    List<Customer> findAllWithPermissionsByIdIn(@Param("ids") Collection<Long> ids);
+
 }
@@ -17,6 +17,7 @@ import com.banka1.user.repository.CustomerRepository;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.activemq.command.ActiveMQTopic;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.*;
 import org.springframework.http.HttpStatus;
@@ -24,6 +25,7 @@ import org.springframework.jms.core.JmsTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -44,6 +46,8 @@ public class CustomerService {
     private String destinationEmail;
     @Value("${destination.account}")
     private String destinationAccount;
+    @Value("${destination.customer.changed}")
+    private String destinationCustomerChanged;
     @Value("${frontend.url}")
     private String frontendUrl;
 
@@ -59,6 +63,17 @@ public class CustomerService {
         return CustomerMapper.customerToDto(customer);
     }
 
+    /**
+     * Finds all customers with the given ids in one query. Ids without a customer are skipped.
+     */
+    public List<CustomerResponse> findAllByIds(Collection<Long> ids) {
+        if (ids.isEmpty())
+            return List.of();
+        return customerRepository.findAllWithPermissionsByIdIn(ids).stream()
+                .map(CustomerMapper::customerToDto)
+                .toList();
+    }
+
     public CustomerResponse findByEmail(String email) {
         var customerOptional = customerRepository.findByEmail(email);
         if(customerOptional.isEmpty())
@@ -191,7 +206,9 @@ public class CustomerService {
 
             System.out.println("Verification code: " + verificationCode);
 
-            return customerRepository.save(customer);
+            Customer saved = customerRepository.save(customer);
+            publishCustomerChanged(saved.getId());
+            return saved;
         });
     }
 
@@ -208,6 +225,7 @@ public class CustomerService {
         }
 
         customerRepository.delete(customer.get());
+        publishCustomerChanged(id);
         return true;
     }
 
@@ -224,7 +242,21 @@ public class CustomerService {
 
         return customerRepository.findById(id).map(customer -> {
             customer.setPermissions(permissions);
-            return customerRepository.save(customer);
+            Customer saved = customerRepository.save(customer);
+            publishCustomerChanged(saved.getId());
+            return saved;
         });
     }
+
+    /**
+     * Tells the other services that a customer changed, so they drop their cached copy. The change itself is
+     * already saved; a failed notification only leaves the copies until their TTL runs out.
+     */
+    private void publishCustomerChanged(Long id) {
+        try {
+            jmsTemplate.convertAndSend(new ActiveMQTopic(destinationCustomerChanged), messageHelper.createTextMessage(id));
+        } catch (RuntimeException e) {
+            log.warn("Customer change {} could not be published: {}", id, e.getMessage());
+        }
+    }
 }
\ No newline at end of file
@@ -16,6 +16,8 @@ import com.banka1.user.model.helper.Gender;
 import com.banka1.user.repository.CustomerRepository;
 import com.banka1.user.service.CustomerService;
 import com.banka1.user.service.SetPasswordService;
+import jakarta.jms.Destination;
+import org.apache.activemq.command.ActiveMQTopic;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -29,6 +31,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.jms.core.JmsTemplate;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.test.util.AssertionErrors;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
@@ -36,6 +39,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -265,4 +269,77 @@ public class CustomerServiceTest {
             AssertionErrors.assertNotNull("Error", e);
         }
     }
+
+    @Test
+    void testFindAllByIdsUsesOneQuery() {
+        when(customerRepository.findAllWithPermissionsByIdIn(List.of(1L, 2L)))
+                .thenReturn(List.of(customer(1L, "Petar"), customer(2L, "Jovan")));
+
+        List<CustomerResponse> customers = customerService.findAllByIds(List.of(1L, 2L));
+
+        assertEquals(2, customers.size());
+        assertEquals("Petar", customers.get(0).getFirstName());
+        assertEquals(2L, customers.get(1).getId());
+        verify(customerRepository, times(1)).findAllWithPermissionsByIdIn(List.of(1L, 2L));
+        verify(customerRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void testFindAllByIdsWithoutIds() {
+        assertTrue(customerService.findAllByIds(List.of()).isEmpty());
+        verifyNoInteractions(customerRepository);
+    }
+
+    @Test
+    void testUpdateCustomerPublishesChange() {
+        ReflectionTestUtils.setField(customerService, "destinationCustomerChanged", "customer-changed");
+        Customer customer = customer(1L, "Petar");
+        when(customerRepository.findById(1L)).thenReturn(Optional.of(customer));
+        when(customerRepository.save(customer)).thenReturn(customer);
+        when(messageHelper.createTextMessage(1L)).thenReturn("1");
+
+        customerService.updateCustomer(1L, new UpdateCustomerRequest());
+
+        verify(jmsTemplate).convertAndSend(eq((Destination) new ActiveMQTopic("customer-changed")), eq((Object) "1"));
+    }
+
+    @Test
+    void testDeleteCustomerPublishesChange() {
+        ReflectionTestUtils.setField(customerService, "destinationCustomerChanged", "customer-changed");
+        Customer customer = customer(1L, "Petar");
+        when(customerRepository.findById(1L)).thenReturn(Optional.of(customer));
+        when(messageHelper.createTextMessage(1L)).thenReturn("1");
+
+        assertTrue(customerService.deleteCustomer(1L));
+
+        verify(jmsTemplate).convertAndSend(eq((Destination) new ActiveMQTopic("customer-changed")), eq((Object) "1"));
+    }
+
+    @Test
+    void testFailedChangeNotificationDoesNotFailUpdate() {
+        ReflectionTestUtils.setField(customerService, "destinationCustomerChanged", "customer-changed");
+        Customer customer = customer(1L, "Petar");
+        when(customerRepository.findById(1L)).thenReturn(Optional.of(customer));
+        when(customerRepository.save(customer)).thenReturn(customer);
+        when(messageHelper.createTextMessage(1L)).thenReturn("1");
+        doThrow(new RuntimeException("broker down")).when(jmsTemplate).convertAndSend(any(Destination.class), any(Object.class));
+
+        List<Permission> permissions = List.of(Permission.READ_CUSTOMER);
+        assertEquals(permissions, customerService.updateCustomerPermissions(1L, permissions).get().getPermissions());
+    }
+
+    private static Customer customer(Long id, String firstName) {
+        Customer customer = new Customer();
+        customer.setId(id);
+        customer.setFirstName(firstName);
+        customer.setLastName("Petrovic");
+        customer.setUsername(firstName.toLowerCase());
+        customer.setBirthDate("2000-03-03");
+        customer.setGender(Gender.MALE);
+        customer.setEmail(firstName.toLowerCase() + "@example.com");
+        customer.setPhoneNumber("555333");
+        customer.setAddress("Ulica");
+        customer.setPermissions(List.of());
+        return customer;
+    }
 }